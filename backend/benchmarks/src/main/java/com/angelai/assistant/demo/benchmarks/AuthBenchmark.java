@@ -0,0 +1,71 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import com.angelai.assistant.demo.langchain4j.service.auth.AuthenticatedUser;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 令牌认证的单请求开销：verify 只测签名校验和版本缓存查询；
+ * message 经过完整的过滤器链，对比 authEnabled=true/false 两组结果即为认证带来的额外耗时。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+
+    @Param({"true", "false"})
+    public boolean authEnabled;
+
+    private ConfigurableApplicationContext context;
+    private TokenService tokenService;
+    private MockMvc mockMvc;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of("app.auth.enabled", authEnabled));
+        tokenService = context.getBean(TokenService.class);
+        token = BenchmarkApplication.token(context);
+        // 关闭认证时请求不带令牌，过滤器直接放行
+        mockMvc = BenchmarkApplication.mockMvc(context, authEnabled ? token : null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<AuthenticatedUser> verify() {
+        return tokenService.verify(token);
+    }
+
+    @Benchmark
+    public String message() throws Exception {
+        return mockMvc.perform(get("/api/chat/message").param("msg", "hello"))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,102 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import com.angelai.assistant.demo.langchain4j.Langchain4jDemoApplication;
+import com.angelai.assistant.demo.langchain4j.entity.User;
+import com.angelai.assistant.demo.langchain4j.repository.UserRepository;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import jakarta.servlet.Filter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 启动完整的应用上下文：模型替换为进程内实现，数据库换成内存 H2，其余组件（AI 服务代理、监听器、记忆、持久化）保持原样
+ */
+public final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    public static ConfigurableApplicationContext start(Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:benchmarks;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("logging.level.root", "WARN");
+        properties.putAll(overrides);
+        return new SpringApplicationBuilder(Langchain4jDemoApplication.class, FakeModelConfiguration.class)
+                .web(WebApplicationType.SERVLET)
+                .properties(properties)
+                .run();
+    }
+
+    /**
+     * 带上 Spring Security 过滤器链，与真实请求经过的处理路径一致；每个请求默认带上基准用户的令牌
+     */
+    public static MockMvc mockMvc(ConfigurableApplicationContext context) {
+        return mockMvc(context, token(context));
+    }
+
+    /**
+     * @param token 为 null 时请求不带令牌
+     */
+    public static MockMvc mockMvc(ConfigurableApplicationContext context, String token) {
+        MockHttpServletRequestBuilder defaultRequest = get("/");
+        if (token != null) {
+            defaultRequest.header(HttpHeaders.AUTHORIZATION, "Bearer " + token);
+        }
+        return MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+                .addFilters(context.getBean("springSecurityFilterChain", Filter.class))
+                .defaultRequest(defaultRequest)
+                .build();
+    }
+
+    /**
+     * 为基准用户签发令牌，用户不存在时先创建
+     */
+    public static String token(ConfigurableApplicationContext context) {
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        User user = userRepository.findByUsername("benchmark").orElseGet(() -> {
+            User created = new User();
+            created.setUsername("benchmark");
+            created.setPassword("unused");
+            created.setEmail("benchmark@example.com");
+            return userRepository.save(created);
+        });
+        return context.getBean(TokenService.class).issue(user.getId());
+    }
+
+    @Configuration
+    static class FakeModelConfiguration {
+
+        @Bean
+        FakeStreamingChatModel fakeStreamingChatModel(ObjectProvider<ChatModelListener> listeners) {
+            return new FakeStreamingChatModel(listeners.orderedStream().toList());
+        }
+
+        @Bean
+        FakeChatModel fakeChatModel(ObjectProvider<ChatModelListener> listeners) {
+            return new FakeChatModel(listeners.orderedStream().toList());
+        }
+    }
+}
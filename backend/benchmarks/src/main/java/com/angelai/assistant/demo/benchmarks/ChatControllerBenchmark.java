@@ -0,0 +1,100 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import com.angelai.assistant.demo.langchain4j.service.ConversationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * 经过 Security 过滤器链和 DispatcherServlet 调用 ChatController，测量每个请求在模型之外的框架开销。
+ * tokenIntervalMicros 为 0 时模型同步推送 token，结果基本就是应用自身的耗时。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatControllerBenchmark {
+
+    private static final long ASYNC_TIMEOUT_MILLIS = 30_000;
+
+    @Param({"100"})
+    public int tokens;
+
+    @Param({"0"})
+    public long tokenIntervalMicros;
+
+    private ConfigurableApplicationContext context;
+    private MockMvc mockMvc;
+    private Long conversationId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 摘要在后台线程调用模型，会干扰测量
+        context = BenchmarkApplication.start(Map.of("app.chat.memory.compaction.enabled", false));
+        context.getBean(FakeStreamingChatModel.class).configure(tokens, TimeUnit.MICROSECONDS.toNanos(tokenIntervalMicros));
+        mockMvc = BenchmarkApplication.mockMvc(context);
+        conversationId = context.getBean(ConversationService.class).createConversation(1L, "benchmark").getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String message() throws Exception {
+        return mockMvc.perform(get("/api/chat/message").param("msg", "hello"))
+                .andReturn().getResponse().getContentAsString();
+    }
+
+    @Benchmark
+    public String streaming() throws Exception {
+        return stream("/api/chat/streaming", MediaType.ALL);
+    }
+
+    @Benchmark
+    public String sse() throws Exception {
+        return stream("/api/chat/sse", MediaType.TEXT_EVENT_STREAM);
+    }
+
+    /**
+     * 包含对话记忆的读写和消息入队
+     */
+    @Benchmark
+    public String conversationStreaming() throws Exception {
+        return stream("/api/chat/conversations/" + conversationId + "/streaming", MediaType.ALL);
+    }
+
+    private String stream(String path, MediaType accept) throws Exception {
+        MvcResult result = mockMvc.perform(post(path)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .accept(accept)
+                        .content("hello"))
+                .andReturn();
+        result.getAsyncResult(ASYNC_TIMEOUT_MILLIS);
+        return mockMvc.perform(asyncDispatch(result)).andReturn().getResponse().getContentAsString();
+    }
+}
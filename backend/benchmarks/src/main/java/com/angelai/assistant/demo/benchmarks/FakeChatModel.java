@@ -0,0 +1,40 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+
+/**
+ * 立即返回固定应答的非流式模型
+ */
+public class FakeChatModel implements ChatModel {
+
+    private static final String ANSWER = "This is a fixed answer from the in-process model.";
+
+    private final List<ChatModelListener> listeners;
+
+    public FakeChatModel(List<ChatModelListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return listeners;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(ANSWER))
+                .modelName("fake")
+                .tokenUsage(new TokenUsage(16, 10))
+                .finishReason(FinishReason.STOP)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内的流式模型：按固定间隔推送固定数量的 token。间隔为 0 时在调用线程上同步推送，只剩框架本身的开销。
+ */
+public class FakeStreamingChatModel implements StreamingChatModel {
+
+    static final String TOKEN = "token ";
+
+    private final List<ChatModelListener> listeners;
+    private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "fake-streaming-model");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile int tokens = 100;
+    private volatile long tokenIntervalNanos;
+
+    public FakeStreamingChatModel(List<ChatModelListener> listeners) {
+        this.listeners = listeners;
+    }
+
+    public void configure(int tokens, long tokenIntervalNanos) {
+        this.tokens = tokens;
+        this.tokenIntervalNanos = tokenIntervalNanos;
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return listeners;
+    }
+
+    @Override
+    public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        int count = tokens;
+        long interval = tokenIntervalNanos;
+        if (interval == 0) {
+            emit(handler, count, 0);
+        } else {
+            executor.execute(() -> emit(handler, count, interval));
+        }
+    }
+
+    private static void emit(StreamingChatResponseHandler handler, int count, long interval) {
+        Handle handle = new Handle();
+        PartialResponseContext context = new PartialResponseContext(handle);
+        for (int i = 0; i < count && !handle.cancelled; i++) {
+            if (interval > 0) {
+                LockSupport.parkNanos(interval);
+            }
+            handler.onPartialResponse(new PartialResponse(TOKEN), context);
+        }
+        if (handle.cancelled) {
+            return;
+        }
+        handler.onCompleteResponse(ChatResponse.builder()
+                .aiMessage(AiMessage.from(TOKEN.repeat(count)))
+                .modelName("fake")
+                .tokenUsage(new TokenUsage(16, count))
+                .finishReason(FinishReason.STOP)
+                .build());
+    }
+
+    private static class Handle implements StreamingHandle {
+
+        private volatile boolean cancelled;
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import com.angelai.assistant.demo.langchain4j.dto.LoginRequest;
+import com.angelai.assistant.demo.langchain4j.dto.RegisterRequest;
+import com.angelai.assistant.demo.langchain4j.dto.UserDto;
+import com.angelai.assistant.demo.langchain4j.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 登录高峰对聊天接口的影响：14 个线程持续登录（BCrypt 强度 10），同时 2 个线程调用 /api/chat/message。
+ * concurrency 为哈希线程池大小，设成与登录线程数相同时近似于直接在请求线程上哈希。
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({"1", "14"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private UserService userService;
+    private MockMvc mockMvc;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of(
+                "app.auth.password.concurrency", concurrency,
+                "app.auth.password.max-wait", "30s"));
+        userService = context.getBean(UserService.class);
+        userService.register(new RegisterRequest("hashing", PASSWORD, "hashing@example.com"));
+        mockMvc = BenchmarkApplication.mockMvc(context);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(14)
+    public UserDto login() {
+        return userService.login(new LoginRequest("hashing", PASSWORD));
+    }
+
+    @Benchmark
+    @Group("storm")
+    @GroupThreads(2)
+    public String message() throws Exception {
+        return mockMvc.perform(get("/api/chat/message").param("msg", "hello"))
+                .andReturn().getResponse().getContentAsString();
+    }
+}
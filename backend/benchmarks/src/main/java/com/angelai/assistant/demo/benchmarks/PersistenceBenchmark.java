@@ -0,0 +1,61 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.service.ConversationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息持久化的调用方开销：同步 saveMessage（JPA save，每条一个事务）对比写入缓冲的入队。
+ * 默认连内存 H2，只反映应用和 ORM 的开销；要测真实数据库，用 -jvmArgs 覆盖 spring.datasource.*。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    private static final String CONTENT = "A typical chat message that is persisted for every turn of the conversation.";
+
+    private ConfigurableApplicationContext context;
+    private ConversationService conversationService;
+    private Long conversationId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of());
+        conversationService = context.getBean(ConversationService.class);
+        conversationId = conversationService.createConversation(1L, "benchmark").getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Message saveMessage() {
+        return conversationService.saveMessage(conversationId, 1L, CONTENT, "USER");
+    }
+
+    @Benchmark
+    public Message enqueueMessage() {
+        return conversationService.enqueueMessage(conversationId, 1L, CONTENT, "USER");
+    }
+}
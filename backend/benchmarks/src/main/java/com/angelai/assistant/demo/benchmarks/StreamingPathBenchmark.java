@@ -0,0 +1,110 @@
+package com.angelai.assistant.demo.benchmarks;
+
+import com.angelai.assistant.demo.langchain4j.service.ChatService;
+import com.angelai.assistant.demo.langchain4j.service.StreamingChatAssistant;
+import com.angelai.assistant.demo.langchain4j.service.stream.TokenCoalescer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐层叠加流式链路：模型本身 → @AiService 代理 → Flux 适配 → token 合并。
+ * 相邻两项的差值就是该层的开销；配合 -prof gc 的 gc.alloc.rate.norm 除以 tokens 得到每个 token 的分配量。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingPathBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int tokens;
+
+    private ConfigurableApplicationContext context;
+    private FakeStreamingChatModel model;
+    private StreamingChatAssistant assistant;
+    private ChatService chatService;
+    private TokenCoalescer tokenCoalescer;
+    private ChatRequest request;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Map.of());
+        model = context.getBean(FakeStreamingChatModel.class);
+        model.configure(tokens, 0);
+        assistant = context.getBean(StreamingChatAssistant.class);
+        chatService = context.getBean(ChatService.class);
+        tokenCoalescer = context.getBean(TokenCoalescer.class);
+        request = ChatRequest.builder().messages(UserMessage.from("hello")).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void model(Blackhole blackhole) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        model.chat(request, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                blackhole.consume(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.countDown();
+            }
+        });
+        done.await();
+    }
+
+    @Benchmark
+    public void aiService(Blackhole blackhole) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        assistant.chat("hello")
+                .onPartialResponse(blackhole::consume)
+                .onCompleteResponse(response -> done.countDown())
+                .onError(error -> done.countDown())
+                .start();
+        done.await();
+    }
+
+    @Benchmark
+    public String flux() {
+        return chatService.streamingChat("hello").blockLast();
+    }
+
+    @Benchmark
+    public String coalescedFlux() {
+        return tokenCoalescer.coalesce(chatService.streamingChat("hello")).blockLast();
+    }
+}
@@ -2,8 +2,10 @@ package com.angelai.assistant.demo.langchain4j;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class Langchain4jDemoApplication {
 
 	public static void main(String[] args) {
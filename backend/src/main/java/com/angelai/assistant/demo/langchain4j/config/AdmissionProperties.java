@@ -0,0 +1,75 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 模型调用准入控制配置：自适应并发上限和按用户加权的公平排队
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.admission")
+public class AdmissionProperties {
+
+    /**
+     * 是否启用准入控制
+     */
+    private boolean enabled = true;
+
+    /**
+     * 初始并发上限
+     */
+    private int initialLimit = 20;
+
+    private int minLimit = 2;
+
+    private int maxLimit = 200;
+
+    /**
+     * 首 token 时间超出基线的倍数后视为上游拥塞
+     */
+    private double latencyTolerance = 2.0;
+
+    /**
+     * 拥塞时并发上限的乘性缩减比例
+     */
+    private double backoffRatio = 0.9;
+
+    /**
+     * 上游返回 429 或超时时的缩减比例
+     */
+    private double rateLimitBackoffRatio = 0.5;
+
+    /**
+     * 基线首 token 时间取最近两个窗口内的最小值
+     */
+    private Duration baselineWindow = Duration.ofMinutes(1);
+
+    /**
+     * 排队最长等待时间，预计等待超过该值的请求直接以 503 拒绝
+     */
+    private Duration maxQueueWait = Duration.ofSeconds(10);
+
+    /**
+     * 排队总数上限
+     */
+    private int maxQueueSize = 1000;
+
+    /**
+     * 单个用户同时排队的请求上限
+     */
+    private int maxQueuedPerUser = 50;
+
+    /**
+     * 默认权重，权重越大分到的并发份额越多
+     */
+    private int defaultWeight = 1;
+
+    /**
+     * 按用户 ID 指定的权重
+     */
+    private Map<Long, Integer> weights = new HashMap<>();
+}
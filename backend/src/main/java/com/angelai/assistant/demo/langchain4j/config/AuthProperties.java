@@ -0,0 +1,47 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 令牌认证配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.auth")
+public class AuthProperties {
+
+    /**
+     * 是否要求 /api/users/** 和 /api/chat/** 携带令牌，关闭时这些接口仍允许匿名访问
+     */
+    private boolean enabled = true;
+
+    /**
+     * HMAC-SHA256 签名密钥，至少 32 字节；多节点部署必须配置成相同的值。
+     * 为空时启动时随机生成，重启后已签发的令牌全部失效
+     */
+    private String secret = "";
+
+    /**
+     * 令牌有效期
+     */
+    private Duration tokenTtl = Duration.ofHours(12);
+
+    /**
+     * 缓存的用户令牌版本数量上限，用于校验令牌是否已被吊销
+     */
+    private int versionCacheSize = 10000;
+
+    /**
+     * 令牌版本的缓存时间，也是其他节点吊销令牌后本节点最长仍会接受旧令牌的时间
+     */
+    private Duration versionCacheTtl = Duration.ofMinutes(1);
+
+    /**
+     * 管理员用户 ID，只有这些用户可以调用管理接口（批量导入用户）；为空时管理接口对所有人关闭
+     */
+    private Set<Long> adminUserIds = new HashSet<>();
+}
@@ -0,0 +1,36 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import com.angelai.assistant.demo.langchain4j.service.ConversationAssistant;
+import com.angelai.assistant.demo.langchain4j.service.history.CompactingChatMemory;
+import com.angelai.assistant.demo.langchain4j.service.history.HistoryCompactor;
+import com.angelai.assistant.demo.langchain4j.service.memory.PersistentChatMemoryStore;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.service.AiServices;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * ChatMemoryProvider 不注册为 bean，避免被其他 @AiService 自动装配成共享记忆
+ */
+@Configuration
+public class ChatMemoryConfiguration {
+
+    @Bean
+    ConversationAssistant conversationAssistant(StreamingChatModel streamingChatModel,
+                                                PersistentChatMemoryStore chatMemoryStore,
+                                                HistoryCompactor historyCompactor,
+                                                ChatMemoryProperties properties) {
+        return AiServices.builder(ConversationAssistant.class)
+                .streamingChatModel(streamingChatModel)
+                .chatMemoryProvider(memoryId -> properties.getCompaction().isEnabled()
+                        ? new CompactingChatMemory(memoryId, chatMemoryStore, historyCompactor,
+                                properties.getMaxMessages())
+                        : MessageWindowChatMemory.builder()
+                                .id(memoryId)
+                                .maxMessages(properties.getMaxMessages())
+                                .chatMemoryStore(chatMemoryStore)
+                                .build())
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 对话记忆配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.memory")
+public class ChatMemoryProperties {
+
+    /**
+     * 每个对话保留的最近消息条数
+     */
+    private int maxMessages = 20;
+
+    /**
+     * 进程内缓存的对话窗口数量上限
+     */
+    private int cacheSize = 1000;
+
+    /**
+     * 对话窗口在缓存中的空闲过期时间
+     */
+    private Duration cacheExpireAfterAccess = Duration.ofMinutes(30);
+
+    /**
+     * 流式应答被取消或出错时，是否把已输出的部分作为 AI 消息保存并写入记忆
+     */
+    private boolean keepPartialAnswers = true;
+
+    private Compaction compaction = new Compaction();
+
+    @Data
+    public static class Compaction {
+
+        /**
+         * 是否按 token 预算压缩历史，关闭时只按消息条数截断。开启后窗口前移时会额外调用模型生成摘要
+         */
+        private boolean enabled = false;
+
+        /**
+         * 历史窗口（不含摘要）的 token 预算
+         */
+        private int maxTokens = 3000;
+
+        /**
+         * 滚动摘要的 token 上限
+         */
+        private int summaryMaxTokens = 300;
+
+        /**
+         * 用于估算 token 数的分词模型
+         */
+        private String tokenizerModel = "gpt-4o-mini";
+    }
+}
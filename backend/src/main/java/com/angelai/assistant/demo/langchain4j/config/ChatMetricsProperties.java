@@ -0,0 +1,28 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 模型调用指标与日志配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.metrics")
+public class ChatMetricsProperties {
+
+    private PayloadLogging payloadLogging = new PayloadLogging();
+
+    @Data
+    public static class PayloadLogging {
+
+        /**
+         * 是否记录完整的请求和应答内容
+         */
+        private boolean enabled = false;
+
+        /**
+         * 采样比例，0~1
+         */
+        private double sampleRate = 0.01;
+    }
+}
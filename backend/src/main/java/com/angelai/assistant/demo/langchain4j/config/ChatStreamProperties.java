@@ -0,0 +1,94 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * SSE 流式输出配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.stream")
+public class ChatStreamProperties {
+
+    /**
+     * 心跳注释的发送间隔，用于保持连接并尽早发现已断开的客户端
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * 客户端消费过慢时最多缓冲的 token 数，超出后结束本次流并取消上游
+     */
+    private int bufferSize = 256;
+
+    /**
+     * token 合并输出，减少小块写入和刷新次数
+     */
+    private Coalesce coalesce = new Coalesce();
+
+    /**
+     * 断线续传：生成与客户端连接解耦，重连时按 Last-Event-ID 从断开处继续
+     */
+    private Resume resume = new Resume();
+
+    @Data
+    public static class Resume {
+
+        /**
+         * 是否启用断线续传
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每次生成保留的最近输出块数（合并后的块），更早的块不能再续传
+         */
+        private int bufferSize = 1024;
+
+        /**
+         * 所有客户端都断开后继续生成、等待重连的时间，超时仍未重连则取消上游
+         */
+        private Duration detachTimeout = Duration.ofSeconds(30);
+
+        /**
+         * 生成结束后缓冲保留的时间，Redis 中的副本在生成结束后同样保留这么久
+         */
+        private Duration ttl = Duration.ofMinutes(5);
+
+        /**
+         * 是否把输出写入 Redis Stream，使重连落到其他节点时也能续传；多节点部署时开启，需要配置 spring.data.redis
+         */
+        private boolean redisEnabled = false;
+
+        private String redisKeyPrefix = "chat:stream:";
+
+        /**
+         * 从 Redis 续传时轮询新输出的间隔
+         */
+        private Duration pollInterval = Duration.ofMillis(200);
+    }
+
+    @Data
+    public static class Coalesce {
+
+        /**
+         * 是否合并 token 后再写出
+         */
+        private boolean enabled = true;
+
+        /**
+         * 合并时间窗口，窗口内到达的 token 合成一次写出
+         */
+        private Duration window = Duration.ofMillis(20);
+
+        /**
+         * 累积达到该字节数（UTF-8）时立即写出
+         */
+        private int maxBytes = 256;
+
+        /**
+         * 第一个 token 不等待窗口直接写出，避免首字延迟变长
+         */
+        private boolean flushFirstToken = true;
+    }
+}
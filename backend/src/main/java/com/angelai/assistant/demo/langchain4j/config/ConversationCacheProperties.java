@@ -0,0 +1,44 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 对话列表和消息历史的两级缓存配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.conversation-cache")
+public class ConversationCacheProperties {
+
+    /**
+     * 是否启用缓存
+     */
+    private boolean enabled = false;
+
+    /**
+     * 进程内缓存的条目上限（对话列表和消息历史各自计数）
+     */
+    private int localMaxEntries = 10000;
+
+    /**
+     * 进程内缓存条目的存活时间，兜底其他节点失效通知丢失的情况
+     */
+    private Duration localTtl = Duration.ofMinutes(5);
+
+    /**
+     * 是否使用 Redis 二级缓存和跨节点失效通知，需要配置 spring.data.redis
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * Redis 条目的存活时间
+     */
+    private Duration redisTtl = Duration.ofMinutes(30);
+
+    /**
+     * 失效通知的 pub/sub 频道
+     */
+    private String channel = "chat:conversation:invalidate";
+}
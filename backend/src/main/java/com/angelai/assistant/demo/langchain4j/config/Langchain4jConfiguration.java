@@ -1,14 +1,41 @@
 package com.angelai.assistant.demo.langchain4j.config;
 
-import com.angelai.assistant.demo.langchain4j.event.DefaultChatModelListener;
+import com.angelai.assistant.demo.langchain4j.event.MetricsChatModelListener;
+import com.angelai.assistant.demo.langchain4j.service.http.JdkRestClientBuilder;
+import dev.langchain4j.http.client.HttpClientBuilder;
 import dev.langchain4j.model.chat.listener.ChatModelListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.client.RestClient;
 
 @Configuration
 public class Langchain4jConfiguration {
     @Bean
-    ChatModelListener chatModelListener() {
-        return new DefaultChatModelListener();
+    ChatModelListener chatModelListener(MeterRegistry meterRegistry, ChatMetricsProperties properties) {
+        return new MetricsChatModelListener(meterRegistry, properties);
+    }
+
+    /**
+     * 覆盖 starter 中同名的 HTTP 客户端，固定使用 JDK HttpClient，见 JdkRestClient
+     */
+    @Bean("openAiChatModelHttpClientBuilder")
+    @ConditionalOnProperty("langchain4j.open-ai.chat-model.api-key")
+    HttpClientBuilder openAiChatModelHttpClientBuilder(ObjectProvider<RestClient.Builder> restClientBuilder) {
+        return new JdkRestClientBuilder()
+                .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder));
+    }
+
+    @Bean("openAiStreamingChatModelHttpClientBuilder")
+    @ConditionalOnProperty("langchain4j.open-ai.streaming-chat-model.api-key")
+    HttpClientBuilder openAiStreamingChatModelHttpClientBuilder(ObjectProvider<RestClient.Builder> restClientBuilder,
+            @Qualifier("openAiStreamingChatModelTaskExecutor") AsyncTaskExecutor executor) {
+        return new JdkRestClientBuilder()
+                .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder))
+                .streamingRequestExecutor(executor);
     }
 }
@@ -0,0 +1,73 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 对话历史语义搜索配置：消息保存后异步生成向量，按用户分区写入本地 HNSW 索引
+ */
+@Data
+@ConfigurationProperties(prefix = "app.message-search")
+public class MessageSearchProperties {
+
+    /**
+     * 是否启用，启用时需要一个 EmbeddingModel bean
+     */
+    private boolean enabled = false;
+
+    /**
+     * 索引文件目录，每个用户一个向量文件和一个图快照
+     */
+    private String directory = "data/message-index";
+
+    /**
+     * 等待生成向量的消息队列容量，队列满时新消息不进入索引
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 每次调用 EmbeddingModel 的消息数
+     */
+    private int batchSize = 32;
+
+    /**
+     * 处理队列的间隔
+     */
+    private Duration indexInterval = Duration.ofMillis(500);
+
+    /**
+     * 把有变化的图结构写入快照的间隔，重启后从快照恢复而不是重新建图
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(1);
+
+    /**
+     * 生成向量时每条消息截取的字符数
+     */
+    private int maxContentChars = 2000;
+
+    /**
+     * 同时加载在内存中的用户分区数，超出时淘汰最久未使用的分区
+     */
+    private int loadedPartitions = 1000;
+
+    /**
+     * HNSW 每个节点在上层的连接数，第 0 层为两倍
+     */
+    private int m = 16;
+
+    /**
+     * 建图时的候选集大小
+     */
+    private int efConstruction = 100;
+
+    /**
+     * 查询时的候选集大小，越大召回率越高、越慢
+     */
+    private int efSearch = 64;
+
+    private int defaultSize = 10;
+
+    private int maxSize = 50;
+}
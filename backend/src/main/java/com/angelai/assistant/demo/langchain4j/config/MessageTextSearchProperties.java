@@ -0,0 +1,68 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 消息全文检索配置：本地 Lucene 倒排索引，消息保存和对话删除时增量更新
+ */
+@Data
+@ConfigurationProperties(prefix = "app.message-text-search")
+public class MessageTextSearchProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = false;
+
+    /**
+     * 索引目录
+     */
+    private String directory = "data/message-text-index";
+
+    /**
+     * 新写入的消息在这个间隔内变得可搜索
+     */
+    private Duration refreshInterval = Duration.ofSeconds(1);
+
+    /**
+     * 提交索引的间隔，进程异常退出时最多丢失这段时间内的更新，可用重建命令补齐
+     */
+    private Duration commitInterval = Duration.ofSeconds(30);
+
+    /**
+     * 写入缓冲的内存上限，超出时刷成新的段
+     */
+    private double ramBufferMb = 64;
+
+    private int defaultSize = 20;
+
+    private int maxSize = 100;
+
+    /**
+     * 分页能翻到的最深位置，更深的结果需要更精确的关键词
+     */
+    private int maxOffset = 1000;
+
+    /**
+     * 高亮片段的字符数
+     */
+    private int fragmentSize = 120;
+
+    /**
+     * 每条消息返回的高亮片段数
+     */
+    private int maxFragments = 2;
+
+    /**
+     * 重建时每批写入索引的消息数
+     */
+    private int rebuildBatchSize = 1000;
+
+    /**
+     * 重建时非 MySQL 数据库的 JDBC fetch size；MySQL 固定使用逐行流式读取
+     */
+    private int rebuildFetchSize = 1000;
+}
@@ -0,0 +1,63 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 消息异步批量写入配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.message-buffer")
+public class MessageWriteBufferProperties {
+
+    /**
+     * 内存队列容量
+     */
+    private int capacity = 10000;
+
+    /**
+     * 每个 JDBC 批次的最大条数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 定时刷盘间隔
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * 队列已满时的最长等待时间，超时后由调用线程直接写库
+     */
+    private Duration enqueueTimeout = Duration.ofMillis(50);
+
+    /**
+     * 批次写入失败后的最大重试次数
+     */
+    private int maxRetries = 3;
+
+    /**
+     * 本地预写日志，进程崩溃时尚未落库的消息在重启后重放
+     */
+    private Wal wal = new Wal();
+
+    @Data
+    public static class Wal {
+
+        /**
+         * 是否在入队前先追加到本地日志
+         */
+        private boolean enabled = false;
+
+        /**
+         * 日志段文件所在目录
+         */
+        private String directory = "data/message-wal";
+
+        /**
+         * 每次追加后是否 fsync；关闭时只在切换段时 fsync，机器掉电可能丢失最近一个刷盘间隔内的消息
+         */
+        private boolean fsync = false;
+    }
+}
@@ -0,0 +1,123 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import com.angelai.assistant.demo.langchain4j.service.http.JdkRestClientBuilder;
+import com.angelai.assistant.demo.langchain4j.service.router.ModelBackend;
+import com.angelai.assistant.demo.langchain4j.service.router.RoutingChatModel;
+import com.angelai.assistant.demo.langchain4j.service.router.RoutingStreamingChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.web.client.RestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 模型路由。容器中已有的模型 bean 和 app.chat.router.backends 中的后端一起交给路由模型，
+ * 路由模型标记为 @Primary，按类型注入 ChatModel / StreamingChatModel 的地方都经过路由；
+ * 两个 @AiService 改为 EXPLICIT 装配，避免 AUTOMATIC 模式下发现多个模型 bean 而报冲突。
+ */
+@Configuration
+public class ModelRouterConfiguration {
+
+    private static final String OLLAMA_BASE_URL = "http://localhost:11434/v1";
+
+    @Bean
+    @Primary
+    RoutingChatModel routingChatModel(ListableBeanFactory beanFactory, ModelRouterProperties properties,
+                                      ObjectProvider<ChatModelListener> listeners,
+                                      ObjectProvider<RestClient.Builder> restClientBuilder,
+                                      MeterRegistry meterRegistry) {
+        List<ModelBackend<ChatModel>> backends = contextModels(beanFactory, properties, ChatModel.class,
+                RoutingChatModel.class);
+        for (ModelRouterProperties.Backend backend : properties.getBackends()) {
+            backends.add(new ModelBackend<>(backend.getName(), OpenAiChatModel.builder()
+                    .httpClientBuilder(new JdkRestClientBuilder()
+                            .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder)))
+                    .baseUrl(baseUrl(backend))
+                    .apiKey(apiKey(backend))
+                    .modelName(backend.getModelName())
+                    .temperature(backend.getTemperature())
+                    .timeout(backend.getTimeout())
+                    .maxRetries(backend.getMaxRetries())
+                    .listeners(listeners.orderedStream().toList())
+                    .build(), backend.getWeight()));
+        }
+        return new RoutingChatModel(backends, properties, meterRegistry);
+    }
+
+    /**
+     * 额外后端的流式响应复用 starter 的 openAiStreamingChatModelTaskExecutor，没有时每个流式请求新建一个线程
+     */
+    @Bean
+    @Primary
+    RoutingStreamingChatModel routingStreamingChatModel(ListableBeanFactory beanFactory,
+                                                        ModelRouterProperties properties,
+                                                        ObjectProvider<ChatModelListener> listeners,
+                                                        ObjectProvider<RestClient.Builder> restClientBuilder,
+                                                        MeterRegistry meterRegistry) {
+        List<ModelBackend<StreamingChatModel>> backends = contextModels(beanFactory, properties,
+                StreamingChatModel.class, RoutingStreamingChatModel.class);
+        AsyncTaskExecutor executor = beanFactory.containsBean("openAiStreamingChatModelTaskExecutor")
+                ? beanFactory.getBean("openAiStreamingChatModelTaskExecutor", AsyncTaskExecutor.class)
+                : null;
+        for (ModelRouterProperties.Backend backend : properties.getBackends()) {
+            backends.add(new ModelBackend<>(backend.getName(), OpenAiStreamingChatModel.builder()
+                    .httpClientBuilder(new JdkRestClientBuilder()
+                            .restClientBuilder(restClientBuilder.getIfAvailable(RestClient::builder))
+                            .streamingRequestExecutor(executor))
+                    .baseUrl(baseUrl(backend))
+                    .apiKey(apiKey(backend))
+                    .modelName(backend.getModelName())
+                    .temperature(backend.getTemperature())
+                    .timeout(backend.getTimeout())
+                    .listeners(listeners.orderedStream().toList())
+                    .build(), backend.getWeight()));
+        }
+        return new RoutingStreamingChatModel(backends, properties, meterRegistry);
+    }
+
+    /**
+     * 按 bean 名收集容器中的模型，跳过路由模型本身；只取名字不触发路由 bean 的创建
+     */
+    private static <M> List<ModelBackend<M>> contextModels(ListableBeanFactory beanFactory,
+                                                           ModelRouterProperties properties,
+                                                           Class<M> type, Class<? extends M> routerType) {
+        List<ModelBackend<M>> backends = new ArrayList<>();
+        if (!properties.isIncludeContextModels()) {
+            return backends;
+        }
+        for (String name : beanFactory.getBeanNamesForType(type, false, false)) {
+            if (!beanFactory.isTypeMatch(name, routerType)) {
+                backends.add(new ModelBackend<>(name, beanFactory.getBean(name, type), 1));
+            }
+        }
+        return backends;
+    }
+
+    private static String baseUrl(ModelRouterProperties.Backend backend) {
+        if (backend.getBaseUrl() == null && backend.getProvider() == ModelRouterProperties.Provider.OLLAMA) {
+            return OLLAMA_BASE_URL;
+        }
+        return backend.getBaseUrl();
+    }
+
+    /**
+     * Ollama 不校验 api key，但 OpenAI 客户端要求非空
+     */
+    private static String apiKey(ModelRouterProperties.Backend backend) {
+        if (backend.getApiKey() == null && backend.getProvider() == ModelRouterProperties.Provider.OLLAMA) {
+            return "ollama";
+        }
+        return backend.getApiKey();
+    }
+}
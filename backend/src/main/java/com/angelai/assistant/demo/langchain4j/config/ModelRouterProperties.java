@@ -0,0 +1,85 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 多模型后端路由配置：按延迟和错误率选择后端，首 token 过慢时对冲，首 token 之前出错时故障转移
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.router")
+public class ModelRouterProperties {
+
+    /**
+     * 是否把容器中已有的模型 bean（例如 langchain4j.open-ai.* 配置的模型）也作为后端，名称取 bean 名
+     */
+    private boolean includeContextModels = true;
+
+    /**
+     * 流式请求超过该时间仍未收到首个 token 时，向下一个后端发出对冲请求；为 0 时不对冲
+     */
+    private Duration hedgeDelay = Duration.ofSeconds(2);
+
+    /**
+     * 单个请求最多尝试的后端数，包括对冲和故障转移
+     */
+    private int maxAttempts = 3;
+
+    /**
+     * 延迟和错误率 EWMA 的衰减时间常数，长时间没有流量的后端代价随之降低并重新被探测
+     */
+    private Duration decayWindow = Duration.ofSeconds(10);
+
+    /**
+     * 错误率对代价的放大系数：代价 = 延迟 × (进行中请求数 + 1) × (1 + errorPenalty × 错误率) / 权重
+     */
+    private double errorPenalty = 10;
+
+    /**
+     * 额外的模型后端
+     */
+    private List<Backend> backends = new ArrayList<>();
+
+    @Data
+    public static class Backend {
+
+        private String name;
+
+        private Provider provider = Provider.OPEN_AI;
+
+        /**
+         * OpenAI 兼容接口地址，Ollama 默认 http://localhost:11434/v1
+         */
+        private String baseUrl;
+
+        private String apiKey;
+
+        private String modelName;
+
+        private Double temperature;
+
+        private Duration timeout = Duration.ofSeconds(60);
+
+        /**
+         * 非流式调用在同一后端上的重试次数，默认不重试，失败直接转移到下一个后端
+         */
+        private int maxRetries = 0;
+
+        /**
+         * 权重越大分到的流量越多
+         */
+        private double weight = 1;
+    }
+
+    public enum Provider {
+        OPEN_AI,
+        /**
+         * 通过 Ollama 的 OpenAI 兼容接口（/v1）访问
+         */
+        OLLAMA
+    }
+}
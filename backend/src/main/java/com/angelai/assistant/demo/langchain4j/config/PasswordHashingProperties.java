@@ -0,0 +1,49 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 密码哈希配置：BCrypt 强度、专用线程池和登录失败限流
+ */
+@Data
+@ConfigurationProperties(prefix = "app.auth.password")
+public class PasswordHashingProperties {
+
+    /**
+     * BCrypt 强度（log2 轮数，4~31）。调整后已有用户在下次登录成功时按新强度重新哈希
+     */
+    private int strength = 10;
+
+    /**
+     * 同时计算哈希的线程数，默认为 CPU 核数的一半，给聊天等接口留出余量
+     */
+    private int concurrency = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    /**
+     * 排队等待哈希的任务上限，超出时直接以 503 拒绝
+     */
+    private int queueCapacity = 200;
+
+    /**
+     * 请求线程等待哈希结果的最长时间
+     */
+    private Duration maxWait = Duration.ofSeconds(5);
+
+    /**
+     * 窗口内同一用户名允许的密码错误次数，达到后在窗口结束前不再校验密码
+     */
+    private int maxFailures = 5;
+
+    /**
+     * 失败计数窗口，从第一次失败开始计时
+     */
+    private Duration failureWindow = Duration.ofMinutes(1);
+
+    /**
+     * 记录失败次数的用户名数量上限
+     */
+    private int failureCacheSize = 100000;
+}
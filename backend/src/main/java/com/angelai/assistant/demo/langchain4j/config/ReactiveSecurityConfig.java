@@ -0,0 +1,63 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import com.angelai.assistant.demo.langchain4j.service.auth.AuthenticatedUser;
+import com.angelai.assistant.demo.langchain4j.service.auth.ReactiveTokenAuthenticationFilter;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.HttpStatusServerEntryPoint;
+import org.springframework.security.web.server.context.NoOpServerSecurityContextRepository;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsConfigurationSource;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+
+import java.util.List;
+
+/**
+ * WebFlux 模式下的安全配置，规则与 SecurityConfig 保持一致
+ */
+@Configuration
+@EnableWebFluxSecurity
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveSecurityConfig {
+
+    @Bean
+    public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http, AuthProperties authProperties,
+                                                         TokenService tokenService) {
+        return http.cors(cors -> cors.configurationSource(reactiveCorsConfigurationSource()))
+                .csrf(ServerHttpSecurity.CsrfSpec::disable)
+                .securityContextRepository(NoOpServerSecurityContextRepository.getInstance())
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusServerEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterAt(new ReactiveTokenAuthenticationFilter(tokenService), SecurityWebFiltersOrder.AUTHENTICATION)
+                .authorizeExchange(exchanges -> {
+                    exchanges.pathMatchers("/api/users/register", "/api/users/login").permitAll()
+                            .pathMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                            .pathMatchers(HttpMethod.POST, "/api/users/import").hasRole(AuthenticatedUser.ADMIN_ROLE);
+                    if (!authProperties.isEnabled()) {
+                        exchanges.pathMatchers("/api/users/**", "/api/chat/**").permitAll();
+                    }
+                    exchanges.anyExchange().authenticated();
+                })
+                .build();
+    }
+
+    @Bean
+    CorsConfigurationSource reactiveCorsConfigurationSource() {
+        CorsConfiguration configuration = new CorsConfiguration();
+        configuration.setAllowedOriginPatterns(List.of("*"));
+        configuration.setAllowedMethods(List.of("*"));
+        configuration.setAllowedHeaders(List.of("*"));
+        configuration.setAllowCredentials(false);
+        UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
+        source.registerCorsConfiguration("/**", configuration);
+        return source;
+    }
+}
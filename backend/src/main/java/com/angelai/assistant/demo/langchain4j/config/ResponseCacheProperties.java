@@ -0,0 +1,60 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 模型应答缓存配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * 是否启用应答缓存
+     */
+    private boolean enabled = false;
+
+    /**
+     * 缓存条目存活时间
+     */
+    private Duration ttl = Duration.ofHours(1);
+
+    /**
+     * 缓存条目上限，超出后按最近最少使用淘汰
+     */
+    private int maxEntries = 10000;
+
+    /**
+     * 流式回放时每个分片的字符数
+     */
+    private int replayChunkSize = 8;
+
+    /**
+     * 流式回放时分片之间的间隔
+     */
+    private Duration replayChunkDelay = Duration.ofMillis(15);
+
+    private Semantic semantic = new Semantic();
+
+    @Data
+    public static class Semantic {
+
+        /**
+         * 是否启用基于向量相似度的语义命中（需要 EmbeddingModel）
+         */
+        private boolean enabled = false;
+
+        /**
+         * 余弦相似度阈值，不低于该值视为命中
+         */
+        private double threshold = 0.95;
+
+        /**
+         * 本地向量副本与 Redis 同步的间隔，同步时加入其他节点写入的向量、去掉已淘汰或过期的向量
+         */
+        private Duration refreshInterval = Duration.ofSeconds(30);
+    }
+}
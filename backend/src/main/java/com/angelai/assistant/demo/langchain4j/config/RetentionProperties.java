@@ -0,0 +1,75 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 对话删除、归档和消息清理配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.retention")
+public class RetentionProperties {
+
+    /**
+     * 批量删除或归档接口单次请求的对话数上限
+     */
+    private int maxBulkSize = 1000;
+
+    /**
+     * 归档时每个事务处理的对话数，读消息、写归档和删对话都在这个事务里，控制单个事务的持锁时间
+     */
+    private int archiveChunkSize = 20;
+
+    /**
+     * 每条 DELETE 最多删除的消息行数，控制单个语句持锁的时间
+     */
+    private int purgeBatchSize = 1000;
+
+    /**
+     * 每轮清理处理的已删除对话数
+     */
+    private int purgeConversationsPerRun = 100;
+
+    /**
+     * 两条 DELETE 之间的停顿，给其他事务留出获取锁的机会
+     */
+    private Duration purgePause = Duration.ofMillis(50);
+
+    /**
+     * 清理任务的执行间隔
+     */
+    private Duration purgeInterval = Duration.ofSeconds(10);
+
+    /**
+     * 对话删除后等待多久再清理消息，覆盖写缓冲中尚未落库的消息
+     */
+    private Duration purgeDelay = Duration.ofMinutes(1);
+
+    private Archive archive = new Archive();
+
+    @Data
+    public static class Archive {
+
+        /**
+         * 是否按不活跃时长自动归档
+         */
+        private boolean enabled = false;
+
+        /**
+         * 对话本身和其中的消息超过该时长没有更新即视为冷数据
+         */
+        private Duration after = Duration.ofDays(90);
+
+        /**
+         * 自动归档的检查间隔
+         */
+        private Duration interval = Duration.ofHours(1);
+
+        /**
+         * 每轮查找的冷对话数，归档时再按 archiveChunkSize 分事务提交
+         */
+        private int batchSize = 100;
+    }
+}
@@ -0,0 +1,21 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.searchapi.SearchApiWebSearchEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SearchApiWebSearchConfiguration {
+
+    @Bean("searchApiWebSearchEngine")
+    @ConditionalOnProperty("app.web-search.search-api.api-key")
+    WebSearchEngine searchApiWebSearchEngine(WebSearchProperties properties) {
+        return SearchApiWebSearchEngine.builder()
+                .apiKey(properties.getSearchApi().getApiKey())
+                .engine(properties.getSearchApi().getEngine())
+                .timeout(properties.getEngineTimeout())
+                .build();
+    }
+}
@@ -1,11 +1,21 @@
 package com.angelai.assistant.demo.langchain4j.config;
 
+import com.angelai.assistant.demo.langchain4j.service.auth.AuthenticatedUser;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenAuthenticationFilter;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
+import jakarta.servlet.DispatcherType;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
@@ -13,19 +23,32 @@ import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import java.util.List;
 
 @Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @EnableWebSecurity
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http, AuthProperties authProperties,
+                                           TokenService tokenService) throws Exception {
         http.cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .csrf(AbstractHttpConfigurer::disable)
-            .authorizeHttpRequests(authz -> authz
-                .requestMatchers("/api/users/register", "/api/users/login").permitAll()
-                .requestMatchers("/api/users/**").permitAll() // 允许所有用户API访问（暂时）
-                .requestMatchers("/api/chat/**").permitAll()
-                .anyRequest().authenticated()
-            );
+            .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .exceptionHandling(exceptions -> exceptions
+                .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+            .addFilterBefore(new TokenAuthenticationFilter(tokenService), UsernamePasswordAuthenticationFilter.class)
+            .authorizeHttpRequests(authz -> {
+                authz.requestMatchers("/api/users/register", "/api/users/login").permitAll()
+                    .requestMatchers("/actuator/health", "/actuator/prometheus").permitAll()
+                    .requestMatchers("/error").permitAll() // 否则接口抛出的异常在错误转发时被拦截成 403
+                    // 流式响应的异步派发不再经过令牌过滤器，首次派发时已完成授权
+                    .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
+                    // 管理接口在关闭认证时同样要求管理员令牌
+                    .requestMatchers(HttpMethod.POST, "/api/users/import").hasRole(AuthenticatedUser.ADMIN_ROLE);
+                if (!authProperties.isEnabled()) {
+                    authz.requestMatchers("/api/users/**", "/api/chat/**").permitAll();
+                }
+                authz.anyRequest().authenticated();
+            });
         return http.build();
     }
 
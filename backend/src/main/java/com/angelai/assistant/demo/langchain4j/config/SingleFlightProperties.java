@@ -0,0 +1,22 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 相同提示词的并发流式请求合并（single-flight）配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.single-flight")
+public class SingleFlightProperties {
+
+    /**
+     * 是否合并进行中的相同请求
+     */
+    private boolean enabled = true;
+
+    /**
+     * 为后加入的请求保留的已输出内容上限（字符数），超出后释放缓冲，之后到达的相同请求另起一次上游调用
+     */
+    private int maxReplayChars = 16384;
+}
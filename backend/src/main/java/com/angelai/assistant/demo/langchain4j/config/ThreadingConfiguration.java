@@ -0,0 +1,30 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+/**
+ * 线程模型配置。
+ * 在 Java 21 上设置 spring.threads.virtual.enabled=true 后，Tomcat 请求处理和 @Async 执行器由 Spring Boot
+ * 切换为虚拟线程；这里再把 LangChain4j 流式 HTTP 客户端读取响应所用的执行器也换成虚拟线程。
+ */
+@Configuration
+@EnableAsync
+public class ThreadingConfiguration {
+
+    /**
+     * 覆盖 langchain4j-open-ai-spring-boot-starter 中同名的默认执行器
+     */
+    @Bean("openAiStreamingChatModelTaskExecutor")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    AsyncTaskExecutor openAiStreamingChatModelTaskExecutor() {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("lc4j-openai-streaming-");
+        executor.setVirtualThreads(true);
+        return executor;
+    }
+}
@@ -0,0 +1,64 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 每用户每日 token 额度：各节点从 Redis 按块租用额度，在本地扣减，租约到期时归还未用完的部分
+ */
+@Data
+@ConfigurationProperties(prefix = "app.chat.quota")
+public class TokenQuotaProperties {
+
+    /**
+     * 是否启用
+     */
+    private boolean enabled = false;
+
+    /**
+     * 每个用户每天可用的 token 数（输入加输出）
+     */
+    private long dailyTokens = 200_000;
+
+    /**
+     * 按用户 ID 单独设置的每日额度
+     */
+    private Map<Long, Long> userLimits = new HashMap<>();
+
+    /**
+     * 按该时区的自然日重置额度
+     */
+    private ZoneId zone = ZoneId.systemDefault();
+
+    /**
+     * 每次向 Redis 租用的 token 数；越大访问 Redis 越少，但各节点手中暂未用完的额度也越多
+     */
+    private long leaseSize = 5_000;
+
+    /**
+     * 租约从最后一次续租起的有效期，到期后未用完的额度归还
+     */
+    private Duration leaseTtl = Duration.ofSeconds(30);
+
+    /**
+     * 上报已用量、检查租约到期的间隔
+     */
+    private Duration reconcileInterval = Duration.ofSeconds(5);
+
+    /**
+     * 调用前为输出预留的 token 数；预留加上提问字数超出剩余额度的请求不调用模型，直接拒绝
+     */
+    private long reservedOutputTokens = 1_000;
+
+    /**
+     * 是否在 Redis 中记账，多节点部署需开启并配置 Redis；默认只在本节点内计数
+     */
+    private boolean redisEnabled = false;
+
+    private String redisKeyPrefix = "chat:quota:";
+}
@@ -0,0 +1,27 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 批量导入用户配置
+ */
+@Data
+@ConfigurationProperties(prefix = "app.user-import")
+public class UserImportProperties {
+
+    /**
+     * 是否开放 POST /api/users/import，默认关闭，只在租户开通任务需要时开启
+     */
+    private boolean enabled = false;
+
+    /**
+     * 每批查重和 JDBC 批量插入的行数
+     */
+    private int batchSize = 500;
+
+    /**
+     * 单次请求最多导入的用户数
+     */
+    private int maxUsers = 50000;
+}
@@ -0,0 +1,40 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import com.angelai.assistant.demo.langchain4j.service.WebSearchAssistant;
+import com.angelai.assistant.demo.langchain4j.service.search.WebSearchRetriever;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.google.customsearch.GoogleCustomWebSearchEngine;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 搜索引擎按 api-key 是否配置分别注册，WebSearchRetriever 并行查询所有已注册的引擎
+ */
+@Configuration
+public class WebSearchConfiguration {
+
+    @Bean("googleWebSearchEngine")
+    @ConditionalOnProperty("app.web-search.google.api-key")
+    WebSearchEngine googleWebSearchEngine(WebSearchProperties properties) {
+        return GoogleCustomWebSearchEngine.builder()
+                .apiKey(properties.getGoogle().getApiKey())
+                .csi(properties.getGoogle().getCsi())
+                .timeout(properties.getEngineTimeout())
+                .build();
+    }
+
+    /**
+     * 检索结果在调用模型前注入提示词，模型不需要再决定是否调用搜索工具
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.web-search", name = "enabled", havingValue = "true")
+    WebSearchAssistant webSearchAssistant(ChatModel chatModel, WebSearchRetriever webSearchRetriever) {
+        return AiServices.builder(WebSearchAssistant.class)
+                .chatModel(chatModel)
+                .contentRetriever(webSearchRetriever)
+                .build();
+    }
+}
@@ -0,0 +1,81 @@
+package com.angelai.assistant.demo.langchain4j.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 网络搜索检索配置：并行查询各搜索引擎、合并去重、缓存结果，再把裁剪后的上下文交给 WebSearchAssistant
+ */
+@Data
+@ConfigurationProperties(prefix = "app.web-search")
+public class WebSearchProperties {
+
+    /**
+     * 是否启用 /api/chat/search
+     */
+    private boolean enabled = false;
+
+    /**
+     * 每个搜索引擎返回的结果数
+     */
+    private int maxResultsPerEngine = 5;
+
+    /**
+     * 单个搜索引擎的超时，超时的引擎不参与本次合并
+     */
+    private Duration engineTimeout = Duration.ofSeconds(3);
+
+    /**
+     * 调用搜索引擎的线程数
+     */
+    private int threads = 8;
+
+    /**
+     * 缓存的查询数上限
+     */
+    private int cacheSize = 1000;
+
+    /**
+     * 查询结果的缓存时间
+     */
+    private Duration cacheTtl = Duration.ofMinutes(10);
+
+    /**
+     * 交给模型的结果条数上限
+     */
+    private int maxContextResults = 5;
+
+    /**
+     * 交给模型的上下文总字符数上限
+     */
+    private int maxContextChars = 4000;
+
+    /**
+     * 单条结果摘要的字符数上限
+     */
+    private int maxSnippetChars = 600;
+
+    private Google google = new Google();
+
+    private SearchApi searchApi = new SearchApi();
+
+    /**
+     * Google Programmable Search，配置 api-key 和 csi 后启用
+     */
+    @Data
+    public static class Google {
+        private String apiKey;
+        private String csi;
+    }
+
+    /**
+     * searchapi.io，配置 api-key 后启用
+     */
+    @Data
+    public static class SearchApi {
+        private String apiKey;
+        private String engine = "google";
+    }
+}
@@ -1,16 +1,34 @@
 package com.angelai.assistant.demo.langchain4j.controller;
 
-import com.angelai.assistant.demo.langchain4j.service.OpenAiAssistant;
-import com.angelai.assistant.demo.langchain4j.service.StreamingChatAssistant;
+import com.angelai.assistant.demo.langchain4j.service.ChatService;
+import com.angelai.assistant.demo.langchain4j.service.ConversationService;
+import com.angelai.assistant.demo.langchain4j.service.admission.AdmissionController;
+import com.angelai.assistant.demo.langchain4j.service.auth.AuthenticatedUser;
+import com.angelai.assistant.demo.langchain4j.service.stream.ChatEventStream;
+import com.angelai.assistant.demo.langchain4j.service.stream.ResumableStreams;
+import com.angelai.assistant.demo.langchain4j.service.stream.TokenCoalescer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -18,19 +36,128 @@ import reactor.core.publisher.Flux;
 public class ChatController {
 
     @Autowired
-    private OpenAiAssistant openAiAssistant;
+    private ChatService chatService;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    @Autowired
+    private ChatEventStream chatEventStream;
+
+    @Autowired
+    private TokenCoalescer tokenCoalescer;
+
+    @Autowired(required = false)
+    private ResumableStreams resumableStreams;
+
     @Autowired
-    private StreamingChatAssistant streamingChatAssistant;
+    private ApplicationContext applicationContext;
 
     @GetMapping("/message")
-    public String message(@RequestParam String msg) {
-        String answer = openAiAssistant.chat(msg);
+    public String message(@AuthenticationPrincipal AuthenticatedUser user, @RequestParam String msg) {
+        String answer = chatService.chat(userId(user), msg);
         System.out.println(answer);
         return answer;
     }
 
+    @GetMapping("/search")
+    public String search(@AuthenticationPrincipal AuthenticatedUser user, @RequestParam String msg) {
+        return chatService.searchChat(userId(user), msg);
+    }
+
     @PostMapping("/streaming")
-    public Flux<String> streaming(@RequestBody String msg) {
-        return streamingChatAssistant.chat(msg);
+    public Flux<String> streaming(@AuthenticationPrincipal AuthenticatedUser user, @RequestBody String msg) {
+        return tokenCoalescer.coalesce(chatService.streamingChat(userId(user), msg));
+    }
+
+    @PostMapping("/conversations/{conversationId}/streaming")
+    public Flux<String> conversationStreaming(@AuthenticationPrincipal AuthenticatedUser user,
+                                              @PathVariable Long conversationId, @RequestBody String msg) {
+        return owned(user, conversationId,
+                () -> tokenCoalescer.coalesce(chatService.conversationChat(userId(user), conversationId, msg)));
+    }
+
+    /**
+     * 带 Last-Event-ID 重发时从断开处续传，找不到原来的流时按新请求生成
+     */
+    @PostMapping(value = "/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> sse(
+            @RequestHeader(value = ResumableStreams.LAST_EVENT_ID, required = false) String lastEventId,
+            @AuthenticationPrincipal AuthenticatedUser user, @RequestBody String msg) {
+        long userId = userId(user);
+        return events(userId, lastEventId, () -> chatService.streamingChat(userId, msg));
+    }
+
+    @PostMapping(value = "/conversations/{conversationId}/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> conversationSse(
+            @RequestHeader(value = ResumableStreams.LAST_EVENT_ID, required = false) String lastEventId,
+            @AuthenticationPrincipal AuthenticatedUser user,
+            @PathVariable Long conversationId, @RequestBody String msg) {
+        long userId = userId(user);
+        return owned(user, conversationId,
+                () -> events(userId, lastEventId, () -> chatService.conversationChat(userId, conversationId, msg)));
+    }
+
+    /**
+     * 续传进行中或刚结束的生成，不带 Last-Event-ID 时从头回放；适用于只能发 GET 的 EventSource 自动重连
+     */
+    @GetMapping(value = "/streams/{streamId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> resume(
+            @RequestHeader(value = ResumableStreams.LAST_EVENT_ID, required = false) String lastEventId,
+            @AuthenticationPrincipal AuthenticatedUser user, @PathVariable String streamId) {
+        if (resumableStreams == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "断线续传未开启");
+        }
+        ResumableStreams.Position position = lastEventId == null
+                ? new ResumableStreams.Position(streamId, 0)
+                : ResumableStreams.Position.parse(lastEventId);
+        if (position == null || !position.streamId().equals(streamId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Last-Event-ID 与流 ID 不符");
+        }
+        return chatEventStream.toResumableEvents(resumableStreams.resume(userId(user), position)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "流不存在或已过期")));
+    }
+
+    private Flux<ServerSentEvent<String>> events(long userId, String lastEventId, Supplier<Flux<String>> tokens) {
+        if (resumableStreams == null) {
+            return chatEventStream.toEvents(tokenCoalescer.coalesce(tokens.get()));
+        }
+        // 上游是冷的，在请求线程上组装好，只在需要新生成时订阅
+        Flux<String> fresh = tokenCoalescer.coalesce(tokens.get());
+        ResumableStreams.Position position = ResumableStreams.Position.parse(lastEventId);
+        return chatEventStream.toResumableEvents(position == null
+                ? resumableStreams.start(userId, fresh)
+                : resumableStreams.resumeOrStart(userId, position, fresh));
+    }
+
+    /**
+     * 对话不属于当前用户时返回 403，不加载对方的历史也不调用模型；认证关闭时不检查。
+     * Servlet 模式下流式响应一开始就会提交，只能在请求线程上同步检查；WebFlux 模式下查库放到弹性线程池，不阻塞事件循环
+     */
+    private <T> Flux<T> owned(AuthenticatedUser user, Long conversationId, Supplier<Flux<T>> body) {
+        if (user == null) {
+            return body.get();
+        }
+        if (!(applicationContext instanceof ReactiveWebApplicationContext)) {
+            if (!conversationService.isOwnedBy(conversationId, user.id())) {
+                throw forbidden();
+            }
+            return body.get();
+        }
+        return Mono.fromCallable(() -> conversationService.isOwnedBy(conversationId, user.id()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(owned -> owned ? body.get() : Flux.error(forbidden()));
+    }
+
+    /**
+     * 身份取自参数解析得到的 principal，Servlet 和 WebFlux 模式都能取到；
+     * WebFlux 下同步接口在任务线程池上执行，线程上下文和 Reactor 上下文里都没有认证信息。认证关闭时为匿名用户
+     */
+    private static long userId(AuthenticatedUser user) {
+        return user == null ? AdmissionController.ANONYMOUS_USER : user.id();
+    }
+
+    private static ResponseStatusException forbidden() {
+        return new ResponseStatusException(HttpStatus.FORBIDDEN, "无权访问该对话");
     }
-}
\ No newline at end of file
+}
@@ -1,14 +1,31 @@
 package com.angelai.assistant.demo.langchain4j.controller;
 
+import com.angelai.assistant.demo.langchain4j.dto.ConversationIdsRequest;
+import com.angelai.assistant.demo.langchain4j.dto.ConversationView;
+import com.angelai.assistant.demo.langchain4j.dto.CursorPage;
+import com.angelai.assistant.demo.langchain4j.dto.ImportUserRequest;
 import com.angelai.assistant.demo.langchain4j.dto.LoginRequest;
+import com.angelai.assistant.demo.langchain4j.dto.MessageSearchResult;
+import com.angelai.assistant.demo.langchain4j.dto.MessageTextSearchResult;
+import com.angelai.assistant.demo.langchain4j.dto.MessageView;
 import com.angelai.assistant.demo.langchain4j.dto.RegisterRequest;
 import com.angelai.assistant.demo.langchain4j.dto.UserDto;
+import com.angelai.assistant.demo.langchain4j.dto.UserImportResult;
 import com.angelai.assistant.demo.langchain4j.entity.Conversation;
 import com.angelai.assistant.demo.langchain4j.entity.Message;
 import com.angelai.assistant.demo.langchain4j.service.UserService;
 import com.angelai.assistant.demo.langchain4j.service.ConversationService;
+import com.angelai.assistant.demo.langchain4j.service.UserImportService;
+import com.angelai.assistant.demo.langchain4j.service.auth.AuthenticatedUser;
+import com.angelai.assistant.demo.langchain4j.service.auth.PasswordHashingBusyException;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
+import com.angelai.assistant.demo.langchain4j.service.quota.TokenQuota;
+import com.angelai.assistant.demo.langchain4j.service.search.MessageSearchService;
+import com.angelai.assistant.demo.langchain4j.service.search.MessageTextSearchService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
@@ -25,6 +42,21 @@ public class UserController {
     @Autowired
     private ConversationService conversationService;
     
+    @Autowired
+    private TokenService tokenService;
+    
+    @Autowired
+    private UserImportService userImportService;
+    
+    @Autowired(required = false)
+    private MessageSearchService messageSearchService;
+    
+    @Autowired(required = false)
+    private MessageTextSearchService messageTextSearchService;
+    
+    @Autowired(required = false)
+    private TokenQuota tokenQuota;
+    
     @PostMapping("/register")
     public ResponseEntity<?> register(@RequestBody RegisterRequest registerRequest) {
         try {
@@ -33,6 +65,11 @@ public class UserController {
             response.put("success", true);
             response.put("user", userDto);
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -48,7 +85,13 @@ public class UserController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("user", userDto);
+            response.put("token", tokenService.issue(userDto.getId()));
             return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
         } catch (Exception e) {
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
@@ -57,9 +100,54 @@ public class UserController {
         }
     }
     
+    /**
+     * 批量导入用户（租户开通任务），需开启 app.user-import.enabled；已存在或不合法的用户在 rejected 中逐条列出
+     */
+    @PostMapping("/import")
+    public ResponseEntity<?> importUsers(@RequestBody List<ImportUserRequest> requests) {
+        try {
+            UserImportResult result = userImportService.importUsers(requests);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("imported", result.imported());
+            response.put("rejected", result.rejected());
+            return ResponseEntity.ok(response);
+        } catch (PasswordHashingBusyException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * 吊销当前用户已签发的全部令牌
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<?> logout(@AuthenticationPrincipal AuthenticatedUser user) {
+        Map<String, Object> response = new HashMap<>();
+        if (user == null) {
+            response.put("success", false);
+            response.put("message", "未登录");
+            return ResponseEntity.badRequest().body(response);
+        }
+        tokenService.revoke(user.id());
+        response.put("success", true);
+        return ResponseEntity.ok(response);
+    }
+    
     @GetMapping("/{userId}/conversations")
-    public ResponseEntity<?> getUserConversations(@PathVariable Long userId) {
+    public ResponseEntity<?> getUserConversations(@AuthenticationPrincipal AuthenticatedUser user,
+                                                  @PathVariable Long userId) {
         try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
             List<Conversation> conversations = conversationService.getUserConversations(userId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -73,9 +161,37 @@ public class UserController {
         }
     }
     
+    @GetMapping("/{userId}/conversations/page")
+    public ResponseEntity<?> getUserConversationsPage(@AuthenticationPrincipal AuthenticatedUser user,
+                                                      @PathVariable Long userId,
+                                                      @RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer size) {
+        try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
+            CursorPage<ConversationView> page = conversationService.getUserConversationsPage(userId, cursor, size);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("conversations", page.items());
+            response.put("nextCursor", page.nextCursor());
+            response.put("hasMore", page.hasMore());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
     @PostMapping("/{userId}/conversations")
-    public ResponseEntity<?> createConversation(@PathVariable Long userId, @RequestBody Map<String, String> request) {
+    public ResponseEntity<?> createConversation(@AuthenticationPrincipal AuthenticatedUser user,
+                                                @PathVariable Long userId, @RequestBody Map<String, String> request) {
         try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
             String title = request.get("title");
             Conversation conversation = conversationService.createConversation(userId, title);
             Map<String, Object> response = new HashMap<>();
@@ -91,8 +207,12 @@ public class UserController {
     }
     
     @DeleteMapping("/conversations/{conversationId}")
-    public ResponseEntity<?> deleteConversation(@PathVariable Long conversationId) {
+    public ResponseEntity<?> deleteConversation(@AuthenticationPrincipal AuthenticatedUser user,
+                                                @PathVariable Long conversationId) {
         try {
+            if (!ownsConversation(user, conversationId)) {
+                return forbidden();
+            }
             conversationService.deleteConversation(conversationId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -106,9 +226,145 @@ public class UserController {
         }
     }
     
+    /**
+     * 批量删除该用户的对话，消息由后台任务分批清理
+     */
+    @PostMapping("/{userId}/conversations/batch-delete")
+    public ResponseEntity<?> deleteConversations(@AuthenticationPrincipal AuthenticatedUser user,
+                                                 @PathVariable Long userId, @RequestBody ConversationIdsRequest request) {
+        try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
+            int deleted = conversationService.deleteConversations(userId, request.getConversationIds());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("deleted", deleted);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * 批量归档该用户的对话
+     */
+    @PostMapping("/{userId}/conversations/archive")
+    public ResponseEntity<?> archiveConversations(@AuthenticationPrincipal AuthenticatedUser user,
+                                                  @PathVariable Long userId, @RequestBody ConversationIdsRequest request) {
+        try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
+            int archived = conversationService.archiveConversations(userId, request.getConversationIds());
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("archived", archived);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * 按语义搜索该用户的历史消息，同时返回命中消息所在的对话
+     */
+    @GetMapping("/{userId}/search")
+    public ResponseEntity<?> searchMessages(@AuthenticationPrincipal AuthenticatedUser user,
+                                            @PathVariable Long userId,
+                                            @RequestParam String q,
+                                            @RequestParam(required = false) Integer size) {
+        try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
+            if (messageSearchService == null) {
+                throw new RuntimeException("对话搜索未开启");
+            }
+            MessageSearchResult result = messageSearchService.search(userId, q, size);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("messages", result.messages());
+            response.put("conversations", result.conversations());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * 按关键词或引号内的短语检索该用户的消息，分页返回带高亮片段的结果
+     */
+    @GetMapping("/{userId}/messages/search")
+    public ResponseEntity<?> searchMessageText(@AuthenticationPrincipal AuthenticatedUser user,
+                                               @PathVariable Long userId,
+                                               @RequestParam String q,
+                                               @RequestParam(required = false) Integer page,
+                                               @RequestParam(required = false) Integer size) {
+        try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
+            if (messageTextSearchService == null) {
+                throw new RuntimeException("全文检索未开启");
+            }
+            MessageTextSearchResult result = messageTextSearchService.search(userId, q, page, size);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("messages", result.messages());
+            response.put("total", result.total());
+            response.put("page", result.page());
+            response.put("hasMore", result.hasMore());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * 该用户当天的 token 用量和剩余额度
+     */
+    @GetMapping("/{userId}/usage")
+    public ResponseEntity<?> getUsage(@AuthenticationPrincipal AuthenticatedUser user, @PathVariable Long userId) {
+        try {
+            if (isOther(user, userId)) {
+                return forbidden();
+            }
+            if (tokenQuota == null) {
+                throw new RuntimeException("token 额度未开启");
+            }
+            TokenQuota.Usage usage = tokenQuota.usage(userId);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("usage", usage);
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
     @GetMapping("/conversations/{conversationId}/messages")
-    public ResponseEntity<?> getConversationMessages(@PathVariable Long conversationId) {
+    public ResponseEntity<?> getConversationMessages(@AuthenticationPrincipal AuthenticatedUser user,
+                                                     @PathVariable Long conversationId) {
         try {
+            if (!ownsConversation(user, conversationId)) {
+                return forbidden();
+            }
             List<Message> messages = conversationService.getConversationMessages(conversationId);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
@@ -122,10 +378,38 @@ public class UserController {
         }
     }
     
+    @GetMapping("/conversations/{conversationId}/messages/page")
+    public ResponseEntity<?> getConversationMessagesPage(@AuthenticationPrincipal AuthenticatedUser user,
+                                                         @PathVariable Long conversationId,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer size) {
+        try {
+            if (!ownsConversation(user, conversationId)) {
+                return forbidden();
+            }
+            CursorPage<MessageView> page = conversationService.getConversationMessagesPage(conversationId, cursor, size);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("messages", page.items());
+            response.put("nextCursor", page.nextCursor());
+            response.put("hasMore", page.hasMore());
+            return ResponseEntity.ok(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
     @PostMapping("/conversations/{conversationId}/messages")
-    public ResponseEntity<?> saveMessage(@PathVariable Long conversationId, @RequestBody Map<String, Object> request) {
+    public ResponseEntity<?> saveMessage(@AuthenticationPrincipal AuthenticatedUser user,
+                                         @PathVariable Long conversationId, @RequestBody Map<String, Object> request) {
         try {
-            Long userId = Long.valueOf(request.get("userId").toString());
+            if (!ownsConversation(user, conversationId)) {
+                return forbidden();
+            }
+            Long userId = user != null ? user.id() : Long.valueOf(request.get("userId").toString());
             String content = (String) request.get("content");
             String senderType = (String) request.get("senderType");
             
@@ -141,4 +425,49 @@ public class UserController {
             return ResponseEntity.badRequest().body(response);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * 异步保存消息：写入缓冲后立即返回 202，响应中的消息 ID 与最终落库的一致
+     */
+    @PostMapping("/conversations/{conversationId}/messages/async")
+    public ResponseEntity<?> enqueueMessage(@AuthenticationPrincipal AuthenticatedUser user,
+                                            @PathVariable Long conversationId, @RequestBody Map<String, Object> request) {
+        try {
+            if (!ownsConversation(user, conversationId)) {
+                return forbidden();
+            }
+            Long userId = user != null ? user.id() : Long.valueOf(request.get("userId").toString());
+            String content = (String) request.get("content");
+            String senderType = (String) request.get("senderType");
+            
+            Message message = conversationService.enqueueMessage(conversationId, userId, content, senderType);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", message);
+            return ResponseEntity.accepted().body(response);
+        } catch (Exception e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * 认证开启时只允许访问本人的数据；认证关闭时没有身份可比对，按请求中的用户 ID 处理
+     */
+    private static boolean isOther(AuthenticatedUser user, Long userId) {
+        return user != null && !user.id().equals(userId);
+    }
+    
+    private boolean ownsConversation(AuthenticatedUser user, Long conversationId) {
+        return user == null || conversationService.isOwnedBy(conversationId, user.id());
+    }
+    
+    private static ResponseEntity<?> forbidden() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", "无权访问该用户的数据");
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
+    }
+}
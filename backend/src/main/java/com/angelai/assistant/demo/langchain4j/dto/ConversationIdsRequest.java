@@ -0,0 +1,17 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量删除、归档对话的请求
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConversationIdsRequest {
+    private List<Long> conversationIds;
+}
@@ -0,0 +1,9 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 对话列表投影
+ */
+public record ConversationView(Long id, String title, LocalDateTime createdAt, LocalDateTime updatedAt) {
+}
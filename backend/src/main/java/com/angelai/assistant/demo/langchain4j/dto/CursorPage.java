@@ -0,0 +1,9 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import java.util.List;
+
+/**
+ * 游标分页结果，nextCursor 为空表示没有更多数据
+ */
+public record CursorPage<T>(List<T> items, String nextCursor, boolean hasMore) {
+}
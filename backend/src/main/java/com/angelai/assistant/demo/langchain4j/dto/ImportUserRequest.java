@@ -0,0 +1,19 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * 批量导入的单个用户。password 为明文，导入时按当前强度哈希；
+ * 从其他系统迁移时可以改传已有的 BCrypt 哈希 passwordHash，省去哈希计算，强度不同的在用户首次登录时重新哈希
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportUserRequest {
+    private String username;
+    private String email;
+    private String password;
+    private String passwordHash;
+}
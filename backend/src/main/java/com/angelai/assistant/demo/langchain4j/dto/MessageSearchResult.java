@@ -0,0 +1,18 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 对话历史搜索结果：按相似度排序的消息，以及这些消息所在的对话（按其中最相似的消息排序）
+ */
+public record MessageSearchResult(List<MessageHit> messages, List<ConversationHit> conversations) {
+
+    public record MessageHit(Long messageId, Long conversationId, String conversationTitle, String content,
+                             String senderType, LocalDateTime createdAt, float score) {
+    }
+
+    public record ConversationHit(Long conversationId, String title, LocalDateTime updatedAt, float score,
+                                  int matches) {
+    }
+}
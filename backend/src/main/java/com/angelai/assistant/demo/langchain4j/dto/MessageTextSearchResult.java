@@ -0,0 +1,14 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 全文检索的一页结果，highlight 为已做 HTML 转义、命中词用 &lt;em&gt; 包裹的片段
+ */
+public record MessageTextSearchResult(List<Hit> messages, long total, int page, boolean hasMore) {
+
+    public record Hit(Long messageId, Long conversationId, String conversationTitle, String senderType,
+                      LocalDateTime createdAt, String highlight, float score) {
+    }
+}
@@ -0,0 +1,9 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * 消息列表投影，只查询展示需要的列
+ */
+public record MessageView(Long id, Long conversationId, String content, String senderType, LocalDateTime createdAt) {
+}
@@ -0,0 +1,12 @@
+package com.angelai.assistant.demo.langchain4j.dto;
+
+import java.util.List;
+
+/**
+ * 批量导入结果，rejected 中的 index 为请求列表中的下标
+ */
+public record UserImportResult(int imported, List<Rejected> rejected) {
+
+    public record Rejected(int index, String username, String message) {
+    }
+}
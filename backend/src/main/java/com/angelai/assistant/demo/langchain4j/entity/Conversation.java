@@ -1,5 +1,6 @@
 package com.angelai.assistant.demo.langchain4j.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,7 +11,10 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "conversations")
+@Table(name = "conversations", indexes = {
+        @Index(name = "idx_conversations_user_updated", columnList = "user_id, updated_at"),
+        @Index(name = "idx_conversations_updated", columnList = "updated_at")
+})
 public class Conversation {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -28,6 +32,34 @@ public class Conversation {
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * 历史压缩生成的滚动摘要，只通过 ConversationRepository.updateSummary 写入，保存实体时不会覆盖
+     */
+    @JsonIgnore
+    @Column(columnDefinition = "TEXT", insertable = false, updatable = false)
+    private String summary;
+
+    /**
+     * 累计并入摘要的原始消息 token 数
+     */
+    @JsonIgnore
+    @Column(name = "summary_folded_tokens", insertable = false, updatable = false)
+    private Integer summaryFoldedTokens;
+
+    /**
+     * 最后一条并入摘要的消息 ID，重新加载窗口时只取它之后的消息
+     */
+    @JsonIgnore
+    @Column(name = "summary_folded_through", insertable = false, updatable = false)
+    private Long summaryFoldedThrough;
+
+    /**
+     * 最后一条并入摘要的消息的创建时间。ID 由各节点分段分配，与时间顺序不一致，按（创建时间, ID）比较先后
+     */
+    @JsonIgnore
+    @Column(name = "summary_folded_at", insertable = false, updatable = false)
+    private LocalDateTime summaryFoldedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
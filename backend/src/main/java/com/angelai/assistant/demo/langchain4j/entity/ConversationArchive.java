@@ -0,0 +1,47 @@
+package com.angelai.assistant.demo.langchain4j.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 归档的对话，消息序列化为 JSON 后 gzip 压缩存放在 messages 列
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "conversation_archives", indexes = {
+        @Index(name = "idx_conversation_archives_user", columnList = "user_id")
+})
+public class ConversationArchive {
+    /**
+     * 沿用原对话 ID
+     */
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private String title;
+
+    @Column(name = "message_count", nullable = false)
+    private int messageCount;
+
+    @Lob
+    @Column(nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] messages;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,26 @@
+package com.angelai.assistant.demo.langchain4j.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * 已删除或已归档、但消息尚未清理的对话。与删除对话在同一事务中写入，重启后清理任务继续处理
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "conversation_purges", indexes = {
+        @Index(name = "idx_conversation_purges_requested", columnList = "requested_at")
+})
+public class ConversationPurge {
+    @Id
+    @Column(name = "conversation_id")
+    private Long conversationId;
+
+    @Column(name = "requested_at", nullable = false)
+    private LocalDateTime requestedAt;
+}
@@ -10,10 +10,18 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "messages")
+@Table(name = "messages", indexes = {
+        @Index(name = "idx_messages_conversation_created", columnList = "conversation_id, created_at")
+})
 public class Message {
+    /**
+     * 序列 + pooled 优化器分配，每次从数据库取一段 ID；消息由 MessageWriteBuffer 入队时即可拿到 ID，
+     * 批量写入时带上 ID，不依赖自增主键的回填（IDENTITY 会让 Hibernate 关闭 JDBC 批量插入）。
+     * MySQL 没有序列，Hibernate 用 message_seq 表模拟。
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "message_seq")
+    @SequenceGenerator(name = "message_seq", sequenceName = "message_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "conversation_id", nullable = false)
@@ -22,7 +30,7 @@ public class Message {
     @Column(name = "user_id", nullable = false)
     private Long userId;
 
-    @Column(nullable = false)
+    @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
     @Column(name = "sender_type", nullable = false)
@@ -1,6 +1,7 @@
 package com.angelai.assistant.demo.langchain4j.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -10,21 +11,38 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "users")
+@Table(name = "users", uniqueConstraints = {
+        @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"),
+        @UniqueConstraint(name = User.EMAIL_CONSTRAINT, columnNames = "email")
+})
 public class User {
+    /**
+     * 唯一约束名，注册和导入时据此把约束冲突翻译成对应的错误信息
+     */
+    public static final String USERNAME_CONSTRAINT = "uk_users_username";
+    public static final String EMAIL_CONSTRAINT = "uk_users_email";
+
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String username;
 
     @Column(nullable = false)
     private String password;
 
-    @Column(unique = true, nullable = false)
+    @Column(nullable = false)
     private String email;
 
+    /**
+     * 令牌版本，登出时加一，使此前签发的令牌全部失效
+     */
+    @ColumnDefault("0")
+    @Column(name = "token_version", nullable = false)
+    private int tokenVersion;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
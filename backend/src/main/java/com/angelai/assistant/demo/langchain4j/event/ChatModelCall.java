@@ -0,0 +1,113 @@
+package com.angelai.assistant.demo.langchain4j.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 一次模型调用的业务上下文。调用方在发起请求的线程上绑定接口名，ChatModelListener 在 onRequest 时取出，
+ * 流式调用再由 TokenStreams 标记首个 token 的到达时间；模型应答中的 token 用量由监听器累加到这里，供额度结算使用。
+ * 下游取消时由 TokenStreams 通知，首个 token 之前模型还没有给出 StreamingHandle，只能经这里结束进行中的请求。
+ */
+public final class ChatModelCall {
+
+    public static final String UNKNOWN_ENDPOINT = "unknown";
+
+    private static final ThreadLocal<ChatModelCall> CURRENT = new ThreadLocal<>();
+
+    private final String endpoint;
+    private volatile long firstTokenNanos;
+    private final AtomicLong usedTokens = new AtomicLong(-1);
+    private final List<Runnable> cancelListeners = new ArrayList<>();
+    private boolean cancelled;
+
+    public ChatModelCall(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public static ChatModelCall current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * 在当前线程上绑定本次调用后执行 action，模型监听器的 onRequest 会在 action 内被同步触发
+     */
+    public <T> T bind(Supplier<T> action) {
+        ChatModelCall previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public void bind(Runnable action) {
+        bind(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 下游取消后执行 listener；已经取消的立即执行
+     */
+    public void onCancel(Runnable listener) {
+        synchronized (cancelListeners) {
+            if (!cancelled) {
+                cancelListeners.add(listener);
+                return;
+            }
+        }
+        listener.run();
+    }
+
+    public void cancel() {
+        List<Runnable> listeners;
+        synchronized (cancelListeners) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            listeners = List.copyOf(cancelListeners);
+            cancelListeners.clear();
+        }
+        listeners.forEach(Runnable::run);
+    }
+
+    public void markFirstToken() {
+        if (firstTokenNanos == 0) {
+            firstTokenNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * 累加一次模型应答的输入和输出 token 数，同一业务调用内的多次模型请求（如工具调用）合计
+     */
+    public void addUsage(long tokens) {
+        usedTokens.updateAndGet(current -> Math.max(current, 0) + tokens);
+    }
+
+    /**
+     * 已上报的 token 用量，尚未收到带用量的应答时为 -1
+     */
+    public long usedTokens() {
+        return usedTokens.get();
+    }
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    /**
+     * 首个 token 到达的 System.nanoTime()，非流式调用或尚未收到 token 时为 0
+     */
+    public long firstTokenNanos() {
+        return firstTokenNanos;
+    }
+}
@@ -1,30 +0,0 @@
-package com.angelai.assistant.demo.langchain4j.event;
-
-import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
-import dev.langchain4j.model.chat.listener.ChatModelListener;
-import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
-import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
-import lombok.extern.slf4j.Slf4j;
-
-/**
- * 要为 ChatLanguageModel 或 StreamingChatLanguageModel bean 启用可观察性
- */
-@Slf4j
-public class DefaultChatModelListener implements ChatModelListener {
-
-    @Override
-    public void onRequest(ChatModelRequestContext requestContext) {
-        log.info("onRequest(): {}", requestContext.chatRequest());
-    }
-
-    @Override
-    public void onResponse(ChatModelResponseContext responseContext) {
-        log.info("onResponse(): {}", responseContext.chatResponse());
-
-    }
-
-    @Override
-    public void onError(ChatModelErrorContext errorContext) {
-        log.info("onError(): {}", errorContext.error().getMessage());
-    }
-}
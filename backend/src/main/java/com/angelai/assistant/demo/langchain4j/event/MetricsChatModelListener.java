@@ -0,0 +1,161 @@
+package com.angelai.assistant.demo.langchain4j.event;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatMetricsProperties;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把模型调用记录为 Micrometer 指标，按模型名和接口打标签；完整请求/应答内容只在开启后按比例采样记录。
+ */
+@Slf4j
+public class MetricsChatModelListener implements ChatModelListener {
+
+    private static final String START_NANOS = MetricsChatModelListener.class.getName() + ".startNanos";
+    private static final String CALL = MetricsChatModelListener.class.getName() + ".call";
+    private static final String SAMPLED = MetricsChatModelListener.class.getName() + ".sampled";
+
+    private final MeterRegistry meterRegistry;
+    private final ChatMetricsProperties properties;
+
+    public MetricsChatModelListener(MeterRegistry meterRegistry, ChatMetricsProperties properties) {
+        this.meterRegistry = meterRegistry;
+        this.properties = properties;
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        Map<Object, Object> attributes = requestContext.attributes();
+        attributes.put(START_NANOS, System.nanoTime());
+        ChatModelCall call = ChatModelCall.current();
+        if (call != null) {
+            attributes.put(CALL, call);
+        }
+        ChatMetricsProperties.PayloadLogging payloadLogging = properties.getPayloadLogging();
+        if (payloadLogging.isEnabled() && ThreadLocalRandom.current().nextDouble() < payloadLogging.getSampleRate()) {
+            attributes.put(SAMPLED, Boolean.TRUE);
+            log.info("onRequest(): {}", requestContext.chatRequest());
+        }
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        Map<Object, Object> attributes = responseContext.attributes();
+        ChatResponse response = responseContext.chatResponse();
+        String model = modelName(responseContext.chatRequest(), response);
+        String endpoint = endpoint(attributes);
+        long now = System.nanoTime();
+        long latencyNanos = now - startNanos(attributes, now);
+
+        latency(model, endpoint, "success")
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+
+        long generationNanos = latencyNanos;
+        ChatModelCall call = (ChatModelCall) attributes.get(CALL);
+        if (call != null && call.firstTokenNanos() != 0) {
+            long ttftNanos = call.firstTokenNanos() - startNanos(attributes, now);
+            Timer.builder("chat.model.time.to.first.token")
+                    .description("Time from request to the first streamed token")
+                    .tags("model", model, "endpoint", endpoint)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(ttftNanos, TimeUnit.NANOSECONDS);
+            generationNanos = now - call.firstTokenNanos();
+        }
+
+        TokenUsage usage = response.tokenUsage();
+        if (usage != null) {
+            int inputTokens = usage.inputTokenCount() == null ? 0 : usage.inputTokenCount();
+            int outputTokens = usage.outputTokenCount() == null ? 0 : usage.outputTokenCount();
+            tokens(model, endpoint, "input").increment(inputTokens);
+            tokens(model, endpoint, "output").increment(outputTokens);
+            if (call != null) {
+                call.addUsage(inputTokens + outputTokens);
+            }
+            if (outputTokens > 0 && generationNanos > 0) {
+                DistributionSummary.builder("chat.model.tokens.per.second")
+                        .description("Output tokens generated per second")
+                        .tags("model", model, "endpoint", endpoint)
+                        .register(meterRegistry)
+                        .record(outputTokens / (generationNanos / 1e9));
+            }
+        }
+
+        String finishReason = response.finishReason() == null
+                ? "unknown" : response.finishReason().name().toLowerCase(Locale.ROOT);
+        Counter.builder("chat.model.finish")
+                .description("Model responses by finish reason")
+                .tags("model", model, "endpoint", endpoint, "reason", finishReason)
+                .register(meterRegistry)
+                .increment();
+
+        if (Boolean.TRUE.equals(attributes.get(SAMPLED))) {
+            log.info("onResponse(): {}", response);
+        }
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        Map<Object, Object> attributes = errorContext.attributes();
+        String model = modelName(errorContext.chatRequest(), null);
+        String endpoint = endpoint(attributes);
+        long now = System.nanoTime();
+        latency(model, endpoint, "error")
+                .record(now - startNanos(attributes, now), TimeUnit.NANOSECONDS);
+        Counter.builder("chat.model.errors")
+                .description("Failed model calls by error type")
+                .tags("model", model, "endpoint", endpoint, "error", errorContext.error().getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+        log.warn("Model call failed, model={}, endpoint={}: {}", model, endpoint, errorContext.error().getMessage());
+    }
+
+    private Timer latency(String model, String endpoint, String outcome) {
+        return Timer.builder("chat.model.latency")
+                .description("Model call latency")
+                .tags("model", model, "endpoint", endpoint, "outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private Counter tokens(String model, String endpoint, String type) {
+        return Counter.builder("chat.model.tokens")
+                .description("Tokens consumed by model calls")
+                .tags("model", model, "endpoint", endpoint, "type", type)
+                .register(meterRegistry);
+    }
+
+    private static long startNanos(Map<Object, Object> attributes, long fallback) {
+        Object start = attributes.get(START_NANOS);
+        return start instanceof Long value ? value : fallback;
+    }
+
+    private static String endpoint(Map<Object, Object> attributes) {
+        Object call = attributes.get(CALL);
+        return call instanceof ChatModelCall chatModelCall ? chatModelCall.endpoint() : ChatModelCall.UNKNOWN_ENDPOINT;
+    }
+
+    private static String modelName(ChatRequest request, ChatResponse response) {
+        if (request != null && request.modelName() != null) {
+            return request.modelName();
+        }
+        if (response != null && response.modelName() != null) {
+            return response.modelName();
+        }
+        return "unknown";
+    }
+}
@@ -1,11 +1,44 @@
 package com.angelai.assistant.demo.langchain4j.repository;
 
+import com.angelai.assistant.demo.langchain4j.dto.ConversationView;
 import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface ConversationRepository extends JpaRepository<Conversation, Long> {
     List<Conversation> findByUserIdOrderByUpdatedAtDesc(Long userId);
-}
\ No newline at end of file
+
+    boolean existsByIdAndUserId(Long id, Long userId);
+
+    /**
+     * 不经过实体保存，不更新 updatedAt
+     */
+    @Transactional
+    @Modifying
+    @Query("update Conversation c set c.summary = :summary, c.summaryFoldedTokens = :foldedTokens, " +
+           "c.summaryFoldedThrough = :foldedThrough, c.summaryFoldedAt = :foldedAt where c.id = :id")
+    int updateSummary(@Param("id") Long id, @Param("summary") String summary, @Param("foldedTokens") int foldedTokens,
+                      @Param("foldedThrough") Long foldedThrough, @Param("foldedAt") LocalDateTime foldedAt);
+
+    @Query("select new com.angelai.assistant.demo.langchain4j.dto.ConversationView(c.id, c.title, c.createdAt, c.updatedAt) " +
+           "from Conversation c where c.userId = :userId " +
+           "order by c.updatedAt desc, c.id desc")
+    List<ConversationView> findLatestViews(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("select new com.angelai.assistant.demo.langchain4j.dto.ConversationView(c.id, c.title, c.createdAt, c.updatedAt) " +
+           "from Conversation c where c.userId = :userId " +
+           "and (c.updatedAt < :updatedAt or (c.updatedAt = :updatedAt and c.id < :id)) " +
+           "order by c.updatedAt desc, c.id desc")
+    List<ConversationView> findViewsBefore(@Param("userId") Long userId,
+                                           @Param("updatedAt") LocalDateTime updatedAt,
+                                           @Param("id") Long id,
+                                           Pageable pageable);
+}
@@ -1,12 +1,43 @@
 package com.angelai.assistant.demo.langchain4j.repository;
 
+import com.angelai.assistant.demo.langchain4j.dto.MessageView;
 import com.angelai.assistant.demo.langchain4j.entity.Message;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
 public interface MessageRepository extends JpaRepository<Message, Long> {
     List<Message> findByConversationIdOrderByCreatedAtAsc(Long conversationId);
+    List<Message> findByConversationIdOrderByCreatedAtDesc(Long conversationId, Pageable pageable);
+
+    /**
+     * （createdAt, id）之后的最近消息，按时间倒序
+     */
+    @Query("select m from Message m where m.conversationId = :conversationId " +
+           "and (m.createdAt > :createdAt or (m.createdAt = :createdAt and m.id > :id)) " +
+           "order by m.createdAt desc, m.id desc")
+    List<Message> findLatestAfter(@Param("conversationId") Long conversationId,
+                                  @Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Pageable pageable);
     List<Message> findByUserIdOrderByCreatedAtAsc(Long userId);
-}
\ No newline at end of file
+
+    @Query("select new com.angelai.assistant.demo.langchain4j.dto.MessageView(m.id, m.conversationId, m.content, m.senderType, m.createdAt) " +
+           "from Message m where m.conversationId = :conversationId " +
+           "order by m.createdAt desc, m.id desc")
+    List<MessageView> findLatestViews(@Param("conversationId") Long conversationId, Pageable pageable);
+
+    @Query("select new com.angelai.assistant.demo.langchain4j.dto.MessageView(m.id, m.conversationId, m.content, m.senderType, m.createdAt) " +
+           "from Message m where m.conversationId = :conversationId " +
+           "and (m.createdAt < :createdAt or (m.createdAt = :createdAt and m.id < :id)) " +
+           "order by m.createdAt desc, m.id desc")
+    List<MessageView> findViewsBefore(@Param("conversationId") Long conversationId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
+}
@@ -2,7 +2,11 @@ package com.angelai.assistant.demo.langchain4j.repository;
 
 import com.angelai.assistant.demo.langchain4j.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.Optional;
 
 @Repository
@@ -10,4 +14,17 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     Optional<User> findByUsernameAndPassword(String username, String password);
+
+    @Transactional
+    @Modifying
+    @Query("update User u set u.tokenVersion = u.tokenVersion + 1 where u.id = :id")
+    int incrementTokenVersion(@Param("id") Long id);
+
+    /**
+     * 只在密码哈希仍为旧值时更新，并发登录时只有一次重新哈希生效
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password where u.id = :id and u.password = :previous")
+    int updatePassword(@Param("id") Long id, @Param("previous") String previous, @Param("password") String password);
 }
\ No newline at end of file
@@ -0,0 +1,225 @@
+package com.angelai.assistant.demo.langchain4j.service;
+
+import com.angelai.assistant.demo.langchain4j.event.ChatModelCall;
+import com.angelai.assistant.demo.langchain4j.service.admission.AdmissionController;
+import com.angelai.assistant.demo.langchain4j.service.cache.PromptKeys;
+import com.angelai.assistant.demo.langchain4j.service.cache.ResponseCache;
+import com.angelai.assistant.demo.langchain4j.service.memory.PersistentChatMemoryStore;
+import com.angelai.assistant.demo.langchain4j.service.quota.TokenQuota;
+import com.angelai.assistant.demo.langchain4j.service.singleflight.SingleFlight;
+import com.angelai.assistant.demo.langchain4j.service.stream.TokenStreams;
+import dev.langchain4j.service.TokenStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 聊天入口，在 AI 助手之前串联缓存、额度、准入控制等处理环节
+ */
+@Service
+public class ChatService {
+
+    /**
+     * 与助手接口上的 @SystemMessage 保持一致，用于生成缓存键和合并请求的键
+     */
+    private static final String SYSTEM_MESSAGE = "You are a polite assistant";
+
+    @Autowired
+    private OpenAiAssistant openAiAssistant;
+
+    @Autowired
+    private StreamingChatAssistant streamingChatAssistant;
+
+    @Autowired
+    private ConversationAssistant conversationAssistant;
+
+    @Autowired
+    private PersistentChatMemoryStore chatMemoryStore;
+
+    @Autowired(required = false)
+    private ResponseCache responseCache;
+
+    @Autowired(required = false)
+    private AdmissionController admissionController;
+
+    @Autowired(required = false)
+    private SingleFlight singleFlight;
+
+    @Autowired(required = false)
+    private WebSearchAssistant webSearchAssistant;
+
+    @Autowired(required = false)
+    private TokenQuota tokenQuota;
+
+    /**
+     * userId 由控制器从认证信息中取得并传入；未认证时为 AdmissionController.ANONYMOUS_USER
+     */
+    public String chat(long userId, String msg) {
+        if (responseCache == null) {
+            return callModel(userId, msg);
+        }
+        ResponseCache.Lookup lookup = responseCache.lookup(SYSTEM_MESSAGE, msg);
+        if (lookup.hit().isPresent()) {
+            return lookup.answer();
+        }
+        String answer = callModel(userId, msg);
+        responseCache.put(lookup, answer);
+        return answer;
+    }
+
+    /**
+     * 先检索网络再回答，搜索结果已按查询缓存，这里不再缓存应答
+     */
+    public String searchChat(long userId, String msg) {
+        if (webSearchAssistant == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "网络搜索未开启");
+        }
+        return callModel(userId, msg, () -> webSearchAssistant.answer(msg));
+    }
+
+    /**
+     * 缓存查找、额度预留会访问 Redis 和向量模型，订阅放到弹性线程池，WebFlux 模式下不阻塞事件循环
+     */
+    public Flux<String> streamingChat(long userId, String msg) {
+        if (responseCache == null) {
+            return coalesced(userId, msg, () -> streamingCall(userId, msg)).subscribeOn(Schedulers.boundedElastic());
+        }
+        return Flux.defer(() -> {
+            ResponseCache.Lookup lookup = responseCache.lookup(SYSTEM_MESSAGE, msg);
+            if (lookup.hit().isPresent()) {
+                return responseCache.replay(lookup.answer());
+            }
+            return coalesced(userId, msg, () -> {
+                StringBuilder answer = new StringBuilder();
+                return streamingCall(userId, msg)
+                        .doOnNext(answer::append)
+                        .doOnComplete(() -> responseCache.put(lookup, answer.toString()));
+            });
+        }).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Flux<String> streamingCall(long userId, String msg) {
+        return metered(userId, msg, "streaming",
+                call -> admitted(userId, () -> modelStream(call, () -> streamingChatAssistant.chat(msg))));
+    }
+
+    /**
+     * 同一用户相同提示词的并发请求共用一次上游调用，只有发起调用的请求占用准入名额、预留额度、写入缓存。
+     * 键中带上用户，不同用户的请求各自计额度和排队份额，也不会因为别人额度用完而收到对方的失败
+     */
+    private Flux<String> coalesced(long userId, String msg, Supplier<Flux<String>> upstream) {
+        if (singleFlight == null) {
+            return upstream.get();
+        }
+        return singleFlight.join(userId + ":" + PromptKeys.of(SYSTEM_MESSAGE, msg), upstream);
+    }
+
+    /**
+     * 带上下文的流式对话，历史由服务端按对话维护和持久化，客户端不需要再回传问题和应答；
+     * 控制器已校验对话属于 userId，额度和准入都按这个用户计，在弹性线程池上订阅
+     */
+    public Flux<String> conversationChat(long userId, Long conversationId, String msg) {
+        return metered(userId, msg, "conversation", call -> admitted(userId,
+                () -> keepingPartialAnswer(conversationId,
+                        modelStream(call, () -> conversationAssistant.chat(conversationId, msg)))))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 调用助手时会加载对话记忆、检索知识库，都是阻塞调用；准入名额可能在事件循环线程上归还并唤醒排队的请求，
+     * 所以模型流单独在弹性线程池上订阅
+     */
+    private static Flux<String> modelStream(ChatModelCall call, Supplier<TokenStream> stream) {
+        return TokenStreams.toFlux(call, stream).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * 用户消息在调用模型前、完整应答在流结束时由对话记忆保存；取消或出错时记忆收不到应答，
+     * 这里边转发边累积已输出的 token，在流终止时补记这部分应答。取消信号可能来自事件循环线程，写库放到弹性线程池
+     */
+    private Flux<String> keepingPartialAnswer(Long conversationId, Flux<String> tokens) {
+        StringBuilder answer = new StringBuilder();
+        return tokens.doOnNext(answer::append)
+                .doFinally(signal -> {
+                    if (signal != SignalType.ON_COMPLETE) {
+                        String partial = answer.toString();
+                        Schedulers.boundedElastic().schedule(
+                                () -> chatMemoryStore.appendPartialAnswer(conversationId, partial));
+                    }
+                });
+    }
+
+    private String callModel(long userId, String msg) {
+        return callModel(userId, msg, () -> openAiAssistant.chat(msg));
+    }
+
+    /**
+     * 先预留额度再排队，额度不足的请求不占用准入名额；调用结束后按应答中的用量结算
+     */
+    private String callModel(long userId, String prompt, Supplier<String> call) {
+        ChatModelCall modelCall = new ChatModelCall("message");
+        TokenQuota.Reservation reservation = reserve(userId, prompt);
+        try {
+            String answer = admittedCall(userId, () -> modelCall.bind(call));
+            reservation.settle(modelCall, false);
+            return answer;
+        } catch (RuntimeException e) {
+            reservation.settle(modelCall, true);
+            throw e;
+        }
+    }
+
+    private String admittedCall(long userId, Supplier<String> call) {
+        if (admissionController == null) {
+            return call.get();
+        }
+        AdmissionController.Permit permit = admissionController.acquireBlocking(userId);
+        try {
+            String answer = call.get();
+            permit.release();
+            return answer;
+        } catch (RuntimeException e) {
+            permit.release(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 订阅时先预留额度，额度不足时以 QuotaExceededException 结束，不调用模型；流终止时结算
+     */
+    private Flux<String> metered(long userId, String prompt, String endpoint, Function<ChatModelCall, Flux<String>> stream) {
+        return Flux.defer(() -> {
+            ChatModelCall call = new ChatModelCall(endpoint);
+            TokenQuota.Reservation reservation = reserve(userId, prompt);
+            return stream.apply(call)
+                    .doFinally(signal -> reservation.settle(call, signal == SignalType.ON_ERROR));
+        });
+    }
+
+    private TokenQuota.Reservation reserve(long userId, String prompt) {
+        return tokenQuota == null ? TokenQuota.Reservation.UNMETERED : tokenQuota.reserve(userId, prompt);
+    }
+
+    /**
+     * 获准后才订阅模型流，流结束、出错或被取消时归还名额；排队期间取消即放弃排队
+     */
+    private Flux<String> admitted(long userId, Supplier<Flux<String>> stream) {
+        if (admissionController == null) {
+            return stream.get();
+        }
+        return Flux.usingWhen(
+                Mono.fromFuture(() -> admissionController.acquire(userId), false),
+                permit -> stream.get().doOnNext(token -> permit.markFirstToken()),
+                permit -> Mono.fromRunnable(permit::release),
+                (permit, error) -> Mono.fromRunnable(() -> permit.release(error)),
+                permit -> Mono.fromRunnable(permit::cancel));
+    }
+}
@@ -0,0 +1,14 @@
+package com.angelai.assistant.demo.langchain4j.service;
+
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.UserMessage;
+
+/**
+ * 带对话记忆的流式助手，由 ChatMemoryConfiguration 显式装配
+ */
+public interface ConversationAssistant {
+    @SystemMessage("You are a polite assistant")
+    TokenStream chat(@MemoryId Long conversationId, @UserMessage String userMessage);
+}
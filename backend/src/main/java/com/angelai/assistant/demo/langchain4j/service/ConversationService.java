@@ -1,44 +1,176 @@
 package com.angelai.assistant.demo.langchain4j.service;
 
+import com.angelai.assistant.demo.langchain4j.config.RetentionProperties;
+import com.angelai.assistant.demo.langchain4j.dto.ConversationView;
+import com.angelai.assistant.demo.langchain4j.dto.CursorPage;
+import com.angelai.assistant.demo.langchain4j.dto.KeysetCursor;
+import com.angelai.assistant.demo.langchain4j.dto.MessageView;
 import com.angelai.assistant.demo.langchain4j.entity.Conversation;
 import com.angelai.assistant.demo.langchain4j.entity.Message;
 import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
 import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import com.angelai.assistant.demo.langchain4j.service.cache.ConversationCache;
+import com.angelai.assistant.demo.langchain4j.service.memory.PersistentChatMemoryStore;
+import com.angelai.assistant.demo.langchain4j.service.persistence.MessageWriteBuffer;
+import com.angelai.assistant.demo.langchain4j.service.retention.ConversationArchiver;
+import com.angelai.assistant.demo.langchain4j.service.search.MessageTextIndex;
+import com.angelai.assistant.demo.langchain4j.service.search.MessageVectorIndex;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Service
 public class ConversationService {
     
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    
     @Autowired
     private ConversationRepository conversationRepository;
     
     @Autowired
     private MessageRepository messageRepository;
     
+    @Autowired
+    private PersistentChatMemoryStore chatMemoryStore;
+    
+    @Autowired
+    private MessageWriteBuffer messageWriteBuffer;
+    
+    @Autowired
+    private ConversationArchiver conversationArchiver;
+    
+    @Autowired
+    private RetentionProperties retentionProperties;
+    
+    @Autowired(required = false)
+    private ConversationCache conversationCache;
+    
+    @Autowired(required = false)
+    private MessageVectorIndex messageVectorIndex;
+    
+    @Autowired(required = false)
+    private MessageTextIndex messageTextIndex;
+    
     public List<Conversation> getUserConversations(Long userId) {
-        return conversationRepository.findByUserIdOrderByUpdatedAtDesc(userId);
+        if (conversationCache == null) {
+            return conversationRepository.findByUserIdOrderByUpdatedAtDesc(userId);
+        }
+        return conversationCache.getConversations(userId,
+                () -> conversationRepository.findByUserIdOrderByUpdatedAtDesc(userId));
+    }
+    
+    /**
+     * 按最近更新时间倒序分页，cursor 为空时返回第一页
+     */
+    public CursorPage<ConversationView> getUserConversationsPage(Long userId, String cursor, Integer size) {
+        int limit = pageSize(size);
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<ConversationView> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = conversationRepository.findLatestViews(userId, page);
+        } else {
+            KeysetCursor keyset = KeysetCursor.decode(cursor);
+            rows = conversationRepository.findViewsBefore(userId, keyset.timestamp(), keyset.id(), page);
+        }
+        return toPage(rows, limit, view -> new KeysetCursor(view.updatedAt(), view.id()));
     }
     
     public Conversation createConversation(Long userId, String title) {
         Conversation conversation = new Conversation();
         conversation.setUserId(userId);
         conversation.setTitle(title);
-        return conversationRepository.save(conversation);
+        Conversation saved = conversationRepository.save(conversation);
+        if (conversationCache != null) {
+            conversationCache.evictConversations(userId);
+        }
+        return saved;
     }
     
     public void deleteConversation(Long conversationId) {
-        conversationRepository.deleteById(conversationId);
+        deleteConversations(null, List.of(conversationId));
+    }
+    
+    /**
+     * 批量删除对话，消息由后台任务分批清理；userId 不为空时只删除属于该用户的对话，返回实际删除的数量
+     */
+    public int deleteConversations(Long userId, Collection<Long> conversationIds) {
+        List<Conversation> removed = conversationArchiver.delete(userId, checkBulkSize(conversationIds));
+        evict(removed);
+        return removed.size();
+    }
+    
+    /**
+     * 批量归档对话：消息压缩后写入归档表，对话从列表中移除；userId 不为空时只归档属于该用户的对话
+     */
+    public int archiveConversations(Long userId, Collection<Long> conversationIds) {
+        List<Conversation> removed = conversationArchiver.archive(userId, checkBulkSize(conversationIds));
+        evict(removed);
+        return removed.size();
+    }
+    
+    private Collection<Long> checkBulkSize(Collection<Long> conversationIds) {
+        if (conversationIds == null) {
+            throw new RuntimeException("对话ID列表不能为空");
+        }
+        if (conversationIds.size() > retentionProperties.getMaxBulkSize()) {
+            throw new RuntimeException("单次最多处理 " + retentionProperties.getMaxBulkSize() + " 个对话");
+        }
+        return conversationIds;
+    }
+    
+    private void evict(List<Conversation> removed) {
+        for (Conversation conversation : removed) {
+            chatMemoryStore.deleteMessages(conversation.getId());
+            if (conversationCache != null) {
+                conversationCache.evictMessages(conversation.getId());
+            }
+        }
+        if (conversationCache != null) {
+            removed.stream().map(Conversation::getUserId).distinct().forEach(conversationCache::evictConversations);
+        }
+        if (messageTextIndex != null) {
+            messageTextIndex.deleteConversations(removed.stream().map(Conversation::getId).toList());
+        }
     }
     
     public Optional<Conversation> getConversationById(Long conversationId) {
         return conversationRepository.findById(conversationId);
     }
     
+    /**
+     * 对话存在且属于该用户
+     */
+    public boolean isOwnedBy(Long conversationId, Long userId) {
+        return conversationRepository.existsByIdAndUserId(conversationId, userId);
+    }
+    
     public List<Message> getConversationMessages(Long conversationId) {
-        return messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
+        if (conversationCache == null) {
+            return messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId);
+        }
+        return conversationCache.getMessages(conversationId,
+                () -> messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId));
+    }
+    
+    /**
+     * 从最新的消息开始向前分页，cursor 为空时返回最新一页
+     */
+    public CursorPage<MessageView> getConversationMessagesPage(Long conversationId, String cursor, Integer size) {
+        int limit = pageSize(size);
+        PageRequest page = PageRequest.of(0, limit + 1);
+        List<MessageView> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = messageRepository.findLatestViews(conversationId, page);
+        } else {
+            KeysetCursor keyset = KeysetCursor.decode(cursor);
+            rows = messageRepository.findViewsBefore(conversationId, keyset.timestamp(), keyset.id(), page);
+        }
+        return toPage(rows, limit, view -> new KeysetCursor(view.createdAt(), view.id()));
     }
     
     public Message saveMessage(Long conversationId, Long userId, String content, String senderType) {
@@ -47,6 +179,42 @@ public class ConversationService {
         message.setUserId(userId);
         message.setContent(content);
         message.setSenderType(senderType);
-        return messageRepository.save(message);
+        Message saved = messageRepository.save(message);
+        if (conversationCache != null) {
+            conversationCache.appendMessages(List.of(saved));
+        }
+        if (messageVectorIndex != null) {
+            messageVectorIndex.submit(List.of(saved));
+        }
+        if (messageTextIndex != null) {
+            messageTextIndex.add(List.of(saved));
+        }
+        return saved;
+    }
+    
+    /**
+     * 只放入写缓冲即返回，返回的消息已分配 ID，稍后由后台批量落库
+     */
+    public Message enqueueMessage(Long conversationId, Long userId, String content, String senderType) {
+        Message message = new Message();
+        message.setConversationId(conversationId);
+        message.setUserId(userId);
+        message.setContent(content);
+        message.setSenderType(senderType);
+        return messageWriteBuffer.enqueue(message);
+    }
+    
+    private static int pageSize(Integer size) {
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+    
+    private static <T> CursorPage<T> toPage(List<T> rows, int limit, Function<T, KeysetCursor> keyOf) {
+        boolean hasMore = rows.size() > limit;
+        List<T> items = hasMore ? rows.subList(0, limit) : rows;
+        String nextCursor = hasMore ? keyOf.apply(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor, hasMore);
     }
 }
\ No newline at end of file
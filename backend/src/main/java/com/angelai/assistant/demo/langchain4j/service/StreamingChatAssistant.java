@@ -1,13 +1,15 @@
 package com.angelai.assistant.demo.langchain4j.service;
 
 import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.spring.AiService;
 import dev.langchain4j.service.spring.AiServiceWiringMode;
-import reactor.core.publisher.Flux;
 
-@AiService
-//@AiService(wiringMode = AiServiceWiringMode.EXPLICIT, chatModel = "openAiStreamingChatModel")
+/**
+ * 返回 TokenStream 而不是 Flux，以便在客户端断开时取消上游模型流，见 TokenStreams
+ */
+@AiService(wiringMode = AiServiceWiringMode.EXPLICIT, streamingChatModel = "routingStreamingChatModel")
 public interface StreamingChatAssistant {
     @SystemMessage("You are a polite assistant")
-    Flux<String> chat(String userMessage);
+    TokenStream chat(String userMessage);
 }
@@ -0,0 +1,200 @@
+package com.angelai.assistant.demo.langchain4j.service;
+
+import com.angelai.assistant.demo.langchain4j.config.UserImportProperties;
+import com.angelai.assistant.demo.langchain4j.dto.ImportUserRequest;
+import com.angelai.assistant.demo.langchain4j.dto.UserImportResult;
+import com.angelai.assistant.demo.langchain4j.dto.UserImportResult.Rejected;
+import com.angelai.assistant.demo.langchain4j.service.auth.PasswordHasher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 批量导入用户：每批先用一条查询排除已存在的用户名和邮箱，再用 JDBC 批量插入。
+ * 与并发注册冲突导致整批失败时回滚该批，逐行重试并记录冲突的行；之前的批次已提交，不受影响。
+ */
+@Slf4j
+@Service
+public class UserImportService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO users (username, password, email, token_version, created_at, updated_at) VALUES (?, ?, ?, 0, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserImportProperties properties;
+
+    @Autowired
+    private PasswordHasher passwordHasher;
+
+    @Autowired
+    private UserService userService;
+
+    public UserImportResult importUsers(List<ImportUserRequest> requests) {
+        if (!properties.isEnabled()) {
+            throw new RuntimeException("用户导入未开启");
+        }
+        if (requests.size() > properties.getMaxUsers()) {
+            throw new RuntimeException("单次最多导入 " + properties.getMaxUsers() + " 个用户");
+        }
+        List<Rejected> rejected = new ArrayList<>();
+        Set<String> usernames = new HashSet<>();
+        Set<String> emails = new HashSet<>();
+        List<Pending> batch = new ArrayList<>();
+        int imported = 0;
+        for (int i = 0; i < requests.size(); i++) {
+            ImportUserRequest request = requests.get(i);
+            String error = validate(request);
+            // 请求内部的重复也按已存在处理
+            if (error == null && !usernames.add(request.getUsername())) {
+                error = "用户名已存在";
+            }
+            if (error == null && !emails.add(request.getEmail())) {
+                error = "邮箱已被注册";
+            }
+            if (error != null) {
+                rejected.add(new Rejected(i, request.getUsername(), error));
+                continue;
+            }
+            batch.add(new Pending(i, request));
+            if (batch.size() >= properties.getBatchSize()) {
+                imported += importBatch(batch, rejected);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            imported += importBatch(batch, rejected);
+        }
+        rejected.sort(Comparator.comparingInt(Rejected::index));
+        log.info("Imported {} users, rejected {}", imported, rejected.size());
+        return new UserImportResult(imported, rejected);
+    }
+
+    private String validate(ImportUserRequest request) {
+        if (request.getUsername() == null || request.getUsername().isBlank()) {
+            return "用户名不能为空";
+        }
+        if (request.getEmail() == null || request.getEmail().isBlank()) {
+            return "邮箱不能为空";
+        }
+        if (request.getPasswordHash() != null) {
+            return passwordHasher.isEncoded(request.getPasswordHash()) ? null : "密码哈希不是 BCrypt 格式";
+        }
+        if (request.getPassword() == null || request.getPassword().isEmpty()) {
+            return "密码不能为空";
+        }
+        return null;
+    }
+
+    private int importBatch(List<Pending> batch, List<Rejected> rejected) {
+        Set<String> existingUsernames = new HashSet<>();
+        Set<String> existingEmails = new HashSet<>();
+        String placeholders = String.join(",", Collections.nCopies(batch.size(), "?"));
+        List<Object> args = new ArrayList<>(batch.size() * 2);
+        batch.forEach(pending -> args.add(pending.request().getUsername()));
+        batch.forEach(pending -> args.add(pending.request().getEmail()));
+        jdbcTemplate.query("SELECT username, email FROM users WHERE username IN (" + placeholders
+                + ") OR email IN (" + placeholders + ")", rs -> {
+            existingUsernames.add(rs.getString(1));
+            existingEmails.add(rs.getString(2));
+        }, args.toArray());
+
+        List<Pending> rows = new ArrayList<>(batch.size());
+        List<String> rawPasswords = new ArrayList<>();
+        for (Pending pending : batch) {
+            ImportUserRequest request = pending.request();
+            if (existingUsernames.contains(request.getUsername())) {
+                rejected.add(new Rejected(pending.index(), request.getUsername(), "用户名已存在"));
+            } else if (existingEmails.contains(request.getEmail())) {
+                rejected.add(new Rejected(pending.index(), request.getUsername(), "邮箱已被注册"));
+            } else {
+                rows.add(pending);
+                if (request.getPasswordHash() == null) {
+                    rawPasswords.add(request.getPassword());
+                }
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        List<String> hashes = passwordHasher.encodeAll(rawPasswords);
+        int next = 0;
+        for (Pending pending : rows) {
+            pending.encodedPassword = pending.request().getPasswordHash() != null
+                    ? pending.request().getPasswordHash() : hashes.get(next++);
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, rows, rows.size(), (ps, pending) -> bind(ps, pending, now)));
+            return rows.size();
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Batch of {} users conflicted, retrying row by row", rows.size(), e);
+        }
+        int inserted = 0;
+        for (Pending pending : rows) {
+            ImportUserRequest request = pending.request();
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, pending, now));
+                inserted++;
+            } catch (DataIntegrityViolationException e) {
+                String message;
+                try {
+                    message = userService.duplicateMessage(e, request.getUsername(), request.getEmail());
+                } catch (DataIntegrityViolationException other) {
+                    message = "保存失败";
+                }
+                rejected.add(new Rejected(pending.index(), request.getUsername(), message));
+            }
+        }
+        return inserted;
+    }
+
+    private static void bind(PreparedStatement ps, Pending pending, Timestamp now) throws SQLException {
+        ps.setString(1, pending.request().getUsername());
+        ps.setString(2, pending.encodedPassword);
+        ps.setString(3, pending.request().getEmail());
+        ps.setTimestamp(4, now);
+        ps.setTimestamp(5, now);
+    }
+
+    private static final class Pending {
+
+        private final int index;
+        private final ImportUserRequest request;
+        private String encodedPassword;
+
+        Pending(int index, ImportUserRequest request) {
+            this.index = index;
+            this.request = request;
+        }
+
+        int index() {
+            return index;
+        }
+
+        ImportUserRequest request() {
+            return request;
+        }
+    }
+}
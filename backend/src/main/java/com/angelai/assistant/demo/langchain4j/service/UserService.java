@@ -5,37 +5,42 @@ import com.angelai.assistant.demo.langchain4j.dto.LoginRequest;
 import com.angelai.assistant.demo.langchain4j.dto.RegisterRequest;
 import com.angelai.assistant.demo.langchain4j.entity.User;
 import com.angelai.assistant.demo.langchain4j.repository.UserRepository;
+import com.angelai.assistant.demo.langchain4j.service.auth.LoginThrottle;
+import com.angelai.assistant.demo.langchain4j.service.auth.PasswordHasher;
+import com.angelai.assistant.demo.langchain4j.service.auth.PasswordHashingBusyException;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import java.util.Locale;
 import java.util.Optional;
 
+@Slf4j
 @Service
 public class UserService {
     
     @Autowired
     private UserRepository userRepository;
     
-    private BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder();
+    @Autowired
+    private PasswordHasher passwordHasher;
+    
+    @Autowired
+    private LoginThrottle loginThrottle;
     
     public UserDto register(RegisterRequest registerRequest) {
-        // 检查用户名是否已存在
-        if (userRepository.findByUsername(registerRequest.getUsername()).isPresent()) {
-            throw new RuntimeException("用户名已存在");
-        }
-        
-        // 检查邮箱是否已存在
-        if (userRepository.findByEmail(registerRequest.getEmail()).isPresent()) {
-            throw new RuntimeException("邮箱已被注册");
-        }
-        
-        // 创建新用户
+        // 创建新用户，用户名和邮箱是否重复由唯一约束判断，不预先查询
         User user = new User();
         user.setUsername(registerRequest.getUsername());
-        user.setPassword(passwordEncoder.encode(registerRequest.getPassword()));
+        user.setPassword(passwordHasher.encode(registerRequest.getPassword()));
         user.setEmail(registerRequest.getEmail());
         
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            throw new RuntimeException(duplicateMessage(e, registerRequest.getUsername(), registerRequest.getEmail()), e);
+        }
         
         UserDto userDto = new UserDto();
         userDto.setId(savedUser.getId());
@@ -46,15 +51,23 @@ public class UserService {
     }
     
     public UserDto login(LoginRequest loginRequest) {
+        // 短时间内多次输错的用户名直接拒绝，不再查库和计算哈希
+        if (loginThrottle.isBlocked(loginRequest.getUsername())) {
+            throw new RuntimeException("密码错误次数过多，请稍后再试");
+        }
+        
         Optional<User> userOptional = userRepository.findByUsername(loginRequest.getUsername());
         if (userOptional.isEmpty()) {
             throw new RuntimeException("用户不存在");
         }
         
         User user = userOptional.get();
-        if (!passwordEncoder.matches(loginRequest.getPassword(), user.getPassword())) {
+        if (!passwordHasher.matches(loginRequest.getPassword(), user.getPassword())) {
+            loginThrottle.recordFailure(loginRequest.getUsername());
             throw new RuntimeException("密码错误");
         }
+        loginThrottle.reset(loginRequest.getUsername());
+        rehashIfNeeded(user, loginRequest.getPassword());
         
         UserDto userDto = new UserDto();
         userDto.setId(user.getId());
@@ -64,6 +77,41 @@ public class UserService {
         return userDto;
     }
     
+    /**
+     * BCrypt 强度调整后，在登录成功时用明文按新强度重新哈希；线程池繁忙时跳过，下次登录再试
+     */
+    private void rehashIfNeeded(User user, String rawPassword) {
+        if (!passwordHasher.needsRehash(user.getPassword())) {
+            return;
+        }
+        try {
+            userRepository.updatePassword(user.getId(), user.getPassword(), passwordHasher.encode(rawPassword));
+        } catch (PasswordHashingBusyException e) {
+            log.debug("Skipped rehashing password of user {}", user.getId());
+        }
+    }
+    
+    /**
+     * 把唯一约束冲突翻译成"用户名已存在"/"邮箱已被注册"。约束名无法识别时（例如旧表上自动生成的约束名）
+     * 再查一次库确认是哪一项重复；都不重复说明是其他完整性错误，原样抛出
+     */
+    String duplicateMessage(DataIntegrityViolationException e, String username, String email) {
+        String detail = String.valueOf(e.getMostSpecificCause().getMessage()).toLowerCase(Locale.ROOT);
+        if (detail.contains(User.USERNAME_CONSTRAINT)) {
+            return "用户名已存在";
+        }
+        if (detail.contains(User.EMAIL_CONSTRAINT)) {
+            return "邮箱已被注册";
+        }
+        if (userRepository.findByUsername(username).isPresent()) {
+            return "用户名已存在";
+        }
+        if (userRepository.findByEmail(email).isPresent()) {
+            return "邮箱已被注册";
+        }
+        throw e;
+    }
+    
     public Optional<User> findById(Long id) {
         return userRepository.findById(id);
     }
@@ -0,0 +1,90 @@
+package com.angelai.assistant.demo.langchain4j.service.admission;
+
+import com.angelai.assistant.demo.langchain4j.config.AdmissionProperties;
+
+/**
+ * AIMD 并发上限：调用成功且并发已用到一半以上时每个往返加 1，
+ * 首 token 时间超出基线（最近窗口最小值）的 latencyTolerance 倍时按 backoffRatio 缩减，
+ * 上游 429 或超时按 rateLimitBackoffRatio 缩减。同一批并发失败只缩减一次。
+ */
+public class AdaptiveLimit {
+
+    /**
+     * 还没有首 token 样本时，两次缩减之间的最短间隔
+     */
+    private static final long DEFAULT_COOLDOWN_NANOS = 100_000_000L;
+
+    private final AdmissionProperties properties;
+
+    private double limit;
+    private long windowStartNanos;
+    private long windowMinNanos = Long.MAX_VALUE;
+    private long previousWindowMinNanos = Long.MAX_VALUE;
+    private long lastDecreaseNanos;
+
+    public AdaptiveLimit(AdmissionProperties properties, long nowNanos) {
+        this.properties = properties;
+        this.limit = properties.getInitialLimit();
+        this.windowStartNanos = nowNanos;
+        this.lastDecreaseNanos = nowNanos - DEFAULT_COOLDOWN_NANOS;
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    /**
+     * 当前基线首 token 时间，没有样本时返回 0
+     */
+    public synchronized long baselineNanos() {
+        long baseline = Math.min(windowMinNanos, previousWindowMinNanos);
+        return baseline == Long.MAX_VALUE ? 0 : baseline;
+    }
+
+    /**
+     * 调用成功
+     *
+     * @param firstTokenNanos 流式调用的首 token 时间；非流式调用的总耗时随回答长度变化，不作为拥塞信号，传 0
+     * @return 本次是否缩减了上限
+     */
+    public synchronized boolean onSuccess(long firstTokenNanos, int inFlight, long nowNanos) {
+        if (firstTokenNanos > 0) {
+            long baseline = baselineNanos();
+            record(firstTokenNanos, nowNanos);
+            if (baseline > 0 && firstTokenNanos > baseline * properties.getLatencyTolerance()) {
+                return decrease(properties.getBackoffRatio(), nowNanos);
+            }
+        }
+        if (inFlight * 2 >= limit) {
+            limit = Math.min(properties.getMaxLimit(), limit + 1 / limit);
+        }
+        return false;
+    }
+
+    /**
+     * 上游限流（429）或超时
+     */
+    public synchronized boolean onDropped(long nowNanos) {
+        return decrease(properties.getRateLimitBackoffRatio(), nowNanos);
+    }
+
+    private boolean decrease(double ratio, long nowNanos) {
+        long baseline = baselineNanos();
+        long cooldown = baseline > 0 ? baseline : DEFAULT_COOLDOWN_NANOS;
+        if (nowNanos - lastDecreaseNanos < cooldown) {
+            return false;
+        }
+        lastDecreaseNanos = nowNanos;
+        limit = Math.max(properties.getMinLimit(), limit * ratio);
+        return true;
+    }
+
+    private void record(long firstTokenNanos, long nowNanos) {
+        if (nowNanos - windowStartNanos >= properties.getBaselineWindow().toNanos()) {
+            previousWindowMinNanos = windowMinNanos;
+            windowMinNanos = Long.MAX_VALUE;
+            windowStartNanos = nowNanos;
+        }
+        windowMinNanos = Math.min(windowMinNanos, firstTokenNanos);
+    }
+}
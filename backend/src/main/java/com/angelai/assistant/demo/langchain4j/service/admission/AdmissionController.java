@@ -0,0 +1,396 @@
+package com.angelai.assistant.demo.langchain4j.service.admission;
+
+import com.angelai.assistant.demo.langchain4j.config.AdmissionProperties;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.TimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 模型调用准入控制：同时进行的上游调用数不超过 AdaptiveLimit 给出的上限，超出的请求按用户加权公平排队。
+ * 排队按自计时公平队列（SCFQ）出队：每个请求的标签为 max(系统虚拟时间, 该用户上一个标签) + 1/权重，
+ * 标签最小的先获准，大量排队的用户只会推后自己的请求。预计等待超出 maxQueueWait 的请求立即以 503 拒绝。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.chat.admission", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AdmissionController {
+
+    /**
+     * 未认证请求（app.auth.enabled=false）共用的用户键；认证开启时所有接口都按令牌中的用户 ID 排队，
+     * 对话接口已校验对话属于该用户。这个用户不计 token 额度
+     */
+    public static final long ANONYMOUS_USER = 0L;
+
+    /**
+     * 平均占用时长的指数滑动平均系数
+     */
+    private static final double HOLD_SMOOTHING = 0.1;
+
+    @Autowired
+    private AdmissionProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> waiters = new PriorityQueue<>();
+    private final Map<Long, UserState> users = new HashMap<>();
+    private double virtualTime;
+    private long sequence;
+    private volatile int inFlight;
+    private volatile int queueDepth;
+    private double averageHoldNanos;
+
+    private AdaptiveLimit limit;
+    private ScheduledExecutorService timer;
+    private Timer grantedWait;
+    private Timer rejectedWait;
+
+    @PostConstruct
+    void init() {
+        limit = new AdaptiveLimit(properties, System.nanoTime());
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "admission-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("chat.admission.limit", limit, AdaptiveLimit::limit)
+                .description("Current adaptive limit of concurrent model calls")
+                .register(meterRegistry);
+        Gauge.builder("chat.admission.in.flight", this, controller -> controller.inFlight)
+                .register(meterRegistry);
+        Gauge.builder("chat.admission.queue.depth", this, controller -> controller.queueDepth)
+                .description("Model calls waiting for admission")
+                .register(meterRegistry);
+        grantedWait = waitTimer("granted");
+        rejectedWait = waitTimer("rejected");
+    }
+
+    /**
+     * 申请一次模型调用。有空余并发时立即完成，否则排队；拒绝时以 AdmissionRejectedException 失败。
+     * 取消返回的 future 即放弃排队。
+     */
+    public CompletableFuture<Permit> acquire(long userId) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            if (waiters.isEmpty() && inFlight < limit.limit()) {
+                inFlight++;
+                grantedWait.record(0, TimeUnit.NANOSECONDS);
+                return CompletableFuture.completedFuture(new Permit(now));
+            }
+            if (waiters.size() >= properties.getMaxQueueSize()) {
+                return reject("queue_full", "模型调用排队已满，请稍后重试");
+            }
+            UserState user = users.computeIfAbsent(userId, id -> new UserState());
+            if (user.queued >= properties.getMaxQueuedPerUser()) {
+                return reject("queue_full", "当前用户排队请求过多，请稍后重试");
+            }
+            if (estimatedWaitNanos(waiters.size() + 1) > properties.getMaxQueueWait().toNanos()) {
+                pruneIfIdle(userId, user);
+                return reject("deadline", "模型调用繁忙，预计等待超出上限，请稍后重试");
+            }
+            double tag = Math.max(virtualTime, user.lastTag) + 1.0 / weight(userId);
+            user.lastTag = tag;
+            user.queued++;
+            Waiter waiter = new Waiter(userId, tag, sequence++, now);
+            waiters.add(waiter);
+            queueDepth = waiters.size();
+            waiter.timeout = timer.schedule(() -> expire(waiter),
+                    properties.getMaxQueueWait().toNanos(), TimeUnit.NANOSECONDS);
+            waiter.future.whenComplete((permit, error) -> {
+                if (waiter.future.isCancelled()) {
+                    abandon(waiter);
+                }
+            });
+            return waiter.future;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 阻塞调用方使用：排队直到获准或被拒绝
+     */
+    public Permit acquireBlocking(long userId) {
+        try {
+            return acquire(userId).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof AdmissionRejectedException rejected) {
+                throw rejected;
+            }
+            throw e;
+        }
+    }
+
+    public int limit() {
+        return limit.limit();
+    }
+
+    public int inFlight() {
+        return inFlight;
+    }
+
+    public int queueDepth() {
+        return queueDepth;
+    }
+
+    private void release(Permit permit, Throwable error, boolean cancelled) {
+        long now = System.nanoTime();
+        long heldNanos = now - permit.grantedNanos;
+        long firstTokenNanos = permit.firstTokenNanos == 0 ? 0 : permit.firstTokenNanos - permit.grantedNanos;
+        List<Grant> grants;
+        lock.lock();
+        try {
+            int before = inFlight;
+            inFlight--;
+            averageHoldNanos = averageHoldNanos == 0 ? heldNanos
+                    : averageHoldNanos + HOLD_SMOOTHING * (heldNanos - averageHoldNanos);
+            if (error != null && isDropped(error)) {
+                if (limit.onDropped(now)) {
+                    decreased(error instanceof TimeoutException ? "timeout" : "rate_limit");
+                }
+            } else if (error == null && !cancelled) {
+                if (limit.onSuccess(firstTokenNanos, before, now)) {
+                    decreased("latency");
+                }
+            }
+            grants = dispatch(now);
+        } finally {
+            lock.unlock();
+        }
+        complete(grants);
+    }
+
+    /**
+     * 在并发上限内按标签顺序放行排队请求；future 在锁外完成，避免下游回调持有锁
+     */
+    private List<Grant> dispatch(long now) {
+        List<Grant> grants = new ArrayList<>();
+        while (!waiters.isEmpty() && inFlight < limit.limit()) {
+            Waiter waiter = waiters.poll();
+            dequeued(waiter);
+            virtualTime = waiter.tag;
+            waiter.timeout.cancel(false);
+            inFlight++;
+            grants.add(new Grant(waiter, new Permit(now)));
+        }
+        return grants;
+    }
+
+    private void complete(List<Grant> grants) {
+        for (Grant grant : grants) {
+            grantedWait.record(grant.permit.grantedNanos - grant.waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+            if (!grant.waiter.future.complete(grant.permit)) {
+                // 排队者已放弃，名额转给下一个
+                grant.permit.cancel();
+            }
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        lock.lock();
+        try {
+            if (!waiters.remove(waiter)) {
+                return;
+            }
+            dequeued(waiter);
+        } finally {
+            lock.unlock();
+        }
+        rejectedWait.record(System.nanoTime() - waiter.enqueuedNanos, TimeUnit.NANOSECONDS);
+        rejected("timeout");
+        waiter.future.completeExceptionally(new AdmissionRejectedException("timeout", "模型调用排队超时，请稍后重试"));
+    }
+
+    private void abandon(Waiter waiter) {
+        lock.lock();
+        try {
+            if (waiters.remove(waiter)) {
+                dequeued(waiter);
+                waiter.timeout.cancel(false);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void dequeued(Waiter waiter) {
+        queueDepth = waiters.size();
+        UserState user = users.get(waiter.userId);
+        if (user != null) {
+            user.queued--;
+            pruneIfIdle(waiter.userId, user);
+        }
+    }
+
+    /**
+     * 没有排队请求且标签已落后于虚拟时间的用户不再影响排序，移除以免状态无限增长
+     */
+    private void pruneIfIdle(long userId, UserState user) {
+        if (user.queued == 0 && user.lastTag <= virtualTime) {
+            users.remove(userId);
+        }
+    }
+
+    /**
+     * 按平均占用时长估算排在第 position 位的请求需要等多久；还没有样本时不做估算
+     */
+    private long estimatedWaitNanos(int position) {
+        if (averageHoldNanos == 0) {
+            return 0;
+        }
+        return (long) (position * averageHoldNanos / Math.max(1, limit.limit()));
+    }
+
+    private int weight(long userId) {
+        return Math.max(1, properties.getWeights().getOrDefault(userId, properties.getDefaultWeight()));
+    }
+
+    private CompletableFuture<Permit> reject(String reason, String message) {
+        rejectedWait.record(0, TimeUnit.NANOSECONDS);
+        rejected(reason);
+        return CompletableFuture.failedFuture(new AdmissionRejectedException(reason, message));
+    }
+
+    private void rejected(String reason) {
+        Counter.builder("chat.admission.rejected")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void decreased(String cause) {
+        log.debug("Admission limit decreased to {} ({})", limit.limit(), cause);
+        Counter.builder("chat.admission.limit.decreases")
+                .tag("cause", cause)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private Timer waitTimer(String outcome) {
+        return Timer.builder("chat.admission.wait")
+                .description("Time spent waiting for admission")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    /**
+     * 上游限流或超时才作为缩减信号，其他错误（参数错误、鉴权失败等）与负载无关
+     */
+    private static boolean isDropped(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof RateLimitException || current instanceof TimeoutException) {
+                return true;
+            }
+            if (current instanceof HttpException httpException && httpException.statusCode() == 429) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * 一次获准的模型调用，结束时必须调用 release / cancel 之一，重复调用会被忽略
+     */
+    public final class Permit {
+
+        private final long grantedNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile long firstTokenNanos;
+
+        private Permit(long grantedNanos) {
+            this.grantedNanos = grantedNanos;
+        }
+
+        /**
+         * 流式调用收到首个 token 时调用，首 token 时间作为上游拥塞信号
+         */
+        public void markFirstToken() {
+            if (firstTokenNanos == 0) {
+                firstTokenNanos = System.nanoTime();
+            }
+        }
+
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                AdmissionController.this.release(this, null, false);
+            }
+        }
+
+        public void release(Throwable error) {
+            if (released.compareAndSet(false, true)) {
+                AdmissionController.this.release(this, error, false);
+            }
+        }
+
+        /**
+         * 客户端取消，不作为上限调整的样本
+         */
+        public void cancel() {
+            if (released.compareAndSet(false, true)) {
+                AdmissionController.this.release(this, null, true);
+            }
+        }
+    }
+
+    private static class UserState {
+        private double lastTag;
+        private int queued;
+    }
+
+    private static class Waiter implements Comparable<Waiter> {
+        private final long userId;
+        private final double tag;
+        private final long sequence;
+        private final long enqueuedNanos;
+        private final CompletableFuture<Permit> future = new CompletableFuture<>();
+        private ScheduledFuture<?> timeout;
+
+        private Waiter(long userId, double tag, long sequence, long enqueuedNanos) {
+            this.userId = userId;
+            this.tag = tag;
+            this.sequence = sequence;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int byTag = Double.compare(tag, other.tag);
+            return byTag != 0 ? byTag : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private record Grant(Waiter waiter, Permit permit) {
+    }
+}
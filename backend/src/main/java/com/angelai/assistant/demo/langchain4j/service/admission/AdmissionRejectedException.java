@@ -0,0 +1,25 @@
+package com.angelai.assistant.demo.langchain4j.service.admission;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 模型调用未获准入：队列已满或预计等待超出期限
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final String reason;
+
+    public AdmissionRejectedException(String reason, String message) {
+        super(message);
+        this.reason = reason;
+    }
+
+    /**
+     * 指标标签：queue_full / deadline / timeout
+     */
+    public String reason() {
+        return reason;
+    }
+}
@@ -0,0 +1,24 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+import java.util.List;
+
+/**
+ * 令牌中携带的用户身份，作为 Spring Security 的 principal。admin 由 app.auth.admin-user-ids 决定，不写入令牌
+ */
+public record AuthenticatedUser(Long id, String username, boolean admin) {
+
+    public static final String ADMIN_ROLE = "ADMIN";
+
+    public AuthenticatedUser(Long id, String username) {
+        this(id, username, false);
+    }
+
+    public Authentication toAuthentication() {
+        return UsernamePasswordAuthenticationToken.authenticated(this, null,
+                admin ? AuthorityUtils.createAuthorityList("ROLE_" + ADMIN_ROLE) : List.of());
+    }
+}
@@ -0,0 +1,57 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import com.angelai.assistant.demo.langchain4j.config.PasswordHashingProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按用户名记录短时间内的密码错误次数。达到上限后窗口内的登录直接失败，不再计算 BCrypt，
+ * 暴力尝试只消耗一次缓存查询。窗口从第一次失败开始计时，登录成功后清零。
+ */
+@Component
+public class LoginThrottle {
+
+    @Autowired
+    private PasswordHashingProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, AtomicInteger> failures;
+    private Counter throttled;
+
+    @PostConstruct
+    void init() {
+        failures = Caffeine.newBuilder()
+                .maximumSize(properties.getFailureCacheSize())
+                .expireAfterWrite(properties.getFailureWindow())
+                .build();
+        throttled = Counter.builder("auth.login.throttled")
+                .description("Login attempts rejected without hashing after repeated failures")
+                .register(meterRegistry);
+    }
+
+    public boolean isBlocked(String username) {
+        AtomicInteger count = failures.getIfPresent(username);
+        if (count != null && count.get() >= properties.getMaxFailures()) {
+            throttled.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void recordFailure(String username) {
+        failures.get(username, key -> new AtomicInteger()).incrementAndGet();
+    }
+
+    public void reset(String username) {
+        failures.invalidate(username);
+    }
+}
@@ -0,0 +1,166 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import com.angelai.assistant.demo.langchain4j.config.PasswordHashingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * BCrypt 哈希在专用的有界线程池上计算，登录、注册高峰时最多占用 concurrency 个核，
+ * 不会挤占 Tomcat 线程上的聊天请求；排队已满或等待超时的请求以 503 拒绝。
+ */
+@Component
+public class PasswordHasher {
+
+    @Autowired
+    private PasswordHashingProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BCryptPasswordEncoder encoder;
+    private ThreadPoolExecutor executor;
+    private Timer encodeTimer;
+    private Timer matchesTimer;
+    private Counter rejected;
+
+    @PostConstruct
+    void init() {
+        encoder = new BCryptPasswordEncoder(properties.getStrength());
+        AtomicInteger threads = new AtomicInteger();
+        executor = new ThreadPoolExecutor(properties.getConcurrency(), properties.getConcurrency(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+                    Thread thread = new Thread(runnable, "password-hasher-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        encodeTimer = Timer.builder("auth.password.hash")
+                .description("Time spent computing BCrypt hashes, excluding queueing")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        matchesTimer = Timer.builder("auth.password.hash")
+                .description("Time spent computing BCrypt hashes, excluding queueing")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        rejected = Counter.builder("auth.password.hash.rejected")
+                .description("Hash requests rejected because the hashing pool was saturated")
+                .register(meterRegistry);
+        Gauge.builder("auth.password.hash.queue", executor, pool -> pool.getQueue().size())
+                .description("Hash requests waiting for a hashing thread")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.record(() -> encoder.encode(rawPassword)));
+    }
+
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * 批量计算哈希，同时在线程池中的任务不超过 concurrency 个，不会占满队列挤掉登录请求
+     */
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+        List<String> encoded = new ArrayList<>(rawPasswords.size());
+        Deque<Future<String>> window = new ArrayDeque<>();
+        for (CharSequence rawPassword : rawPasswords) {
+            if (window.size() >= properties.getConcurrency()) {
+                encoded.add(await(window.poll()));
+            }
+            window.add(enqueue(() -> encodeTimer.record(() -> encoder.encode(rawPassword))));
+        }
+        while (!window.isEmpty()) {
+            encoded.add(await(window.poll()));
+        }
+        return encoded;
+    }
+
+    /**
+     * 是否为可直接保存的 BCrypt 哈希
+     */
+    public boolean isEncoded(String encodedPassword) {
+        return strength(encodedPassword) >= 0 && encodedPassword.length() == 60;
+    }
+
+    /**
+     * 已保存的哈希强度与当前配置不同（调高或调低）时返回 true，无法识别的格式也视为需要重新哈希
+     */
+    public boolean needsRehash(String encodedPassword) {
+        return strength(encodedPassword) != properties.getStrength();
+    }
+
+    /**
+     * 解析 $2a$10$... 格式中的强度，无法识别时返回 -1
+     */
+    static int strength(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7
+                || encodedPassword.charAt(0) != '$' || encodedPassword.charAt(3) != '$'
+                || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private <T> T submit(Callable<T> task) {
+        return await(enqueue(task));
+    }
+
+    private <T> Future<T> enqueue(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new PasswordHashingBusyException("服务繁忙，请稍后重试");
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(properties.getMaxWait().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // 还在排队的任务直接取消，避免为已放弃的请求计算哈希
+            future.cancel(false);
+            rejected.increment();
+            throw new PasswordHashingBusyException("服务繁忙，请稍后重试");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new PasswordHashingBusyException("服务繁忙，请稍后重试");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * WebFlux 模式下的令牌认证，逻辑与 TokenAuthenticationFilter 一致
+ */
+public class ReactiveTokenAuthenticationFilter implements WebFilter {
+
+    private final TokenService tokenService;
+
+    public ReactiveTokenAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        Optional<AuthenticatedUser> user = tokenService.verifyBearer(
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION));
+        if (user.isEmpty()) {
+            return chain.filter(exchange);
+        }
+        return chain.filter(exchange)
+                .contextWrite(ReactiveSecurityContextHolder.withAuthentication(user.get().toAuthentication()));
+    }
+}
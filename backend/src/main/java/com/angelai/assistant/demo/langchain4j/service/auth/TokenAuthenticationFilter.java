@@ -0,0 +1,38 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * 从 Authorization 头中解析令牌并设置当前用户。令牌无效时不拦截，由授权规则决定是否返回 401。
+ * 不注册为 bean，避免被 Servlet 容器再注册一次
+ */
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private final TokenService tokenService;
+
+    public TokenAuthenticationFilter(TokenService tokenService) {
+        this.tokenService = tokenService;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<AuthenticatedUser> user = tokenService.verifyBearer(request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (user.isPresent()) {
+            SecurityContext context = SecurityContextHolder.createEmptyContext();
+            context.setAuthentication(user.get().toAuthentication());
+            SecurityContextHolder.setContext(context);
+        }
+        chain.doFilter(request, response);
+    }
+}
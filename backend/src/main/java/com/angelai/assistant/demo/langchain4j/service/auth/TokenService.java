@@ -0,0 +1,169 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import com.angelai.assistant.demo.langchain4j.config.AuthProperties;
+import com.angelai.assistant.demo.langchain4j.entity.User;
+import com.angelai.assistant.demo.langchain4j.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 签发和校验 HS256 签名的 JWT。校验只做 HMAC 和过期检查，不查库也不跑 BCrypt；
+ * 令牌中的版本号与用户当前的令牌版本比对，登出后版本号加一，旧令牌随之失效。
+ * 版本号放在有界的本地缓存中，只有缓存未命中时才查库。
+ */
+@Slf4j
+@Component
+public class TokenService {
+
+    private static final String BEARER = "Bearer ";
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     * 只签发 HS256 令牌，校验时要求头部逐字节一致，不接受其他 alg（包括 none）
+     */
+    private static final String HEADER = ENCODER.encodeToString(
+            "{\"alg\":\"HS256\",\"typ\":\"JWT\"}".getBytes(StandardCharsets.UTF_8));
+
+    @Autowired
+    private AuthProperties properties;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private SecretKeySpec key;
+    private ThreadLocal<Mac> macs;
+    private LoadingCache<Long, Optional<Integer>> tokenVersions;
+
+    @PostConstruct
+    void init() {
+        byte[] secret = properties.getSecret().getBytes(StandardCharsets.UTF_8);
+        if (secret.length == 0) {
+            log.warn("app.auth.secret is not set, signing tokens with a random key; "
+                    + "tokens will not survive a restart or be accepted by other nodes");
+            secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+        } else if (secret.length < 32) {
+            throw new IllegalStateException("app.auth.secret 至少需要 32 字节");
+        }
+        key = new SecretKeySpec(secret, ALGORITHM);
+        macs = ThreadLocal.withInitial(this::newMac);
+        tokenVersions = Caffeine.newBuilder()
+                .maximumSize(properties.getVersionCacheSize())
+                .expireAfterWrite(properties.getVersionCacheTtl())
+                .build(userId -> userRepository.findById(userId).map(User::getTokenVersion));
+    }
+
+    /**
+     * 登录成功后调用，从数据库读取最新的令牌版本，不使用可能过期的缓存
+     */
+    public String issue(Long userId) {
+        User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("用户不存在"));
+        tokenVersions.put(userId, Optional.of(user.getTokenVersion()));
+        long now = Instant.now().getEpochSecond();
+        Map<String, Object> claims = new LinkedHashMap<>();
+        claims.put("sub", String.valueOf(userId));
+        claims.put("name", user.getUsername());
+        claims.put("ver", user.getTokenVersion());
+        claims.put("iat", now);
+        claims.put("exp", now + properties.getTokenTtl().toSeconds());
+        String payload;
+        try {
+            payload = ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+        String unsigned = HEADER + "." + payload;
+        return unsigned + "." + ENCODER.encodeToString(sign(unsigned));
+    }
+
+    /**
+     * @param authorization Authorization 请求头，可以为空
+     */
+    public Optional<AuthenticatedUser> verifyBearer(String authorization) {
+        if (authorization == null || !authorization.regionMatches(true, 0, BEARER, 0, BEARER.length())) {
+            return Optional.empty();
+        }
+        return verify(authorization.substring(BEARER.length()).trim());
+    }
+
+    public Optional<AuthenticatedUser> verify(String token) {
+        int first = token.indexOf('.');
+        int second = token.indexOf('.', first + 1);
+        if (first != HEADER.length() || second < 0 || token.indexOf('.', second + 1) >= 0
+                || !token.startsWith(HEADER)) {
+            return Optional.empty();
+        }
+        JsonNode claims;
+        try {
+            byte[] signature = DECODER.decode(token.substring(second + 1));
+            if (!MessageDigest.isEqual(sign(token.substring(0, second)), signature)) {
+                return Optional.empty();
+            }
+            claims = objectMapper.readTree(DECODER.decode(token.substring(first + 1, second)));
+        } catch (IllegalArgumentException | IOException e) {
+            return Optional.empty();
+        }
+        if (claims.path("exp").asLong() <= Instant.now().getEpochSecond()) {
+            return Optional.empty();
+        }
+        long userId;
+        try {
+            userId = Long.parseLong(claims.path("sub").asText());
+        } catch (NumberFormatException e) {
+            return Optional.empty();
+        }
+        Optional<Integer> version = tokenVersions.get(userId);
+        if (version.isEmpty() || version.get() != claims.path("ver").asInt(-1)) {
+            return Optional.empty();
+        }
+        return Optional.of(new AuthenticatedUser(userId, claims.path("name").asText(),
+                properties.getAdminUserIds().contains(userId)));
+    }
+
+    /**
+     * 吊销该用户已签发的全部令牌。其他节点在版本缓存过期后才会拒绝旧令牌
+     */
+    public void revoke(Long userId) {
+        userRepository.incrementTokenVersion(userId);
+        tokenVersions.invalidate(userId);
+    }
+
+    private byte[] sign(String unsigned) {
+        return macs.get().doFinal(unsigned.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
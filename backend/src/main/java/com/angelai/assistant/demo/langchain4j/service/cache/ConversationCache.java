@@ -0,0 +1,437 @@
+package com.angelai.assistant.demo.langchain4j.service.cache;
+
+import com.angelai.assistant.demo.langchain4j.config.ConversationCacheProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * 对话列表和消息历史的两级缓存：进程内 Caffeine 为一级，Redis 为二级。
+ * 新消息落库后追加到已缓存的消息列表，不整体重新加载；对话增删时精确失效对应用户的列表。
+ * 每次更新都通过 pub/sub 通知其他节点丢弃各自的一级缓存。
+ * <p>
+ * Redis 中的消息列表带一个版本号，追加和失效时在同一脚本内递增。未命中时先读版本号再查数据库，
+ * 写回的脚本只在版本号未变且列表不存在时写入，加载期间有新消息落库则放弃写回，避免旧快照覆盖追加。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.conversation-cache", name = "enabled", havingValue = "true")
+public class ConversationCache {
+
+    private static final String CONVERSATIONS_PREFIX = "chat:conversations:";
+    private static final String MESSAGES_PREFIX = "chat:messages:";
+    private static final String CONVERSATIONS = "conversations";
+    private static final String MESSAGES = "messages";
+    private static final String VERSION_SUFFIX = ":version";
+
+    /**
+     * KEYS: 列表, 版本号；ARGV: 过期毫秒数, 消息...。列表不存在时不追加，由下次读取从数据库重建
+     */
+    private static final RedisScript<Long> APPEND = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 0 then
+                return 0
+            end
+            for i = 2, #ARGV do
+                redis.call('RPUSH', KEYS[1], ARGV[i])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * KEYS: 列表, 版本号；ARGV: 过期毫秒数
+     */
+    private static final RedisScript<Long> INVALIDATE = new DefaultRedisScript<>("""
+            redis.call('INCR', KEYS[2])
+            redis.call('PEXPIRE', KEYS[2], ARGV[1])
+            return redis.call('DEL', KEYS[1])
+            """, Long.class);
+
+    /**
+     * KEYS: 列表, 版本号；ARGV: 加载前读到的版本号（不存在为空串）, 过期毫秒数, 消息...
+     */
+    private static final RedisScript<Long> WRITE_IF_UNCHANGED = new DefaultRedisScript<>("""
+            local version = redis.call('GET', KEYS[2]) or ''
+            if version ~= ARGV[1] or redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            for i = 3, #ARGV do
+                redis.call('RPUSH', KEYS[1], ARGV[i])
+            end
+            redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            return 1
+            """, Long.class);
+
+    private static final Comparator<Message> MESSAGE_ORDER =
+            Comparator.comparing(Message::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+                    .thenComparing(Message::getId);
+
+    @Autowired
+    private ConversationCacheProperties properties;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    /**
+     * 区分失效通知的来源，忽略本节点自己发出的通知
+     */
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private Cache<Long, List<Conversation>> conversations;
+    private Cache<Long, List<Message>> messages;
+    private Stats conversationStats;
+    private Stats messageStats;
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    void init() {
+        conversations = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxEntries())
+                .expireAfterWrite(properties.getLocalTtl())
+                .build();
+        messages = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxEntries())
+                .expireAfterWrite(properties.getLocalTtl())
+                .build();
+        conversationStats = new Stats(CONVERSATIONS);
+        messageStats = new Stats(MESSAGES);
+        if (redisEnabled()) {
+            listenerContainer = new RedisMessageListenerContainer();
+            listenerContainer.setConnectionFactory(redisTemplate.getConnectionFactory());
+            listenerContainer.addMessageListener((message, pattern) ->
+                    onInvalidation(new String(message.getBody(), StandardCharsets.UTF_8)),
+                    new ChannelTopic(properties.getChannel()));
+            listenerContainer.afterPropertiesSet();
+            listenerContainer.start();
+        }
+    }
+
+    @PreDestroy
+    void stop() throws Exception {
+        if (listenerContainer != null) {
+            listenerContainer.destroy();
+        }
+    }
+
+    public List<Conversation> getConversations(Long userId, Supplier<List<Conversation>> loader) {
+        List<Conversation> cached = conversations.getIfPresent(userId);
+        if (cached != null) {
+            conversationStats.local.increment();
+            return cached;
+        }
+        return conversations.get(userId, id -> {
+            List<Conversation> remote = readConversations(id);
+            if (remote != null) {
+                conversationStats.remote.increment();
+                return remote;
+            }
+            conversationStats.miss.increment();
+            List<Conversation> loaded = List.copyOf(loader.get());
+            writeConversations(id, loaded);
+            return loaded;
+        });
+    }
+
+    public List<Message> getMessages(Long conversationId, Supplier<List<Message>> loader) {
+        List<Message> cached = messages.getIfPresent(conversationId);
+        if (cached != null) {
+            messageStats.local.increment();
+            return cached;
+        }
+        return messages.get(conversationId, id -> {
+            List<Message> remote = readMessages(id);
+            if (remote != null) {
+                messageStats.remote.increment();
+                return remote;
+            }
+            messageStats.miss.increment();
+            // 版本号必须在查数据库之前读取，之后落库的消息会使其变化
+            String version = readVersion(id);
+            List<Message> loaded = List.copyOf(loader.get());
+            writeMessages(id, version, loaded);
+            return loaded;
+        });
+    }
+
+    /**
+     * 消息落库后调用，只追加到已缓存的列表，未缓存的对话下次读取时再从数据库加载。
+     * 同时递增版本号，使正在加载的旧快照放弃写回 Redis
+     */
+    public void appendMessages(Collection<Message> saved) {
+        Map<Long, List<Message>> byConversation = saved.stream()
+                .collect(Collectors.groupingBy(Message::getConversationId, LinkedHashMap::new, Collectors.toList()));
+        byConversation.forEach((conversationId, added) -> {
+            // 正在加载的条目上 computeIfPresent 会等待加载完成，加载结果已包含的消息按 ID 去重
+            messages.asMap().computeIfPresent(conversationId, (id, current) -> merge(current, added));
+            if (redisEnabled()) {
+                List<String> args = new ArrayList<>(added.size() + 1);
+                args.add(String.valueOf(properties.getRedisTtl().toMillis()));
+                for (Message message : added) {
+                    args.add(encode(message));
+                }
+                try {
+                    redisTemplate.execute(APPEND, messageKeys(conversationId), args.toArray());
+                } catch (DataAccessException e) {
+                    log.warn("Failed to append messages of conversation {} to Redis, evicting", conversationId, e);
+                    invalidateRemoteMessages(conversationId);
+                }
+            }
+            publish(MESSAGES, conversationId);
+        });
+    }
+
+    public void evictConversations(Long userId) {
+        conversations.invalidate(userId);
+        deleteRemote(CONVERSATIONS_PREFIX + userId);
+        publish(CONVERSATIONS, userId);
+    }
+
+    public void evictMessages(Long conversationId) {
+        messages.invalidate(conversationId);
+        invalidateRemoteMessages(conversationId);
+        publish(MESSAGES, conversationId);
+    }
+
+    /**
+     * 按 (创建时间, ID) 从尾部找插入位置，正常情况下新消息都在末尾，只比较一次
+     */
+    static List<Message> merge(List<Message> current, List<Message> added) {
+        Set<Long> ids = new HashSet<>();
+        for (Message message : current) {
+            ids.add(message.getId());
+        }
+        List<Message> merged = new ArrayList<>(current.size() + added.size());
+        merged.addAll(current);
+        for (Message message : added) {
+            if (!ids.add(message.getId())) {
+                continue;
+            }
+            int index = merged.size();
+            while (index > 0 && MESSAGE_ORDER.compare(merged.get(index - 1), message) > 0) {
+                index--;
+            }
+            merged.add(index, message);
+        }
+        return List.copyOf(merged);
+    }
+
+    private void onInvalidation(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) {
+            return;
+        }
+        Long id = Long.valueOf(parts[2]);
+        if (CONVERSATIONS.equals(parts[1])) {
+            conversations.invalidate(id);
+        } else if (MESSAGES.equals(parts[1])) {
+            messages.invalidate(id);
+        }
+    }
+
+    private void publish(String type, Long id) {
+        if (!redisEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.convertAndSend(properties.getChannel(), nodeId + ":" + type + ":" + id);
+        } catch (DataAccessException e) {
+            log.warn("Failed to publish {} invalidation for {}", type, id, e);
+        }
+    }
+
+    private List<Conversation> readConversations(Long userId) {
+        if (!redisEnabled()) {
+            return null;
+        }
+        try {
+            String json = redisTemplate.opsForValue().get(CONVERSATIONS_PREFIX + userId);
+            return json == null ? null : List.copyOf(objectMapper.readValue(json, new TypeReference<List<Conversation>>() { }));
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Failed to read conversations of user {} from Redis", userId, e);
+            return null;
+        }
+    }
+
+    private void writeConversations(Long userId, List<Conversation> loaded) {
+        if (!redisEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(CONVERSATIONS_PREFIX + userId,
+                    objectMapper.writeValueAsString(loaded), properties.getRedisTtl());
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Failed to write conversations of user {} to Redis", userId, e);
+        }
+    }
+
+    /**
+     * 不同节点的追加可能交错或与重建重复，读出后按 ID 去重并恢复顺序
+     */
+    private List<Message> readMessages(Long conversationId) {
+        if (!redisEnabled()) {
+            return null;
+        }
+        try {
+            List<String> entries = redisTemplate.opsForList().range(MESSAGES_PREFIX + conversationId, 0, -1);
+            if (entries == null || entries.isEmpty()) {
+                return null;
+            }
+            List<Message> decoded = new ArrayList<>(entries.size());
+            for (String entry : entries) {
+                decoded.add(objectMapper.readValue(entry, Message.class));
+            }
+            return merge(List.of(), decoded);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Failed to read messages of conversation {} from Redis", conversationId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 读不到版本号时返回 null，本次加载结果不写回 Redis
+     */
+    private String readVersion(Long conversationId) {
+        if (!redisEnabled()) {
+            return null;
+        }
+        try {
+            String version = redisTemplate.opsForValue().get(MESSAGES_PREFIX + conversationId + VERSION_SUFFIX);
+            return version == null ? "" : version;
+        } catch (DataAccessException e) {
+            log.warn("Failed to read cache version of conversation {} from Redis", conversationId, e);
+            return null;
+        }
+    }
+
+    /**
+     * 空列表不写入 Redis（list 不能为空），空对话只缓存在进程内
+     */
+    private void writeMessages(Long conversationId, String version, List<Message> loaded) {
+        if (!redisEnabled() || version == null || loaded.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(loaded.size() + 2);
+        args.add(version);
+        args.add(String.valueOf(properties.getRedisTtl().toMillis()));
+        for (Message message : loaded) {
+            args.add(encode(message));
+        }
+        try {
+            redisTemplate.execute(WRITE_IF_UNCHANGED, messageKeys(conversationId), args.toArray());
+        } catch (DataAccessException e) {
+            log.warn("Failed to write messages of conversation {} to Redis", conversationId, e);
+        }
+    }
+
+    private void invalidateRemoteMessages(Long conversationId) {
+        if (!redisEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.execute(INVALIDATE, messageKeys(conversationId),
+                    String.valueOf(properties.getRedisTtl().toMillis()));
+        } catch (DataAccessException e) {
+            log.warn("Failed to evict messages of conversation {} from Redis", conversationId, e);
+        }
+    }
+
+    private static List<String> messageKeys(Long conversationId) {
+        return List.of(MESSAGES_PREFIX + conversationId, MESSAGES_PREFIX + conversationId + VERSION_SUFFIX);
+    }
+
+    private void deleteRemote(String key) {
+        if (!redisEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.delete(key);
+        } catch (DataAccessException e) {
+            log.warn("Failed to delete {} from Redis", key, e);
+        }
+    }
+
+    private String encode(Message message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private boolean redisEnabled() {
+        return properties.isRedisEnabled() && redisTemplate != null;
+    }
+
+    /**
+     * 按缓存命中层级计数，并导出总命中率
+     */
+    private final class Stats {
+
+        private final Counter local;
+        private final Counter remote;
+        private final Counter miss;
+
+        Stats(String cache) {
+            local = requests(cache, "local");
+            remote = requests(cache, "redis");
+            miss = requests(cache, "miss");
+            Gauge.builder("chat.conversation.cache.hit.ratio", this, Stats::hitRatio)
+                    .description("Share of reads served by the in-process or Redis tier")
+                    .tag("cache", cache)
+                    .register(meterRegistry);
+        }
+
+        private Counter requests(String cache, String result) {
+            return Counter.builder("chat.conversation.cache.requests")
+                    .description("Conversation cache reads by the tier that served them")
+                    .tag("cache", cache)
+                    .tag("result", result)
+                    .register(meterRegistry);
+        }
+
+        private double hitRatio() {
+            double hits = local.count() + remote.count();
+            double total = hits + miss.count();
+            return total == 0 ? 0 : hits / total;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.angelai.assistant.demo.langchain4j.service.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * 提示词归一化与摘要工具
+ */
+public final class PromptKeys {
+
+    private PromptKeys() {
+    }
+
+    /**
+     * 去掉首尾空白并合并连续空白。保留大小写，代码标识符、"US" 与 "us" 这类只差大小写的提问含义可能不同，
+     * 不共用精确缓存键；意思相近的提问交给语义缓存匹配
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.strip().replaceAll("\\s+", " ");
+    }
+
+    /**
+     * 由系统消息和用户消息生成稳定的 SHA-256 键
+     */
+    public static String of(String systemMessage, String userMessage) {
+        String source = normalize(systemMessage) + '\n' + normalize(userMessage);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.angelai.assistant.demo.langchain4j.service.cache;
+
+import com.angelai.assistant.demo.langchain4j.config.ResponseCacheProperties;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 基于 Redis 的模型应答缓存，支持归一化提示词精确命中和可选的语义相似命中。
+ * 条目带 TTL，并通过有序集合记录访问时间和过期时间；写入时先清掉已过期的条目，仍超过上限时淘汰最久未访问的条目。
+ * 语义查找使用本地向量副本，按 refreshInterval 与 Redis 增量同步。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "app.chat.response-cache", name = "enabled", havingValue = "true")
+public class ResponseCache {
+
+    private static final String ENTRY_PREFIX = "chat:cache:entry:";
+    private static final String LRU_KEY = "chat:cache:lru";
+    private static final String EXPIRY_KEY = "chat:cache:expiry";
+    private static final String EMBEDDING_KEY = "chat:cache:embedding";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private ResponseCacheProperties properties;
+
+    @Autowired(required = false)
+    private EmbeddingModel embeddingModel;
+
+    /**
+     * 本地向量副本，避免每次语义查找都从 Redis 拉取全部向量
+     */
+    private final Map<String, float[]> embeddings = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile long nextRefresh;
+
+    public Lookup lookup(String systemMessage, String userMessage) {
+        String key = PromptKeys.of(systemMessage, userMessage);
+        String answer = get(key);
+        if (answer != null) {
+            return new Lookup(key, null, answer);
+        }
+        if (!semanticEnabled()) {
+            return new Lookup(key, null, null);
+        }
+        float[] vector = embeddingModel.embed(PromptKeys.normalize(userMessage)).content().vector();
+        String similarKey = findSimilar(vector);
+        if (similarKey != null) {
+            answer = get(similarKey);
+            if (answer == null) {
+                evict(similarKey);
+            }
+        }
+        return new Lookup(key, vector, answer);
+    }
+
+    public void put(Lookup lookup, String answer) {
+        if (answer == null || answer.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForValue().set(ENTRY_PREFIX + lookup.key(), answer, properties.getTtl());
+        redisTemplate.opsForZSet().add(LRU_KEY, lookup.key(), now);
+        redisTemplate.opsForZSet().add(EXPIRY_KEY, lookup.key(), now + properties.getTtl().toMillis());
+        if (lookup.embedding() != null) {
+            redisTemplate.opsForHash().put(EMBEDDING_KEY, lookup.key(), encode(lookup.embedding()));
+            embeddings.put(lookup.key(), lookup.embedding());
+        }
+        trim();
+    }
+
+    /**
+     * 将缓存的完整应答切成小片段按节奏回放，保持与实时流一致的体验
+     */
+    public Flux<String> replay(String answer) {
+        int chunkSize = Math.max(1, properties.getReplayChunkSize());
+        List<String> chunks = new ArrayList<>();
+        int[] codePoints = answer.codePoints().toArray();
+        for (int i = 0; i < codePoints.length; i += chunkSize) {
+            chunks.add(new String(codePoints, i, Math.min(chunkSize, codePoints.length - i)));
+        }
+        Flux<String> flux = Flux.fromIterable(chunks);
+        if (!properties.getReplayChunkDelay().isZero()) {
+            flux = flux.delayElements(properties.getReplayChunkDelay());
+        }
+        return flux;
+    }
+
+    private String get(String key) {
+        String answer = redisTemplate.opsForValue().get(ENTRY_PREFIX + key);
+        if (answer != null) {
+            redisTemplate.opsForZSet().add(LRU_KEY, key, System.currentTimeMillis());
+        }
+        return answer;
+    }
+
+    /**
+     * 已过期的条目先清掉，不占用上限，也不会挤掉仍然有效的条目
+     */
+    private void trim() {
+        removeExpired();
+        Long size = redisTemplate.opsForZSet().zCard(LRU_KEY);
+        if (size == null || size <= properties.getMaxEntries()) {
+            return;
+        }
+        Set<ZSetOperations.TypedTuple<String>> oldest =
+                redisTemplate.opsForZSet().popMin(LRU_KEY, size - properties.getMaxEntries());
+        if (oldest == null || oldest.isEmpty()) {
+            return;
+        }
+        evict(oldest.stream().map(ZSetOperations.TypedTuple::getValue).toList());
+    }
+
+    private void removeExpired() {
+        Set<String> expired = redisTemplate.opsForZSet().rangeByScore(EXPIRY_KEY, 0, System.currentTimeMillis());
+        if (expired != null && !expired.isEmpty()) {
+            evict(expired);
+        }
+    }
+
+    private void evict(String key) {
+        evict(List.of(key));
+    }
+
+    private void evict(Collection<String> keys) {
+        Object[] members = keys.toArray();
+        redisTemplate.delete(keys.stream().map(key -> ENTRY_PREFIX + key).toList());
+        redisTemplate.opsForZSet().remove(LRU_KEY, members);
+        redisTemplate.opsForZSet().remove(EXPIRY_KEY, members);
+        redisTemplate.opsForHash().delete(EMBEDDING_KEY, members);
+        embeddings.keySet().removeAll(keys);
+    }
+
+    private boolean semanticEnabled() {
+        return properties.getSemantic().isEnabled() && embeddingModel != null;
+    }
+
+    private String findSimilar(float[] vector) {
+        refreshEmbeddings();
+        String bestKey = null;
+        double best = properties.getSemantic().getThreshold();
+        for (Map.Entry<String, float[]> entry : embeddings.entrySet()) {
+            double similarity = cosine(vector, entry.getValue());
+            if (similarity >= best) {
+                best = similarity;
+                bestKey = entry.getKey();
+            }
+        }
+        return bestKey;
+    }
+
+    /**
+     * 只拉取本地还没有的向量，Redis 中已不存在的从本地删除。同步期间其他请求直接使用当前副本
+     */
+    private void refreshEmbeddings() {
+        if (System.currentTimeMillis() < nextRefresh || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            removeExpired();
+            Set<Object> keys = redisTemplate.opsForHash().keys(EMBEDDING_KEY);
+            embeddings.keySet().retainAll(keys);
+            List<Object> missing = keys.stream().filter(key -> !embeddings.containsKey(key)).toList();
+            if (!missing.isEmpty()) {
+                List<Object> values = redisTemplate.opsForHash().multiGet(EMBEDDING_KEY, missing);
+                for (int i = 0; i < missing.size(); i++) {
+                    if (values.get(i) != null) {
+                        embeddings.put((String) missing.get(i), decode((String) values.get(i)));
+                    }
+                }
+            }
+            nextRefresh = System.currentTimeMillis() + properties.getSemantic().getRefreshInterval().toMillis();
+            log.debug("Synced cached prompt embeddings, {} fetched, {} in total", missing.size(), embeddings.size());
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return -1;
+        }
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? -1 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    private static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    private static float[] decode(String value) {
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(value));
+        float[] vector = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(vector);
+        return vector;
+    }
+
+    /**
+     * 一次查找的结果，未命中时保留键和向量供随后写入复用
+     */
+    public record Lookup(String key, float[] embedding, String answer) {
+
+        public Optional<String> hit() {
+            return Optional.ofNullable(answer);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.angelai.assistant.demo.langchain4j.service.history;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 按 token 预算滑动的对话记忆，移出窗口的消息折叠进滚动摘要，发给模型时摘要紧跟系统消息
+ */
+public class CompactingChatMemory implements ChatMemory {
+
+    private final Object id;
+    private final ChatMemoryStore store;
+    private final HistoryCompactor compactor;
+    private final int maxMessages;
+
+    public CompactingChatMemory(Object id, ChatMemoryStore store, HistoryCompactor compactor, int maxMessages) {
+        this.id = id;
+        this.store = store;
+        this.compactor = compactor;
+        this.maxMessages = maxMessages;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        List<ChatMessage> messages = store.getMessages(id);
+        if (message instanceof SystemMessage) {
+            Optional<ChatMessage> existing = messages.stream().filter(SystemMessage.class::isInstance).findFirst();
+            if (existing.isPresent()) {
+                if (existing.get().equals(message)) {
+                    return;
+                }
+                messages.remove(existing.get());
+            }
+        }
+        messages.add(message);
+        List<ChatMessage> evicted = compactor.enforceBudget(messages, maxMessages);
+        store.updateMessages(id, messages);
+        if (!evicted.isEmpty()) {
+            compactor.fold(id, evicted);
+        }
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        return compactor.withSummary(id, store.getMessages(id));
+    }
+
+    @Override
+    public void clear() {
+        store.deleteMessages(id);
+        compactor.evict(id);
+    }
+}
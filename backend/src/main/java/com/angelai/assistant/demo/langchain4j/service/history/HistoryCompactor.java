@@ -0,0 +1,261 @@
+package com.angelai.assistant.demo.langchain4j.service.history;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatMemoryProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.service.admission.AdmissionController;
+import com.angelai.assistant.demo.langchain4j.service.memory.PersistentChatMemoryStore;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.model.TokenCountEstimator;
+import dev.langchain4j.model.openai.OpenAiTokenCountEstimator;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 历史压缩：按 token 预算维护滑动窗口，把移出窗口的消息异步并入每个对话的滚动摘要。
+ * 每条消息的 token 数只计算一次，摘要只在窗口前移时重新生成。
+ * 摘要连同最后一条并入的消息位置保存在对话行上，窗口缓存淘汰或重启后从数据库读回，
+ * 对话记忆只加载这之后的消息，已折叠的历史不会丢失，也不会被再次折叠。
+ */
+@Slf4j
+@Component
+public class HistoryCompactor {
+
+    private static final String SUMMARY_PREFIX = "以下是本次对话较早内容的摘要：\n";
+
+    @Autowired
+    private HistorySummarizer summarizer;
+
+    @Autowired
+    private ChatMemoryProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private PersistentChatMemoryStore chatMemoryStore;
+
+    private TokenCountEstimator tokenCountEstimator;
+    private Cache<ChatMessage, Integer> tokenCounts;
+    private Cache<Object, SummaryState> summaries;
+    private ExecutorService executor;
+    private DistributionSummary promptTokens;
+    private DistributionSummary savedTokens;
+    private Counter summarizations;
+
+    @PostConstruct
+    void init() {
+        tokenCountEstimator = new OpenAiTokenCountEstimator(properties.getCompaction().getTokenizerModel());
+        tokenCounts = Caffeine.newBuilder().weakKeys().build();
+        summaries = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterAccess(properties.getCacheExpireAfterAccess())
+                .build();
+        executor = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "history-summarizer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        promptTokens = DistributionSummary.builder("chat.history.prompt.tokens")
+                .description("Estimated history tokens sent to the model per request")
+                .register(meterRegistry);
+        savedTokens = DistributionSummary.builder("chat.history.tokens.saved")
+                .description("History tokens replaced by the rolling summary per request")
+                .register(meterRegistry);
+        summarizations = Counter.builder("chat.history.summarizations").register(meterRegistry);
+    }
+
+    public int tokens(ChatMessage message) {
+        return tokenCounts.get(message, tokenCountEstimator::estimateTokenCountInMessage);
+    }
+
+    /**
+     * 从头部移除消息直到窗口满足 token 预算和条数上限，返回被移除的消息。最后一条消息总是保留。
+     */
+    public List<ChatMessage> enforceBudget(List<ChatMessage> messages, int maxMessages) {
+        int budget = properties.getCompaction().getMaxTokens();
+        int total = 0;
+        int count = 0;
+        for (ChatMessage message : messages) {
+            if (!(message instanceof SystemMessage)) {
+                total += tokens(message);
+                count++;
+            }
+        }
+        List<ChatMessage> evicted = new ArrayList<>();
+        int index = 0;
+        while ((total > budget || count > maxMessages) && count > 1 && index < messages.size()) {
+            ChatMessage candidate = messages.get(index);
+            if (candidate instanceof SystemMessage) {
+                index++;
+                continue;
+            }
+            messages.remove(index);
+            evicted.add(candidate);
+            total -= tokens(candidate);
+            count--;
+            // 工具调用结果必须跟随对应的 AI 消息一起移除
+            if (candidate instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                while (index < messages.size() && messages.get(index) instanceof ToolExecutionResultMessage result) {
+                    messages.remove(index);
+                    evicted.add(result);
+                    total -= tokens(result);
+                    count--;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 异步把移出窗口的消息并入摘要，同一对话的合并按顺序执行
+     */
+    public void fold(Object memoryId, List<ChatMessage> evicted) {
+        int foldedTokens = evicted.stream().mapToInt(this::tokens).sum();
+        // 在调用线程上取位置，消息对象移出窗口后可能被回收
+        Message through = chatMemoryStore.lastStored(evicted);
+        SummaryState state = state(memoryId);
+        synchronized (state) {
+            state.tail = state.tail.thenRunAsync(() -> {
+                Summary previous = state.current;
+                String text = trim(summarizer.summarize(ownerOf(memoryId), previous == null ? null : previous.text(),
+                        evicted, properties.getCompaction().getSummaryMaxTokens()));
+                int previousFolded = previous == null ? 0 : previous.foldedTokens();
+                Long foldedThrough = through != null ? through.getId() : previous == null ? null : previous.foldedThrough();
+                LocalDateTime foldedAt = through != null ? through.getCreatedAt() : previous == null ? null : previous.foldedAt();
+                state.current = new Summary(text, tokenCountEstimator.estimateTokenCountInText(text),
+                        previousFolded + foldedTokens, foldedThrough, foldedAt);
+                summarizations.increment();
+                persist(memoryId, state.current);
+            }, executor);
+        }
+    }
+
+    /**
+     * 在系统消息之后插入当前摘要，并记录本次请求的 token 节省量
+     */
+    public List<ChatMessage> withSummary(Object memoryId, List<ChatMessage> window) {
+        Summary summary = state(memoryId).current;
+        List<ChatMessage> messages = new ArrayList<>(window.size() + 1);
+        int position = !window.isEmpty() && window.get(0) instanceof SystemMessage ? 1 : 0;
+        messages.addAll(window.subList(0, position));
+        if (summary != null) {
+            messages.add(SystemMessage.from(SUMMARY_PREFIX + summary.text()));
+        }
+        messages.addAll(window.subList(position, window.size()));
+
+        int windowTokens = window.stream().mapToInt(this::tokens).sum();
+        promptTokens.record(windowTokens + (summary == null ? 0 : summary.tokens()));
+        savedTokens.record(summary == null ? 0 : Math.max(0, summary.foldedTokens() - summary.tokens()));
+        return messages;
+    }
+
+    /**
+     * 只丢弃进程内的摘要，数据库中的摘要随对话删除
+     */
+    public void evict(Object memoryId) {
+        summaries.invalidate(memoryId);
+    }
+
+    private SummaryState state(Object memoryId) {
+        return summaries.get(memoryId, this::load);
+    }
+
+    private SummaryState load(Object memoryId) {
+        SummaryState state = new SummaryState();
+        if (!(memoryId instanceof Long conversationId)) {
+            return state;
+        }
+        try {
+            conversationRepository.findById(conversationId)
+                    .filter(conversation -> conversation.getSummary() != null)
+                    .ifPresent(conversation -> state.current = restore(conversation));
+        } catch (DataAccessException e) {
+            log.warn("Failed to load history summary of conversation {}", conversationId, e);
+        }
+        return state;
+    }
+
+    private Summary restore(Conversation conversation) {
+        String text = conversation.getSummary();
+        Integer folded = conversation.getSummaryFoldedTokens();
+        return new Summary(text, tokenCountEstimator.estimateTokenCountInText(text), folded == null ? 0 : folded,
+                conversation.getSummaryFoldedThrough(), conversation.getSummaryFoldedAt());
+    }
+
+    /**
+     * 摘要调用计入对话所属用户的额度和排队份额；对话已删除时按匿名用户处理
+     */
+    private long ownerOf(Object memoryId) {
+        if (!(memoryId instanceof Long conversationId)) {
+            return AdmissionController.ANONYMOUS_USER;
+        }
+        try {
+            return chatMemoryStore.ownerOf(conversationId);
+        } catch (RuntimeException e) {
+            return AdmissionController.ANONYMOUS_USER;
+        }
+    }
+
+    private void persist(Object memoryId, Summary summary) {
+        if (!(memoryId instanceof Long conversationId)) {
+            return;
+        }
+        try {
+            conversationRepository.updateSummary(conversationId, summary.text(), summary.foldedTokens(),
+                    summary.foldedThrough(), summary.foldedAt());
+        } catch (DataAccessException e) {
+            log.warn("Failed to save history summary of conversation {}", conversationId, e);
+        }
+    }
+
+    private String trim(String summary) {
+        int maxTokens = properties.getCompaction().getSummaryMaxTokens();
+        int tokens = tokenCountEstimator.estimateTokenCountInText(summary);
+        if (tokens <= maxTokens) {
+            return summary;
+        }
+        // 保留较新的部分
+        int keep = (int) ((long) summary.length() * maxTokens / tokens);
+        return summary.substring(summary.length() - keep);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * foldedTokens 为累计并入摘要的原始消息 token 数；foldedThrough、foldedAt 为最后一条并入的消息的 ID 和创建时间
+     */
+    record Summary(String text, int tokens, int foldedTokens, Long foldedThrough, LocalDateTime foldedAt) {
+    }
+
+    private static class SummaryState {
+        private volatile Summary current;
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+    }
+}
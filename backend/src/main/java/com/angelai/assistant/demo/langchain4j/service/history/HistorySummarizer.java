@@ -0,0 +1,131 @@
+package com.angelai.assistant.demo.langchain4j.service.history;
+
+import com.angelai.assistant.demo.langchain4j.event.ChatModelCall;
+import com.angelai.assistant.demo.langchain4j.service.admission.AdmissionController;
+import com.angelai.assistant.demo.langchain4j.service.quota.TokenQuota;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把移出窗口的历史消息并入滚动摘要。模型调用与聊天请求一样先预留对话所属用户的额度、再经准入控制排队，
+ * 额度不足、排队被拒或调用失败时退化为截断拼接，保证摘要始终可用。
+ */
+@Slf4j
+@Component
+public class HistorySummarizer {
+
+    private static final long TIMEOUT_SECONDS = 30;
+    private static final int FALLBACK_SNIPPET_LENGTH = 100;
+
+    @Autowired
+    private StreamingChatModel streamingChatModel;
+
+    @Autowired(required = false)
+    private AdmissionController admissionController;
+
+    @Autowired(required = false)
+    private TokenQuota tokenQuota;
+
+    public String summarize(long userId, String previousSummary, List<ChatMessage> evicted, int maxTokens) {
+        StringBuilder transcript = new StringBuilder();
+        for (ChatMessage message : evicted) {
+            String text = textOf(message);
+            if (text != null) {
+                transcript.append(message instanceof AiMessage ? "助手: " : "用户: ").append(text).append('\n');
+            }
+        }
+        String prompt = "请把已有摘要和新增对话合并为一段简洁的摘要，保留事实、结论和用户偏好，不超过 "
+                + maxTokens + " 个 token。\n\n已有摘要:\n"
+                + (previousSummary == null ? "（无）" : previousSummary)
+                + "\n\n新增对话:\n" + transcript;
+        try {
+            return metered(userId, prompt);
+        } catch (Exception e) {
+            log.warn("Failed to summarize conversation history, falling back to truncation: {}", e.getMessage());
+            return fallback(previousSummary, evicted);
+        }
+    }
+
+    private String metered(long userId, String prompt) throws Exception {
+        ChatModelCall call = new ChatModelCall("summary");
+        TokenQuota.Reservation reservation = tokenQuota == null
+                ? TokenQuota.Reservation.UNMETERED
+                : tokenQuota.reserve(userId, prompt);
+        try {
+            String summary = admitted(userId, () -> call(call, prompt));
+            reservation.settle(call, false);
+            return summary;
+        } catch (Exception e) {
+            reservation.settle(call, true);
+            throw e;
+        }
+    }
+
+    private String admitted(long userId, Callable<String> call) throws Exception {
+        if (admissionController == null) {
+            return call.call();
+        }
+        AdmissionController.Permit permit = admissionController.acquireBlocking(userId);
+        try {
+            String summary = call.call();
+            permit.release();
+            return summary;
+        } catch (Exception e) {
+            permit.release(e);
+            throw e;
+        }
+    }
+
+    private String call(ChatModelCall call, String prompt) throws Exception {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        call.bind(() -> streamingChatModel.chat(
+                List.of(SystemMessage.from("你是对话摘要助手"), UserMessage.from(prompt)),
+                new StreamingChatResponseHandler() {
+                    @Override
+                    public void onCompleteResponse(ChatResponse response) {
+                        future.complete(response.aiMessage().text());
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        future.completeExceptionally(error);
+                    }
+                }));
+        return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private static String fallback(String previousSummary, List<ChatMessage> evicted) {
+        StringBuilder summary = new StringBuilder(previousSummary == null ? "" : previousSummary);
+        for (ChatMessage message : evicted) {
+            String text = textOf(message);
+            if (text != null) {
+                summary.append(summary.isEmpty() ? "" : "\n")
+                        .append(text, 0, Math.min(text.length(), FALLBACK_SNIPPET_LENGTH));
+            }
+        }
+        return summary.toString();
+    }
+
+    static String textOf(ChatMessage message) {
+        if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+            return userMessage.singleText();
+        }
+        if (message instanceof AiMessage aiMessage) {
+            return aiMessage.text();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,107 @@
+package com.angelai.assistant.demo.langchain4j.service.http;
+
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.TimeoutException;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+
+import static dev.langchain4j.http.client.sse.ServerSentEventListenerUtils.ignoringExceptions;
+
+/**
+ * 固定使用 JDK HttpClient 的模型 HTTP 客户端。
+ * langchain4j 自带的 SpringRestClient 按类路径自动挑选请求工厂，引入 WebFlux 后会选中 Reactor Netty，
+ * 而它读取流式响应时要等整个响应结束才把数据交给解析器，首 token 时间退化成整段回答的生成时间。
+ */
+public class JdkRestClient implements HttpClient {
+
+    private final RestClient delegate;
+    private final AsyncTaskExecutor streamingRequestExecutor;
+
+    JdkRestClient(JdkRestClientBuilder builder) {
+        java.net.http.HttpClient.Builder jdkClient = java.net.http.HttpClient.newBuilder()
+                .version(java.net.http.HttpClient.Version.HTTP_1_1);
+        if (builder.connectTimeout() != null) {
+            jdkClient.connectTimeout(builder.connectTimeout());
+        }
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(jdkClient.build());
+        if (builder.readTimeout() != null) {
+            requestFactory.setReadTimeout(builder.readTimeout());
+        }
+        this.delegate = builder.restClientBuilder().clone().requestFactory(requestFactory).build();
+        this.streamingRequestExecutor = builder.streamingRequestExecutor();
+    }
+
+    @Override
+    public SuccessfulHttpResponse execute(HttpRequest request) {
+        try {
+            ResponseEntity<String> response = toRestClientRequest(request).retrieve().toEntity(String.class);
+            return SuccessfulHttpResponse.builder()
+                    .statusCode(response.getStatusCode().value())
+                    .headers(response.getHeaders())
+                    .body(response.getBody())
+                    .build();
+        } catch (RestClientResponseException e) {
+            throw new HttpException(e.getStatusCode().value(), e.getResponseBodyAsString());
+        } catch (RuntimeException e) {
+            throw isTimeout(e) ? new TimeoutException(e) : e;
+        }
+    }
+
+    @Override
+    public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+        streamingRequestExecutor.execute(() -> {
+            try {
+                toRestClientRequest(request).exchange((clientRequest, response) -> {
+                    int status = response.getStatusCode().value();
+                    if (!response.getStatusCode().is2xxSuccessful()) {
+                        String body = new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8);
+                        ignoringExceptions(() -> listener.onError(new HttpException(status, body)));
+                        return null;
+                    }
+                    SuccessfulHttpResponse opened = SuccessfulHttpResponse.builder()
+                            .statusCode(status)
+                            .headers(response.getHeaders())
+                            .build();
+                    ignoringExceptions(() -> listener.onOpen(opened));
+                    try (InputStream body = response.getBody()) {
+                        parser.parse(body, listener);
+                        ignoringExceptions(listener::onClose);
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                Throwable error = isTimeout(e) ? new TimeoutException(e) : e;
+                ignoringExceptions(() -> listener.onError(error));
+            }
+        });
+    }
+
+    private RestClient.RequestBodySpec toRestClientRequest(HttpRequest request) {
+        RestClient.RequestBodySpec spec = delegate.method(HttpMethod.valueOf(request.method().name()))
+                .uri(request.url())
+                .headers(headers -> headers.putAll(request.headers()));
+        if (request.body() != null) {
+            spec.body(request.body());
+        }
+        return spec;
+    }
+
+    private static boolean isTimeout(Throwable e) {
+        Throwable cause = e.getCause();
+        return cause instanceof SocketTimeoutException || cause instanceof HttpTimeoutException;
+    }
+}
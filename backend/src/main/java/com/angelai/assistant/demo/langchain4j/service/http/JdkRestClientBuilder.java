@@ -0,0 +1,73 @@
+package com.angelai.assistant.demo.langchain4j.service.http;
+
+import dev.langchain4j.http.client.HttpClientBuilder;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.web.client.RestClient;
+
+import java.time.Duration;
+
+/**
+ * JdkRestClient 的构建器，连接和读取超时由模型按 langchain4j.open-ai.*.timeout 设置
+ */
+public class JdkRestClientBuilder implements HttpClientBuilder {
+
+    private RestClient.Builder restClientBuilder;
+    private AsyncTaskExecutor streamingRequestExecutor;
+    private Duration connectTimeout;
+    private Duration readTimeout;
+
+    public RestClient.Builder restClientBuilder() {
+        return restClientBuilder;
+    }
+
+    public JdkRestClientBuilder restClientBuilder(RestClient.Builder restClientBuilder) {
+        this.restClientBuilder = restClientBuilder;
+        return this;
+    }
+
+    public AsyncTaskExecutor streamingRequestExecutor() {
+        return streamingRequestExecutor;
+    }
+
+    /**
+     * 流式请求在该执行器上阻塞读取响应，未设置时每个流式请求新建一个线程
+     */
+    public JdkRestClientBuilder streamingRequestExecutor(AsyncTaskExecutor streamingRequestExecutor) {
+        this.streamingRequestExecutor = streamingRequestExecutor;
+        return this;
+    }
+
+    @Override
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    @Override
+    public JdkRestClientBuilder connectTimeout(Duration connectTimeout) {
+        this.connectTimeout = connectTimeout;
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return readTimeout;
+    }
+
+    @Override
+    public JdkRestClientBuilder readTimeout(Duration readTimeout) {
+        this.readTimeout = readTimeout;
+        return this;
+    }
+
+    @Override
+    public JdkRestClient build() {
+        if (restClientBuilder == null) {
+            restClientBuilder = RestClient.builder();
+        }
+        if (streamingRequestExecutor == null) {
+            streamingRequestExecutor = new SimpleAsyncTaskExecutor("lc4j-http-");
+        }
+        return new JdkRestClient(this);
+    }
+}
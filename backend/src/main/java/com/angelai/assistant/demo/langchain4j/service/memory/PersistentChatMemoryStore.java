@@ -0,0 +1,264 @@
+package com.angelai.assistant.demo.langchain4j.service.memory;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatMemoryProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import com.angelai.assistant.demo.langchain4j.service.persistence.MessageWriteBuffer;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 以 messages 表为持久层的对话记忆，memoryId 即对话ID。
+ * 最近的消息窗口缓存在进程内，新增消息交给 {@link MessageWriteBuffer} 异步批量落库。
+ */
+@Component
+public class PersistentChatMemoryStore implements ChatMemoryStore {
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageWriteBuffer messageWriteBuffer;
+
+    @Autowired
+    private ChatMemoryProperties properties;
+
+    private Cache<Object, List<ChatMessage>> windows;
+    private Cache<Long, Long> conversationOwners;
+    private Cache<ChatMessage, Message> rows;
+
+    @PostConstruct
+    void init() {
+        windows = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterAccess(properties.getCacheExpireAfterAccess())
+                .build();
+        conversationOwners = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .build();
+        // 按对象身份记录窗口中的消息对应哪一行，消息移出窗口后随之回收
+        rows = Caffeine.newBuilder().weakKeys().build();
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        return new ArrayList<>(windows.get(memoryId, this::load));
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        List<ChatMessage> previous = windows.getIfPresent(memoryId);
+        windows.put(memoryId, List.copyOf(messages));
+        if (memoryId instanceof Long conversationId) {
+            // 窗口已被淘汰时不知道哪些消息已经落库，以数据库和写缓冲中的最近消息为基准比对
+            List<ChatMessage> added = previous != null
+                    ? appended(previous, messages)
+                    : appendedSince(stored(conversationId), messages);
+            for (ChatMessage message : added) {
+                persist(conversationId, message);
+            }
+        }
+    }
+
+    /**
+     * 补记没有正常结束的流式应答。完整应答由 AI 服务在流结束时写入记忆，这里只处理取消和出错的情况
+     */
+    public void appendPartialAnswer(Long conversationId, String text) {
+        if (!properties.isKeepPartialAnswers() || text.isBlank()) {
+            return;
+        }
+        List<ChatMessage> messages = getMessages(conversationId);
+        messages.add(AiMessage.from(text));
+        updateMessages(conversationId, messages);
+    }
+
+    /**
+     * 只清理进程内窗口，历史消息仍保留在数据库中
+     */
+    @Override
+    public void deleteMessages(Object memoryId) {
+        windows.invalidate(memoryId);
+        if (memoryId instanceof Long conversationId) {
+            conversationOwners.invalidate(conversationId);
+        }
+    }
+
+    /**
+     * messages 中最后一条已分配 ID 的消息对应的行，没有时返回 null；用于记录摘要折叠到的位置
+     */
+    public Message lastStored(List<ChatMessage> messages) {
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            Message row = rows.getIfPresent(messages.get(i));
+            if (row != null) {
+                return row;
+            }
+        }
+        return null;
+    }
+
+    public Long ownerOf(Long conversationId) {
+        return conversationOwners.get(conversationId, id -> conversationRepository.findById(id)
+                .map(Conversation::getUserId)
+                .orElseThrow(() -> new RuntimeException("对话不存在")));
+    }
+
+    private List<ChatMessage> load(Object memoryId) {
+        if (!(memoryId instanceof Long conversationId)) {
+            return List.of();
+        }
+        List<Message> recent = recent(conversationId);
+        List<ChatMessage> messages = new ArrayList<>(recent.size());
+        for (Message message : recent) {
+            ChatMessage chatMessage = "AI".equals(message.getSenderType())
+                    ? AiMessage.from(message.getContent())
+                    : UserMessage.from(message.getContent());
+            rows.put(chatMessage, message);
+            messages.add(chatMessage);
+        }
+        return List.copyOf(messages);
+    }
+
+    /**
+     * 该对话最近已保存的至多 maxMessages 条消息，按时间正序。先取写缓冲中尚未落库的（包括批量写入失败等待重试的），
+     * 再查库，两边都有的按 ID 去重，刚说完的一轮不会因为还没落库而缺失。
+     * 开启历史压缩时跳过已并入摘要的消息，否则窗口淘汰或重启后这些消息会回到窗口并被再次折叠
+     */
+    private List<Message> recent(Long conversationId) {
+        List<Message> unwritten = messageWriteBuffer.unwritten(conversationId);
+        PageRequest page = PageRequest.of(0, properties.getMaxMessages());
+        Conversation folded = properties.getCompaction().isEnabled()
+                ? conversationRepository.findById(conversationId)
+                        .filter(conversation -> conversation.getSummaryFoldedThrough() != null)
+                        .orElse(null)
+                : null;
+        List<Message> rows = folded == null
+                ? messageRepository.findByConversationIdOrderByCreatedAtDesc(conversationId, page)
+                : messageRepository.findLatestAfter(conversationId, folded.getSummaryFoldedAt(),
+                        folded.getSummaryFoldedThrough(), page);
+        Map<Long, Message> byId = new LinkedHashMap<>();
+        for (Message message : rows) {
+            byId.put(message.getId(), message);
+        }
+        for (Message message : unwritten) {
+            if (folded == null || isAfter(message, folded.getSummaryFoldedAt(), folded.getSummaryFoldedThrough())) {
+                byId.putIfAbsent(message.getId(), message);
+            }
+        }
+        List<Message> recent = byId.values().stream()
+                .sorted(Comparator.comparing(Message::getCreatedAt).thenComparing(Message::getId))
+                .toList();
+        return recent.subList(Math.max(0, recent.size() - properties.getMaxMessages()), recent.size());
+    }
+
+    private static boolean isAfter(Message message, LocalDateTime createdAt, Long id) {
+        int compared = message.getCreatedAt().compareTo(createdAt);
+        return compared > 0 || compared == 0 && message.getId() > id;
+    }
+
+    /**
+     * 窗口只会从头部淘汰、从尾部追加，因此上一次窗口最后一条之后的消息都是新增的
+     */
+    private static List<ChatMessage> appended(List<ChatMessage> previous, List<ChatMessage> current) {
+        if (previous == null || previous.isEmpty()) {
+            return current;
+        }
+        ChatMessage last = previous.get(previous.size() - 1);
+        for (int i = current.size() - 1; i >= 0; i--) {
+            if (current.get(i) == last) {
+                return current.subList(i + 1, current.size());
+            }
+        }
+        for (int i = current.size() - 1; i >= 0; i--) {
+            if (current.get(i).equals(last)) {
+                return current.subList(i + 1, current.size());
+            }
+        }
+        return current;
+    }
+
+    private List<StoredMessage> stored(Long conversationId) {
+        return recent(conversationId).stream()
+                .map(message -> new StoredMessage(message.getSenderType(), message.getContent()))
+                .toList();
+    }
+
+    /**
+     * 在当前窗口中找到可落库的消息与已保存消息末尾逐条对齐的位置，之后的消息是新增的。
+     * 窗口只从头部淘汰，对不上时说明已保存的消息都已移出窗口，窗口中的消息都是新增的
+     */
+    private static List<ChatMessage> appendedSince(List<StoredMessage> stored, List<ChatMessage> current) {
+        for (int end = current.size() - 1; end >= 0; end--) {
+            if (endsWith(current, end, stored)) {
+                return current.subList(end + 1, current.size());
+            }
+        }
+        return current;
+    }
+
+    private static boolean endsWith(List<ChatMessage> current, int end, List<StoredMessage> stored) {
+        int matched = 0;
+        for (int i = end; i >= 0 && matched < stored.size(); i--) {
+            StoredMessage message = StoredMessage.of(current.get(i));
+            if (message == null) {
+                continue;
+            }
+            if (!message.equals(stored.get(stored.size() - 1 - matched))) {
+                return false;
+            }
+            matched++;
+        }
+        return matched > 0;
+    }
+
+    private void persist(Long conversationId, ChatMessage chatMessage) {
+        StoredMessage stored = StoredMessage.of(chatMessage);
+        if (stored == null) {
+            return;
+        }
+        Message message = new Message();
+        message.setConversationId(conversationId);
+        message.setUserId(ownerOf(conversationId));
+        message.setContent(stored.content());
+        message.setSenderType(stored.senderType());
+        messageWriteBuffer.enqueue(message);
+        if (message.getId() != null) {
+            rows.put(chatMessage, message);
+        }
+    }
+
+    /**
+     * 落库后的形式，只有纯文本的用户消息和 AI 消息会保存
+     */
+    private record StoredMessage(String senderType, String content) {
+
+        static StoredMessage of(ChatMessage message) {
+            if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                return new StoredMessage("USER", userMessage.singleText());
+            }
+            if (message instanceof AiMessage aiMessage && aiMessage.text() != null) {
+                return new StoredMessage("AI", aiMessage.text());
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.angelai.assistant.demo.langchain4j.service.persistence;
+
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * 复用 Message 实体上的序列生成器分配 ID。pooled 优化器每 allocationSize 个 ID 才访问一次数据库，
+ * 与 JPA 保存的消息共用同一个序列，不会冲突。
+ */
+@Component
+public class MessageIdGenerator {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private SessionFactoryImplementor sessionFactory;
+    private BeforeExecutionGenerator generator;
+
+    @PostConstruct
+    void init() {
+        sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        generator = (BeforeExecutionGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(Message.class)
+                .getGenerator();
+        // 从自增主键迁移过来的库，序列要先推进到现有最大 ID 之后，否则新消息会撞上旧 ID
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM messages", Long.class);
+        long first = next();
+        if (maxId != null && first <= maxId) {
+            throw new IllegalStateException("message_seq 落后于 messages 表的最大 ID " + maxId
+                    + "，请先把序列推进到该值之后，见 README 中的消息写入说明");
+        }
+    }
+
+    public long next() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            Object id = generator.generate((SharedSessionContractImplementor) session, null, null, EventType.INSERT);
+            return ((Number) id).longValue();
+        }
+    }
+}
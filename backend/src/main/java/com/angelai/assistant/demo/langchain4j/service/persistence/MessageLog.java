@@ -0,0 +1,223 @@
+package com.angelai.assistant.demo.langchain4j.service.persistence;
+
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 消息写缓冲的本地预写日志：入队前先追加到当前段文件，进程崩溃后重启时重放尚未落库的消息。
+ * 每条记录为 [长度][CRC32][内容]，重放遇到写了一半的记录即停止。刷盘前切换到新段，
+ * 旧段中的消息全部写入数据库后删除。多次重试仍写不进数据库的消息移到死信文件，格式与段文件相同。
+ */
+@Slf4j
+public class MessageLog implements AutoCloseable {
+
+    private static final String SUFFIX = ".wal";
+
+    private static final String DEAD_LETTER = "dead-letter.log";
+
+    /**
+     * 超过该长度的记录视为损坏的长度字段
+     */
+    private static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final List<Path> sealed = new ArrayList<>();
+    private FileChannel channel;
+    private Path current;
+    private long segment;
+
+    public MessageLog(Path directory, boolean fsync) {
+        this.directory = directory;
+        this.fsync = fsync;
+    }
+
+    /**
+     * 读出上次运行遗留的全部记录，之后这些段文件由 {@link #deleteSealed()} 删除
+     */
+    public synchronized List<Message> recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(directory)) {
+            segments = files.filter(path -> path.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+        List<Message> messages = new ArrayList<>();
+        for (Path path : segments) {
+            read(path, messages);
+            segment = Math.max(segment, segmentNumber(path));
+            sealed.add(path);
+        }
+        open();
+        return messages;
+    }
+
+    public synchronized void append(Message message) {
+        try {
+            write(channel, message);
+            if (fsync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 追加到死信文件并 fsync，返回后这些消息所在的段可以删除。死信文件不会自动重放，改名为 .wal 后重启即可重放
+     */
+    public synchronized void deadLetter(List<Message> messages) throws IOException {
+        try (FileChannel out = FileChannel.open(directory.resolve(DEAD_LETTER),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            for (Message message : messages) {
+                write(out, message);
+            }
+            out.force(false);
+        }
+    }
+
+    /**
+     * 封存当前段并切换到新段。调用方需保证封存前追加的消息都已进入内存队列
+     */
+    public synchronized void rotate() throws IOException {
+        if (channel.size() == 0) {
+            return;
+        }
+        channel.force(false);
+        channel.close();
+        sealed.add(current);
+        open();
+    }
+
+    /**
+     * 封存段中的消息都已落库后调用
+     */
+    public synchronized void deleteSealed() throws IOException {
+        for (Path path : sealed) {
+            Files.deleteIfExists(path);
+        }
+        sealed.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void open() throws IOException {
+        current = directory.resolve(String.format("%020d%s", ++segment, SUFFIX));
+        channel = FileChannel.open(current, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    private static void write(FileChannel out, Message message) throws IOException {
+        byte[] payload = encode(message);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + payload.length);
+        buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static void read(Path path, List<Message> messages) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(path))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    return;
+                }
+                if (length < 0 || length > MAX_RECORD_BYTES) {
+                    log.warn("Corrupted record length {} in {}, ignoring the rest of the segment", length, path);
+                    return;
+                }
+                int checksum = in.readInt();
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Corrupted record in {}, ignoring the rest of the segment", path);
+                    return;
+                }
+                messages.add(decode(payload));
+            }
+        } catch (EOFException e) {
+            log.warn("Truncated record at the end of {}, ignoring it", path);
+        }
+    }
+
+    private static long segmentNumber(Path path) {
+        String name = path.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] encode(Message message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + message.getContent().length() * 3);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeLong(message.getId());
+            out.writeLong(message.getConversationId());
+            out.writeLong(message.getUserId());
+            writeString(out, message.getSenderType());
+            writeString(out, message.getCreatedAt().toString());
+            writeString(out, message.getContent());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Message decode(byte[] payload) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            Message message = new Message();
+            message.setId(in.readLong());
+            message.setConversationId(in.readLong());
+            message.setUserId(in.readLong());
+            message.setSenderType(readString(in));
+            message.setCreatedAt(LocalDateTime.parse(readString(in)));
+            message.setContent(readString(in));
+            return message;
+        }
+    }
+
+    /**
+     * writeUTF 限制 64KB，消息内容可能更长，改用长度前缀的 UTF-8
+     */
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
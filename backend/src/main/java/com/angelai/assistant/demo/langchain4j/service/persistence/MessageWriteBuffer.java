@@ -0,0 +1,303 @@
+package com.angelai.assistant.demo.langchain4j.service.persistence;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageWriteBufferProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.service.cache.ConversationCache;
+import com.angelai.assistant.demo.langchain4j.service.search.MessageTextIndex;
+import com.angelai.assistant.demo.langchain4j.service.search.MessageVectorIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 消息写缓冲：调用方只把消息放入有界队列，由后台线程按批次通过 JDBC 批量写入，
+ * 避免请求线程等待数据库。入队时即分配 ID，开启预写日志时先追加到本地日志再入队。
+ */
+@Slf4j
+@Component
+public class MessageWriteBuffer {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO messages (id, conversation_id, user_id, content, sender_type, created_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    /**
+     * 重放预写日志时每次查询已存在 ID 的条数
+     */
+    private static final int RECOVERY_CHUNK = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageWriteBufferProperties properties;
+
+    @Autowired
+    private MessageIdGenerator messageIdGenerator;
+
+    @Autowired(required = false)
+    private ConversationCache conversationCache;
+
+    @Autowired(required = false)
+    private MessageVectorIndex messageVectorIndex;
+
+    @Autowired(required = false)
+    private MessageTextIndex messageTextIndex;
+
+    private BlockingQueue<Message> queue;
+    private ScheduledExecutorService flusher;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Queue<FailedBatch> failedBatches = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 追加日志和入队（队列满时直接写库）在读锁内进行，切换日志段时取写锁，
+     * 保证封存的段中的消息都已在队列里、已落库或在失败重试中
+     */
+    private final ReadWriteLock logLock = new ReentrantReadWriteLock();
+    private MessageLog messageLog;
+
+    @PostConstruct
+    void start() throws IOException {
+        queue = new ArrayBlockingQueue<>(properties.getCapacity());
+        if (properties.getWal().isEnabled()) {
+            messageLog = new MessageLog(Path.of(properties.getWal().getDirectory()), properties.getWal().isFsync());
+            recover(messageLog.recover());
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-write-buffer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getFlushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 返回的消息已带有 ID 和创建时间，可以直接交给客户端
+     */
+    public Message enqueue(Message message) {
+        if (message.getId() == null) {
+            message.setId(messageIdGenerator.next());
+        }
+        if (message.getCreatedAt() == null) {
+            message.setCreatedAt(LocalDateTime.now());
+        }
+        boolean accepted;
+        logLock.readLock().lock();
+        try {
+            if (messageLog != null) {
+                messageLog.append(message);
+            }
+            try {
+                accepted = queue.offer(message, properties.getEnqueueTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+            if (!accepted) {
+                log.warn("Message write buffer is full, writing message of conversation {} synchronously",
+                        message.getConversationId());
+                if (!insert(List.of(message))) {
+                    // 交给后台重试，日志段在写入成功前不会删除
+                    failedBatches.add(new FailedBatch(List.of(message), 1));
+                }
+                return message;
+            }
+        } finally {
+            logLock.readLock().unlock();
+        }
+        if (queue.size() >= properties.getBatchSize() && flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(this::flush);
+        }
+        return message;
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
+    /**
+     * 该对话已入队但尚未落库的消息，含等待重试的批次。与刷盘互斥，不会漏掉已取出但尚未写完的批次
+     */
+    public synchronized List<Message> unwritten(Long conversationId) {
+        List<Message> messages = new ArrayList<>();
+        for (FailedBatch failed : failedBatches) {
+            for (Message message : failed.messages()) {
+                if (conversationId.equals(message.getConversationId())) {
+                    messages.add(message);
+                }
+            }
+        }
+        for (Message message : queue.toArray(new Message[0])) {
+            if (conversationId.equals(message.getConversationId())) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    synchronized void flush() {
+        flushScheduled.set(false);
+        rotateLog();
+        retryFailedBatches();
+        List<Message> batch = new ArrayList<>(properties.getBatchSize());
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            if (!insert(batch)) {
+                failedBatches.add(new FailedBatch(List.copyOf(batch), 1));
+            }
+            batch.clear();
+        }
+        if (messageLog != null && failedBatches.isEmpty()) {
+            try {
+                messageLog.deleteSealed();
+            } catch (IOException e) {
+                log.warn("Failed to delete flushed message log segments", e);
+            }
+        }
+    }
+
+    private void rotateLog() {
+        if (messageLog == null) {
+            return;
+        }
+        logLock.writeLock().lock();
+        try {
+            messageLog.rotate();
+        } catch (IOException e) {
+            log.error("Failed to rotate message log", e);
+        } finally {
+            logLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 重放上次运行遗留在日志中的消息，已经落库的按 ID 跳过；写入失败的留给后续刷盘重试
+     */
+    private void recover(List<Message> logged) {
+        if (logged.isEmpty()) {
+            return;
+        }
+        List<Message> missing = new ArrayList<>();
+        for (int from = 0; from < logged.size(); from += RECOVERY_CHUNK) {
+            List<Message> chunk = logged.subList(from, Math.min(logged.size(), from + RECOVERY_CHUNK));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM messages WHERE id IN (" + placeholders + ")", Long.class,
+                    chunk.stream().map(Message::getId).toArray()));
+            for (Message message : chunk) {
+                if (!existing.contains(message.getId())) {
+                    missing.add(message);
+                }
+            }
+        }
+        log.info("Recovering {} of {} logged messages", missing.size(), logged.size());
+        for (int from = 0; from < missing.size(); from += properties.getBatchSize()) {
+            List<Message> batch = List.copyOf(missing.subList(from, Math.min(missing.size(), from + properties.getBatchSize())));
+            if (!insert(batch)) {
+                failedBatches.add(new FailedBatch(batch, 1));
+            }
+        }
+        if (failedBatches.isEmpty()) {
+            try {
+                messageLog.deleteSealed();
+            } catch (IOException e) {
+                log.warn("Failed to delete recovered message log segments", e);
+            }
+        }
+    }
+
+    private void retryFailedBatches() {
+        int size = failedBatches.size();
+        for (int i = 0; i < size; i++) {
+            FailedBatch failed = failedBatches.poll();
+            if (insert(failed.messages())) {
+                continue;
+            }
+            if (failed.attempts() >= properties.getMaxRetries()) {
+                drop(failed);
+            } else {
+                failedBatches.add(new FailedBatch(failed.messages(), failed.attempts() + 1));
+            }
+        }
+    }
+
+    /**
+     * 放弃重试的批次移到死信文件后，所在的日志段才能删除；死信写不进去时继续重试
+     */
+    private void drop(FailedBatch failed) {
+        if (messageLog == null) {
+            log.error("Dropping {} messages after {} failed attempts", failed.messages().size(), failed.attempts());
+            return;
+        }
+        try {
+            messageLog.deadLetter(failed.messages());
+            log.error("Moved {} messages to the dead-letter file after {} failed attempts",
+                    failed.messages().size(), failed.attempts());
+        } catch (IOException e) {
+            log.error("Failed to write {} messages to the dead-letter file", failed.messages().size(), e);
+            failedBatches.add(failed);
+        }
+    }
+
+    private boolean insert(List<Message> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), (ps, message) -> {
+                ps.setLong(1, message.getId());
+                ps.setLong(2, message.getConversationId());
+                ps.setLong(3, message.getUserId());
+                ps.setString(4, message.getContent());
+                ps.setString(5, message.getSenderType());
+                ps.setTimestamp(6, Timestamp.valueOf(message.getCreatedAt()));
+            });
+        } catch (DataAccessException e) {
+            log.error("Failed to flush {} messages", batch.size(), e);
+            return false;
+        }
+        if (conversationCache != null) {
+            conversationCache.appendMessages(batch);
+        }
+        if (messageVectorIndex != null) {
+            messageVectorIndex.submit(batch);
+        }
+        if (messageTextIndex != null) {
+            messageTextIndex.add(batch);
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException, IOException {
+        flusher.shutdown();
+        flusher.awaitTermination(5, TimeUnit.SECONDS);
+        flush();
+        if (messageLog != null) {
+            messageLog.close();
+        }
+    }
+
+    private record FailedBatch(List<Message> messages, int attempts) {
+    }
+}
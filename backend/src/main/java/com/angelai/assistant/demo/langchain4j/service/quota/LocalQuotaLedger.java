@@ -0,0 +1,51 @@
+package com.angelai.assistant.demo.langchain4j.service.quota;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 只在本节点内记账，未启用 Redis 时使用。按用户和日期分别记账，换日后前一天的租约仍可归还，
+ * 更早的记录在换日时清除
+ */
+final class LocalQuotaLedger implements QuotaLedger {
+
+    private final Map<Key, long[]> accounts = new HashMap<>();
+    private LocalDate latest;
+
+    private record Key(long userId, LocalDate day) {
+    }
+
+    @Override
+    public synchronized long lease(long userId, LocalDate day, long amount, long limit) {
+        long[] account = account(userId, day);
+        long grant = Math.min(amount, limit - account[0]);
+        if (grant <= 0) {
+            return 0;
+        }
+        account[0] += grant;
+        return grant;
+    }
+
+    @Override
+    public synchronized void settle(long userId, LocalDate day, long consumed, long unused) {
+        long[] account = account(userId, day);
+        account[0] -= unused;
+        account[1] += consumed;
+    }
+
+    @Override
+    public synchronized Usage usage(long userId, LocalDate day) {
+        long[] account = account(userId, day);
+        return new Usage(account[0], account[1]);
+    }
+
+    private long[] account(long userId, LocalDate day) {
+        if (latest == null || day.isAfter(latest)) {
+            latest = day;
+            LocalDate oldest = day.minusDays(1);
+            accounts.keySet().removeIf(key -> key.day().isBefore(oldest));
+        }
+        return accounts.computeIfAbsent(new Key(userId, day), key -> new long[2]);
+    }
+}
@@ -0,0 +1,15 @@
+package com.angelai.assistant.demo.langchain4j.service.quota;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * 当天的 token 额度不足以发起这次模型调用
+ */
+@ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+public class QuotaExceededException extends RuntimeException {
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,24 @@
+package com.angelai.assistant.demo.langchain4j.service.quota;
+
+import java.time.LocalDate;
+
+/**
+ * 额度账本，按用户和日期记录已租出（含各节点手中尚未用完）的 token 数和已上报的消耗
+ */
+interface QuotaLedger {
+
+    /**
+     * 租用至多 amount 个 token，已租出总数不超过 limit；返回实际租到的数量，额度用完时为 0
+     */
+    long lease(long userId, LocalDate day, long amount, long limit);
+
+    /**
+     * 上报消耗，并把未用完的 unused 从已租出中扣回；unused 为负表示实际用量超出租到的额度，补记到已租出
+     */
+    void settle(long userId, LocalDate day, long consumed, long unused);
+
+    Usage usage(long userId, LocalDate day);
+
+    record Usage(long leased, long consumed) {
+    }
+}
@@ -0,0 +1,76 @@
+package com.angelai.assistant.demo.langchain4j.service.quota;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 在 Redis hash 中记账，键为 前缀 + 日期 + 用户 ID，字段 leased 和 consumed；租用在脚本内检查上限并扣减，各节点之间不会超租
+ */
+final class RedisQuotaLedger implements QuotaLedger {
+
+    private static final String LEASED = "leased";
+    private static final String CONSUMED = "consumed";
+
+    /**
+     * 保留到第二天结束，跨日前后都能查到前一天的用量
+     */
+    private static final Duration KEY_TTL = Duration.ofDays(2);
+
+    private static final RedisScript<Long> LEASE = new DefaultRedisScript<>("""
+            local leased = tonumber(redis.call('HGET', KEYS[1], 'leased') or '0')
+            local grant = math.min(tonumber(ARGV[1]), tonumber(ARGV[2]) - leased)
+            if grant <= 0 then
+                return 0
+            end
+            redis.call('HINCRBY', KEYS[1], 'leased', grant)
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            return grant
+            """, Long.class);
+
+    private static final RedisScript<Long> SETTLE = new DefaultRedisScript<>("""
+            redis.call('HINCRBY', KEYS[1], 'consumed', ARGV[1])
+            redis.call('HINCRBY', KEYS[1], 'leased', -tonumber(ARGV[2]))
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final String keyPrefix;
+
+    RedisQuotaLedger(StringRedisTemplate redisTemplate, String keyPrefix) {
+        this.redisTemplate = redisTemplate;
+        this.keyPrefix = keyPrefix;
+    }
+
+    @Override
+    public long lease(long userId, LocalDate day, long amount, long limit) {
+        Long grant = redisTemplate.execute(LEASE, List.of(key(userId, day)),
+                String.valueOf(amount), String.valueOf(limit), String.valueOf(KEY_TTL.toSeconds()));
+        return grant == null ? 0 : grant;
+    }
+
+    @Override
+    public void settle(long userId, LocalDate day, long consumed, long unused) {
+        redisTemplate.execute(SETTLE, List.of(key(userId, day)),
+                String.valueOf(consumed), String.valueOf(unused), String.valueOf(KEY_TTL.toSeconds()));
+    }
+
+    @Override
+    public Usage usage(long userId, LocalDate day) {
+        List<Object> values = redisTemplate.opsForHash().multiGet(key(userId, day), List.of(LEASED, CONSUMED));
+        return new Usage(parse(values.get(0)), parse(values.get(1)));
+    }
+
+    private String key(long userId, LocalDate day) {
+        return keyPrefix + day + ":" + userId;
+    }
+
+    private static long parse(Object value) {
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+}
@@ -0,0 +1,328 @@
+package com.angelai.assistant.demo.langchain4j.service.quota;
+
+import com.angelai.assistant.demo.langchain4j.config.TokenQuotaProperties;
+import com.angelai.assistant.demo.langchain4j.event.ChatModelCall;
+import com.angelai.assistant.demo.langchain4j.service.admission.AdmissionController;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 每用户每日 token 额度。调用模型前按提问字数加输出预留量从本地租约中预留，租约不够时向账本续租一块，
+ * 账本额度不足则拒绝，不发起上游调用；调用结束后按应答中的实际用量结算，多退少补。
+ * 预留和结算只做本地原子计数，只有续租访问 Redis。后台定期上报已用量，租约到期或换日时归还未用完的额度。
+ * 未认证的请求不计额度。默认只在本节点内记账，配置 redis-enabled 后各节点在 Redis 中共享额度。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.chat.quota", name = "enabled", havingValue = "true")
+public class TokenQuota {
+
+    @Autowired
+    private TokenQuotaProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    private final Map<LeaseKey, Lease> leases = new ConcurrentHashMap<>();
+    private final AtomicBoolean ledgerUnavailable = new AtomicBoolean();
+    private QuotaLedger ledger;
+    private ScheduledExecutorService scheduler;
+    private Counter allowed;
+    private Counter rejected;
+    private Counter unmetered;
+    private Counter leasesGranted;
+    private Counter leasesExhausted;
+    private Counter chargedTokens;
+
+    /**
+     * used 含本节点尚未上报的用量；remaining 不含其他节点手中尚未用完的租约，这部分到期后才归还
+     */
+    public record Usage(LocalDate date, long limit, long used, long remaining, Instant resetAt) {
+    }
+
+    private record LeaseKey(long userId, LocalDate day) {
+    }
+
+    @PostConstruct
+    void init() {
+        boolean redis = properties.isRedisEnabled() && redisTemplate != null;
+        ledger = redis ? new RedisQuotaLedger(redisTemplate, properties.getRedisKeyPrefix()) : new LocalQuotaLedger();
+        allowed = requests("allowed");
+        rejected = requests("rejected");
+        unmetered = requests("unmetered");
+        leasesGranted = leases("granted");
+        leasesExhausted = leases("exhausted");
+        chargedTokens = Counter.builder("chat.quota.tokens")
+                .description("Tokens charged against user quotas")
+                .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-quota");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getReconcileInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::reconcile, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 关闭前归还所有空闲租约
+     */
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+        for (Lease lease : leases.values()) {
+            lease.flush();
+            lease.close();
+        }
+    }
+
+    /**
+     * 在调用模型前预留额度；额度不足时抛出 QuotaExceededException。返回的预留必须结算一次
+     */
+    public Reservation reserve(long userId, String prompt) {
+        if (userId == AdmissionController.ANONYMOUS_USER) {
+            return Reservation.UNMETERED;
+        }
+        long estimate = (prompt == null ? 0 : prompt.length()) + properties.getReservedOutputTokens();
+        LeaseKey key = new LeaseKey(userId, today());
+        try {
+            while (true) {
+                Reservation reservation = leases.computeIfAbsent(key, Lease::new).reserve(estimate);
+                if (reservation != null) {
+                    allowed.increment();
+                    return reservation;
+                }
+                // 租约刚被归还，换一个新的
+            }
+        } catch (DataAccessException e) {
+            // 账本不可用时放行，不因额度记账影响聊天；只在首次失败时告警
+            unmetered.increment();
+            if (ledgerUnavailable.compareAndSet(false, true)) {
+                log.warn("Token quota ledger unavailable, allowing requests unmetered until it recovers: {}", e.getMessage());
+            }
+            return Reservation.UNMETERED;
+        }
+    }
+
+    public Usage usage(long userId) {
+        LocalDate today = today();
+        long limit = limit(userId);
+        QuotaLedger.Usage stored = ledger.usage(userId, today);
+        long localConsumed = 0;
+        long localAvailable = 0;
+        Lease lease = leases.get(new LeaseKey(userId, today));
+        if (lease != null) {
+            localConsumed = lease.consumed.get();
+            localAvailable = Math.max(lease.available.get(), 0);
+        }
+        return new Usage(today, limit, stored.consumed() + localConsumed,
+                Math.max(limit - stored.leased(), 0) + localAvailable,
+                today.plusDays(1).atStartOfDay(properties.getZone()).toInstant());
+    }
+
+    void reconcile() {
+        LocalDate today = today();
+        long now = System.nanoTime();
+        for (Lease lease : leases.values()) {
+            lease.flush();
+            if (!lease.key.day().equals(today) || now - lease.expiresAtNanos > 0) {
+                lease.close();
+            }
+        }
+    }
+
+    private long limit(long userId) {
+        return properties.getUserLimits().getOrDefault(userId, properties.getDailyTokens());
+    }
+
+    private LocalDate today() {
+        return LocalDate.now(properties.getZone());
+    }
+
+    private Counter requests(String result) {
+        return Counter.builder("chat.quota.requests")
+                .description("Model calls checked against user token quotas by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter leases(String result) {
+        return Counter.builder("chat.quota.leases")
+                .description("Quota lease requests sent to the ledger by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一次调用预留的额度
+     */
+    public static final class Reservation {
+
+        /**
+         * 不计额度的调用
+         */
+        public static final Reservation UNMETERED = new Reservation(null, 0);
+
+        private final Lease lease;
+        private final long estimate;
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private Reservation(Lease lease, long estimate) {
+            this.lease = lease;
+            this.estimate = estimate;
+        }
+
+        /**
+         * 按 call 上报的用量结算。没有用量时，失败的调用不收费，成功或被取消的调用按预留量收费
+         */
+        public void settle(ChatModelCall call, boolean failed) {
+            if (lease == null || !settled.compareAndSet(false, true)) {
+                return;
+            }
+            long used = call.usedTokens();
+            if (used < 0) {
+                used = failed ? 0 : estimate;
+            }
+            lease.settle(estimate, used);
+        }
+    }
+
+    /**
+     * 本节点持有的一个用户当天的租约。available 为已租到但未预留的 token，可因实际用量超出预留而为负，
+     * 下次预留时补租；consumed 为上次上报以来的实际用量。
+     * 预留先增加 inFlight 再检查 closed，归还先置 closed 再检查 inFlight，两者不会同时成功，进行中的调用一定结算到未归还的租约。
+     */
+    private final class Lease {
+
+        private final LeaseKey key;
+        private final AtomicLong available = new AtomicLong();
+        private final AtomicLong consumed = new AtomicLong();
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean closed;
+        private volatile long expiresAtNanos = System.nanoTime();
+
+        Lease(LeaseKey key) {
+            this.key = key;
+        }
+
+        /**
+         * @return 租约已归还时返回 null
+         */
+        Reservation reserve(long estimate) {
+            inFlight.incrementAndGet();
+            if (closed) {
+                inFlight.decrementAndGet();
+                return null;
+            }
+            try {
+                while (true) {
+                    long current = available.get();
+                    if (current >= estimate) {
+                        if (available.compareAndSet(current, current - estimate)) {
+                            return new Reservation(this, estimate);
+                        }
+                    } else if (!topUp(estimate)) {
+                        rejected.increment();
+                        throw new QuotaExceededException("今日 token 额度已用完，请明天再试");
+                    }
+                }
+            } catch (RuntimeException e) {
+                inFlight.decrementAndGet();
+                throw e;
+            }
+        }
+
+        void settle(long estimate, long used) {
+            consumed.addAndGet(used);
+            available.addAndGet(estimate - used);
+            chargedTokens.increment(used);
+            inFlight.decrementAndGet();
+        }
+
+        /**
+         * 同一租约同时只有一个线程续租，其余线程等它完成后重新检查
+         */
+        private synchronized boolean topUp(long estimate) {
+            long shortfall = estimate - available.get();
+            if (shortfall <= 0) {
+                return true;
+            }
+            long grant = ledger.lease(key.userId(), key.day(), Math.max(properties.getLeaseSize(), shortfall),
+                    limit(key.userId()));
+            if (ledgerUnavailable.compareAndSet(true, false)) {
+                log.info("Token quota ledger available again");
+            }
+            if (grant > 0) {
+                available.addAndGet(grant);
+                expiresAtNanos = System.nanoTime() + properties.getLeaseTtl().toNanos();
+            }
+            if (grant < shortfall) {
+                leasesExhausted.increment();
+                return false;
+            }
+            leasesGranted.increment();
+            return true;
+        }
+
+        /**
+         * 上报上次以来的用量，失败时留到下次
+         */
+        void flush() {
+            long delta = consumed.getAndSet(0);
+            if (delta == 0) {
+                return;
+            }
+            try {
+                ledger.settle(key.userId(), key.day(), delta, 0);
+            } catch (DataAccessException e) {
+                consumed.addAndGet(delta);
+                log.warn("Failed to report token usage of user {}: {}", key.userId(), e.getMessage());
+            }
+        }
+
+        /**
+         * 没有进行中的调用时归还未用完的额度并移除租约，否则留到下次
+         */
+        void close() {
+            closed = true;
+            if (inFlight.get() > 0) {
+                closed = false;
+                return;
+            }
+            leases.remove(key, this);
+            long unused = available.getAndSet(0);
+            long delta = consumed.getAndSet(0);
+            if (unused == 0 && delta == 0) {
+                return;
+            }
+            try {
+                ledger.settle(key.userId(), key.day(), delta, unused);
+            } catch (DataAccessException e) {
+                // 未归还的额度当天不再可用
+                log.warn("Failed to return {} unused tokens of user {}: {}", unused, key.userId(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.angelai.assistant.demo.langchain4j.service.retention;
+
+import com.angelai.assistant.demo.langchain4j.config.RetentionProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import com.angelai.assistant.demo.langchain4j.service.persistence.MessageWriteBuffer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 对话的删除、归档和消息清理。
+ * 删除和归档只在事务中删掉对话行并登记到 conversation_purges，消息行由 purge() 在后台按
+ * DELETE ... WHERE conversation_id IN (...) LIMIT n 分批删除，每条语句只锁住少量行。
+ * 归档时消息先序列化为 JSON 并 gzip 压缩，整段写入 conversation_archives；
+ * 按 archiveChunkSize 分成多个短事务，每个事务只锁住少量对话。
+ */
+@Slf4j
+@Component
+public class ConversationArchiver {
+
+    private static final String INSERT_PURGE_SQL =
+            "INSERT INTO conversation_purges (conversation_id, requested_at) VALUES (?, ?)";
+
+    private static final String INSERT_ARCHIVE_SQL =
+            "INSERT INTO conversation_archives (id, user_id, title, message_count, messages, created_at, updated_at, archived_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private MessageWriteBuffer messageWriteBuffer;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RetentionProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter deleted;
+    private Counter archived;
+    private Counter purgedMessages;
+
+    @PostConstruct
+    void init() {
+        deleted = conversations("deleted");
+        archived = conversations("archived");
+        purgedMessages = Counter.builder("chat.retention.messages.purged")
+                .description("Message rows removed by the background purge")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 删除对话，返回实际删除的对话；userId 不为空时只删除属于该用户的对话
+     */
+    @Transactional
+    public List<Conversation> delete(Long userId, Collection<Long> conversationIds) {
+        List<Conversation> found = find(userId, conversationIds);
+        remove(found);
+        deleted.increment(found.size());
+        return found;
+    }
+
+    /**
+     * 把对话和全部消息压缩写入归档表后删除，返回实际归档的对话；userId 不为空时只归档属于该用户的对话。
+     * 每 archiveChunkSize 个对话一个事务，某一批失败（如其他节点已归档）只回滚这一批，其余批次照常提交；
+     * 全部失败时抛出第一个异常
+     */
+    public List<Conversation> archive(Long userId, Collection<Long> conversationIds) {
+        List<Long> ids = List.copyOf(conversationIds);
+        int chunkSize = properties.getArchiveChunkSize();
+        List<Conversation> archivedConversations = new ArrayList<>();
+        RuntimeException failure = null;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            try {
+                List<Conversation> committed = transactionTemplate.execute(status -> archiveChunk(userId, chunk));
+                archived.increment(committed.size());
+                archivedConversations.addAll(committed);
+            } catch (RuntimeException e) {
+                log.warn("Failed to archive conversations {}", chunk, e);
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        if (failure != null && archivedConversations.isEmpty()) {
+            throw failure;
+        }
+        return archivedConversations;
+    }
+
+    private List<Conversation> archiveChunk(Long userId, List<Long> conversationIds) {
+        List<Conversation> found = find(userId, conversationIds);
+        if (found.isEmpty()) {
+            return found;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(found.size());
+        for (Conversation conversation : found) {
+            List<Message> messages = messages(conversation.getId());
+            rows.add(new Object[]{conversation.getId(), conversation.getUserId(), conversation.getTitle(),
+                    messages.size(), compress(messages), timestamp(conversation.getCreatedAt()),
+                    timestamp(conversation.getUpdatedAt()), now});
+        }
+        jdbcTemplate.batchUpdate(INSERT_ARCHIVE_SQL, rows);
+        remove(found);
+        return found;
+    }
+
+    /**
+     * 对话的全部消息，按时间正序。写缓冲中尚未落库的消息会在对话行删除后才写入、随后被 purge 清掉，
+     * 所以先取这部分再查库，两边都有的按 ID 去重，归档不会缺少最新的几轮
+     */
+    private List<Message> messages(Long conversationId) {
+        List<Message> unwritten = messageWriteBuffer.unwritten(conversationId);
+        Map<Long, Message> byId = new LinkedHashMap<>();
+        for (Message message : messageRepository.findByConversationIdOrderByCreatedAtAsc(conversationId)) {
+            byId.put(message.getId(), message);
+        }
+        for (Message message : unwritten) {
+            byId.putIfAbsent(message.getId(), message);
+        }
+        return byId.values().stream()
+                .sorted(Comparator.comparing(Message::getCreatedAt).thenComparing(Message::getId))
+                .toList();
+    }
+
+    /**
+     * 在 cutoff 之前更新、之后也没有新消息的对话，按更新时间从旧到新
+     */
+    public List<Long> findCold(LocalDateTime cutoff, int limit) {
+        Timestamp before = Timestamp.valueOf(cutoff);
+        return jdbcTemplate.queryForList("SELECT c.id FROM conversations c WHERE c.updated_at < ? "
+                        + "AND NOT EXISTS (SELECT 1 FROM messages m WHERE m.conversation_id = c.id AND m.created_at >= ?) "
+                        + "ORDER BY c.updated_at LIMIT ?",
+                Long.class, before, before, limit);
+    }
+
+    /**
+     * 清理一轮已登记对话的消息，返回本轮处理的对话数。
+     * 登记时间不足 purgeDelay 的先不处理，让写缓冲中属于这些对话的消息落库后一并删除。
+     */
+    public int purge() {
+        Timestamp due = Timestamp.valueOf(LocalDateTime.now().minus(properties.getPurgeDelay()));
+        List<Long> ids = jdbcTemplate.queryForList(
+                "SELECT conversation_id FROM conversation_purges WHERE requested_at <= ? ORDER BY requested_at LIMIT ?",
+                Long.class, due, properties.getPurgeConversationsPerRun());
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        Object[] args = ids.toArray();
+        int batchSize = properties.getPurgeBatchSize();
+        int removed;
+        do {
+            removed = jdbcTemplate.update("DELETE FROM messages WHERE conversation_id IN (" + placeholders
+                    + ") LIMIT " + batchSize, args);
+            purgedMessages.increment(removed);
+            if (removed == batchSize && !pause()) {
+                // 被中断时保留登记，下次继续
+                return 0;
+            }
+        } while (removed == batchSize);
+        jdbcTemplate.update("DELETE FROM conversation_purges WHERE conversation_id IN (" + placeholders + ")", args);
+        log.debug("Purged messages of {} conversations", ids.size());
+        return ids.size();
+    }
+
+    public byte[] compress(List<Message> messages) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            objectMapper.writeValue(gzip, messages);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public List<Message> decompress(byte[] archived) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(archived))) {
+            return objectMapper.readValue(gzip, new TypeReference<List<Message>>() { });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<Conversation> find(Long userId, Collection<Long> conversationIds) {
+        if (conversationIds.isEmpty()) {
+            return List.of();
+        }
+        return conversationRepository.findAllById(conversationIds).stream()
+                .filter(conversation -> userId == null || userId.equals(conversation.getUserId()))
+                .toList();
+    }
+
+    private void remove(List<Conversation> conversations) {
+        if (conversations.isEmpty()) {
+            return;
+        }
+        List<Long> ids = conversations.stream().map(Conversation::getId).toList();
+        conversationRepository.deleteAllByIdInBatch(ids);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_PURGE_SQL, ids, ids.size(), (ps, id) -> {
+            ps.setLong(1, id);
+            ps.setTimestamp(2, now);
+        });
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(properties.getPurgePause().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter conversations(String action) {
+        return Counter.builder("chat.retention.conversations")
+                .description("Conversations removed by bulk delete or archival")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time == null ? null : Timestamp.valueOf(time);
+    }
+}
@@ -0,0 +1,83 @@
+package com.angelai.assistant.demo.langchain4j.service.retention;
+
+import com.angelai.assistant.demo.langchain4j.config.RetentionProperties;
+import com.angelai.assistant.demo.langchain4j.service.ConversationService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 后台定时清理已删除对话的消息，开启归档时按不活跃时长把冷对话移入归档表。
+ * 多个节点同时运行时删除是幂等的，同一对话的重复归档会因主键冲突回滚。
+ */
+@Slf4j
+@Component
+public class RetentionJob {
+
+    @Autowired
+    private RetentionProperties properties;
+
+    @Autowired
+    private ConversationArchiver conversationArchiver;
+
+    @Autowired
+    private ConversationService conversationService;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "conversation-retention");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long purgeInterval = properties.getPurgeInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::purge, purgeInterval, purgeInterval, TimeUnit.MILLISECONDS);
+        if (properties.getArchive().isEnabled()) {
+            long archiveInterval = properties.getArchive().getInterval().toMillis();
+            scheduler.scheduleWithFixedDelay(this::archiveCold, archiveInterval, archiveInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        scheduler.shutdownNow();
+    }
+
+    void purge() {
+        try {
+            while (conversationArchiver.purge() == properties.getPurgeConversationsPerRun()) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to purge messages of deleted conversations", e);
+        }
+    }
+
+    void archiveCold() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(properties.getArchive().getAfter());
+        int batchSize = properties.getArchive().getBatchSize();
+        try {
+            List<Long> ids;
+            do {
+                ids = conversationArchiver.findCold(cutoff, batchSize);
+                if (!ids.isEmpty()) {
+                    conversationService.archiveConversations(null, ids);
+                }
+            } while (ids.size() == batchSize && !Thread.currentThread().isInterrupted());
+        } catch (RuntimeException e) {
+            log.warn("Failed to archive conversations inactive since {}", cutoff, e);
+        }
+    }
+}
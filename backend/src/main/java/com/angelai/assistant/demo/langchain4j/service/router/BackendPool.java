@@ -0,0 +1,130 @@
+package com.angelai.assistant.demo.langchain4j.service.router;
+
+import com.angelai.assistant.demo.langchain4j.config.ModelRouterProperties;
+import dev.langchain4j.exception.ContentFilteredException;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.model.chat.Capability;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 一组同类模型后端及其健康度，按代价排出本次请求的尝试顺序
+ */
+final class BackendPool<M> {
+
+    enum Attempt {
+        PRIMARY, FAILOVER, HEDGE;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    record Member<M>(ModelBackend<M> backend, BackendStats stats) {
+
+        String name() {
+            return backend.name();
+        }
+
+        M model() {
+            return backend.model();
+        }
+    }
+
+    private final String type;
+    private final List<Member<M>> members;
+    private final double errorPenalty;
+    private final int maxAttempts;
+    private final MeterRegistry meterRegistry;
+
+    BackendPool(String type, List<ModelBackend<M>> backends, ModelRouterProperties properties,
+                MeterRegistry meterRegistry) {
+        if (backends.isEmpty()) {
+            throw new IllegalStateException("没有可用的模型后端，请配置 langchain4j.open-ai.* 或 app.chat.router.backends");
+        }
+        this.type = type;
+        this.errorPenalty = properties.getErrorPenalty();
+        this.maxAttempts = Math.max(1, properties.getMaxAttempts());
+        this.meterRegistry = meterRegistry;
+        List<Member<M>> list = new ArrayList<>();
+        for (ModelBackend<M> backend : backends) {
+            BackendStats stats = new BackendStats(properties.getDecayWindow());
+            list.add(new Member<>(backend, stats));
+            Gauge.builder("chat.router.backend.latency", stats, s -> s.latencyNanos(System.nanoTime()) / 1e6)
+                    .description("Peak EWMA of backend latency in milliseconds (time to first token when streaming)")
+                    .tags("type", type, "backend", backend.name())
+                    .register(meterRegistry);
+            Gauge.builder("chat.router.backend.error.rate", stats, s -> s.errorRate(System.nanoTime()))
+                    .description("EWMA of the backend error rate")
+                    .tags("type", type, "backend", backend.name())
+                    .register(meterRegistry);
+            Gauge.builder("chat.router.backend.in.flight", stats, BackendStats::inFlight)
+                    .description("Requests currently sent to the backend")
+                    .tags("type", type, "backend", backend.name())
+                    .register(meterRegistry);
+        }
+        this.members = List.copyOf(list);
+    }
+
+    /**
+     * 本次请求依次尝试的后端，按代价从低到高，最多 maxAttempts 个
+     */
+    List<Member<M>> rank() {
+        if (members.size() == 1) {
+            return members;
+        }
+        long now = System.nanoTime();
+        record Ranked<M>(Member<M> member, double cost) {
+        }
+        List<Ranked<M>> ranked = new ArrayList<>(members.size());
+        for (Member<M> member : members) {
+            ranked.add(new Ranked<>(member, member.stats().cost(now, errorPenalty) / member.backend().weight()));
+        }
+        ranked.sort(Comparator.comparingDouble(Ranked::cost));
+        return ranked.stream().limit(maxAttempts).map(Ranked::member).toList();
+    }
+
+    void attempted(Member<M> member, Attempt attempt) {
+        Counter.builder("chat.router.attempts")
+                .description("Requests sent to a backend, by reason")
+                .tags("type", type, "backend", member.name(), "attempt", attempt.tag())
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 所有后端都支持的能力
+     */
+    Set<Capability> supportedCapabilities(Function<M, Set<Capability>> capabilities) {
+        Set<Capability> common = EnumSet.allOf(Capability.class);
+        for (Member<M> member : members) {
+            common.retainAll(capabilities.apply(member.model()));
+        }
+        return common;
+    }
+
+    /**
+     * 请求本身有问题（参数错误、内容被过滤），换后端也不会成功，也不计入后端的错误率
+     */
+    static boolean isRequestError(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof InvalidRequestException || current instanceof ContentFilteredException) {
+                return true;
+            }
+            if (current instanceof HttpException httpException) {
+                int status = httpException.statusCode();
+                return status == 400 || status == 413 || status == 422;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,85 @@
+package com.angelai.assistant.demo.langchain4j.service.router;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个后端的健康度：延迟的峰值敏感 EWMA（流式取首 token 时间，非流式取整次调用时间）、错误率 EWMA 和进行中的请求数。
+ * 延迟变慢时立即跟上，变快时按时间加权逐步回落；读取时两个 EWMA 都按距上次更新的时间向 0 衰减，
+ * 长时间没有流量的后端代价随之降低，会重新分到请求。
+ */
+final class BackendStats {
+
+    /**
+     * 错误率按请求计数的平滑系数
+     */
+    private static final double ERROR_SMOOTHING = 0.2;
+
+    /**
+     * 尚无延迟样本的后端已有请求在途时的代价，避免在拿到第一个样本前把流量全部压过去
+     */
+    private static final double UNSAMPLED_PENALTY = 1e12;
+
+    private final double decayNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private double latencyNanos;
+    private long latencyUpdatedNanos;
+    private double errorRate;
+    private long errorUpdatedNanos;
+
+    BackendStats(Duration decayWindow) {
+        this.decayNanos = Math.max(1, decayWindow.toNanos());
+    }
+
+    void start() {
+        inFlight.incrementAndGet();
+    }
+
+    void end() {
+        inFlight.decrementAndGet();
+    }
+
+    synchronized void onLatency(long sampleNanos, long now) {
+        if (sampleNanos >= latencyNanos) {
+            latencyNanos = sampleNanos;
+        } else {
+            double w = decay(latencyUpdatedNanos, now);
+            latencyNanos = latencyNanos * w + sampleNanos * (1 - w);
+        }
+        latencyUpdatedNanos = now;
+    }
+
+    synchronized void onOutcome(boolean error, long now) {
+        double decayed = errorRate * decay(errorUpdatedNanos, now);
+        errorRate = decayed * (1 - ERROR_SMOOTHING) + (error ? ERROR_SMOOTHING : 0);
+        errorUpdatedNanos = now;
+    }
+
+    /**
+     * 选择后端时比较的代价，越小越优先
+     */
+    synchronized double cost(long now, double errorPenalty) {
+        int pending = inFlight.get();
+        double latency = latencyNanos * decay(latencyUpdatedNanos, now);
+        if (latencyNanos == 0) {
+            latency = pending == 0 ? 0 : UNSAMPLED_PENALTY;
+        }
+        return latency * (pending + 1) * (1 + errorPenalty * errorRate(now));
+    }
+
+    synchronized double latencyNanos(long now) {
+        return latencyNanos * decay(latencyUpdatedNanos, now);
+    }
+
+    synchronized double errorRate(long now) {
+        return errorRate * decay(errorUpdatedNanos, now);
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+
+    private double decay(long updatedNanos, long now) {
+        return updatedNanos == 0 ? 1 : Math.exp(-Math.max(0, now - updatedNanos) / decayNanos);
+    }
+}
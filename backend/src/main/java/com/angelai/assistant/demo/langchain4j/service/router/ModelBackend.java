@@ -0,0 +1,15 @@
+package com.angelai.assistant.demo.langchain4j.service.router;
+
+/**
+ * 路由中的一个模型后端
+ *
+ * @param weight 权重越大，代价越低，分到的流量越多
+ */
+public record ModelBackend<M>(String name, M model, double weight) {
+
+    public ModelBackend {
+        if (weight <= 0) {
+            throw new IllegalArgumentException("后端权重必须大于 0: " + name);
+        }
+    }
+}
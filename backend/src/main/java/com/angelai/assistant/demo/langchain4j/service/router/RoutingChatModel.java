@@ -0,0 +1,65 @@
+package com.angelai.assistant.demo.langchain4j.service.router;
+
+import com.angelai.assistant.demo.langchain4j.config.ModelRouterProperties;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 非流式调用的路由：按代价选择后端，失败时依次转移到下一个后端。
+ * 请求原样交给后端，由后端合并自己的默认参数并触发自己的监听器。
+ */
+@Slf4j
+public class RoutingChatModel implements ChatModel {
+
+    private final BackendPool<ChatModel> pool;
+
+    public RoutingChatModel(List<ModelBackend<ChatModel>> backends, ModelRouterProperties properties,
+                            MeterRegistry meterRegistry) {
+        this.pool = new BackendPool<>("chat", backends, properties, meterRegistry);
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        List<BackendPool.Member<ChatModel>> ranked = pool.rank();
+        RuntimeException failure = null;
+        for (int i = 0; i < ranked.size(); i++) {
+            BackendPool.Member<ChatModel> member = ranked.get(i);
+            pool.attempted(member, i == 0 ? BackendPool.Attempt.PRIMARY : BackendPool.Attempt.FAILOVER);
+            BackendStats stats = member.stats();
+            stats.start();
+            long begin = System.nanoTime();
+            try {
+                ChatResponse response = member.model().chat(request);
+                long now = System.nanoTime();
+                stats.onLatency(now - begin, now);
+                stats.onOutcome(false, now);
+                return response;
+            } catch (RuntimeException e) {
+                if (BackendPool.isRequestError(e)) {
+                    throw e;
+                }
+                stats.onOutcome(true, System.nanoTime());
+                log.warn("Backend {} failed: {}", member.name(), e.getMessage());
+                if (failure != null) {
+                    e.addSuppressed(failure);
+                }
+                failure = e;
+            } finally {
+                stats.end();
+            }
+        }
+        throw failure;
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return pool.supportedCapabilities(ChatModel::supportedCapabilities);
+    }
+}
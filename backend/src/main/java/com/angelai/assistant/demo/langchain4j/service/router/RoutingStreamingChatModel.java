@@ -0,0 +1,389 @@
+package com.angelai.assistant.demo.langchain4j.service.router;
+
+import com.angelai.assistant.demo.langchain4j.config.ModelRouterProperties;
+import com.angelai.assistant.demo.langchain4j.event.ChatModelCall;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.CompleteToolCall;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.PartialThinking;
+import dev.langchain4j.model.chat.response.PartialThinkingContext;
+import dev.langchain4j.model.chat.response.PartialToolCall;
+import dev.langchain4j.model.chat.response.PartialToolCallContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 流式调用的路由：按代价选择后端；超过 hedgeDelay 仍未收到首个输出时向下一个后端发出对冲请求，先出首个 token 的胜出，
+ * 另一路在其首个 token 到达时取消；首个 token 发给下游之前出错的转移到下一个后端，之后出错的直接交给下游。
+ * 下游取消（经 ChatModelCall 通知）后不再对冲或转移，已拿到句柄的尝试立即取消，其余在首个输出到达时取消。
+ */
+@Slf4j
+public class RoutingStreamingChatModel implements StreamingChatModel {
+
+    private final BackendPool<StreamingChatModel> pool;
+    private final Duration hedgeDelay;
+    private final ScheduledExecutorService timer;
+    private final Counter hedgesWon;
+    private final Counter hedgesLost;
+
+    public RoutingStreamingChatModel(List<ModelBackend<StreamingChatModel>> backends,
+                                     ModelRouterProperties properties, MeterRegistry meterRegistry) {
+        this.pool = new BackendPool<>("streaming", backends, properties, meterRegistry);
+        this.hedgeDelay = properties.getHedgeDelay() == null ? Duration.ZERO : properties.getHedgeDelay();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "model-router-hedge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.hedgesWon = hedges(meterRegistry, "won");
+        this.hedgesLost = hedges(meterRegistry, "lost");
+    }
+
+    @Override
+    public void chat(ChatRequest request, StreamingChatResponseHandler handler) {
+        new RoutedStream(request, handler, pool.rank(), ChatModelCall.current()).start();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return pool.supportedCapabilities(StreamingChatModel::supportedCapabilities);
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private static Counter hedges(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("chat.router.hedges")
+                .description("Hedged streaming requests, by whether the hedge produced the first token")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一次流式请求在各后端上的尝试。状态在 this 上加锁修改，回调下游和启动后端都在锁外进行。
+     */
+    private final class RoutedStream {
+
+        private final ChatRequest request;
+        private final StreamingChatResponseHandler handler;
+        private final List<BackendPool.Member<StreamingChatModel>> candidates;
+        private final ChatModelCall call;
+        private final List<Leg> legs = new ArrayList<>(2);
+
+        private int next;
+        private int running;
+        private boolean hedged;
+        private boolean finished;
+        private Leg winner;
+        private Throwable failure;
+        private ScheduledFuture<?> hedge;
+
+        RoutedStream(ChatRequest request, StreamingChatResponseHandler handler,
+                     List<BackendPool.Member<StreamingChatModel>> candidates, ChatModelCall call) {
+            this.request = request;
+            this.handler = handler;
+            this.candidates = candidates;
+            this.call = call;
+        }
+
+        void start() {
+            if (call != null) {
+                call.onCancel(this::cancel);
+            }
+            Leg leg;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                leg = nextLeg(BackendPool.Attempt.PRIMARY);
+                if (!hedgeDelay.isZero() && !hedgeDelay.isNegative() && next < candidates.size()) {
+                    hedge = timer.schedule(this::hedge, hedgeDelay.toNanos(), TimeUnit.NANOSECONDS);
+                }
+            }
+            launch(leg);
+        }
+
+        private void hedge() {
+            Leg leg;
+            synchronized (this) {
+                if (winner != null || finished) {
+                    return;
+                }
+                leg = nextLeg(BackendPool.Attempt.HEDGE);
+                hedged = leg != null;
+            }
+            if (leg != null) {
+                log.debug("No first token after {}ms, hedging to backend {}", hedgeDelay.toMillis(), leg.member.name());
+                launch(leg);
+            }
+        }
+
+        private Leg nextLeg(BackendPool.Attempt attempt) {
+            if (next >= candidates.size()) {
+                return null;
+            }
+            BackendPool.Member<StreamingChatModel> member = candidates.get(next++);
+            running++;
+            pool.attempted(member, attempt);
+            Leg leg = new Leg(member, attempt);
+            legs.add(leg);
+            return leg;
+        }
+
+        private void launch(Leg leg) {
+            leg.member.stats().start();
+            leg.begin = System.nanoTime();
+            try {
+                if (call == null) {
+                    leg.member.model().chat(request, leg);
+                } else {
+                    // 对冲请求在定时线程上发出，重新绑定调用上下文，模型监听器才能按接口打标签
+                    call.bind(() -> leg.member.model().chat(request, leg));
+                }
+            } catch (RuntimeException e) {
+                leg.onError(e);
+            }
+        }
+
+        /**
+         * 第一个产生输出的尝试胜出，返回 leg 的输出是否应转发给下游
+         */
+        private synchronized boolean claim(Leg leg) {
+            if (winner == null && !finished) {
+                winner = leg;
+                if (hedge != null) {
+                    hedge.cancel(false);
+                }
+                if (hedged) {
+                    (leg.attempt == BackendPool.Attempt.HEDGE ? hedgesWon : hedgesLost).increment();
+                }
+            }
+            return winner == leg;
+        }
+
+        private synchronized void finish() {
+            finished = true;
+            if (hedge != null) {
+                hedge.cancel(false);
+            }
+        }
+
+        /**
+         * 一路尝试在首个 token 之前出错：还有后端可用时转移过去，否则在所有尝试都结束后把错误交给下游
+         */
+        private void failed(Leg leg, Throwable error) {
+            Leg failover = null;
+            boolean propagate = false;
+            synchronized (this) {
+                if (finished || (winner != null && winner != leg)) {
+                    return;
+                }
+                if (winner == leg || BackendPool.isRequestError(error)) {
+                    propagate = true;
+                } else {
+                    if (failure != null && failure != error) {
+                        error.addSuppressed(failure);
+                    }
+                    failure = error;
+                    failover = nextLeg(BackendPool.Attempt.FAILOVER);
+                    propagate = failover == null && running == 0;
+                }
+                if (propagate) {
+                    finish();
+                }
+            }
+            if (failover != null) {
+                log.warn("Backend {} failed before the first token, failing over to {}: {}",
+                        leg.member.name(), failover.member.name(), error.getMessage());
+                launch(failover);
+            } else if (propagate) {
+                handler.onError(error);
+            }
+        }
+
+        private synchronized void legEnded() {
+            running--;
+        }
+
+        /**
+         * 下游已取消：停止对冲定时器，取消所有已拿到句柄的尝试；其余尝试之后的输出不再被认领，首个输出到达时自行取消
+         */
+        private void cancel() {
+            List<Leg> inFlight;
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finish();
+                inFlight = List.copyOf(legs);
+            }
+            log.debug("Downstream cancelled, abandoning {} backend attempts", inFlight.size());
+            inFlight.forEach(Leg::cancel);
+        }
+
+        private final class Leg implements StreamingChatResponseHandler {
+
+            private final BackendPool.Member<StreamingChatModel> member;
+            private final BackendPool.Attempt attempt;
+            private final AtomicBoolean ended = new AtomicBoolean();
+            private long begin;
+            private boolean firstOutput;
+            private StreamingHandle handle;
+            private volatile StreamingHandle upstream;
+
+            Leg(BackendPool.Member<StreamingChatModel> member, BackendPool.Attempt attempt) {
+                this.member = member;
+                this.attempt = attempt;
+            }
+
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (firstOutput()) {
+                    handler.onPartialResponse(partialResponse);
+                }
+            }
+
+            @Override
+            public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+                if (firstOutput(context.streamingHandle())) {
+                    handler.onPartialResponse(partialResponse, new PartialResponseContext(handle(context.streamingHandle())));
+                }
+            }
+
+            @Override
+            public void onPartialThinking(PartialThinking partialThinking) {
+                if (firstOutput()) {
+                    handler.onPartialThinking(partialThinking);
+                }
+            }
+
+            @Override
+            public void onPartialThinking(PartialThinking partialThinking, PartialThinkingContext context) {
+                if (firstOutput(context.streamingHandle())) {
+                    handler.onPartialThinking(partialThinking, new PartialThinkingContext(handle(context.streamingHandle())));
+                }
+            }
+
+            @Override
+            public void onPartialToolCall(PartialToolCall partialToolCall) {
+                if (firstOutput()) {
+                    handler.onPartialToolCall(partialToolCall);
+                }
+            }
+
+            @Override
+            public void onPartialToolCall(PartialToolCall partialToolCall, PartialToolCallContext context) {
+                if (firstOutput(context.streamingHandle())) {
+                    handler.onPartialToolCall(partialToolCall, new PartialToolCallContext(handle(context.streamingHandle())));
+                }
+            }
+
+            @Override
+            public void onCompleteToolCall(CompleteToolCall completeToolCall) {
+                if (firstOutput()) {
+                    handler.onCompleteToolCall(completeToolCall);
+                }
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                boolean forward = firstOutput();
+                member.stats().onOutcome(false, System.nanoTime());
+                end();
+                if (forward) {
+                    finish();
+                    handler.onCompleteResponse(response);
+                }
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                if (!BackendPool.isRequestError(error)) {
+                    member.stats().onOutcome(true, System.nanoTime());
+                }
+                end();
+                failed(this, error);
+            }
+
+            private boolean firstOutput() {
+                return firstOutput(null);
+            }
+
+            /**
+             * 记录首个输出的延迟并参与胜者判定；落选的尝试在这里取消，之后不再有输出
+             */
+            private boolean firstOutput(StreamingHandle upstream) {
+                if (upstream != null) {
+                    this.upstream = upstream;
+                }
+                if (!firstOutput) {
+                    firstOutput = true;
+                    long now = System.nanoTime();
+                    member.stats().onLatency(now - begin, now);
+                }
+                if (claim(this)) {
+                    return true;
+                }
+                if (upstream != null && !upstream.isCancelled()) {
+                    upstream.cancel();
+                    end();
+                }
+                return false;
+            }
+
+            /**
+             * 下游取消时同时结束本次尝试，避免进行中请求数一直不归零
+             */
+            private StreamingHandle handle(StreamingHandle upstream) {
+                if (handle == null) {
+                    handle = new StreamingHandle() {
+                        @Override
+                        public void cancel() {
+                            upstream.cancel();
+                            end();
+                        }
+
+                        @Override
+                        public boolean isCancelled() {
+                            return upstream.isCancelled();
+                        }
+                    };
+                }
+                return handle;
+            }
+
+            private void cancel() {
+                StreamingHandle current = upstream;
+                if (current != null && !current.isCancelled()) {
+                    current.cancel();
+                    end();
+                }
+            }
+
+            private void end() {
+                if (ended.compareAndSet(false, true)) {
+                    member.stats().end();
+                    legEnded();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * 分层可导航小世界图（HNSW）近似最近邻索引，相似度为内积，向量归一化后即余弦相似度。
+ * 图中只保存连接关系，向量通过 Vectors 按节点编号读取，节点编号从 0 连续分配。
+ * 非线程安全，由调用方加锁。
+ */
+final class HnswGraph {
+
+    private static final int[] NO_LINKS = new int[0];
+
+    private static final Comparator<Neighbor> BEST_FIRST = Comparator.comparingDouble(Neighbor::score).reversed();
+
+    interface Vectors {
+
+        float[] get(int node);
+
+        float dot(int node, float[] query);
+    }
+
+    record Neighbor(int node, float score) {
+    }
+
+    private final Vectors vectors;
+    private final int m;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+
+    /**
+     * links.get(node)[level] 为该节点在该层的邻居
+     */
+    private final List<int[][]> links = new ArrayList<>();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    HnswGraph(Vectors vectors, int m, int efConstruction, long seed) {
+        this.vectors = vectors;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1 / Math.log(m);
+        this.random = new Random(seed);
+    }
+
+    int size() {
+        return links.size();
+    }
+
+    /**
+     * 加入编号为 size() 的下一个节点
+     */
+    void add() {
+        int node = links.size();
+        float[] vector = vectors.get(node);
+        int level = (int) (-Math.log(1 - random.nextDouble()) * levelFactor);
+        int[][] nodeLinks = new int[level + 1][];
+        Arrays.fill(nodeLinks, NO_LINKS);
+        links.add(nodeLinks);
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedy(vector, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Neighbor> candidates = searchLayer(vector, current, efConstruction, l);
+            int[] selected = new int[Math.min(m, candidates.size())];
+            for (int i = 0; i < selected.length; i++) {
+                selected[i] = candidates.get(i).node();
+            }
+            nodeLinks[l] = selected;
+            for (int neighbor : selected) {
+                connect(neighbor, node, l);
+            }
+            current = candidates.get(0).node();
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    /**
+     * 与 query 内积最大的 k 个节点，从大到小
+     */
+    List<Neighbor> search(float[] query, int k, int ef) {
+        if (entryPoint < 0) {
+            return List.of();
+        }
+        int current = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            current = greedy(query, current, l);
+        }
+        List<Neighbor> found = searchLayer(query, current, Math.max(ef, k), 0);
+        return found.size() <= k ? found : found.subList(0, k);
+    }
+
+    void write(DataOutput out) throws IOException {
+        out.writeInt(links.size());
+        out.writeInt(entryPoint);
+        out.writeInt(maxLevel);
+        for (int[][] nodeLinks : links) {
+            out.writeByte(nodeLinks.length);
+            for (int[] levelLinks : nodeLinks) {
+                out.writeShort(levelLinks.length);
+                for (int neighbor : levelLinks) {
+                    out.writeInt(neighbor);
+                }
+            }
+        }
+    }
+
+    void read(DataInput in) throws IOException {
+        int size = in.readInt();
+        entryPoint = in.readInt();
+        maxLevel = in.readInt();
+        links.clear();
+        for (int node = 0; node < size; node++) {
+            int[][] nodeLinks = new int[in.readUnsignedByte()][];
+            for (int l = 0; l < nodeLinks.length; l++) {
+                int[] levelLinks = new int[in.readUnsignedShort()];
+                for (int i = 0; i < levelLinks.length; i++) {
+                    levelLinks[i] = in.readInt();
+                }
+                nodeLinks[l] = levelLinks;
+            }
+            links.add(nodeLinks);
+        }
+    }
+
+    private int greedy(float[] query, int start, int level) {
+        int current = start;
+        float best = vectors.dot(current, query);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int neighbor : links.get(current)[level]) {
+                float score = vectors.dot(neighbor, query);
+                if (score > best) {
+                    best = score;
+                    current = neighbor;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private List<Neighbor> searchLayer(float[] query, int entry, int ef, int level) {
+        BitSet visited = new BitSet(links.size());
+        PriorityQueue<Neighbor> candidates = new PriorityQueue<>(BEST_FIRST);
+        PriorityQueue<Neighbor> results = new PriorityQueue<>(Comparator.comparingDouble(Neighbor::score));
+        Neighbor start = new Neighbor(entry, vectors.dot(entry, query));
+        visited.set(entry);
+        candidates.add(start);
+        results.add(start);
+        while (!candidates.isEmpty()) {
+            Neighbor candidate = candidates.poll();
+            if (results.size() >= ef && candidate.score() < results.peek().score()) {
+                break;
+            }
+            for (int neighbor : links.get(candidate.node())[level]) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float score = vectors.dot(neighbor, query);
+                if (results.size() < ef || score > results.peek().score()) {
+                    Neighbor next = new Neighbor(neighbor, score);
+                    candidates.add(next);
+                    results.add(next);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Neighbor> sorted = new ArrayList<>(results);
+        sorted.sort(BEST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * 给 neighbor 加一条指向 node 的连接，超过上限时只保留与 neighbor 最相似的几个
+     */
+    private void connect(int neighbor, int node, int level) {
+        int[][] neighborLinks = links.get(neighbor);
+        int[] existing = neighborLinks[level];
+        int maxLinks = level == 0 ? 2 * m : m;
+        if (existing.length < maxLinks) {
+            int[] grown = Arrays.copyOf(existing, existing.length + 1);
+            grown[existing.length] = node;
+            neighborLinks[level] = grown;
+            return;
+        }
+        float[] base = vectors.get(neighbor);
+        List<Neighbor> all = new ArrayList<>(existing.length + 1);
+        for (int link : existing) {
+            all.add(new Neighbor(link, vectors.dot(link, base)));
+        }
+        all.add(new Neighbor(node, vectors.dot(node, base)));
+        all.sort(BEST_FIRST);
+        int[] kept = new int[maxLinks];
+        for (int i = 0; i < maxLinks; i++) {
+            kept[i] = all.get(i).node();
+        }
+        neighborLinks[level] = kept;
+    }
+}
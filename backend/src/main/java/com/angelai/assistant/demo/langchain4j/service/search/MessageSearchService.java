@@ -0,0 +1,105 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageSearchProperties;
+import com.angelai.assistant.demo.langchain4j.dto.MessageSearchResult;
+import com.angelai.assistant.demo.langchain4j.dto.MessageSearchResult.ConversationHit;
+import com.angelai.assistant.demo.langchain4j.dto.MessageSearchResult.MessageHit;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 在用户的消息向量索引中查找相似消息，再从数据库取出消息和对话。
+ * 已删除或归档对话中的消息仍留在索引里，查库时过滤掉，所以向索引多要一些候选。
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.message-search", name = "enabled", havingValue = "true")
+public class MessageSearchService {
+
+    private static final int OVERFETCH = 3;
+
+    @Autowired
+    private MessageVectorIndex messageVectorIndex;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageSearchProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer searchTimer;
+
+    @PostConstruct
+    void init() {
+        searchTimer = Timer.builder("chat.search.latency")
+                .description("Time to embed the query, search the index and load the matching messages")
+                .register(meterRegistry);
+    }
+
+    public MessageSearchResult search(Long userId, String query, Integer size) {
+        if (query == null || query.isBlank()) {
+            throw new RuntimeException("搜索内容不能为空");
+        }
+        int limit = size == null ? properties.getDefaultSize() : Math.max(1, Math.min(size, properties.getMaxSize()));
+        return searchTimer.record(() -> search(userId, query, limit));
+    }
+
+    private MessageSearchResult search(Long userId, String query, int limit) {
+        List<MessageVectorIndex.Hit> hits = messageVectorIndex.search(userId, query, limit * OVERFETCH);
+        if (hits.isEmpty()) {
+            return new MessageSearchResult(List.of(), List.of());
+        }
+        Map<Long, Message> messages = messageRepository.findAllById(hits.stream().map(MessageVectorIndex.Hit::messageId).toList())
+                .stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        Map<Long, Conversation> conversations = conversationRepository.findAllById(
+                        hits.stream().map(MessageVectorIndex.Hit::conversationId).distinct().toList())
+                .stream()
+                .filter(conversation -> userId.equals(conversation.getUserId()))
+                .collect(Collectors.toMap(Conversation::getId, Function.identity()));
+
+        List<MessageHit> messageHits = new ArrayList<>();
+        Map<Long, List<MessageHit>> byConversation = new LinkedHashMap<>();
+        for (MessageVectorIndex.Hit hit : hits) {
+            Message message = messages.get(hit.messageId());
+            Conversation conversation = conversations.get(hit.conversationId());
+            if (message == null || conversation == null) {
+                continue;
+            }
+            MessageHit messageHit = new MessageHit(message.getId(), conversation.getId(), conversation.getTitle(),
+                    message.getContent(), message.getSenderType(), message.getCreatedAt(), hit.score());
+            messageHits.add(messageHit);
+            byConversation.computeIfAbsent(conversation.getId(), id -> new ArrayList<>()).add(messageHit);
+        }
+        // 命中按相似度从高到低，每个对话第一次出现时的分数就是其中最高的
+        List<ConversationHit> conversationHits = byConversation.values().stream()
+                .limit(limit)
+                .map(matches -> {
+                    Conversation conversation = conversations.get(matches.get(0).conversationId());
+                    return new ConversationHit(conversation.getId(), conversation.getTitle(),
+                            conversation.getUpdatedAt(), matches.get(0).score(), matches.size());
+                })
+                .toList();
+        return new MessageSearchResult(messageHits.subList(0, Math.min(limit, messageHits.size())), conversationHits);
+    }
+}
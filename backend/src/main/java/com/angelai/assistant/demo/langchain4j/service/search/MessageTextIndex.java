@@ -0,0 +1,292 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageTextSearchProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.CharArraySet;
+import org.apache.lucene.analysis.cjk.CJKAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.highlight.Highlighter;
+import org.apache.lucene.search.highlight.InvalidTokenOffsetsException;
+import org.apache.lucene.search.highlight.QueryScorer;
+import org.apache.lucene.search.highlight.SimpleFragmenter;
+import org.apache.lucene.search.highlight.SimpleHTMLEncoder;
+import org.apache.lucene.search.highlight.SimpleHTMLFormatter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 消息全文索引，基于本地 Lucene 索引。CJKAnalyzer 把中日韩文字切成相邻二字词，其他文字按词切分并转小写，
+ * 查询时相邻的二字词组成短语，中文关键词不会匹配到被拆散的字。
+ * 索引只保存 ID 和倒排表，消息内容以数据库为准，高亮时重新分析取回的原文。
+ * 写入由 IndexWriter 缓冲，定时刷新可搜索视图、定时提交；重建期间暂停刷新和提交，查询一直看到重建前的视图。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.message-text-search", name = "enabled", havingValue = "true")
+public class MessageTextIndex {
+
+    static final String ID = "id";
+    static final String CONVERSATION_ID = "conversation_id";
+    static final String USER_ID = "user_id";
+    static final String CONTENT = "content";
+
+    @Autowired
+    private MessageTextSearchProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Analyzer analyzer = new CJKAnalyzer(CharArraySet.EMPTY_SET);
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean rebuilding;
+    private Counter indexed;
+    private Counter failed;
+
+    public record Hit(long messageId, long conversationId, float score) {
+    }
+
+    public record Page(List<Hit> hits, long total) {
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        Path path = Path.of(properties.getDirectory());
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+        writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(properties.getRamBufferMb()));
+        searcherManager = new SearcherManager(writer, null);
+        indexed = messages("indexed");
+        failed = messages("failed");
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-text-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long refreshInterval = properties.getRefreshInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::refresh, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        long commitInterval = properties.getCommitInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::commit, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws IOException {
+        scheduler.shutdownNow();
+        searcherManager.close();
+        // 默认 commitOnClose，关闭时提交未提交的更新
+        writer.close();
+        directory.close();
+    }
+
+    /**
+     * 按消息 ID 新增或覆盖；索引失败只记录日志，不影响消息保存
+     */
+    public void add(List<Message> messages) {
+        try {
+            write(messages);
+        } catch (IOException | RuntimeException e) {
+            failed.increment(messages.size());
+            log.warn("Failed to add {} messages to the text index", messages.size(), e);
+        }
+    }
+
+    public void deleteConversations(Collection<Long> conversationIds) {
+        delete(CONVERSATION_ID, conversationIds);
+    }
+
+    public void deleteMessages(Collection<Long> messageIds) {
+        delete(ID, messageIds);
+    }
+
+    /**
+     * 解析用户输入：空格分隔的词都要出现，引号内为短语；语法错误时按字面文本重新解析
+     */
+    public Query parse(String text) {
+        QueryParser parser = new QueryParser(CONTENT, analyzer);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        parser.setSplitOnWhitespace(true);
+        parser.setAutoGeneratePhraseQueries(true);
+        try {
+            return parser.parse(text);
+        } catch (ParseException e) {
+            try {
+                return parser.parse(QueryParser.escape(text));
+            } catch (ParseException again) {
+                throw new RuntimeException("无法解析搜索内容");
+            }
+        }
+    }
+
+    /**
+     * 该用户的消息中按相关度排在 [offset, offset + size) 的命中，以及命中总数
+     */
+    public Page search(long userId, Query query, int offset, int size) {
+        Query filtered = new BooleanQuery.Builder()
+                .add(query, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(USER_ID, String.valueOf(userId))), BooleanClause.Occur.FILTER)
+                .build();
+        try {
+            IndexSearcher searcher = searcherManager.acquire();
+            try {
+                TopDocs top = searcher.search(filtered, offset + size);
+                StoredFields storedFields = searcher.storedFields();
+                List<Hit> hits = new ArrayList<>();
+                for (int i = offset; i < top.scoreDocs.length; i++) {
+                    Document document = storedFields.document(top.scoreDocs[i].doc, Set.of(ID, CONVERSATION_ID));
+                    hits.add(new Hit(Long.parseLong(document.get(ID)), Long.parseLong(document.get(CONVERSATION_ID)),
+                            top.scoreDocs[i].score));
+                }
+                return new Page(hits, top.totalHits.value);
+            } finally {
+                searcherManager.release(searcher);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 命中词用 &lt;em&gt; 包裹的片段，原文已做 HTML 转义；没有可高亮的片段时返回开头一段
+     */
+    public String highlight(Query query, String text) {
+        Highlighter highlighter = new Highlighter(new SimpleHTMLFormatter("<em>", "</em>"), new SimpleHTMLEncoder(),
+                new QueryScorer(query, CONTENT));
+        highlighter.setTextFragmenter(new SimpleFragmenter(properties.getFragmentSize()));
+        try {
+            String fragments = highlighter.getBestFragments(analyzer.tokenStream(CONTENT, text), text,
+                    properties.getMaxFragments(), " … ");
+            if (!fragments.isEmpty()) {
+                return fragments;
+            }
+        } catch (IOException | InvalidTokenOffsetsException e) {
+            log.debug("Failed to highlight message text", e);
+        }
+        int length = properties.getFragmentSize();
+        return SimpleHTMLEncoder.htmlEncode(text.length() <= length ? text : text.substring(0, length) + "…");
+    }
+
+    /**
+     * 清空索引，之后写入的内容在 finishRebuild 之前对查询不可见
+     */
+    void beginRebuild() throws IOException {
+        rebuilding = true;
+        writer.deleteAll();
+    }
+
+    /**
+     * 重建完整时立即提交；中途失败时索引只有部分消息，恢复刷新后查询结果不全，需要再次重建
+     */
+    void finishRebuild(boolean completed) throws IOException {
+        try {
+            if (completed) {
+                writer.commit();
+            }
+        } finally {
+            rebuilding = false;
+            searcherManager.maybeRefresh();
+        }
+    }
+
+    void write(List<Message> messages) throws IOException {
+        int written = 0;
+        for (Message message : messages) {
+            if (message.getContent() == null || message.getContent().isBlank()) {
+                continue;
+            }
+            writer.updateDocument(new Term(ID, String.valueOf(message.getId())), document(message));
+            written++;
+        }
+        indexed.increment(written);
+    }
+
+    void refresh() {
+        if (rebuilding) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to refresh the message text index", e);
+        }
+    }
+
+    private void commit() {
+        if (rebuilding || !writer.hasUncommittedChanges()) {
+            return;
+        }
+        try {
+            writer.commit();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to commit the message text index", e);
+        }
+    }
+
+    private void delete(String field, Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Term[] terms = ids.stream().map(id -> new Term(field, String.valueOf(id))).toArray(Term[]::new);
+        try {
+            writer.deleteDocuments(terms);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to delete {} {} terms from the text index", ids.size(), field, e);
+        }
+    }
+
+    private static Document document(Message message) {
+        Document document = new Document();
+        document.add(new StringField(ID, String.valueOf(message.getId()), Field.Store.YES));
+        document.add(new StringField(CONVERSATION_ID, String.valueOf(message.getConversationId()), Field.Store.YES));
+        document.add(new StringField(USER_ID, String.valueOf(message.getUserId()), Field.Store.NO));
+        document.add(new TextField(CONTENT, message.getContent(), Field.Store.NO));
+        return document;
+    }
+
+    private Counter messages(String result) {
+        return Counter.builder("chat.search.text.messages")
+                .description("Messages written to the full-text index by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,109 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageTextSearchProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 从 messages 表重建全文索引。启动参数带 --rebuild-message-text-index 时在启动后执行，重建期间照常提供服务。
+ * 用只读、只进的 JDBC 游标逐行读取，不创建实体也不把结果集读进内存，内存占用与表的大小无关。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.message-text-search", name = "enabled", havingValue = "true")
+public class MessageTextIndexRebuilder implements ApplicationRunner {
+
+    public static final String OPTION = "rebuild-message-text-index";
+
+    private static final String SELECT_SQL = "SELECT id, conversation_id, user_id, content FROM messages";
+
+    private static final long PROGRESS_INTERVAL = 100_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MessageTextIndex messageTextIndex;
+
+    @Autowired
+    private MessageTextSearchProperties properties;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (args.containsOption(OPTION)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 返回写入索引的消息数
+     */
+    public long rebuild() throws IOException {
+        log.info("Rebuilding message text index from the database");
+        long start = System.nanoTime();
+        long[] count = {0};
+        List<Message> batch = new ArrayList<>(properties.getRebuildBatchSize());
+        messageTextIndex.beginRebuild();
+        boolean completed = false;
+        try {
+            jdbcTemplate.query(this::streamingStatement, (ResultSet rs) -> {
+                Message message = new Message();
+                message.setId(rs.getLong(1));
+                message.setConversationId(rs.getLong(2));
+                message.setUserId(rs.getLong(3));
+                message.setContent(rs.getString(4));
+                batch.add(message);
+                if (batch.size() >= properties.getRebuildBatchSize()) {
+                    count[0] = flush(batch, count[0]);
+                }
+            });
+            count[0] = flush(batch, count[0]);
+            completed = true;
+        } finally {
+            messageTextIndex.finishRebuild(completed);
+        }
+        log.info("Rebuilt message text index with {} messages in {} s", count[0], (System.nanoTime() - start) / 1_000_000_000);
+        return count[0];
+    }
+
+    private long flush(List<Message> batch, long count) {
+        if (batch.isEmpty()) {
+            return count;
+        }
+        try {
+            messageTextIndex.write(batch);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        long total = count + batch.size();
+        if (total / PROGRESS_INTERVAL != count / PROGRESS_INTERVAL) {
+            log.info("Indexed {} messages", total);
+        }
+        batch.clear();
+        return total;
+    }
+
+    private PreparedStatement streamingStatement(Connection connection) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(SELECT_SQL,
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+        // MySQL 驱动默认一次读入整个结果集，fetch size 为 Integer.MIN_VALUE 时才逐行流式返回
+        boolean mysql = "MySQL".equals(connection.getMetaData().getDatabaseProductName());
+        statement.setFetchSize(mysql ? Integer.MIN_VALUE : properties.getRebuildFetchSize());
+        return statement;
+    }
+}
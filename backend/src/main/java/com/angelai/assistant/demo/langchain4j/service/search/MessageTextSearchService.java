@@ -0,0 +1,102 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageTextSearchProperties;
+import com.angelai.assistant.demo.langchain4j.dto.MessageTextSearchResult;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.apache.lucene.search.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 关键词和短语检索：在全文索引中按用户过滤、分页，再从数据库取出消息原文生成高亮片段。
+ * 数据库中已不存在的消息（对话已删除或归档）从结果中去掉，并顺带从索引中删除。
+ */
+@Service
+@ConditionalOnProperty(prefix = "app.message-text-search", name = "enabled", havingValue = "true")
+public class MessageTextSearchService {
+
+    @Autowired
+    private MessageTextIndex messageTextIndex;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageTextSearchProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer searchTimer;
+
+    @PostConstruct
+    void init() {
+        searchTimer = Timer.builder("chat.search.text.latency")
+                .description("Time to query the full-text index and load and highlight one page of messages")
+                .register(meterRegistry);
+    }
+
+    public MessageTextSearchResult search(Long userId, String text, Integer page, Integer size) {
+        if (text == null || text.isBlank()) {
+            throw new RuntimeException("搜索内容不能为空");
+        }
+        int limit = size == null ? properties.getDefaultSize() : Math.max(1, Math.min(size, properties.getMaxSize()));
+        int pageIndex = page == null ? 0 : Math.max(0, page);
+        int offset = pageIndex * limit;
+        if (offset + limit > properties.getMaxOffset()) {
+            throw new RuntimeException("最多查看前 " + properties.getMaxOffset() + " 条结果，请使用更精确的关键词");
+        }
+        return searchTimer.record(() -> search(userId, text, pageIndex, offset, limit));
+    }
+
+    private MessageTextSearchResult search(Long userId, String text, int pageIndex, int offset, int limit) {
+        Query query = messageTextIndex.parse(text);
+        MessageTextIndex.Page found = messageTextIndex.search(userId, query, offset, limit);
+        boolean hasMore = offset + limit < found.total();
+        if (found.hits().isEmpty()) {
+            return new MessageTextSearchResult(List.of(), found.total(), pageIndex, hasMore);
+        }
+        Map<Long, Message> messages = messageRepository.findAllById(
+                        found.hits().stream().map(MessageTextIndex.Hit::messageId).toList())
+                .stream()
+                .collect(Collectors.toMap(Message::getId, Function.identity()));
+        Map<Long, Conversation> conversations = conversationRepository.findAllById(
+                        found.hits().stream().map(MessageTextIndex.Hit::conversationId).distinct().toList())
+                .stream()
+                .collect(Collectors.toMap(Conversation::getId, Function.identity()));
+
+        List<MessageTextSearchResult.Hit> hits = new ArrayList<>();
+        List<Long> stale = new ArrayList<>();
+        for (MessageTextIndex.Hit hit : found.hits()) {
+            Message message = messages.get(hit.messageId());
+            Conversation conversation = conversations.get(hit.conversationId());
+            if (message == null || conversation == null) {
+                stale.add(hit.messageId());
+                continue;
+            }
+            hits.add(new MessageTextSearchResult.Hit(message.getId(), conversation.getId(), conversation.getTitle(),
+                    message.getSenderType(), message.getCreatedAt(),
+                    messageTextIndex.highlight(query, message.getContent()), hit.score()));
+        }
+        if (!stale.isEmpty()) {
+            messageTextIndex.deleteMessages(stale);
+        }
+        return new MessageTextSearchResult(hits, found.total(), pageIndex, hasMore);
+    }
+}
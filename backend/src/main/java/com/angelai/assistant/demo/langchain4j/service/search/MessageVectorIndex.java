@@ -0,0 +1,359 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageSearchProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 按用户分区的消息向量索引。消息落库后放入有界队列，由后台线程批量调用 EmbeddingModel 生成向量，
+ * 追加到该用户的内存映射向量文件并加入 HNSW 图；图结构定期写快照，重启后加载快照，只补建快照之后追加的节点。
+ * 只有最近使用的 loadedPartitions 个用户分区留在内存中。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.message-search", name = "enabled", havingValue = "true")
+public class MessageVectorIndex {
+
+    @Autowired
+    private MessageSearchProperties properties;
+
+    @Autowired
+    private EmbeddingModel embeddingModel;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Path directory;
+    private BlockingQueue<Message> queue;
+    private Cache<Long, Partition> partitions;
+    private ScheduledExecutorService scheduler;
+    private Counter indexed;
+    private Counter dropped;
+    private Counter failed;
+    private Timer embeddingTimer;
+
+    public record Hit(long messageId, long conversationId, float score) {
+    }
+
+    @PostConstruct
+    void init() throws IOException {
+        directory = Path.of(properties.getDirectory());
+        Files.createDirectories(directory);
+        queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        partitions = Caffeine.newBuilder()
+                .maximumSize(properties.getLoadedPartitions())
+                .executor(Runnable::run)
+                .<Long, Partition>removalListener((userId, partition, cause) -> {
+                    if (partition != null) {
+                        partition.close();
+                    }
+                })
+                .build();
+        indexed = messages("indexed");
+        dropped = messages("dropped");
+        failed = messages("failed");
+        embeddingTimer = Timer.builder("chat.search.index.embedding")
+                .description("Time spent embedding a batch of messages")
+                .register(meterRegistry);
+        Gauge.builder("chat.search.index.queue", queue, BlockingQueue::size)
+                .description("Messages waiting to be embedded and indexed")
+                .register(meterRegistry);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "message-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long indexInterval = properties.getIndexInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::drain, indexInterval, indexInterval, TimeUnit.MILLISECONDS);
+        long snapshotInterval = properties.getSnapshotInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshot, snapshotInterval, snapshotInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        scheduler.shutdown();
+        scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        if (!queue.isEmpty()) {
+            log.info("{} messages were not indexed before shutdown", queue.size());
+        }
+        // 淘汰时写快照并关闭文件
+        partitions.invalidateAll();
+        partitions.cleanUp();
+    }
+
+    /**
+     * 只入队即返回，队列满时丢弃，消息本身已经落库
+     */
+    public void submit(List<Message> messages) {
+        for (Message message : messages) {
+            if (message.getContent() == null || message.getContent().isBlank()) {
+                continue;
+            }
+            if (!queue.offer(message)) {
+                dropped.increment();
+            }
+        }
+    }
+
+    /**
+     * 该用户与 text 最相似的 k 条消息，从高到低
+     */
+    public List<Hit> search(long userId, String text, int k) {
+        Partition partition = partitions.getIfPresent(userId);
+        if (partition == null && !Files.exists(vectorPath(userId))) {
+            return List.of();
+        }
+        float[] query = normalize(embeddingModel.embed(truncate(text)).content().vector());
+        if (partition == null) {
+            partition = partitions.get(userId, id -> load(id, query.length));
+        }
+        return partition.search(query, k, properties.getEfSearch());
+    }
+
+    void drain() {
+        List<Message> batch = new ArrayList<>(properties.getBatchSize());
+        while (queue.drainTo(batch, properties.getBatchSize()) > 0) {
+            try {
+                index(batch);
+            } catch (RuntimeException e) {
+                failed.increment(batch.size());
+                log.warn("Failed to index {} messages", batch.size(), e);
+            }
+            batch.clear();
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+        }
+    }
+
+    void snapshot() {
+        for (Partition partition : partitions.asMap().values()) {
+            try {
+                partition.snapshot();
+            } catch (RuntimeException e) {
+                log.warn("Failed to snapshot message index {}", partition.graphPath, e);
+            }
+        }
+    }
+
+    private void index(List<Message> batch) {
+        List<TextSegment> segments = batch.stream()
+                .map(message -> TextSegment.from(truncate(message.getContent())))
+                .toList();
+        List<Embedding> embeddings = embeddingTimer.record(() -> embeddingModel.embedAll(segments).content());
+        for (int i = 0; i < batch.size(); i++) {
+            Message message = batch.get(i);
+            float[] vector = normalize(embeddings.get(i).vector());
+            // 分区在追加前被淘汰关闭时重新加载
+            while (!partitions.get(message.getUserId(), id -> load(id, vector.length))
+                    .append(message.getId(), message.getConversationId(), vector)) {
+                Thread.onSpinWait();
+            }
+        }
+        indexed.increment(batch.size());
+    }
+
+    private Partition load(long userId, int dimension) {
+        try {
+            VectorFile vectors = VectorFile.open(vectorPath(userId), dimension);
+            Path graphPath = directory.resolve(userId + ".hnsw");
+            HnswGraph graph = newGraph(vectors, userId);
+            if (Files.exists(graphPath)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(graphPath)))) {
+                    graph.read(in);
+                } catch (IOException e) {
+                    log.warn("Ignoring unreadable message index snapshot {}", graphPath, e);
+                    graph = newGraph(vectors, userId);
+                }
+                if (graph.size() > vectors.size()) {
+                    // 快照比向量文件新（向量文件被重建），只能重新建图
+                    graph = newGraph(vectors, userId);
+                }
+            }
+            boolean stale = graph.size() < vectors.size();
+            while (graph.size() < vectors.size()) {
+                graph.add();
+            }
+            return new Partition(graphPath, vectors, graph, stale);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HnswGraph newGraph(VectorFile vectors, long userId) {
+        return new HnswGraph(vectors, properties.getM(), properties.getEfConstruction(), userId);
+    }
+
+    private Path vectorPath(long userId) {
+        return directory.resolve(userId + ".vec");
+    }
+
+    private String truncate(String text) {
+        return text.length() <= properties.getMaxContentChars() ? text : text.substring(0, properties.getMaxContentChars());
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm == 0) {
+            return vector;
+        }
+        float[] normalized = new float[vector.length];
+        float scale = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] * scale;
+        }
+        return normalized;
+    }
+
+    private Counter messages(String result) {
+        return Counter.builder("chat.search.index.messages")
+                .description("Messages submitted to the vector index by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一个用户的向量文件和图，追加取写锁，查询和写快照取读锁
+     */
+    private static final class Partition {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Path graphPath;
+        private final VectorFile vectors;
+        private final HnswGraph graph;
+        private volatile boolean dirty;
+        private boolean closed;
+
+        Partition(Path graphPath, VectorFile vectors, HnswGraph graph, boolean dirty) {
+            this.graphPath = graphPath;
+            this.vectors = vectors;
+            this.graph = graph;
+            this.dirty = dirty;
+        }
+
+        /**
+         * 分区已关闭时返回 false
+         */
+        boolean append(long messageId, long conversationId, float[] vector) {
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return false;
+                }
+                if (vector.length != vectors.dimension()) {
+                    throw new IllegalStateException("Embedding dimension changed from " + vectors.dimension()
+                            + " to " + vector.length + ", remove " + graphPath.getParent() + " to rebuild");
+                }
+                vectors.append(messageId, conversationId, vector);
+                graph.add();
+                dirty = true;
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        List<Hit> search(float[] query, int k, int ef) {
+            lock.readLock().lock();
+            try {
+                if (closed || query.length != vectors.dimension()) {
+                    return List.of();
+                }
+                List<Hit> hits = new ArrayList<>();
+                for (HnswGraph.Neighbor neighbor : graph.search(query, k, ef)) {
+                    hits.add(new Hit(vectors.messageId(neighbor.node()), vectors.conversationId(neighbor.node()),
+                            neighbor.score()));
+                }
+                return hits;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void snapshot() {
+            lock.readLock().lock();
+            try {
+                if (!closed) {
+                    writeSnapshot();
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void close() {
+            lock.writeLock().lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                writeSnapshot();
+                vectors.close();
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to close message index {}", graphPath, e);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * 先把向量刷到磁盘再写快照，保证快照中的节点在向量文件里都存在；写临时文件后替换，不会留下半个快照
+         */
+        private void writeSnapshot() {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            Path temp = graphPath.resolveSibling(graphPath.getFileName() + ".tmp");
+            try {
+                vectors.force();
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                    graph.write(out);
+                }
+                Files.move(temp, graphPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                dirty = true;
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 按节点编号顺序追加的向量文件，通过内存映射读写，向量数据留在页缓存中而不占堆内存。
+ * 文件头 16 字节为魔数、维度和记录数，之后每条记录为消息 ID、对话 ID 和归一化后的向量。
+ * 记录写完后才更新记录数，进程中途退出时写了一半的记录会被忽略。非线程安全，由调用方加锁。
+ */
+@Slf4j
+final class VectorFile implements HnswGraph.Vectors, Closeable {
+
+    private static final int MAGIC = 0x56454331;
+    private static final int HEADER_SIZE = 16;
+    private static final int INITIAL_RECORDS = 64;
+
+    private final FileChannel channel;
+    private final int dimension;
+    private final int recordSize;
+    private MappedByteBuffer buffer;
+    private int size;
+
+    private VectorFile(FileChannel channel, int dimension) {
+        this.channel = channel;
+        this.dimension = dimension;
+        this.recordSize = 16 + 4 * dimension;
+    }
+
+    /**
+     * 打开或创建向量文件；已有文件的维度不同（换了 EmbeddingModel）时清空重建
+     */
+    static VectorFile open(Path path, int dimension) throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        VectorFile file = new VectorFile(channel, dimension);
+        try {
+            long length = channel.size();
+            if (length >= HEADER_SIZE) {
+                MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+                long size = existing.getLong(8);
+                if (existing.getInt(0) == MAGIC && existing.getInt(4) == dimension
+                        && size >= 0 && HEADER_SIZE + size * file.recordSize <= length) {
+                    file.buffer = existing;
+                    file.size = (int) size;
+                    return file;
+                }
+                log.warn("Discarding vector file {} written with another format or dimension", path);
+                channel.truncate(0);
+            }
+            file.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER_SIZE + (long) INITIAL_RECORDS * file.recordSize);
+            file.buffer.putInt(0, MAGIC);
+            file.buffer.putInt(4, dimension);
+            file.buffer.putLong(8, 0);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int dimension() {
+        return dimension;
+    }
+
+    long messageId(int node) {
+        return buffer.getLong(offset(node));
+    }
+
+    long conversationId(int node) {
+        return buffer.getLong(offset(node) + 8);
+    }
+
+    /**
+     * 追加一条记录，返回其节点编号
+     */
+    int append(long messageId, long conversationId, float[] vector) throws IOException {
+        long required = HEADER_SIZE + (long) (size + 1) * recordSize;
+        if (required > buffer.capacity()) {
+            if (required > Integer.MAX_VALUE) {
+                throw new IOException("Vector file exceeds the 2 GB mapping limit");
+            }
+            // 映射更大的区域时文件随之扩展，按倍数增长减少重新映射的次数
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    Math.min(Integer.MAX_VALUE, Math.max(required, 2L * buffer.capacity())));
+        }
+        int offset = offset(size);
+        buffer.putLong(offset, messageId);
+        buffer.putLong(offset + 8, conversationId);
+        for (int i = 0; i < dimension; i++) {
+            buffer.putFloat(offset + 16 + 4 * i, vector[i]);
+        }
+        size++;
+        buffer.putLong(8, size);
+        return size - 1;
+    }
+
+    @Override
+    public float[] get(int node) {
+        float[] vector = new float[dimension];
+        int base = offset(node) + 16;
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = buffer.getFloat(base + 4 * i);
+        }
+        return vector;
+    }
+
+    @Override
+    public float dot(int node, float[] query) {
+        int base = offset(node) + 16;
+        float sum = 0;
+        for (int i = 0; i < dimension; i++) {
+            sum += buffer.getFloat(base + 4 * i) * query[i];
+        }
+        return sum;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int offset(int node) {
+        return HEADER_SIZE + node * recordSize;
+    }
+}
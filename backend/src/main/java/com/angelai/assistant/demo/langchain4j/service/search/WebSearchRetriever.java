@@ -0,0 +1,252 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.WebSearchProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSearchAssistant 的检索环节：同一查询并行发给所有已配置的搜索引擎，各自有独立超时，
+ * 超时或出错的引擎不影响其他引擎的结果。结果按规范化后的 URL 去重，用倒数排名融合（RRF）排序，
+ * 被多个引擎同时返回的页面排在前面。合并结果按查询缓存，重复的问题不再访问网络；
+ * 所有引擎都失败时不缓存，下次重新查询。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.web-search", name = "enabled", havingValue = "true")
+public class WebSearchRetriever implements ContentRetriever {
+
+    /**
+     * RRF 的平滑常数，取常用值 60
+     */
+    private static final int RRF_K = 60;
+
+    @Autowired
+    private WebSearchProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private Map<String, WebSearchEngine> engines = Map.of();
+
+    private Cache<String, List<WebSearchOrganicResult>> cache;
+    private ExecutorService executor;
+    private Counter hits;
+    private Counter misses;
+    private Timer searchTimer;
+
+    @PostConstruct
+    void init() {
+        if (engines.isEmpty()) {
+            log.warn("app.web-search.enabled is set but no WebSearchEngine is configured");
+        }
+        cache = Caffeine.newBuilder()
+                .maximumSize(properties.getCacheSize())
+                .expireAfterWrite(properties.getCacheTtl())
+                .build();
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(properties.getThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "web-search-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        hits = cacheRequests("hit");
+        misses = cacheRequests("miss");
+        Gauge.builder("chat.websearch.cache.hit.ratio", this, WebSearchRetriever::hitRatio)
+                .description("Share of web search queries answered from the cache")
+                .register(meterRegistry);
+        searchTimer = Timer.builder("chat.websearch.latency")
+                .description("Wall time of a fanned-out web search, including the slowest engine within its timeout")
+                .tag("engine", "all")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        return toContents(search(query.text()));
+    }
+
+    /**
+     * 合并后的搜索结果，按相关度从高到低
+     */
+    public List<WebSearchOrganicResult> search(String query) {
+        String key = normalizeQuery(query);
+        List<WebSearchOrganicResult> cached = cache.getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        // 同一查询的并发请求在 get 上等待第一次加载，只访问一次网络
+        List<WebSearchOrganicResult> loaded = cache.get(key, this::fanOut);
+        return loaded == null ? List.of() : loaded;
+    }
+
+    /**
+     * 按条数和总字符数裁剪后转成注入提示词的内容
+     */
+    List<Content> toContents(List<WebSearchOrganicResult> results) {
+        List<Content> contents = new ArrayList<>();
+        int remaining = properties.getMaxContextChars();
+        for (WebSearchOrganicResult result : results) {
+            if (contents.size() >= properties.getMaxContextResults() || remaining <= 0) {
+                break;
+            }
+            String snippet = truncate(result.snippet() != null ? result.snippet() : result.content(),
+                    properties.getMaxSnippetChars());
+            String text = truncate(result.title() + "\n" + result.url() + (snippet.isEmpty() ? "" : "\n" + snippet),
+                    remaining);
+            contents.add(Content.from(text));
+            remaining -= text.length();
+        }
+        return contents;
+    }
+
+    private List<WebSearchOrganicResult> fanOut(String query) {
+        misses.increment();
+        long start = System.nanoTime();
+        WebSearchRequest request = WebSearchRequest.builder()
+                .searchTerms(query)
+                .maxResults(properties.getMaxResultsPerEngine())
+                .build();
+        Map<String, CompletableFuture<List<WebSearchOrganicResult>>> futures = new LinkedHashMap<>();
+        engines.forEach((name, engine) -> futures.put(name, CompletableFuture
+                .supplyAsync(() -> timed(name, engine, request), executor)
+                .orTimeout(properties.getEngineTimeout().toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(error -> {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof TimeoutException) {
+                        meterRegistry.counter("chat.websearch.failures", "engine", name, "outcome", "timeout").increment();
+                        log.warn("Web search on {} timed out after {}", name, properties.getEngineTimeout());
+                    } else {
+                        meterRegistry.counter("chat.websearch.failures", "engine", name, "outcome", "error").increment();
+                        log.warn("Web search on {} failed", name, cause);
+                    }
+                    return null;
+                })));
+        CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).join();
+        searchTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        List<List<WebSearchOrganicResult>> rankings = new ArrayList<>();
+        futures.values().forEach(future -> {
+            List<WebSearchOrganicResult> results = future.join();
+            if (results != null) {
+                rankings.add(results);
+            }
+        });
+        // 全部失败时返回 null，不写入缓存
+        return rankings.isEmpty() ? null : merge(rankings);
+    }
+
+    private List<WebSearchOrganicResult> timed(String name, WebSearchEngine engine, WebSearchRequest request) {
+        return Timer.builder("chat.websearch.latency")
+                .tag("engine", name)
+                .register(meterRegistry)
+                .record(() -> {
+                    List<WebSearchOrganicResult> results = engine.search(request).results();
+                    return results == null ? List.<WebSearchOrganicResult>of() : results;
+                });
+    }
+
+    /**
+     * 按 URL 去重，得分为各引擎中 1 / (RRF_K + 名次) 之和；同一页面保留摘要最长的一条
+     */
+    static List<WebSearchOrganicResult> merge(List<List<WebSearchOrganicResult>> rankings) {
+        Map<String, WebSearchOrganicResult> best = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (List<WebSearchOrganicResult> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                WebSearchOrganicResult result = ranking.get(rank);
+                if (result.url() == null) {
+                    continue;
+                }
+                String key = normalizeUrl(result.url());
+                scores.merge(key, 1.0 / (RRF_K + rank + 1), Double::sum);
+                best.merge(key, result, (current, candidate) ->
+                        length(candidate.snippet()) > length(current.snippet()) ? candidate : current);
+            }
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue(Comparator.reverseOrder()))
+                .map(entry -> best.get(entry.getKey()))
+                .toList();
+    }
+
+    /**
+     * 忽略协议、主机名大小写、www. 前缀、片段和末尾斜杠
+     */
+    static String normalizeUrl(URI url) {
+        String host = url.getHost() == null ? "" : url.getHost().toLowerCase(Locale.ROOT);
+        if (host.startsWith("www.")) {
+            host = host.substring(4);
+        }
+        String path = url.getRawPath() == null ? "" : url.getRawPath();
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        String query = url.getRawQuery() == null ? "" : "?" + url.getRawQuery();
+        return host + (url.getPort() >= 0 ? ":" + url.getPort() : "") + path + query;
+    }
+
+    static String normalizeQuery(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String truncate(String text, int maxChars) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() <= maxChars ? text : text.substring(0, Math.max(0, maxChars - 1)) + "…";
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private Counter cacheRequests(String result) {
+        return Counter.builder("chat.websearch.cache.requests")
+                .description("Web search queries by whether the cache answered them")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+}
@@ -0,0 +1,194 @@
+package com.angelai.assistant.demo.langchain4j.service.singleflight;
+
+import com.angelai.assistant.demo.langchain4j.config.SingleFlightProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 相同键的并发流式请求共用一次上游调用。第一个请求订阅上游，后到的请求先回放已输出的前缀，再接收后续 token；
+ * 所有请求都取消后上游随之取消。前缀超过 maxReplayChars 后释放缓冲，不再接受新的请求加入。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.chat.single-flight", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SingleFlight {
+
+    @Autowired
+    private SingleFlightProperties properties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+    private Counter leaders;
+    private Counter followers;
+
+    @PostConstruct
+    public void init() {
+        leaders = requests("leader");
+        followers = requests("follower");
+        Gauge.builder("chat.single.flight.active", flights, Map::size)
+                .description("Upstream model streams currently shared by identical requests")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param upstream 没有可加入的进行中请求时才调用，返回的流只会被订阅一次
+     */
+    public Flux<String> join(String key, Supplier<Flux<String>> upstream) {
+        return Flux.create(sink -> {
+            while (true) {
+                Flight flight = flights.computeIfAbsent(key, Flight::new);
+                Boolean leader = flight.add(sink);
+                if (leader == null) {
+                    // 该请求刚结束或缓冲已满，已从表中移除，换一个新的
+                    flights.remove(key, flight);
+                    continue;
+                }
+                if (leader) {
+                    leaders.increment();
+                    flight.start(upstream);
+                } else {
+                    followers.increment();
+                }
+                return;
+            }
+        });
+    }
+
+    private Counter requests(String role) {
+        return Counter.builder("chat.single.flight.requests")
+                .description("Streaming requests by whether they started the upstream call or joined one in flight")
+                .tag("role", role)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一次共享的上游调用。状态在 this 上加锁修改；向订阅者发 token 在锁外进行，
+     * 追加前缀和取订阅者快照在同一临界区内，后加入的请求不会漏掉或重复收到 token。
+     */
+    private final class Flight {
+
+        private final String key;
+        private final List<FluxSink<String>> subscribers = new ArrayList<>();
+        private List<String> prefix = new ArrayList<>();
+        private int prefixChars;
+        private boolean joinable = true;
+        private boolean started;
+        private boolean terminated;
+        private Disposable subscription;
+
+        Flight(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return 是否由该请求发起上游调用；已不可加入时返回 null
+         */
+        synchronized Boolean add(FluxSink<String> sink) {
+            if (!joinable) {
+                return null;
+            }
+            for (String token : prefix) {
+                sink.next(token);
+            }
+            subscribers.add(sink);
+            sink.onDispose(() -> remove(sink));
+            boolean leader = !started;
+            started = true;
+            return leader;
+        }
+
+        void start(Supplier<Flux<String>> upstream) {
+            Disposable disposable;
+            try {
+                disposable = upstream.get().subscribe(this::next, this::error, this::complete);
+            } catch (RuntimeException e) {
+                error(e);
+                return;
+            }
+            synchronized (this) {
+                if (terminated) {
+                    disposable.dispose();
+                } else {
+                    subscription = disposable;
+                }
+            }
+        }
+
+        private void remove(FluxSink<String> sink) {
+            Disposable cancel = null;
+            synchronized (this) {
+                subscribers.remove(sink);
+                if (subscribers.isEmpty() && !terminated) {
+                    terminate();
+                    cancel = subscription;
+                    log.debug("All requests sharing {} cancelled, cancelling upstream", key);
+                }
+            }
+            if (cancel != null) {
+                cancel.dispose();
+            }
+        }
+
+        private void next(String token) {
+            List<FluxSink<String>> targets;
+            synchronized (this) {
+                if (joinable) {
+                    prefix.add(token);
+                    prefixChars += token.length();
+                    if (prefixChars > properties.getMaxReplayChars()) {
+                        closeToJoiners();
+                    }
+                }
+                targets = List.copyOf(subscribers);
+            }
+            for (FluxSink<String> sink : targets) {
+                sink.next(token);
+            }
+        }
+
+        private void error(Throwable error) {
+            for (FluxSink<String> sink : finish()) {
+                sink.error(error);
+            }
+        }
+
+        private void complete() {
+            for (FluxSink<String> sink : finish()) {
+                sink.complete();
+            }
+        }
+
+        private synchronized List<FluxSink<String>> finish() {
+            terminate();
+            return List.copyOf(subscribers);
+        }
+
+        private void terminate() {
+            terminated = true;
+            closeToJoiners();
+        }
+
+        private void closeToJoiners() {
+            joinable = false;
+            prefix = List.of();
+            flights.remove(key, this);
+        }
+    }
+}
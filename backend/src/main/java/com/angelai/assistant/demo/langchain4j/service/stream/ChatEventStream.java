@@ -0,0 +1,71 @@
+package com.angelai.assistant.demo.langchain4j.service.stream;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatStreamProperties;
+import com.angelai.assistant.demo.langchain4j.service.admission.AdmissionRejectedException;
+import com.angelai.assistant.demo.langchain4j.service.quota.QuotaExceededException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+/**
+ * 把 token 流包装成 text/event-stream 事件：每个 token 一条 token 事件，结束时发送 done 事件，
+ * 出错时发送 error 事件；空闲期间定时发送心跳注释。可续传的流先发送携带流 ID 的 stream 事件，每个事件带有 id。
+ */
+@Slf4j
+@Component
+public class ChatEventStream {
+
+    public static final String TOKEN_EVENT = "token";
+    public static final String DONE_EVENT = "done";
+    public static final String ERROR_EVENT = "error";
+    public static final String STREAM_EVENT = "stream";
+
+    private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder().comment("heartbeat").build();
+
+    @Autowired
+    private ChatStreamProperties properties;
+
+    public Flux<ServerSentEvent<String>> toEvents(Flux<String> tokens) {
+        return withHeartbeat(buffered(tokens.map(token -> ServerSentEvent.builder(token).event(TOKEN_EVENT).build()))
+                .concatWith(Flux.just(ServerSentEvent.builder("").event(DONE_EVENT).build()))
+                .onErrorResume(error -> {
+                    log.warn("Chat stream failed: {}", error.getMessage());
+                    return Flux.just(ServerSentEvent.builder(errorMessage(error)).event(ERROR_EVENT).build());
+                }));
+    }
+
+    /**
+     * 可续传的事件流，事件已带 id 和结束事件；客户端过慢时直接断开，生成不受影响，客户端重连后从断开处续传
+     */
+    public Flux<ServerSentEvent<String>> toResumableEvents(Flux<ServerSentEvent<String>> events) {
+        return withHeartbeat(buffered(events).onErrorResume(error -> {
+            log.warn("Closing resumable chat stream: {}", error.getMessage());
+            return Flux.empty();
+        }));
+    }
+
+    /**
+     * 返回给客户端的错误信息，排队被拒或额度不足时说明原因，其他错误不暴露细节
+     */
+    public static String errorMessage(Throwable error) {
+        return error instanceof AdmissionRejectedException || error instanceof QuotaExceededException
+                ? error.getMessage() : "生成回复失败";
+    }
+
+    private <T> Flux<T> buffered(Flux<T> events) {
+        // 上游按推送速度产生 token，这里限定缓冲上限，慢客户端不会让内存无限增长
+        return events.onBackpressureBuffer(properties.getBufferSize(),
+                dropped -> log.warn("Client too slow, SSE buffer of {} tokens overflowed", properties.getBufferSize()),
+                BufferOverflowStrategy.ERROR);
+    }
+
+    private Flux<ServerSentEvent<String>> withHeartbeat(Flux<ServerSentEvent<String>> events) {
+        return events.publish(shared -> Flux.merge(shared,
+                Flux.interval(properties.getHeartbeatInterval())
+                        .map(tick -> HEARTBEAT)
+                        .takeUntilOther(shared.then())));
+    }
+}
@@ -0,0 +1,551 @@
+package com.angelai.assistant.demo.langchain4j.service.stream;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatStreamProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 可续传的流式生成。每次生成分配一个流 ID，由这里订阅上游，生成不随客户端断开而取消；输出块按序号存入定长环形缓冲，
+ * 启用 Redis 时在后台按批用管道追加到 Redis Stream（记录 ID 为 0-序号）。事件 id 为 "流 ID:序号"，客户端断线后带 Last-Event-ID 重连，
+ * 从下一个序号开始回放再继续接收，不重新生成；重连落到其他节点时从 Redis Stream 读取。
+ * 所有客户端断开超过 detachTimeout 后取消上游，生成结束后缓冲保留 ttl。
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.chat.stream.resume", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ResumableStreams {
+
+    public static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private static final String EVENT_FIELD = "event";
+    private static final String DATA_FIELD = "data";
+    private static final String ABANDONED_MESSAGE = "生成已中断，请重新发送";
+    private static final String EXPIRED_MESSAGE = "续传位置已过期，请重新发送";
+    private static final int REMOTE_BATCH_SIZE = 256;
+
+    /**
+     * 等待写入 Redis 的生成数上限，每个生成同时最多排队一次；排不进去的生成不再写入 Redis
+     */
+    private static final int WRITER_QUEUE_CAPACITY = 1024;
+
+    @Autowired
+    private ChatStreamProperties streamProperties;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired(required = false)
+    private StringRedisTemplate redisTemplate;
+
+    private final Map<String, Generation> generations = new ConcurrentHashMap<>();
+    private ChatStreamProperties.Resume properties;
+    private ScheduledExecutorService scheduler;
+    private ExecutorService redisWriter;
+    private final AtomicBoolean redisUnavailable = new AtomicBoolean();
+    private Counter localResumes;
+    private Counter remoteResumes;
+    private Counter expiredResumes;
+    private Counter abandoned;
+
+    /**
+     * 事件位置；序号 0 为开头的 stream 事件，之后每个输出块加一，done 或 error 事件占最后一个序号
+     */
+    public record Position(String streamId, long sequence) {
+
+        /**
+         * 格式不对时返回 null
+         */
+        public static Position parse(String eventId) {
+            if (eventId == null) {
+                return null;
+            }
+            int separator = eventId.lastIndexOf(':');
+            if (separator <= 0) {
+                return null;
+            }
+            try {
+                long sequence = Long.parseLong(eventId.substring(separator + 1));
+                return sequence < 0 ? null : new Position(eventId.substring(0, separator), sequence);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return streamId + ":" + sequence;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        properties = streamProperties.getResume();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "resumable-streams");
+            thread.setDaemon(true);
+            return thread;
+        });
+        redisWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(WRITER_QUEUE_CAPACITY), runnable -> {
+            Thread thread = new Thread(runnable, "resumable-stream-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        localResumes = resumes("local");
+        remoteResumes = resumes("redis");
+        expiredResumes = resumes("expired");
+        abandoned = Counter.builder("chat.stream.abandoned")
+                .description("Generations cancelled because no client reconnected within the detach timeout")
+                .register(meterRegistry);
+        Gauge.builder("chat.stream.buffers", generations, Map::size)
+                .description("Generations running or buffered for resumption on this node")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 关闭前结束进行中的生成，重连的客户端收到 error 事件后重新发送
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Generation generation : generations.values()) {
+            generation.abandon();
+        }
+        scheduler.shutdownNow();
+        redisWriter.shutdown();
+        redisWriter.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 订阅上游开始生成，返回第一个客户端的事件流；生成归属 userId，只有同一用户能续传
+     */
+    public Flux<ServerSentEvent<String>> start(long userId, Flux<String> tokens) {
+        Generation generation = new Generation(UUID.randomUUID().toString(), userId);
+        generations.put(generation.id, generation);
+        generation.start(tokens);
+        return generation.attach(-1);
+    }
+
+    /**
+     * 从 position 之后续传；流不存在、已过期或不属于 userId 时返回空。本节点没有这个流而启用了 Redis 时，
+     * 返回的流订阅后才到 Redis 查找，Redis 中也没有时发送 error 事件
+     */
+    public Optional<Flux<ServerSentEvent<String>>> resume(long userId, Position position) {
+        return resume(userId, position, () -> Flux.just(expired()));
+    }
+
+    /**
+     * 从 position 之后续传，找不到原来的流时开始生成 tokens
+     */
+    public Flux<ServerSentEvent<String>> resumeOrStart(long userId, Position position, Flux<String> tokens) {
+        return resume(userId, position, () -> start(userId, tokens)).orElseGet(() -> start(userId, tokens));
+    }
+
+    /**
+     * 查找 Redis 在弹性线程池上进行，不阻塞请求线程（WebFlux 模式下是事件循环线程）
+     */
+    private Optional<Flux<ServerSentEvent<String>>> resume(long userId, Position position,
+                                                          Supplier<Flux<ServerSentEvent<String>>> missing) {
+        Generation generation = generations.get(position.streamId());
+        if (generation != null) {
+            if (generation.ownerId != userId) {
+                return Optional.empty();
+            }
+            localResumes.increment();
+            return Optional.of(generation.attach(position.sequence()));
+        }
+        if (!redisEnabled()) {
+            return Optional.empty();
+        }
+        String key = key(userId, position.streamId());
+        return Optional.of(Mono.fromCallable(() -> Boolean.TRUE.equals(redisTemplate.hasKey(key)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .onErrorResume(DataAccessException.class, e -> {
+                    log.warn("Failed to look up stream {} in Redis: {}", position.streamId(), e.getMessage());
+                    return Mono.just(false);
+                })
+                .flatMapMany(found -> {
+                    if (!found) {
+                        return missing.get();
+                    }
+                    remoteResumes.increment();
+                    return readRemote(key, position);
+                }));
+    }
+
+    /**
+     * 逐批读取 Redis Stream 中 position 之后的记录，读到结束事件为止；没有新记录时按 pollInterval 轮询
+     */
+    private Flux<ServerSentEvent<String>> readRemote(String key, Position position) {
+        AtomicLong last = new AtomicLong(position.sequence());
+        AtomicBoolean finished = new AtomicBoolean();
+        return Mono.fromCallable(() -> readBatch(key, position.streamId(), last, finished))
+                .subscribeOn(Schedulers.boundedElastic())
+                .repeatWhen(completed -> completed.concatMap(n -> Mono.delay(properties.getPollInterval())))
+                .takeUntil(batch -> finished.get())
+                .concatMapIterable(batch -> batch);
+    }
+
+    private List<ServerSentEvent<String>> readBatch(String key, String streamId, AtomicLong last, AtomicBoolean finished) {
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+                StreamReadOptions.empty().count(REMOTE_BATCH_SIZE),
+                StreamOffset.create(key, ReadOffset.from(recordId(last.get()))));
+        List<ServerSentEvent<String>> events = new ArrayList<>();
+        if (records == null || records.isEmpty()) {
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(key))) {
+                events.add(expired());
+                finished.set(true);
+            }
+            return events;
+        }
+        for (MapRecord<String, Object, Object> record : records) {
+            long sequence = record.getId().getSequence();
+            if (sequence != last.get() + 1) {
+                // 中间的记录已被裁剪
+                events.add(expired());
+                finished.set(true);
+                return events;
+            }
+            String event = String.valueOf(record.getValue().get(EVENT_FIELD));
+            events.add(event(streamId, sequence, event, String.valueOf(record.getValue().get(DATA_FIELD))));
+            last.set(sequence);
+            if (!ChatEventStream.TOKEN_EVENT.equals(event)) {
+                finished.set(true);
+                return events;
+            }
+        }
+        return events;
+    }
+
+    private ServerSentEvent<String> expired() {
+        expiredResumes.increment();
+        // 不带 id，客户端的 Last-Event-ID 保持不变
+        return ServerSentEvent.builder(EXPIRED_MESSAGE).event(ChatEventStream.ERROR_EVENT).build();
+    }
+
+    private boolean redisEnabled() {
+        return properties.isRedisEnabled() && redisTemplate != null;
+    }
+
+    /**
+     * 键中带上用户 ID，其他用户拿到流 ID 也读不到
+     */
+    private String key(long userId, String streamId) {
+        return properties.getRedisKeyPrefix() + userId + ":" + streamId;
+    }
+
+    private static String recordId(long sequence) {
+        return "0-" + sequence;
+    }
+
+    private static ServerSentEvent<String> event(String streamId, long sequence, String event, String data) {
+        return ServerSentEvent.builder(data).id(new Position(streamId, sequence).toString()).event(event).build();
+    }
+
+    private Counter resumes(String result) {
+        return Counter.builder("chat.stream.resumes")
+                .description("Reconnections resumed from the local buffer, from Redis, or too late to resume")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 一次生成。状态在 this 上加锁修改；写入缓冲和取订阅者快照在同一临界区内，向订阅者发事件在锁外进行，
+     * 重连的客户端不会漏掉或重复收到输出块。要写入 Redis 的记录也在临界区内按序号积攒，
+     * 由单线程写入器取走整批用一次管道写入，每个生成同时最多排队一次。
+     */
+    private final class Generation {
+
+        private final String id;
+        private final long ownerId;
+        private final String key;
+        private final String[] ring = new String[properties.getBufferSize()];
+        private final List<FluxSink<ServerSentEvent<String>>> subscribers = new ArrayList<>();
+        private long sequence;
+        private ServerSentEvent<String> terminal;
+        private boolean cancelled;
+        private Disposable subscription;
+        private ScheduledFuture<?> detachTimer;
+        private List<MapRecord<String, Object, Object>> pending = new ArrayList<>();
+        private boolean writeQueued;
+        private boolean expirySet;
+        private volatile boolean mirrored = redisEnabled();
+
+        Generation(String id, long ownerId) {
+            this.id = id;
+            this.ownerId = ownerId;
+            this.key = key(ownerId, id);
+        }
+
+        void start(Flux<String> tokens) {
+            synchronized (this) {
+                // 客户端一直没有订阅时同样按断开处理
+                scheduleDetach();
+            }
+            Disposable disposable;
+            try {
+                disposable = tokens.subscribe(this::next, this::error, this::complete);
+            } catch (RuntimeException e) {
+                error(e);
+                return;
+            }
+            synchronized (this) {
+                if (cancelled) {
+                    disposable.dispose();
+                } else {
+                    subscription = disposable;
+                }
+            }
+        }
+
+        /**
+         * @param after 客户端已收到的最后一个序号，-1 表示新请求，从 stream 事件开始发送
+         */
+        Flux<ServerSentEvent<String>> attach(long after) {
+            return Flux.create(sink -> add(sink, after));
+        }
+
+        private synchronized void add(FluxSink<ServerSentEvent<String>> sink, long after) {
+            if (after < 0) {
+                sink.next(ServerSentEvent.builder(id).id(new Position(id, 0).toString())
+                        .event(ChatEventStream.STREAM_EVENT).build());
+            }
+            long from = Math.max(after + 1, 1);
+            if (from < sequence - ring.length + 1) {
+                sink.next(expired());
+                sink.complete();
+                return;
+            }
+            for (long n = from; n <= sequence; n++) {
+                sink.next(event(id, n, ChatEventStream.TOKEN_EVENT, ring[slot(n)]));
+            }
+            if (terminal != null) {
+                if (after <= sequence) {
+                    sink.next(terminal);
+                }
+                sink.complete();
+                return;
+            }
+            subscribers.add(sink);
+            if (detachTimer != null) {
+                detachTimer.cancel(false);
+                detachTimer = null;
+            }
+            sink.onDispose(() -> remove(sink));
+        }
+
+        private void remove(FluxSink<ServerSentEvent<String>> sink) {
+            synchronized (this) {
+                if (subscribers.remove(sink) && subscribers.isEmpty() && terminal == null) {
+                    scheduleDetach();
+                }
+            }
+        }
+
+        private void scheduleDetach() {
+            if (detachTimer == null) {
+                detachTimer = scheduler.schedule(this::onDetachTimeout,
+                        properties.getDetachTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void onDetachTimeout() {
+            synchronized (this) {
+                detachTimer = null;
+                if (!subscribers.isEmpty() || terminal != null) {
+                    return;
+                }
+            }
+            log.debug("No client reconnected to stream {}, cancelling upstream", id);
+            abandoned.increment();
+            abandon();
+        }
+
+        void abandon() {
+            Disposable cancel;
+            synchronized (this) {
+                cancelled = true;
+                cancel = subscription;
+            }
+            if (cancel != null) {
+                cancel.dispose();
+            }
+            finish(ChatEventStream.ERROR_EVENT, ABANDONED_MESSAGE);
+        }
+
+        private void next(String token) {
+            ServerSentEvent<String> event;
+            List<FluxSink<ServerSentEvent<String>>> targets;
+            synchronized (this) {
+                if (terminal != null) {
+                    return;
+                }
+                sequence++;
+                ring[slot(sequence)] = token;
+                mirror(sequence, ChatEventStream.TOKEN_EVENT, token);
+                event = event(id, sequence, ChatEventStream.TOKEN_EVENT, token);
+                targets = List.copyOf(subscribers);
+            }
+            for (FluxSink<ServerSentEvent<String>> sink : targets) {
+                sink.next(event);
+            }
+        }
+
+        private void error(Throwable error) {
+            log.warn("Chat stream {} failed: {}", id, error.getMessage());
+            finish(ChatEventStream.ERROR_EVENT, ChatEventStream.errorMessage(error));
+        }
+
+        private void complete() {
+            finish(ChatEventStream.DONE_EVENT, "");
+        }
+
+        private void finish(String type, String data) {
+            List<FluxSink<ServerSentEvent<String>>> targets;
+            synchronized (this) {
+                if (terminal != null) {
+                    return;
+                }
+                terminal = event(id, sequence + 1, type, data);
+                mirror(sequence + 1, type, data);
+                targets = List.copyOf(subscribers);
+                subscribers.clear();
+                if (detachTimer != null) {
+                    detachTimer.cancel(false);
+                    detachTimer = null;
+                }
+            }
+            try {
+                scheduler.schedule(() -> generations.remove(id, this), properties.getTtl().toMillis(), TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                // 关闭期间调度器已停止
+                generations.remove(id, this);
+            }
+            for (FluxSink<ServerSentEvent<String>> sink : targets) {
+                sink.next(terminal);
+                sink.complete();
+            }
+        }
+
+        /**
+         * Redis 跟不上（积攒超过一个环形缓冲或写入器队列已满）时放弃这次生成的后续记录，
+         * 其他节点上的续传读到缺口时按过期处理
+         */
+        private void mirror(long sequence, String type, String data) {
+            if (!mirrored) {
+                return;
+            }
+            if (pending.size() >= ring.length) {
+                stopMirroring();
+                return;
+            }
+            pending.add(StreamRecords.newRecord()
+                    .in(key)
+                    .withId(RecordId.of(recordId(sequence)))
+                    .ofMap(Map.<Object, Object>of(EVENT_FIELD, type, DATA_FIELD, data)));
+            if (!writeQueued) {
+                try {
+                    redisWriter.execute(this::writePending);
+                    writeQueued = true;
+                } catch (RejectedExecutionException e) {
+                    stopMirroring();
+                }
+            }
+        }
+
+        private void stopMirroring() {
+            mirrored = false;
+            pending = new ArrayList<>();
+        }
+
+        /**
+         * 在写入线程上取走积攒的记录，用一次管道写入；过期时间只在第一批和结束事件所在的批次设置
+         */
+        private void writePending() {
+            List<MapRecord<String, Object, Object>> batch;
+            boolean finished;
+            synchronized (this) {
+                batch = pending;
+                pending = new ArrayList<>();
+                writeQueued = false;
+                finished = terminal != null;
+            }
+            if (!mirrored || batch.isEmpty()) {
+                return;
+            }
+            boolean expire = !expirySet || finished;
+            try {
+                redisTemplate.executePipelined(new SessionCallback<Object>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public <K, V> Object execute(RedisOperations<K, V> operations) {
+                        RedisOperations<String, String> redis = (RedisOperations<String, String>) operations;
+                        for (MapRecord<String, Object, Object> record : batch) {
+                            redis.opsForStream().add(record,
+                                    RedisStreamCommands.XAddOptions.maxlen(ring.length + 1L).approximateTrimming(true));
+                        }
+                        if (expire) {
+                            redis.expire(key, properties.getTtl());
+                        }
+                        return null;
+                    }
+                });
+                expirySet = true;
+                if (redisUnavailable.compareAndSet(true, false)) {
+                    log.info("Mirroring chat streams to Redis again");
+                }
+            } catch (DataAccessException e) {
+                mirrored = false;
+                if (redisUnavailable.compareAndSet(false, true)) {
+                    log.warn("Failed to mirror chat streams to Redis, resuming on other nodes is unavailable: {}",
+                            e.getMessage());
+                }
+            }
+        }
+
+        private int slot(long sequence) {
+            return (int) (sequence % ring.length);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.angelai.assistant.demo.langchain4j.service.stream;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatStreamProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 把模型逐个推送的 token 按时间窗口或字节数合并后再写出，每个合并块对应一次写入和刷新。
+ * 第一个 token 默认立即写出，不影响首字延迟。
+ */
+@Component
+public class TokenCoalescer {
+
+    @Autowired
+    private ChatStreamProperties properties;
+
+    public Flux<String> coalesce(Flux<String> tokens) {
+        ChatStreamProperties.Coalesce coalesce = properties.getCoalesce();
+        if (!coalesce.isEnabled()) {
+            return tokens;
+        }
+        return Flux.create(sink -> new Batch(sink, Schedulers.parallel(), coalesce).subscribe(tokens));
+    }
+
+    private static class Batch {
+
+        private final FluxSink<String> sink;
+        private final Scheduler scheduler;
+        private final long windowNanos;
+        private final int maxBytes;
+        private final StringBuilder pending = new StringBuilder();
+        private boolean first;
+        private int pendingBytes;
+        private Disposable timer;
+
+        Batch(FluxSink<String> sink, Scheduler scheduler, ChatStreamProperties.Coalesce coalesce) {
+            this.sink = sink;
+            this.scheduler = scheduler;
+            this.windowNanos = coalesce.getWindow().toNanos();
+            this.maxBytes = coalesce.getMaxBytes();
+            this.first = coalesce.isFlushFirstToken();
+        }
+
+        void subscribe(Flux<String> tokens) {
+            Disposable upstream = tokens.subscribe(this::onToken, this::onError, this::onComplete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                synchronized (this) {
+                    cancelTimer();
+                }
+            });
+        }
+
+        private synchronized void onToken(String token) {
+            if (first) {
+                first = false;
+                sink.next(token);
+                return;
+            }
+            pending.append(token);
+            pendingBytes += token.getBytes(StandardCharsets.UTF_8).length;
+            if (pendingBytes >= maxBytes) {
+                flush();
+            } else if (timer == null) {
+                timer = scheduler.schedule(this::onWindowElapsed, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private synchronized void onWindowElapsed() {
+            timer = null;
+            flush();
+        }
+
+        private synchronized void onError(Throwable error) {
+            flush();
+            sink.error(error);
+        }
+
+        private synchronized void onComplete() {
+            flush();
+            sink.complete();
+        }
+
+        private void flush() {
+            cancelTimer();
+            if (!pending.isEmpty()) {
+                sink.next(pending.toString());
+                pending.setLength(0);
+                pendingBytes = 0;
+            }
+        }
+
+        private void cancelTimer() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.angelai.assistant.demo.langchain4j.service.stream;
+
+import com.angelai.assistant.demo.langchain4j.event.ChatModelCall;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import dev.langchain4j.service.TokenStream;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 把 AI 服务返回的 TokenStream 转成 Flux。下游取消（客户端断开、缓冲溢出）时通过 StreamingHandle 关闭上游模型流，
+ * 不再继续消耗 token。
+ */
+@Slf4j
+public final class TokenStreams {
+
+    private TokenStreams() {
+    }
+
+    /**
+     * @param endpoint 发起调用的接口名，用作模型指标的标签
+     */
+    public static Flux<String> toFlux(String endpoint, Supplier<TokenStream> tokenStream) {
+        return Flux.defer(() -> toFlux(new ChatModelCall(endpoint), tokenStream));
+    }
+
+    /**
+     * 使用调用方创建的上下文，调用方可在流结束后读取 token 用量；返回的流只应订阅一次
+     */
+    public static Flux<String> toFlux(ChatModelCall call, Supplier<TokenStream> tokenStream) {
+        return Flux.create(sink -> {
+            AtomicReference<StreamingHandle> handle = new AtomicReference<>();
+            AtomicBoolean cancelled = new AtomicBoolean();
+            sink.onCancel(() -> {
+                cancelled.set(true);
+                call.cancel();
+                StreamingHandle current = handle.get();
+                if (current != null && !current.isCancelled()) {
+                    log.debug("Downstream cancelled, closing upstream model stream");
+                    current.cancel();
+                }
+            });
+            call.bind(() -> tokenStream.get()
+                    .onPartialResponseWithContext((partial, context) -> {
+                        call.markFirstToken();
+                        handle.set(context.streamingHandle());
+                        // 首个 token 到达前就已取消的，拿到句柄后立即关闭
+                        if (cancelled.get()) {
+                            context.streamingHandle().cancel();
+                            return;
+                        }
+                        sink.next(partial.text());
+                    })
+                    .onCompleteResponse(response -> sink.complete())
+                    .onError(sink::error)
+                    .start());
+        });
+    }
+}
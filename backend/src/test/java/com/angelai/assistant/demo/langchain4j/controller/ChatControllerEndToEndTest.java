@@ -0,0 +1,256 @@
+package com.angelai.assistant.demo.langchain4j.controller;
+
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.User;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.UserRepository;
+import com.angelai.assistant.demo.langchain4j.service.admission.AdmissionController;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
+import com.angelai.assistant.demo.langchain4j.stub.StubOpenAiServer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端测试：不模拟助手接口，应用通过 base-url 连接本地桩服务，覆盖真实的 OpenAI HTTP 客户端和流式解析
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:e2e;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "langchain4j.open-ai.chat-model.max-retries=0"
+})
+class ChatControllerEndToEndTest {
+
+    private static final String ANSWER = "Hello from the stub model server.";
+
+    private static final StubOpenAiServer STUB = startStub();
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TokenService tokenService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    private String token;
+
+    private Long userId;
+
+    @DynamicPropertySource
+    static void modelProperties(DynamicPropertyRegistry registry) {
+        for (String model : List.of("chat-model", "streaming-chat-model")) {
+            registry.add("langchain4j.open-ai." + model + ".api-key", () -> "stub");
+            registry.add("langchain4j.open-ai." + model + ".base-url", STUB::baseUrl);
+            registry.add("langchain4j.open-ai." + model + ".model-name", () -> "stub");
+        }
+    }
+
+    @BeforeEach
+    void login() {
+        User user = userRepository.findByUsername("e2e").orElseGet(() -> {
+            User created = new User();
+            created.setUsername("e2e");
+            created.setPassword("unused");
+            created.setEmail("e2e@example.com");
+            return userRepository.save(created);
+        });
+        userId = user.getId();
+        token = tokenService.issue(userId);
+    }
+
+    @AfterEach
+    void resetStub() {
+        STUB.errorRate(0).errorStatus(503).tokenInterval(Duration.ZERO).resetStats();
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void message_shouldReturnModelAnswer() throws Exception {
+        HttpResponse<String> response = send(get("/api/chat/message?msg=hi"));
+
+        assertEquals(200, response.statusCode());
+        assertEquals(ANSWER, response.body());
+        assertEquals(1, STUB.requests());
+    }
+
+    @Test
+    void streaming_shouldRelayModelTokens() throws Exception {
+        STUB.tokenInterval(Duration.ofMillis(5));
+
+        HttpResponse<String> response = send(post("/api/chat/streaming", "hi stream"));
+
+        assertEquals(200, response.statusCode());
+        assertEquals(ANSWER, response.body());
+    }
+
+    @Test
+    void streaming_shouldFlushFirstTokenBeforeModelFinishes() throws Exception {
+        STUB.tokenInterval(Duration.ofMillis(100));
+        long begin = System.nanoTime();
+
+        HttpResponse<InputStream> response = client.send(post("/api/chat/streaming", "hi ttft"),
+                HttpResponse.BodyHandlers.ofInputStream());
+        long firstToken;
+        try (InputStream body = response.body()) {
+            assertTrue(body.read() != -1);
+            firstToken = System.nanoTime() - begin;
+            body.readAllBytes();
+        }
+        long total = System.nanoTime() - begin;
+
+        // 桩服务按 100ms 间隔发出 6 个 token，首 token 应远早于整段回答结束
+        assertTrue(total - firstToken >= Duration.ofMillis(300).toNanos(),
+                "first token " + firstToken / 1_000_000 + "ms, total " + total / 1_000_000 + "ms");
+    }
+
+    @Test
+    void sse_shouldEmitErrorEventWhenModelFails() throws Exception {
+        STUB.errorRate(1);
+
+        HttpResponse<String> response = send(post("/api/chat/sse", "hi failure"));
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("event:error"), response.body());
+        assertEquals(1, STUB.errors());
+    }
+
+    @Test
+    void streaming_shouldShrinkAdmissionLimitOnRateLimit() throws Exception {
+        STUB.errorStatus(429).errorRate(1);
+        int before = admissionController.limit();
+
+        HttpResponse<String> response = send(post("/api/chat/streaming", "hi rate limit"));
+
+        assertEquals(500, response.statusCode());
+        assertTrue(admissionController.limit() < before, "limit " + admissionController.limit());
+        assertEquals(1.0, meterRegistry.counter("chat.admission.limit.decreases", "cause", "rate_limit").count());
+    }
+
+    @Test
+    void message_shouldFailWhenModelFails() throws Exception {
+        STUB.errorRate(1);
+
+        HttpResponse<String> response = send(get("/api/chat/message?msg=fail"));
+
+        assertTrue(response.statusCode() >= 500, "status " + response.statusCode());
+    }
+
+    @Test
+    void streaming_shouldRejectRequestWithoutToken() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/chat/streaming"))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString("hi anonymous"))
+                .build());
+
+        assertEquals(401, response.statusCode());
+        assertEquals(0, STUB.requests());
+    }
+
+    @Test
+    void conversations_shouldForbidAccessToOtherUsersData() throws Exception {
+        Conversation other = new Conversation();
+        other.setUserId(userId + 1000);
+        other.setTitle("other");
+        other = conversationRepository.save(other);
+        Conversation own = new Conversation();
+        own.setUserId(userId);
+        own.setTitle("own");
+        own = conversationRepository.save(own);
+
+        assertEquals(403, send(get("/api/users/" + (userId + 1000) + "/conversations")).statusCode());
+        assertEquals(403, send(get("/api/users/conversations/" + other.getId() + "/messages")).statusCode());
+        assertEquals(403, send(HttpRequest.newBuilder(uri("/api/users/conversations/" + other.getId()))
+                .header("Authorization", "Bearer " + token)
+                .DELETE()
+                .build()).statusCode());
+        assertTrue(conversationRepository.existsById(other.getId()));
+
+        assertEquals(200, send(get("/api/users/" + userId + "/conversations")).statusCode());
+        assertEquals(200, send(get("/api/users/conversations/" + own.getId() + "/messages")).statusCode());
+    }
+
+    /**
+     * 批量导入只对管理员开放，普通用户的令牌返回 403
+     */
+    @Test
+    void importUsers_shouldRequireAdminRole() throws Exception {
+        HttpResponse<String> response = send(HttpRequest.newBuilder(uri("/api/users/import"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("[]"))
+                .build());
+
+        assertEquals(403, response.statusCode());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + token)
+                .build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static StubOpenAiServer startStub() {
+        try {
+            return new StubOpenAiServer(Duration.ZERO, ANSWER).start();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
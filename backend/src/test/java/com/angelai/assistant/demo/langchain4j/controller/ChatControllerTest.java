@@ -1,25 +1,53 @@
 package com.angelai.assistant.demo.langchain4j.controller;
 
+import com.angelai.assistant.demo.langchain4j.config.AuthProperties;
+import com.angelai.assistant.demo.langchain4j.config.ChatStreamProperties;
+import com.angelai.assistant.demo.langchain4j.config.SecurityConfig;
+import com.angelai.assistant.demo.langchain4j.service.ChatService;
+import com.angelai.assistant.demo.langchain4j.service.ConversationAssistant;
+import com.angelai.assistant.demo.langchain4j.service.ConversationService;
 import com.angelai.assistant.demo.langchain4j.service.StreamingChatAssistant;
+import com.angelai.assistant.demo.langchain4j.service.auth.AuthenticatedUser;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
+import com.angelai.assistant.demo.langchain4j.service.memory.PersistentChatMemoryStore;
+import com.angelai.assistant.demo.langchain4j.service.stream.ChatEventStream;
+import com.angelai.assistant.demo.langchain4j.service.stream.TokenCoalescer;
+import com.angelai.assistant.demo.langchain4j.stub.FakeTokenStream;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
-import reactor.core.publisher.Flux;
+import org.springframework.test.web.servlet.MvcResult;
 import com.angelai.assistant.demo.langchain4j.service.OpenAiAssistant;
 
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ChatController.class)
+@Import({ChatService.class, ChatEventStream.class, TokenCoalescer.class, SecurityConfig.class})
+@EnableConfigurationProperties({ChatStreamProperties.class, AuthProperties.class})
 class ChatControllerTest {
 
+    private static final String BEARER = "Bearer test-token";
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -31,6 +59,23 @@ class ChatControllerTest {
     @MockBean
     private OpenAiAssistant openAiAssistant;
 
+    @MockBean
+    private ConversationAssistant conversationAssistant;
+
+    @MockBean
+    private PersistentChatMemoryStore chatMemoryStore;
+
+    @MockBean
+    private ConversationService conversationService;
+
+    @MockBean
+    private TokenService tokenService;
+
+    @BeforeEach
+    void authenticate() {
+        when(tokenService.verifyBearer(BEARER)).thenReturn(Optional.of(new AuthenticatedUser(1L, "alice")));
+    }
+
     /**
      * 测试 /api/chat/message 接口是否能正确返回 chat 响应
      *
@@ -47,6 +92,7 @@ class ChatControllerTest {
 
         // When & Then: 发起 GET 请求并验证状态码及返回内容
         mockMvc.perform(get("/api/chat/message")
+                        .header(HttpHeaders.AUTHORIZATION, BEARER)
                         .param("msg", inputMsg)
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -57,15 +103,90 @@ class ChatControllerTest {
     void streaming_shouldReturnFluxString() throws Exception {
         // Given
         String inputMessage = "Hello";
-        Flux<String> expectedResponse = Flux.just("Hello", "World");
-
         when(streamingChatAssistant.chat(anyString()))
-                .thenReturn(expectedResponse);
+                .thenReturn(new FakeTokenStream("Hello", "World"));
 
-        // When & Then
-        mockMvc.perform(post("/api/chat/streaming")
+        // When
+        MvcResult result = mockMvc.perform(post("/api/chat/streaming")
+                .header(HttpHeaders.AUTHORIZATION, BEARER)
                 .contentType(MediaType.TEXT_PLAIN)
                 .content(inputMessage))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void conversationStreaming_shouldUseConversationMemory() throws Exception {
+        // Given
+        when(conversationService.isOwnedBy(1L, 1L)).thenReturn(true);
+        when(conversationAssistant.chat(eq(1L), anyString()))
+                .thenReturn(new FakeTokenStream("Hello", "World"));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/api/chat/conversations/1/streaming")
+                .header(HttpHeaders.AUTHORIZATION, BEARER)
+                .contentType(MediaType.TEXT_PLAIN)
+                .content("Hello"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
                 .andExpect(status().isOk());
     }
-}
\ No newline at end of file
+
+    @Test
+    void sse_shouldFrameTokensAsEvents() throws Exception {
+        // Given
+        when(streamingChatAssistant.chat(anyString()))
+                .thenReturn(new FakeTokenStream("Hello", "World"));
+
+        // When
+        MvcResult result = mockMvc.perform(post("/api/chat/sse")
+                .header(HttpHeaders.AUTHORIZATION, BEARER)
+                .contentType(MediaType.TEXT_PLAIN)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .content("Hello"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string("event:token\ndata:Hello\n\nevent:token\ndata:World\n\nevent:done\ndata:\n\n"));
+    }
+
+    /**
+     * 认证开启时，不带令牌的聊天请求返回 401，不调用模型
+     */
+    @Test
+    void streaming_withoutToken_shouldReturnUnauthorized() throws Exception {
+        mockMvc.perform(post("/api/chat/streaming")
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("Hello"))
+                .andExpect(status().isUnauthorized());
+
+        verify(streamingChatAssistant, never()).chat(anyString());
+    }
+
+    /**
+     * 对话属于其他用户时返回 403，不加载对方的历史，也不调用模型
+     */
+    @Test
+    void conversationStreaming_otherUsersConversation_shouldReturnForbidden() throws Exception {
+        when(conversationService.isOwnedBy(2L, 1L)).thenReturn(false);
+
+        mockMvc.perform(post("/api/chat/conversations/2/streaming")
+                        .header(HttpHeaders.AUTHORIZATION, BEARER)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("Hello"))
+                .andExpect(status().isForbidden());
+
+        verify(conversationAssistant, never()).chat(anyLong(), anyString());
+    }
+}
@@ -1,9 +1,14 @@
 package com.angelai.assistant.demo.langchain4j.controller;
 
+import com.angelai.assistant.demo.langchain4j.dto.CursorPage;
 import com.angelai.assistant.demo.langchain4j.dto.LoginRequest;
+import com.angelai.assistant.demo.langchain4j.dto.MessageView;
 import com.angelai.assistant.demo.langchain4j.dto.RegisterRequest;
 import com.angelai.assistant.demo.langchain4j.dto.UserDto;
+import com.angelai.assistant.demo.langchain4j.service.ConversationService;
+import com.angelai.assistant.demo.langchain4j.service.UserImportService;
 import com.angelai.assistant.demo.langchain4j.service.UserService;
+import com.angelai.assistant.demo.langchain4j.service.auth.TokenService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,8 +17,14 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -26,6 +37,15 @@ class UserControllerTest {
     @MockBean
     private UserService userService;
 
+    @MockBean
+    private ConversationService conversationService;
+
+    @MockBean
+    private TokenService tokenService;
+
+    @MockBean
+    private UserImportService userImportService;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -100,4 +120,22 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.message").value("密码错误"));
     }
+
+    @Test
+    void getConversationMessagesPage_shouldReturnItemsAndCursor() throws Exception {
+        // Given
+        MessageView view = new MessageView(42L, 1L, "你好", "USER", LocalDateTime.of(2025, 1, 1, 12, 0));
+        when(conversationService.getConversationMessagesPage(eq(1L), isNull(), eq(1)))
+                .thenReturn(new CursorPage<>(List.of(view), "next-cursor", true));
+
+        // When & Then
+        mockMvc.perform(get("/api/users/conversations/1/messages/page")
+                .param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.messages[0].id").value(42))
+                .andExpect(jsonPath("$.messages[0].content").value("你好"))
+                .andExpect(jsonPath("$.nextCursor").value("next-cursor"))
+                .andExpect(jsonPath("$.hasMore").value(true));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,90 @@
+package com.angelai.assistant.demo.langchain4j.event;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatMetricsProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.FinishReason;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class MetricsChatModelListenerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricsChatModelListener listener = new MetricsChatModelListener(registry, new ChatMetricsProperties());
+    private final ChatRequest request = ChatRequest.builder()
+            .messages(UserMessage.from("你好"))
+            .modelName("deepseek-chat")
+            .build();
+
+    /**
+     * 流式调用应记录首 token 时间、总延迟、token 数、生成速度和结束原因，并按模型和接口打标签
+     */
+    @Test
+    void onResponse_shouldRecordStreamingMetrics() {
+        Map<Object, Object> attributes = new HashMap<>();
+        ChatModelCall call = new ChatModelCall("streaming");
+        call.bind(() -> listener.onRequest(new ChatModelRequestContext(request, ModelProvider.OPEN_AI, attributes)));
+        call.markFirstToken();
+
+        ChatResponse response = ChatResponse.builder()
+                .aiMessage(AiMessage.from("你好！"))
+                .tokenUsage(new TokenUsage(12, 30))
+                .finishReason(FinishReason.STOP)
+                .build();
+        listener.onResponse(new ChatModelResponseContext(response, request, ModelProvider.OPEN_AI, attributes));
+
+        assertEquals(1, registry.get("chat.model.latency")
+                .tags("model", "deepseek-chat", "endpoint", "streaming", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("chat.model.time.to.first.token")
+                .tags("model", "deepseek-chat", "endpoint", "streaming").timer().count());
+        assertEquals(12, registry.get("chat.model.tokens").tags("type", "input").counter().count());
+        assertEquals(30, registry.get("chat.model.tokens").tags("type", "output").counter().count());
+        assertEquals(1, registry.get("chat.model.tokens.per.second").summary().count());
+        assertEquals(1, registry.get("chat.model.finish").tags("reason", "stop").counter().count());
+        assertEquals(42, call.usedTokens());
+    }
+
+    /**
+     * 非流式调用没有首 token 时间
+     */
+    @Test
+    void onResponse_shouldSkipTimeToFirstTokenForBlockingCalls() {
+        Map<Object, Object> attributes = new HashMap<>();
+        new ChatModelCall("message").bind(() -> listener.onRequest(
+                new ChatModelRequestContext(request, ModelProvider.OPEN_AI, attributes)));
+
+        listener.onResponse(new ChatModelResponseContext(ChatResponse.builder().aiMessage(AiMessage.from("hi")).build(),
+                request, ModelProvider.OPEN_AI, attributes));
+
+        assertNotNull(registry.find("chat.model.latency").tags("endpoint", "message").timer());
+        assertNull(registry.find("chat.model.time.to.first.token").timer());
+    }
+
+    @Test
+    void onError_shouldCountErrorsByType() {
+        Map<Object, Object> attributes = new HashMap<>();
+        listener.onRequest(new ChatModelRequestContext(request, ModelProvider.OPEN_AI, attributes));
+
+        listener.onError(new ChatModelErrorContext(new RateLimitException("too many requests"), request,
+                ModelProvider.OPEN_AI, attributes));
+
+        assertEquals(1, registry.get("chat.model.errors")
+                .tags("endpoint", ChatModelCall.UNKNOWN_ENDPOINT, "error", "RateLimitException").counter().count());
+        assertEquals(1, registry.get("chat.model.latency").tags("outcome", "error").timer().count());
+    }
+}
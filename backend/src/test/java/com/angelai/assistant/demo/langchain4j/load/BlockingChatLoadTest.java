@@ -0,0 +1,126 @@
+package com.angelai.assistant.demo.langchain4j.load;
+
+import com.angelai.assistant.demo.langchain4j.stub.StubOpenAiServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 阻塞式 /api/chat/message 压测：模型由本地桩服务代替，每次调用固定延迟，统计同一时刻能挂起的模型调用数。
+ *
+ * 平台线程：mvn test -Dloadtest=true -Dtest=BlockingChatLoadTest
+ * 虚拟线程：mvn test -Pjava21 -Dloadtest=true -Dtest=BlockingChatLoadTest -Dspring.threads.virtual.enabled=true
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "server.tomcat.threads.max=50",
+        "server.tomcat.accept-count=1000",
+        "server.tomcat.max-connections=2000",
+        "app.auth.enabled=false"
+})
+class BlockingChatLoadTest {
+
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 400);
+    private static final Duration MODEL_LATENCY = Duration.ofMillis(Long.getLong("loadtest.latencyMs", 1000));
+
+    private static final StubOpenAiServer STUB = startStub();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private Environment environment;
+
+    @DynamicPropertySource
+    static void modelProperties(DynamicPropertyRegistry registry) {
+        for (String model : List.of("chat-model", "streaming-chat-model")) {
+            registry.add("langchain4j.open-ai." + model + ".api-key", () -> "stub");
+            registry.add("langchain4j.open-ai." + model + ".base-url", STUB::baseUrl);
+            registry.add("langchain4j.open-ai." + model + ".model-name", () -> "stub");
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void concurrentBlockingChat() throws Exception {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://localhost:" + port + "/api/chat/message?msg=hello");
+
+        // 预热
+        client.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofString());
+        STUB.resetStats();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+        ExecutorService callers = Executors.newFixedThreadPool(CONCURRENCY);
+        long start = System.nanoTime();
+        try {
+            List<CompletableFuture<Integer>> calls = new ArrayList<>();
+            for (int i = 0; i < CONCURRENCY; i++) {
+                calls.add(CompletableFuture.supplyAsync(() -> {
+                    long begin = System.nanoTime();
+                    try {
+                        int status = client.send(HttpRequest.newBuilder(uri).timeout(Duration.ofMinutes(2)).build(),
+                                HttpResponse.BodyHandlers.ofString()).statusCode();
+                        latencies.add(System.nanoTime() - begin);
+                        return status;
+                    } catch (IOException | InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, callers));
+            }
+            for (CompletableFuture<Integer> call : calls) {
+                assertEquals(200, call.join());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("mode=%s requests=%d modelLatency=%dms peakInFlight=%d elapsed=%.2fs throughput=%.1f req/s p50=%dms p99=%dms%n",
+                environment.getProperty("spring.threads.virtual.enabled", Boolean.class, false) ? "virtual" : "platform",
+                CONCURRENCY, MODEL_LATENCY.toMillis(), STUB.peakInFlight(), seconds, CONCURRENCY / seconds,
+                LoadStats.percentile(sorted, 0.50) / 1_000_000, LoadStats.percentile(sorted, 0.99) / 1_000_000);
+    }
+
+    private static StubOpenAiServer startStub() {
+        try {
+            return new StubOpenAiServer(MODEL_LATENCY, "This is a stubbed answer from the local model server.").start();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.angelai.assistant.demo.langchain4j.load;
+
+import com.angelai.assistant.demo.langchain4j.stub.StubOpenAiServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 端到端压测：应用经真实的 OpenAI HTTP 客户端连接本地桩服务，按固定并发用户数持续请求一段时间（类似 k6 的 vus/duration），
+ * 输出每个接口的吞吐、总耗时 p50/p99 和首 token 时间 p50/p99。
+ *
+ * mvn test -Dloadtest=true -Dtest=ChatLoadTest
+ * 可调参数：-Dloadtest.vus=50 -Dloadtest.duration=30 -Dloadtest.latencyMs=200 -Dloadtest.tokens=50
+ *          -Dloadtest.tokenIntervalMs=20 -Dloadtest.errorRate=0
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:chatload;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "server.tomcat.accept-count=1000",
+        "server.tomcat.max-connections=2000",
+        "langchain4j.open-ai.chat-model.max-retries=0",
+        "app.auth.enabled=false",
+        "logging.level.root=WARN"
+})
+class ChatLoadTest {
+
+    private static final int VUS = Integer.getInteger("loadtest.vus", 50);
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("loadtest.duration", 30));
+    private static final Duration WARM_UP = Duration.ofSeconds(Long.getLong("loadtest.warmUp", 5));
+    private static final Duration MODEL_LATENCY = Duration.ofMillis(Long.getLong("loadtest.latencyMs", 200));
+    private static final Duration TOKEN_INTERVAL = Duration.ofMillis(Long.getLong("loadtest.tokenIntervalMs", 20));
+    private static final int TOKENS = Integer.getInteger("loadtest.tokens", 50);
+    private static final double ERROR_RATE = Double.parseDouble(System.getProperty("loadtest.errorRate", "0"));
+
+    private static final StubOpenAiServer STUB = startStub();
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @LocalServerPort
+    private int port;
+
+    @DynamicPropertySource
+    static void modelProperties(DynamicPropertyRegistry registry) {
+        for (String model : List.of("chat-model", "streaming-chat-model")) {
+            registry.add("langchain4j.open-ai." + model + ".api-key", () -> "stub");
+            registry.add("langchain4j.open-ai." + model + ".base-url", STUB::baseUrl);
+            registry.add("langchain4j.open-ai." + model + ".model-name", () -> "stub");
+            registry.add("langchain4j.open-ai." + model + ".timeout", () -> "PT2M");
+        }
+    }
+
+    @BeforeEach
+    void configureStub() {
+        STUB.errorRate(0).resetStats();
+    }
+
+    @AfterAll
+    static void stopStub() {
+        STUB.close();
+    }
+
+    @Test
+    void message() throws Exception {
+        // 每个请求带上序号，避免开启响应缓存时命中缓存
+        run("message", i -> HttpRequest.newBuilder(uri("/api/chat/message?msg=load-" + i)).build());
+    }
+
+    @Test
+    void streaming() throws Exception {
+        run("streaming", i -> HttpRequest.newBuilder(uri("/api/chat/streaming"))
+                .header("Content-Type", "text/plain")
+                .POST(HttpRequest.BodyPublishers.ofString("load-" + i))
+                .build());
+    }
+
+    private void run(String name, IntFunction<HttpRequest> requests) throws InterruptedException {
+        AtomicInteger sequence = new AtomicInteger();
+        drive(new LoadStats(name), requests, sequence, WARM_UP);
+
+        STUB.errorRate(ERROR_RATE).resetStats();
+        LoadStats stats = new LoadStats(name);
+        long start = System.nanoTime();
+        drive(stats, requests, sequence, DURATION);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%s vus=%d modelLatency=%dms tokens=%d tokenInterval=%dms errorRate=%.2f stubPeakInFlight=%d%n",
+                stats.report(seconds), VUS, MODEL_LATENCY.toMillis(), TOKENS, TOKEN_INTERVAL.toMillis(), ERROR_RATE,
+                STUB.peakInFlight());
+        assertTrue(stats.requests() > 0, "no request completed");
+        if (ERROR_RATE == 0) {
+            assertTrue(stats.errors() == 0, stats.errors() + " requests failed");
+        }
+    }
+
+    /**
+     * 每个虚拟用户在给定时长内循环发请求，上一个请求读完响应体后立即发下一个
+     */
+    private void drive(LoadStats stats, IntFunction<HttpRequest> requests, AtomicInteger sequence, Duration duration)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService users = Executors.newFixedThreadPool(VUS);
+        try {
+            for (int u = 0; u < VUS; u++) {
+                users.execute(() -> {
+                    while (System.nanoTime() < deadline && !Thread.currentThread().isInterrupted()) {
+                        call(stats, requests.apply(sequence.incrementAndGet()));
+                    }
+                });
+            }
+            users.shutdown();
+            users.awaitTermination(duration.plusMinutes(2).toMillis(), TimeUnit.MILLISECONDS);
+        } finally {
+            users.shutdownNow();
+        }
+    }
+
+    private void call(LoadStats stats, HttpRequest request) {
+        long begin = System.nanoTime();
+        try {
+            HttpResponse<InputStream> response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                byte[] buffer = new byte[8192];
+                long firstByte = 0;
+                int read;
+                while ((read = body.read(buffer)) != -1) {
+                    if (firstByte == 0 && read > 0) {
+                        firstByte = System.nanoTime() - begin;
+                    }
+                }
+                if (response.statusCode() != 200) {
+                    stats.error();
+                } else {
+                    long total = System.nanoTime() - begin;
+                    stats.success(firstByte == 0 ? total : firstByte, total);
+                }
+            }
+        } catch (IOException e) {
+            stats.error();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private static StubOpenAiServer startStub() {
+        String answer = IntStream.range(0, TOKENS).mapToObj(i -> "tok" + i).collect(Collectors.joining(" "));
+        try {
+            return new StubOpenAiServer(MODEL_LATENCY, answer).tokenInterval(TOKEN_INTERVAL).start();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
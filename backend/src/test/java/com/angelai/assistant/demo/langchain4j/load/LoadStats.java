@@ -0,0 +1,67 @@
+package com.angelai.assistant.demo.langchain4j.load;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个压测场景的统计：总耗时、首字节时间（流式接口即首 token 时间）、成功与失败次数
+ */
+class LoadStats {
+
+    private final String name;
+    private final List<Long> latencies = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> firstByteLatencies = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger errors = new AtomicInteger();
+
+    LoadStats(String name) {
+        this.name = name;
+    }
+
+    void success(long firstByteNanos, long totalNanos) {
+        firstByteLatencies.add(firstByteNanos);
+        latencies.add(totalNanos);
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    int requests() {
+        return latencies.size();
+    }
+
+    int errors() {
+        return errors.get();
+    }
+
+    String report(double seconds) {
+        List<Long> total = sorted(latencies);
+        List<Long> firstByte = sorted(firstByteLatencies);
+        return String.format("%-10s requests=%d errors=%d throughput=%.1f req/s latency p50=%dms p99=%dms ttft p50=%dms p99=%dms",
+                name, total.size(), errors.get(), total.size() / seconds,
+                millis(percentile(total, 0.50)), millis(percentile(total, 0.99)),
+                millis(percentile(firstByte, 0.50)), millis(percentile(firstByte, 0.99)));
+    }
+
+    static long percentile(List<Long> sorted, double quantile) {
+        if (sorted.isEmpty()) {
+            return 0;
+        }
+        return sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(quantile * sorted.size()) - 1));
+    }
+
+    private static List<Long> sorted(List<Long> values) {
+        List<Long> copy;
+        synchronized (values) {
+            copy = new ArrayList<>(values);
+        }
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private static long millis(long nanos) {
+        return nanos / 1_000_000;
+    }
+}
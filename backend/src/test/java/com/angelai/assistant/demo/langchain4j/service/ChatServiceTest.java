@@ -0,0 +1,117 @@
+package com.angelai.assistant.demo.langchain4j.service;
+
+import com.angelai.assistant.demo.langchain4j.service.cache.ResponseCache;
+import com.angelai.assistant.demo.langchain4j.service.memory.PersistentChatMemoryStore;
+import com.angelai.assistant.demo.langchain4j.stub.FakeTokenStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ChatServiceTest {
+
+    @Mock
+    private OpenAiAssistant openAiAssistant;
+
+    @Mock
+    private StreamingChatAssistant streamingChatAssistant;
+
+    @Mock
+    private ConversationAssistant conversationAssistant;
+
+    @Mock
+    private PersistentChatMemoryStore chatMemoryStore;
+
+    @Mock
+    private ResponseCache responseCache;
+
+    @InjectMocks
+    private ChatService chatService;
+
+    /**
+     * 缓存命中时应回放缓存内容，而不调用模型
+     */
+    @Test
+    void streamingChat_shouldReplayCachedAnswer() {
+        ResponseCache.Lookup lookup = new ResponseCache.Lookup("key", null, "你好，世界！");
+        when(responseCache.lookup(anyString(), eq("你好"))).thenReturn(lookup);
+        when(responseCache.replay("你好，世界！")).thenReturn(Flux.just("你好，", "世界！"));
+
+        StepVerifier.create(chatService.streamingChat(1L, "你好"))
+                .expectNext("你好，", "世界！")
+                .verifyComplete();
+
+        verify(streamingChatAssistant, never()).chat(anyString());
+    }
+
+    /**
+     * 未命中时应调用模型，并在流结束后写入完整应答
+     */
+    @Test
+    void streamingChat_shouldCacheAnswerOnCompletion() {
+        ResponseCache.Lookup lookup = new ResponseCache.Lookup("key", null, null);
+        when(responseCache.lookup(anyString(), eq("Hello"))).thenReturn(lookup);
+        when(streamingChatAssistant.chat("Hello")).thenReturn(new FakeTokenStream("Hello", " World"));
+
+        StepVerifier.create(chatService.streamingChat(1L, "Hello"))
+                .expectNext("Hello", " World")
+                .verifyComplete();
+
+        verify(responseCache).put(lookup, "Hello World");
+        verify(responseCache, never()).replay(any());
+    }
+
+    /**
+     * 下游取消时应关闭上游模型流，且不缓存不完整的应答
+     */
+    @Test
+    void streamingChat_shouldCancelUpstreamWhenClientDisconnects() {
+        ResponseCache.Lookup lookup = new ResponseCache.Lookup("key", null, null);
+        FakeTokenStream tokenStream = new FakeTokenStream("Hello", " World", "!");
+        when(responseCache.lookup(anyString(), eq("Hello"))).thenReturn(lookup);
+        when(streamingChatAssistant.chat("Hello")).thenReturn(tokenStream);
+
+        StepVerifier.create(chatService.streamingChat(1L, "Hello"), 1)
+                .expectNext("Hello")
+                .thenCancel()
+                .verify();
+
+        assertTrue(tokenStream.isCancelled());
+        verify(responseCache, never()).put(any(), anyString());
+    }
+
+    /**
+     * 对话流被取消时应补记已输出的部分应答，正常结束时由对话记忆保存，不重复写入
+     */
+    @Test
+    void conversationChat_shouldKeepPartialAnswerOnlyWhenCancelled() {
+        when(conversationAssistant.chat(1L, "Hello"))
+                .thenReturn(new FakeTokenStream("Hello", " World", "!"))
+                .thenReturn(new FakeTokenStream("Hello", " World"));
+
+        StepVerifier.create(chatService.conversationChat(1L, 1L, "Hello"), 2)
+                .expectNext("Hello", " World")
+                .thenCancel()
+                .verify();
+        StepVerifier.create(chatService.conversationChat(1L, 1L, "Hello"))
+                .expectNext("Hello", " World")
+                .verifyComplete();
+
+        verify(chatMemoryStore, timeout(1000)).appendPartialAnswer(1L, "Hello World");
+        verify(chatMemoryStore, times(1)).appendPartialAnswer(any(), anyString());
+    }
+}
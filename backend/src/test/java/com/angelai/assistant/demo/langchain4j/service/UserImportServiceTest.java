@@ -0,0 +1,108 @@
+package com.angelai.assistant.demo.langchain4j.service;
+
+import com.angelai.assistant.demo.langchain4j.config.PasswordHashingProperties;
+import com.angelai.assistant.demo.langchain4j.config.UserImportProperties;
+import com.angelai.assistant.demo.langchain4j.dto.ImportUserRequest;
+import com.angelai.assistant.demo.langchain4j.dto.LoginRequest;
+import com.angelai.assistant.demo.langchain4j.dto.RegisterRequest;
+import com.angelai.assistant.demo.langchain4j.dto.UserImportResult;
+import com.angelai.assistant.demo.langchain4j.dto.UserImportResult.Rejected;
+import com.angelai.assistant.demo.langchain4j.entity.User;
+import com.angelai.assistant.demo.langchain4j.repository.UserRepository;
+import com.angelai.assistant.demo.langchain4j.service.auth.LoginThrottle;
+import com.angelai.assistant.demo.langchain4j.service.auth.PasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 注册和导入依赖真实的唯一约束，连内存 H2 测试
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:user-import;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.user-import.enabled=true",
+        "app.user-import.batch-size=2",
+        "app.auth.password.strength=4"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({UserService.class, UserImportService.class, PasswordHasher.class, LoginThrottle.class, SimpleMeterRegistry.class})
+@EnableConfigurationProperties({UserImportProperties.class, PasswordHashingProperties.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class UserImportServiceTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @BeforeEach
+    void setUp() {
+        userService.register(new RegisterRequest("alice", "secret", "alice@example.com"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.deleteAll();
+    }
+
+    /**
+     * 重复的用户名和邮箱由唯一约束拦下，并翻译成原有的错误信息
+     */
+    @Test
+    void register_shouldTranslateUniqueConstraintViolations() {
+        assertEquals("用户名已存在", assertThrows(RuntimeException.class, () ->
+                userService.register(new RegisterRequest("alice", "secret", "other@example.com"))).getMessage());
+        assertEquals("邮箱已被注册", assertThrows(RuntimeException.class, () ->
+                userService.register(new RegisterRequest("bob", "secret", "alice@example.com"))).getMessage());
+        assertEquals(1, userRepository.count());
+    }
+
+    /**
+     * 已存在、请求内重复和不合法的行逐条拒绝，其余跨批次全部导入；已有哈希原样保存
+     */
+    @Test
+    void importUsers_shouldInsertNewUsersAndReportRejectedRows() {
+        String existingHash = new BCryptPasswordEncoder(5).encode("carol-secret");
+        UserImportResult result = userImportService.importUsers(List.of(
+                new ImportUserRequest("alice", "alice2@example.com", "secret", null),
+                new ImportUserRequest("bob", "bob@example.com", "bob-secret", null),
+                new ImportUserRequest("bob", "bob2@example.com", "bob-secret", null),
+                new ImportUserRequest("carol", "carol@example.com", null, existingHash),
+                new ImportUserRequest("dave", "dave@example.com", null, null),
+                new ImportUserRequest("erin", "alice@example.com", "secret", null),
+                new ImportUserRequest("frank", "frank@example.com", "frank-secret", null)));
+
+        assertEquals(3, result.imported());
+        assertEquals(List.of(
+                new Rejected(0, "alice", "用户名已存在"),
+                new Rejected(2, "bob", "用户名已存在"),
+                new Rejected(4, "dave", "密码不能为空"),
+                new Rejected(5, "erin", "邮箱已被注册")), result.rejected());
+        assertEquals(4, userRepository.count());
+        User carol = userRepository.findByUsername("carol").orElseThrow();
+        assertEquals(existingHash, carol.getPassword());
+        assertEquals("bob", userService.login(new LoginRequest("bob", "bob-secret")).getUsername());
+        assertTrue(userRepository.findByUsername("frank").isPresent());
+    }
+}
@@ -0,0 +1,104 @@
+package com.angelai.assistant.demo.langchain4j.service;
+
+import com.angelai.assistant.demo.langchain4j.config.PasswordHashingProperties;
+import com.angelai.assistant.demo.langchain4j.dto.LoginRequest;
+import com.angelai.assistant.demo.langchain4j.entity.User;
+import com.angelai.assistant.demo.langchain4j.repository.UserRepository;
+import com.angelai.assistant.demo.langchain4j.service.auth.LoginThrottle;
+import com.angelai.assistant.demo.langchain4j.service.auth.PasswordHasher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final PasswordHashingProperties properties = new PasswordHashingProperties();
+    private final PasswordHasher passwordHasher = new PasswordHasher();
+    private final LoginThrottle loginThrottle = new LoginThrottle();
+    private final UserService userService = new UserService();
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        properties.setStrength(5);
+        properties.setMaxFailures(2);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ReflectionTestUtils.setField(passwordHasher, "properties", properties);
+        ReflectionTestUtils.setField(passwordHasher, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.invokeMethod(passwordHasher, "init");
+        ReflectionTestUtils.setField(loginThrottle, "properties", properties);
+        ReflectionTestUtils.setField(loginThrottle, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.invokeMethod(loginThrottle, "init");
+        ReflectionTestUtils.setField(userService, "userRepository", userRepository);
+        ReflectionTestUtils.setField(userService, "passwordHasher", passwordHasher);
+        ReflectionTestUtils.setField(userService, "loginThrottle", loginThrottle);
+        user.setId(7L);
+        user.setUsername("alice");
+    }
+
+    /**
+     * 旧强度的哈希在登录成功后按新强度重新保存
+     */
+    @Test
+    void login_shouldRehashPasswordStoredWithOldStrength() {
+        String previous = new BCryptPasswordEncoder(4).encode("secret");
+        user.setPassword(previous);
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+
+        assertEquals(7L, userService.login(login("secret")).getId());
+
+        ArgumentCaptor<String> rehashed = ArgumentCaptor.forClass(String.class);
+        verify(userRepository).updatePassword(eq(7L), eq(previous), rehashed.capture());
+        assertEquals(5, passwordHasherStrength(rehashed.getValue()));
+        assertTrue(passwordHasher.matches("secret", rehashed.getValue()));
+    }
+
+    /**
+     * 连续输错达到上限后不再查库和校验密码，正确的密码也要等窗口结束
+     */
+    @Test
+    void login_shouldRejectWithoutHashingAfterRepeatedFailures() {
+        user.setPassword(new BCryptPasswordEncoder(5).encode("secret"));
+        when(userRepository.findByUsername("alice")).thenReturn(Optional.of(user));
+
+        assertEquals("密码错误", assertThrows(RuntimeException.class, () -> userService.login(login("a"))).getMessage());
+        assertEquals("密码错误", assertThrows(RuntimeException.class, () -> userService.login(login("b"))).getMessage());
+        assertEquals("密码错误次数过多，请稍后再试",
+                assertThrows(RuntimeException.class, () -> userService.login(login("secret"))).getMessage());
+
+        verify(userRepository, times(2)).findByUsername("alice");
+        verify(userRepository, never()).updatePassword(anyLong(), anyString(), any());
+    }
+
+    private static LoginRequest login(String password) {
+        return new LoginRequest("alice", password);
+    }
+
+    private static int passwordHasherStrength(String encoded) {
+        return Integer.parseInt(encoded.substring(4, 6));
+    }
+}
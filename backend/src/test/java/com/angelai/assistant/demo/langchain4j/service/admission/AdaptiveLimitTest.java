@@ -0,0 +1,68 @@
+package com.angelai.assistant.demo.langchain4j.service.admission;
+
+import com.angelai.assistant.demo.langchain4j.config.AdmissionProperties;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveLimitTest {
+
+    private static final long MS = 1_000_000L;
+
+    /**
+     * 并发用满时每个往返约加 1，空闲时不增长
+     */
+    @Test
+    void onSuccess_shouldGrowOnlyWhenLimitIsUsed() {
+        AdaptiveLimit limit = new AdaptiveLimit(properties(), 0);
+
+        for (int i = 0; i < 10; i++) {
+            limit.onSuccess(0, 1, i * MS);
+        }
+        assertEquals(10, limit.limit());
+
+        for (int i = 0; i < 11; i++) {
+            limit.onSuccess(0, 10, i * MS);
+        }
+        assertEquals(11, limit.limit());
+    }
+
+    /**
+     * 首 token 时间超出基线两倍视为拥塞，按比例缩减
+     */
+    @Test
+    void onSuccess_shouldBackOffWhenFirstTokenSlowsDown() {
+        AdaptiveLimit limit = new AdaptiveLimit(properties(), 0);
+        limit.onSuccess(100 * MS, 10, 1_000 * MS);
+
+        assertFalse(limit.onSuccess(150 * MS, 10, 1_200 * MS));
+        assertTrue(limit.onSuccess(300 * MS, 10, 1_400 * MS));
+        assertEquals(9, limit.limit());
+    }
+
+    /**
+     * 同一批 429 在一个基线往返内只缩减一次，且不低于下限
+     */
+    @Test
+    void onDropped_shouldHalveOncePerRoundTrip() {
+        AdaptiveLimit limit = new AdaptiveLimit(properties(), 0);
+        limit.onSuccess(100 * MS, 10, 1_000 * MS);
+
+        assertTrue(limit.onDropped(2_000 * MS));
+        assertFalse(limit.onDropped(2_050 * MS));
+        assertEquals(5, limit.limit());
+
+        limit.onDropped(2_200 * MS);
+        limit.onDropped(2_400 * MS);
+        assertEquals(2, limit.limit());
+    }
+
+    private static AdmissionProperties properties() {
+        AdmissionProperties properties = new AdmissionProperties();
+        properties.setInitialLimit(10);
+        properties.setMinLimit(2);
+        return properties;
+    }
+}
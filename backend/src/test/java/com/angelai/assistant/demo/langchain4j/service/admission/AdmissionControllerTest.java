@@ -0,0 +1,128 @@
+package com.angelai.assistant.demo.langchain4j.service.admission;
+
+import com.angelai.assistant.demo.langchain4j.config.AdmissionProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdmissionControllerTest {
+
+    private final AdmissionController controller = new AdmissionController();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionProperties properties = new AdmissionProperties();
+
+    @BeforeEach
+    void setUp() {
+        properties.setInitialLimit(1);
+        properties.setMinLimit(1);
+        properties.setMaxLimit(1);
+        properties.setMaxQueueWait(Duration.ofSeconds(5));
+        ReflectionTestUtils.setField(controller, "properties", properties);
+        ReflectionTestUtils.setField(controller, "meterRegistry", meterRegistry);
+        controller.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.shutdown();
+    }
+
+    /**
+     * 重度用户先排了很多请求，后到的轻度用户不必等它们全部完成
+     */
+    @Test
+    void acquire_shouldInterleaveUsersFairly() {
+        AdmissionController.Permit running = controller.acquire(1L).join();
+        List<CompletableFuture<AdmissionController.Permit>> heavy = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            heavy.add(controller.acquire(1L));
+        }
+        CompletableFuture<AdmissionController.Permit> light = controller.acquire(2L);
+        assertEquals(6, controller.queueDepth());
+
+        running.release();
+        assertTrue(heavy.get(0).isDone());
+        heavy.get(0).join().release();
+
+        assertTrue(light.isDone(), "light user should be admitted second");
+        assertEquals(4, controller.queueDepth());
+    }
+
+    /**
+     * 权重为 3 的用户每轮分到三倍名额
+     */
+    @Test
+    void acquire_shouldHonourWeights() {
+        properties.getWeights().put(3L, 3);
+        AdmissionController.Permit running = controller.acquire(1L).join();
+        List<CompletableFuture<AdmissionController.Permit>> order = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            order.add(controller.acquire(1L));
+            order.add(controller.acquire(3L));
+        }
+
+        List<Integer> admitted = new ArrayList<>();
+        AdmissionController.Permit current = running;
+        for (int i = 0; i < order.size(); i++) {
+            current.release();
+            for (int j = 0; j < order.size(); j++) {
+                if (order.get(j).isDone() && !admitted.contains(j)) {
+                    admitted.add(j);
+                    current = order.get(j).join();
+                }
+            }
+        }
+        // 下标为奇数的是权重 3 的用户：前四个获准的请求中有三个属于它
+        long weightedFirst = admitted.subList(0, 4).stream().filter(index -> index % 2 == 1).count();
+        assertEquals(3, weightedFirst);
+    }
+
+    /**
+     * 按平均占用时长估算的等待超出期限时立即拒绝
+     */
+    @Test
+    void acquire_shouldRejectWhenDeadlineWouldBeExceeded() throws Exception {
+        properties.setMaxQueueWait(Duration.ofMillis(50));
+        AdmissionController.Permit first = controller.acquire(1L).join();
+        Thread.sleep(120);
+        first.release();
+
+        controller.acquire(1L).join();
+        CompletableFuture<AdmissionController.Permit> rejected = controller.acquire(2L);
+
+        CompletionException error = assertThrows(CompletionException.class, rejected::join);
+        AdmissionRejectedException cause = assertInstanceOf(AdmissionRejectedException.class, error.getCause());
+        assertEquals("deadline", cause.reason());
+        assertEquals(1.0, meterRegistry.counter("chat.admission.rejected", "reason", "deadline").count());
+    }
+
+    /**
+     * 排队中放弃的请求不占名额
+     */
+    @Test
+    void cancel_shouldSkipAbandonedWaiters() {
+        AdmissionController.Permit running = controller.acquire(1L).join();
+        CompletableFuture<AdmissionController.Permit> abandoned = controller.acquire(1L);
+        CompletableFuture<AdmissionController.Permit> next = controller.acquire(2L);
+
+        abandoned.cancel(true);
+        running.release();
+
+        assertTrue(next.isDone());
+        assertEquals(1, controller.inFlight());
+        assertEquals(0, controller.queueDepth());
+    }
+}
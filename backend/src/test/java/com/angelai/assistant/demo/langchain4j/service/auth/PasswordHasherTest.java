@@ -0,0 +1,85 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import com.angelai.assistant.demo.langchain4j.config.PasswordHashingProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+
+    private final PasswordHashingProperties properties = new PasswordHashingProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PasswordHasher hasher = new PasswordHasher();
+
+    @BeforeEach
+    void setUp() {
+        properties.setStrength(4);
+        properties.setConcurrency(1);
+        properties.setQueueCapacity(1);
+        properties.setMaxWait(Duration.ofMillis(200));
+        ReflectionTestUtils.setField(hasher, "properties", properties);
+        ReflectionTestUtils.setField(hasher, "meterRegistry", meterRegistry);
+        hasher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        hasher.stop();
+    }
+
+    @Test
+    void encode_shouldProduceHashThatMatchesOnlyTheSamePassword() {
+        String encoded = hasher.encode("secret");
+
+        assertTrue(hasher.matches("secret", encoded));
+        assertFalse(hasher.matches("wrong", encoded));
+        assertEquals(4, PasswordHasher.strength(encoded));
+    }
+
+    /**
+     * 强度调高或调低都需要重新哈希
+     */
+    @Test
+    void needsRehash_shouldDetectStrengthChangesInBothDirections() {
+        assertFalse(hasher.needsRehash(new BCryptPasswordEncoder(4).encode("secret")));
+        assertTrue(hasher.needsRehash(new BCryptPasswordEncoder(5).encode("secret")));
+        properties.setStrength(6);
+        assertTrue(hasher.needsRehash(new BCryptPasswordEncoder(5).encode("secret")));
+        assertTrue(hasher.needsRehash("plain-text"));
+    }
+
+    /**
+     * 线程和队列都占满时立即拒绝，不在请求线程上计算
+     */
+    @Test
+    void encode_shouldRejectWhenPoolIsSaturated() throws Exception {
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(hasher, "executor");
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<Void> blocked = () -> {
+            release.await();
+            return null;
+        };
+        executor.submit(blocked);
+        executor.submit(blocked);
+
+        try {
+            assertThrows(PasswordHashingBusyException.class, () -> hasher.encode("secret"));
+            assertEquals(1.0, meterRegistry.counter("auth.password.hash.rejected").count());
+        } finally {
+            release.countDown();
+        }
+    }
+}
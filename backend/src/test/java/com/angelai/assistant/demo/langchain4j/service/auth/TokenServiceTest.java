@@ -0,0 +1,111 @@
+package com.angelai.assistant.demo.langchain4j.service.auth;
+
+import com.angelai.assistant.demo.langchain4j.config.AuthProperties;
+import com.angelai.assistant.demo.langchain4j.entity.User;
+import com.angelai.assistant.demo.langchain4j.repository.UserRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class TokenServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @InjectMocks
+    private TokenService tokenService;
+
+    private final AuthProperties properties = new AuthProperties();
+    private final User user = new User();
+
+    @BeforeEach
+    void setUp() {
+        properties.setSecret("0123456789abcdef0123456789abcdef");
+        ReflectionTestUtils.setField(tokenService, "properties", properties);
+        ReflectionTestUtils.setField(tokenService, "objectMapper", new ObjectMapper());
+        tokenService.init();
+        user.setId(7L);
+        user.setUsername("alice");
+        when(userRepository.findById(7L)).thenReturn(Optional.of(user));
+    }
+
+    /**
+     * 签发的令牌可以校验通过，重复校验只在签发时查一次库
+     */
+    @Test
+    void verify_shouldAcceptIssuedTokenWithoutDatabaseLookup() {
+        String token = tokenService.issue(7L);
+
+        assertEquals(Optional.of(new AuthenticatedUser(7L, "alice")), tokenService.verifyBearer("Bearer " + token));
+        assertEquals(Optional.of(new AuthenticatedUser(7L, "alice")), tokenService.verify(token));
+        verify(userRepository, times(1)).findById(7L);
+    }
+
+    /**
+     * 管理员身份按配置的用户 ID 判定，不依赖令牌内容
+     */
+    @Test
+    void verify_shouldGrantAdminRoleToConfiguredUsers() {
+        String token = tokenService.issue(7L);
+        assertFalse(tokenService.verify(token).orElseThrow().admin());
+
+        properties.getAdminUserIds().add(7L);
+        AuthenticatedUser admin = tokenService.verify(token).orElseThrow();
+
+        assertTrue(admin.admin());
+        assertEquals(List.of("ROLE_ADMIN"), admin.toAuthentication().getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority).toList());
+    }
+
+    /**
+     * 篡改载荷、伪造 alg=none 或过期的令牌都不通过
+     */
+    @Test
+    void verify_shouldRejectTamperedOrExpiredTokens() {
+        String[] parts = tokenService.issue(7L).split("\\.");
+        String otherPayload = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"sub\":\"8\",\"name\":\"bob\",\"ver\":0,\"exp\":9999999999}".getBytes());
+        String noneHeader = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"alg\":\"none\"}".getBytes());
+
+        assertTrue(tokenService.verify(parts[0] + "." + otherPayload + "." + parts[2]).isEmpty());
+        assertTrue(tokenService.verify(noneHeader + "." + parts[1] + ".").isEmpty());
+        assertTrue(tokenService.verify("not-a-token").isEmpty());
+
+        properties.setTokenTtl(Duration.ofSeconds(-1));
+        assertTrue(tokenService.verify(tokenService.issue(7L)).isEmpty());
+    }
+
+    /**
+     * 吊销后令牌版本变化，之前签发的令牌失效
+     */
+    @Test
+    void revoke_shouldInvalidatePreviouslyIssuedTokens() {
+        String token = tokenService.issue(7L);
+
+        user.setTokenVersion(1);
+        tokenService.revoke(7L);
+
+        assertTrue(tokenService.verify(token).isEmpty());
+        verify(userRepository).incrementTokenVersion(7L);
+    }
+}
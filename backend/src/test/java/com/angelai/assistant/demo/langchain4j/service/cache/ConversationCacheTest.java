@@ -0,0 +1,126 @@
+package com.angelai.assistant.demo.langchain4j.service.cache;
+
+import com.angelai.assistant.demo.langchain4j.config.ConversationCacheProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.ListOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ConversationCacheTest {
+
+    private final ConversationCache cache = new ConversationCache();
+    private final ConversationCacheProperties properties = new ConversationCacheProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        properties.setRedisEnabled(false);
+        ReflectionTestUtils.setField(cache, "properties", properties);
+        ReflectionTestUtils.setField(cache, "objectMapper", new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(cache, "meterRegistry", meterRegistry);
+        cache.init();
+    }
+
+    /**
+     * 新消息追加到已缓存的列表，不重新加载；已包含的消息不重复追加
+     */
+    @Test
+    void appendMessages_shouldExtendCachedListWithoutReload() {
+        cache.getMessages(1L, () -> load(message(1L, 1)));
+
+        cache.appendMessages(List.of(message(3L, 3), message(1L, 1), message(2L, 2)));
+        List<Message> messages = cache.getMessages(1L, () -> load(message(1L, 1)));
+
+        assertEquals(List.of(1L, 2L, 3L), messages.stream().map(Message::getId).toList());
+        assertEquals(1, loads.get());
+        assertEquals(0.5, meterRegistry.get("chat.conversation.cache.hit.ratio").tag("cache", "messages").gauge().value());
+    }
+
+    /**
+     * 对话列表失效后下次读取重新加载
+     */
+    @Test
+    void evictConversations_shouldReloadOnNextRead() {
+        cache.getConversations(7L, () -> {
+            loads.incrementAndGet();
+            return List.of(new Conversation());
+        });
+        cache.evictConversations(7L);
+        cache.getConversations(7L, () -> {
+            loads.incrementAndGet();
+            return List.of();
+        });
+
+        assertEquals(2, loads.get());
+        assertEquals(2.0, meterRegistry.get("chat.conversation.cache.requests")
+                .tag("cache", "conversations").tag("result", "miss").counter().count());
+    }
+
+    /**
+     * 未命中时先读版本号再查数据库，写回时带上该版本号由脚本比较；追加时递增版本号而不是直接写列表
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void getMessages_shouldWriteBackOnlyIfVersionUnchangedSinceLoad() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        ListOperations<String, String> listOperations = mock(ListOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForList()).thenReturn(listOperations);
+        when(valueOperations.get("chat:messages:1:version")).thenReturn("3");
+        properties.setRedisEnabled(true);
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        List<String> keys = List.of("chat:messages:1", "chat:messages:1:version");
+
+        cache.getMessages(1L, () -> {
+            verify(valueOperations).get("chat:messages:1:version");
+            verify(redisTemplate, never()).execute(any(RedisScript.class), any(List.class), any(Object[].class));
+            return load(message(1L, 1));
+        });
+        cache.appendMessages(List.of(message(2L, 2)));
+
+        InOrder order = inOrder(redisTemplate);
+        order.verify(redisTemplate).execute(any(RedisScript.class), eq(keys), eq("3"), eq("1800000"), anyString());
+        order.verify(redisTemplate).execute(any(RedisScript.class), eq(keys), eq("1800000"), anyString());
+        verify(listOperations, never()).rightPushIfPresent(anyString(), anyString());
+    }
+
+    private List<Message> load(Message... messages) {
+        loads.incrementAndGet();
+        return List.of(messages);
+    }
+
+    private static Message message(Long id, int minute) {
+        Message message = new Message();
+        message.setId(id);
+        message.setConversationId(1L);
+        message.setUserId(7L);
+        message.setContent("m" + id);
+        message.setSenderType("USER");
+        message.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, minute));
+        return message;
+    }
+}
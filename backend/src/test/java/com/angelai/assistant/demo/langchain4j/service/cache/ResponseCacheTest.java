@@ -0,0 +1,99 @@
+package com.angelai.assistant.demo.langchain4j.service.cache;
+
+import com.angelai.assistant.demo.langchain4j.config.ResponseCacheProperties;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResponseCacheTest {
+
+    private final ResponseCache cache = new ResponseCache();
+    private final ResponseCacheProperties properties = new ResponseCacheProperties();
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final EmbeddingModel embeddingModel = mock(EmbeddingModel.class);
+
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> zSetOperations = mock(ZSetOperations.class);
+
+    @SuppressWarnings("unchecked")
+    private final HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(redisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(cache, "properties", properties);
+        ReflectionTestUtils.setField(cache, "embeddingModel", embeddingModel);
+    }
+
+    /**
+     * 已过期的条目在计数前清掉，不会因为它们占着名额而淘汰仍然有效的条目
+     */
+    @Test
+    void put_shouldDropExpiredEntriesBeforeTrimming() {
+        properties.setMaxEntries(2);
+        when(zSetOperations.rangeByScore(eq("chat:cache:expiry"), anyDouble(), anyDouble())).thenReturn(Set.of("old"));
+        when(zSetOperations.zCard("chat:cache:lru")).thenReturn(2L);
+
+        cache.put(new ResponseCache.Lookup("new", null, null), "answer");
+
+        verify(zSetOperations).remove("chat:cache:lru", "old");
+        verify(zSetOperations).remove("chat:cache:expiry", "old");
+        verify(zSetOperations, never()).popMin(anyString(), anyLong());
+    }
+
+    /**
+     * 本地向量副本定期与 Redis 同步：其他节点写入的向量可以命中，已被淘汰的向量不再命中
+     */
+    @Test
+    void lookup_shouldSyncEmbeddingsWrittenByOtherNodes() {
+        properties.getSemantic().setEnabled(true);
+        properties.getSemantic().setRefreshInterval(Duration.ZERO);
+        float[] vector = {1, 0, 0};
+        when(embeddingModel.embed(anyString())).thenReturn(Response.from(Embedding.from(vector)));
+        when(valueOperations.get("chat:cache:entry:remote")).thenReturn("cached answer");
+        when(hashOperations.keys("chat:cache:embedding")).thenReturn(Set.of("remote"));
+        when(hashOperations.multiGet("chat:cache:embedding", List.of("remote"))).thenReturn(List.of(encode(vector)));
+
+        assertEquals("cached answer", cache.lookup("system", "你好").answer());
+
+        when(hashOperations.keys("chat:cache:embedding")).thenReturn(Set.of());
+
+        assertFalse(cache.lookup("system", "你好").hit().isPresent());
+    }
+
+    private static String encode(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+}
@@ -0,0 +1,156 @@
+package com.angelai.assistant.demo.langchain4j.service.history;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatMemoryProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.service.memory.PersistentChatMemoryStore;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class HistoryCompactorTest {
+
+    @Mock
+    private HistorySummarizer summarizer;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private PersistentChatMemoryStore chatMemoryStore;
+
+    @InjectMocks
+    private HistoryCompactor compactor;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.getCompaction().setMaxTokens(60);
+        ReflectionTestUtils.setField(compactor, "properties", properties);
+        ReflectionTestUtils.setField(compactor, "meterRegistry", meterRegistry);
+        compactor.init();
+    }
+
+    /**
+     * 超出预算时应从最旧的消息开始移出，系统消息和最新消息保留
+     */
+    @Test
+    void enforceBudget_shouldEvictOldestTurns() {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(SystemMessage.from("You are a polite assistant"));
+        for (int i = 0; i < 5; i++) {
+            messages.add(UserMessage.from("第" + i + "个问题：请详细介绍一下这个项目的历史背景和主要功能"));
+            messages.add(AiMessage.from("第" + i + "个回答：好的"));
+        }
+
+        List<ChatMessage> evicted = compactor.enforceBudget(messages, 20);
+
+        assertFalse(evicted.isEmpty());
+        assertInstanceOf(SystemMessage.class, messages.get(0));
+        assertEquals("第4个回答：好的", ((AiMessage) messages.get(messages.size() - 1)).text());
+        int windowTokens = messages.stream().filter(m -> !(m instanceof SystemMessage)).mapToInt(compactor::tokens).sum();
+        assertTrue(windowTokens <= 60);
+    }
+
+    /**
+     * 摘要生成后应紧跟系统消息插入，并记录节省的 token 数
+     */
+    @Test
+    void withSummary_shouldInsertRollingSummaryAfterSystemMessage() {
+        when(summarizer.summarize(anyLong(), isNull(), any(), anyInt())).thenReturn("用户询问了项目背景");
+        List<ChatMessage> evicted = List.of(
+                UserMessage.from("请详细介绍一下这个项目的历史背景和主要功能，越详细越好"),
+                AiMessage.from("这个项目始于很多年前，主要功能包括对话、检索和摘要等等"));
+        compactor.fold(1L, evicted);
+        verify(summarizer, timeout(Duration.ofSeconds(5).toMillis())).summarize(anyLong(), isNull(), any(), anyInt());
+
+        List<ChatMessage> window = List.of(SystemMessage.from("You are a polite assistant"), UserMessage.from("你好"));
+        List<ChatMessage> messages = awaitSummary(window);
+
+        assertEquals(3, messages.size());
+        assertTrue(((SystemMessage) messages.get(1)).text().endsWith("用户询问了项目背景"));
+        assertTrue(meterRegistry.summary("chat.history.tokens.saved").totalAmount() > 0);
+    }
+
+    /**
+     * 摘要生成后写入对话行，进程内状态丢弃后从数据库读回
+     */
+    @Test
+    void fold_shouldPersistSummaryAndRestoreItAfterEviction() {
+        when(summarizer.summarize(anyLong(), isNull(), any(), anyInt())).thenReturn("用户询问了项目背景");
+        compactor.fold(1L, List.of(UserMessage.from("请介绍一下这个项目"), AiMessage.from("好的")));
+        verify(conversationRepository, timeout(Duration.ofSeconds(5).toMillis()))
+                .updateSummary(eq(1L), eq("用户询问了项目背景"), anyInt(), any(), any());
+
+        Conversation conversation = new Conversation();
+        conversation.setSummary("用户询问了项目背景");
+        conversation.setSummaryFoldedTokens(20);
+        when(conversationRepository.findById(1L)).thenReturn(Optional.of(conversation));
+        compactor.evict(1L);
+        List<ChatMessage> messages = compactor.withSummary(1L, List.of(UserMessage.from("你好")));
+
+        assertEquals(2, messages.size());
+        assertTrue(((SystemMessage) messages.get(0)).text().endsWith("用户询问了项目背景"));
+    }
+
+    /**
+     * 摘要与最后一条并入的消息位置一起保存，对话记忆重新加载时从这之后开始；摘要调用计入对话所属用户
+     */
+    @Test
+    void fold_shouldRecordLastFoldedMessage() {
+        List<ChatMessage> evicted = List.of(UserMessage.from("请介绍一下这个项目"), AiMessage.from("好的"));
+        Message last = new Message();
+        last.setId(42L);
+        last.setCreatedAt(LocalDateTime.of(2026, 1, 1, 12, 0));
+        when(chatMemoryStore.lastStored(evicted)).thenReturn(last);
+        when(chatMemoryStore.ownerOf(1L)).thenReturn(7L);
+        when(summarizer.summarize(eq(7L), isNull(), eq(evicted), anyInt())).thenReturn("用户询问了项目背景");
+
+        compactor.fold(1L, evicted);
+
+        verify(conversationRepository, timeout(Duration.ofSeconds(5).toMillis()))
+                .updateSummary(eq(1L), eq("用户询问了项目背景"), anyInt(), eq(42L), eq(last.getCreatedAt()));
+    }
+
+    private List<ChatMessage> awaitSummary(List<ChatMessage> window) {
+        long deadline = System.currentTimeMillis() + 5000;
+        List<ChatMessage> messages = compactor.withSummary(1L, window);
+        while (messages.size() == window.size() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+            messages = compactor.withSummary(1L, window);
+        }
+        return messages;
+    }
+}
@@ -0,0 +1,162 @@
+package com.angelai.assistant.demo.langchain4j.service.memory;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatMemoryProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import com.angelai.assistant.demo.langchain4j.service.persistence.MessageWriteBuffer;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PersistentChatMemoryStoreTest {
+
+    @Mock
+    private MessageRepository messageRepository;
+
+    @Mock
+    private ConversationRepository conversationRepository;
+
+    @Mock
+    private MessageWriteBuffer messageWriteBuffer;
+
+    @InjectMocks
+    private PersistentChatMemoryStore store;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(store, "properties", new ChatMemoryProperties());
+        store.init();
+    }
+
+    /**
+     * 每次更新只应写入窗口尾部新增的用户/AI消息，系统消息不落库
+     */
+    @Test
+    void updateMessages_shouldOnlyPersistAppendedMessages() {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(7L);
+        when(messageRepository.findByConversationIdOrderByCreatedAtDesc(eq(1L), any())).thenReturn(List.of());
+        when(conversationRepository.findById(1L)).thenReturn(Optional.of(conversation));
+
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(1L));
+        messages.add(SystemMessage.from("You are a polite assistant"));
+        messages.add(UserMessage.from("你好"));
+        store.updateMessages(1L, messages);
+
+        messages = new ArrayList<>(store.getMessages(1L));
+        messages.add(AiMessage.from("你好，有什么可以帮你？"));
+        store.updateMessages(1L, messages);
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageWriteBuffer, times(2)).enqueue(captor.capture());
+        assertEquals("USER", captor.getAllValues().get(0).getSenderType());
+        assertEquals("AI", captor.getAllValues().get(1).getSenderType());
+        assertEquals(7L, captor.getAllValues().get(1).getUserId());
+        assertEquals(3, store.getMessages(1L).size());
+    }
+
+    /**
+     * 窗口被淘汰后以数据库和写缓冲中已保存的消息为基准，只写入真正新增的消息
+     */
+    @Test
+    void updateMessages_shouldNotPersistStoredMessagesAfterWindowEviction() {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(7L);
+        when(conversationRepository.findById(1L)).thenReturn(Optional.of(conversation));
+        LocalDateTime now = LocalDateTime.now();
+        when(messageRepository.findByConversationIdOrderByCreatedAtDesc(eq(1L), any())).thenReturn(List.of(
+                message(11L, "AI", "好的", now.minusSeconds(1)),
+                message(10L, "USER", "好的", now.minusSeconds(2))));
+        when(messageWriteBuffer.unwritten(1L)).thenReturn(List.of(message(12L, "USER", "好的", now)));
+
+        store.deleteMessages(1L);
+        store.updateMessages(1L, List.of(
+                SystemMessage.from("You are a polite assistant"),
+                UserMessage.from("好的"),
+                AiMessage.from("好的"),
+                UserMessage.from("好的"),
+                AiMessage.from("再见")));
+
+        ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+        verify(messageWriteBuffer).enqueue(captor.capture());
+        assertEquals("再见", captor.getValue().getContent());
+    }
+
+    /**
+     * 窗口被淘汰后重新加载时包含写缓冲中还没落库的消息，模型能看到刚说完的一轮
+     */
+    @Test
+    void getMessages_shouldIncludeUnwrittenMessages() {
+        LocalDateTime now = LocalDateTime.now();
+        when(messageRepository.findByConversationIdOrderByCreatedAtDesc(eq(1L), any())).thenReturn(List.of(
+                message(10L, "USER", "你好", now.minusSeconds(2))));
+        when(messageWriteBuffer.unwritten(1L)).thenReturn(List.of(
+                message(10L, "USER", "你好", now.minusSeconds(2)),
+                message(11L, "AI", "你好，有什么可以帮你？", now.minusSeconds(1))));
+
+        List<ChatMessage> messages = store.getMessages(1L);
+
+        assertEquals(2, messages.size());
+        assertEquals("你好，有什么可以帮你？", ((AiMessage) messages.get(1)).text());
+    }
+
+    /**
+     * 开启历史压缩时只加载最后一条并入摘要的消息之后的消息，已折叠的历史不会回到窗口
+     */
+    @Test
+    void getMessages_shouldSkipMessagesFoldedIntoSummary() {
+        ChatMemoryProperties properties = new ChatMemoryProperties();
+        properties.getCompaction().setEnabled(true);
+        ReflectionTestUtils.setField(store, "properties", properties);
+        LocalDateTime foldedAt = LocalDateTime.now().minusMinutes(1);
+        Conversation conversation = new Conversation();
+        conversation.setSummaryFoldedThrough(10L);
+        conversation.setSummaryFoldedAt(foldedAt);
+        when(conversationRepository.findById(1L)).thenReturn(Optional.of(conversation));
+        when(messageRepository.findLatestAfter(eq(1L), eq(foldedAt), eq(10L), any())).thenReturn(List.of(
+                message(12L, "AI", "你好，有什么可以帮你？", foldedAt.plusSeconds(2)),
+                message(11L, "USER", "你好", foldedAt.plusSeconds(1))));
+
+        List<ChatMessage> messages = store.getMessages(1L);
+
+        assertEquals(2, messages.size());
+        assertEquals("你好", ((UserMessage) messages.get(0)).singleText());
+        assertEquals(11L, store.lastStored(messages.subList(0, 1)).getId());
+        verify(messageRepository, never()).findByConversationIdOrderByCreatedAtDesc(any(), any());
+    }
+
+    private static Message message(Long id, String senderType, String content, LocalDateTime createdAt) {
+        Message message = new Message();
+        message.setId(id);
+        message.setConversationId(1L);
+        message.setSenderType(senderType);
+        message.setContent(content);
+        message.setCreatedAt(createdAt);
+        return message;
+    }
+}
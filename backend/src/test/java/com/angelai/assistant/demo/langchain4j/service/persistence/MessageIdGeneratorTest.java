@@ -0,0 +1,71 @@
+package com.angelai.assistant.demo.langchain4j.service.persistence;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.dialect.sequence.NoSequenceSupport;
+import org.hibernate.dialect.sequence.SequenceSupport;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 模拟从自增主键升级的 MySQL 库：方言不支持序列，Hibernate 和 MySQL 上一样用 message_seq 表模拟
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:message-ids;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=com.angelai.assistant.demo.langchain4j.service.persistence.MessageIdGeneratorTest$TableSequenceDialect"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageIdGeneratorTest {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 已有消息的库按 README 中的语句推进序列后启动，启动检查通过，新分配的 ID 都在现有最大 ID 之后
+     */
+    @Test
+    void init_shouldAllocateAfterExistingIdsOnceSequenceIsAdvanced() {
+        List<Object[]> rows = IntStream.rangeClosed(1, 1000)
+                .mapToObj(id -> new Object[]{(long) id})
+                .toList();
+        jdbcTemplate.batchUpdate("INSERT INTO messages (id, conversation_id, user_id, content, sender_type, created_at) "
+                + "VALUES (?, 1, 1, 'legacy', 'USER', CURRENT_TIMESTAMP)", rows);
+        jdbcTemplate.update("UPDATE message_seq SET next_val = (SELECT COALESCE(MAX(id), 0) + 50 FROM messages)");
+
+        MessageIdGenerator generator = new MessageIdGenerator();
+        ReflectionTestUtils.setField(generator, "entityManagerFactory", entityManagerFactory);
+        ReflectionTestUtils.setField(generator, "jdbcTemplate", jdbcTemplate);
+        generator.init();
+
+        // init 的检查已取走 1001，跨过多个 50 的块后仍然连续递增
+        long[] ids = IntStream.range(0, 120).mapToLong(i -> generator.next()).toArray();
+        assertEquals(1002, ids[0]);
+        assertTrue(IntStream.range(1, ids.length).allMatch(i -> ids[i] == ids[i - 1] + 1));
+    }
+
+    public static class TableSequenceDialect extends H2Dialect {
+
+        @Override
+        public SequenceSupport getSequenceSupport() {
+            return NoSequenceSupport.INSTANCE;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.angelai.assistant.demo.langchain4j.service.persistence;
+
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageLogTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * 未删除的段在重启后按写入顺序全部读回
+     */
+    @Test
+    void recover_shouldReturnMessagesOfPreviousRun() throws IOException {
+        try (MessageLog log = new MessageLog(directory, false)) {
+            log.recover();
+            log.append(message(1, "你好"));
+            log.rotate();
+            log.append(message(2, "x".repeat(70000)));
+        }
+
+        try (MessageLog log = new MessageLog(directory, false)) {
+            List<Message> recovered = log.recover();
+
+            assertEquals(List.of(1L, 2L), recovered.stream().map(Message::getId).toList());
+            assertEquals("你好", recovered.get(0).getContent());
+            assertEquals(70000, recovered.get(1).getContent().length());
+        }
+    }
+
+    /**
+     * 已封存并删除的段不会被重放
+     */
+    @Test
+    void deleteSealed_shouldDropFlushedSegments() throws IOException {
+        try (MessageLog log = new MessageLog(directory, false)) {
+            log.recover();
+            log.append(message(1, "flushed"));
+            log.rotate();
+            log.deleteSealed();
+            log.append(message(2, "pending"));
+        }
+
+        try (MessageLog log = new MessageLog(directory, false)) {
+            assertEquals(List.of(2L), log.recover().stream().map(Message::getId).toList());
+        }
+    }
+
+    /**
+     * 崩溃时写了一半的记录被忽略，之前的记录照常读回
+     */
+    @Test
+    void recover_shouldIgnoreTruncatedTail() throws IOException {
+        try (MessageLog log = new MessageLog(directory, false)) {
+            log.recover();
+            log.append(message(1, "complete"));
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".wal")).findFirst().orElseThrow();
+        }
+        Files.write(segment, new byte[]{0, 0, 0, 100, 1, 2}, StandardOpenOption.APPEND);
+
+        try (MessageLog log = new MessageLog(directory, false)) {
+            List<Message> recovered = log.recover();
+
+            assertEquals(1, recovered.size());
+            assertEquals("complete", recovered.get(0).getContent());
+        }
+    }
+
+    /**
+     * 死信文件不会自动重放，改名为段文件后可以照常读回
+     */
+    @Test
+    void deadLetter_shouldKeepMessagesOutOfReplayUntilRenamed() throws IOException {
+        try (MessageLog log = new MessageLog(directory, false)) {
+            log.recover();
+            log.append(message(1, "failed"));
+            log.rotate();
+            log.deadLetter(List.of(message(1, "failed")));
+            log.deleteSealed();
+        }
+
+        try (MessageLog log = new MessageLog(directory, false)) {
+            assertEquals(List.of(), log.recover());
+        }
+        Files.move(directory.resolve("dead-letter.log"), directory.resolve("dead-letter.wal"));
+        try (MessageLog log = new MessageLog(directory, false)) {
+            assertEquals(List.of(1L), log.recover().stream().map(Message::getId).toList());
+        }
+    }
+
+    private static Message message(long id, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setConversationId(10L);
+        message.setUserId(20L);
+        message.setContent(content);
+        message.setSenderType("USER");
+        message.setCreatedAt(LocalDateTime.of(2025, 1, 1, 12, 0));
+        return message;
+    }
+}
@@ -0,0 +1,165 @@
+package com.angelai.assistant.demo.langchain4j.service.quota;
+
+import com.angelai.assistant.demo.langchain4j.config.TokenQuotaProperties;
+import com.angelai.assistant.demo.langchain4j.event.ChatModelCall;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenQuotaTest {
+
+    private final TokenQuota quota = new TokenQuota();
+    private final TokenQuotaProperties properties = new TokenQuotaProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        properties.setRedisEnabled(false);
+        properties.setDailyTokens(1_000);
+        properties.setLeaseSize(300);
+        properties.setReservedOutputTokens(50);
+        properties.setReconcileInterval(Duration.ofHours(1));
+        ReflectionTestUtils.setField(quota, "properties", properties);
+        ReflectionTestUtils.setField(quota, "meterRegistry", meterRegistry);
+        quota.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        quota.stop();
+    }
+
+    /**
+     * 按实际用量结算，多次预留只续租一次；剩余额度不够预留量时拒绝
+     */
+    @Test
+    void reserve_shouldChargeActualUsageAndRejectWhenExhausted() {
+        for (int i = 0; i < 3; i++) {
+            quota.reserve(1L, "hello").settle(used(40), false);
+        }
+        assertEquals(1.0, meterRegistry.counter("chat.quota.leases", "result", "granted").count());
+        TokenQuota.Usage usage = quota.usage(1L);
+        assertEquals(120, usage.used());
+        assertEquals(880, usage.remaining());
+
+        // 没有用量上报的失败调用不收费，被取消的调用按预留量收费
+        quota.reserve(1L, "hello").settle(new ChatModelCall("test"), true);
+        quota.reserve(1L, "hello").settle(new ChatModelCall("test"), false);
+        assertEquals(175, quota.usage(1L).used());
+
+        quota.reserve(1L, "x".repeat(700)).settle(used(780), false);
+        assertThrows(QuotaExceededException.class, () -> quota.reserve(1L, "hello"));
+        assertEquals(1.0, meterRegistry.counter("chat.quota.requests", "result", "rejected").count());
+        assertEquals(1_000, quota.usage(2L).remaining());
+    }
+
+    /**
+     * 租约到期后归还未用完的额度，已用量上报到账本
+     */
+    @Test
+    void reconcile_shouldReturnUnusedTokensWhenLeaseExpires() throws InterruptedException {
+        properties.setLeaseTtl(Duration.ofMillis(10));
+        quota.reserve(1L, "hello").settle(used(100), false);
+        Thread.sleep(20);
+
+        quota.reconcile();
+
+        QuotaLedger ledger = (QuotaLedger) ReflectionTestUtils.getField(quota, "ledger");
+        assertEquals(new QuotaLedger.Usage(100, 100), ledger.usage(1L, quota.usage(1L).date()));
+        assertEquals(900, quota.usage(1L).remaining());
+    }
+
+    /**
+     * 并发预留和结算不丢失用量，也不会租出超过上限的额度
+     */
+    @Test
+    void reserve_shouldAccountConcurrentCallsExactly() throws Exception {
+        properties.setDailyTokens(100_000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicLong charged = new AtomicLong();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(executor.submit(() -> {
+                for (int j = 0; j < 500; j++) {
+                    try {
+                        quota.reserve(1L, "hi").settle(used(30), false);
+                        charged.addAndGet(30);
+                    } catch (QuotaExceededException e) {
+                        return;
+                    }
+                    if (j % 50 == 0) {
+                        quota.reconcile();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        TokenQuota.Usage usage = quota.usage(1L);
+        assertEquals(charged.get(), usage.used());
+        assertEquals(100_000 - charged.get(), usage.remaining());
+        assertTrue(charged.get() > 100_000 - 52 - 30 * 8, "charged " + charged.get());
+    }
+
+    /**
+     * 换日后归还前一天的租约不影响当天的记录
+     */
+    @Test
+    void localLedger_shouldKeepDaysSeparateAcrossMidnight() {
+        LocalQuotaLedger ledger = new LocalQuotaLedger();
+        LocalDate yesterday = LocalDate.of(2025, 1, 1);
+        LocalDate today = yesterday.plusDays(1);
+        ledger.lease(1L, yesterday, 300, 1_000);
+        ledger.lease(1L, today, 300, 1_000);
+
+        ledger.settle(1L, yesterday, 100, 200);
+
+        assertEquals(new QuotaLedger.Usage(100, 100), ledger.usage(1L, yesterday));
+        assertEquals(new QuotaLedger.Usage(300, 0), ledger.usage(1L, today));
+        ledger.lease(1L, today.plusDays(1), 300, 1_000);
+        assertEquals(new QuotaLedger.Usage(0, 0), ledger.usage(1L, yesterday));
+    }
+
+    /**
+     * 即使容器中有 RedisTemplate，未开启 redis-enabled 时也在本地记账，额度照常生效
+     */
+    @Test
+    void init_shouldUseLocalLedgerUnlessRedisIsEnabled() {
+        TokenQuota defaults = new TokenQuota();
+        ReflectionTestUtils.setField(defaults, "properties", new TokenQuotaProperties());
+        ReflectionTestUtils.setField(defaults, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(defaults, "redisTemplate", new StringRedisTemplate());
+        defaults.init();
+        try {
+            assertInstanceOf(LocalQuotaLedger.class, ReflectionTestUtils.getField(defaults, "ledger"));
+        } finally {
+            defaults.stop();
+        }
+    }
+
+    private static ChatModelCall used(long tokens) {
+        ChatModelCall call = new ChatModelCall("test");
+        call.addUsage(tokens);
+        return call;
+    }
+}
@@ -0,0 +1,204 @@
+package com.angelai.assistant.demo.langchain4j.service.retention;
+
+import com.angelai.assistant.demo.langchain4j.config.RetentionProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.ConversationArchive;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import com.angelai.assistant.demo.langchain4j.service.persistence.MessageWriteBuffer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分批删除依赖 DELETE ... LIMIT，连 MySQL 模式的内存 H2 测试
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:retention;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.retention.purge-batch-size=2",
+        "app.retention.archive-chunk-size=2",
+        "app.retention.purge-delay=0s",
+        "app.retention.purge-pause=0s"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ConversationArchiver.class, SimpleMeterRegistry.class, ConversationArchiverTest.JacksonConfiguration.class})
+@EnableConfigurationProperties(RetentionProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ConversationArchiverTest {
+
+    @Autowired
+    private ConversationArchiver archiver;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockBean
+    private MessageWriteBuffer messageWriteBuffer;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM conversation_archives");
+        jdbcTemplate.update("DELETE FROM conversation_purges");
+        messageRepository.deleteAll();
+        conversationRepository.deleteAll();
+    }
+
+    /**
+     * 删除只移除对话行，消息由 purge 分批删除；其他用户的对话不受影响
+     */
+    @Test
+    void delete_shouldRemoveOwnedConversationsAndPurgeMessagesInChunks() {
+        Conversation mine = conversation(1L, 5);
+        Conversation other = conversation(2L, 3);
+
+        List<Conversation> removed = archiver.delete(1L, List.of(mine.getId(), other.getId()));
+
+        assertEquals(List.of(mine.getId()), removed.stream().map(Conversation::getId).toList());
+        assertEquals(5, messageRepository.findByConversationIdOrderByCreatedAtAsc(mine.getId()).size());
+        assertEquals(1, archiver.purge());
+        assertEquals(0, messageRepository.findByConversationIdOrderByCreatedAtAsc(mine.getId()).size());
+        assertEquals(3, messageRepository.findByConversationIdOrderByCreatedAtAsc(other.getId()).size());
+        assertEquals(0, archiver.purge());
+    }
+
+    /**
+     * 归档后的消息可以从压缩数据中完整还原
+     */
+    @Test
+    void archive_shouldStoreCompressedMessages() {
+        Conversation conversation = conversation(1L, 4);
+        List<String> contents = messageRepository.findByConversationIdOrderByCreatedAtAsc(conversation.getId())
+                .stream().map(Message::getContent).toList();
+
+        archiver.archive(null, List.of(conversation.getId()));
+        archiver.purge();
+
+        ConversationArchive archive = jdbcTemplate.queryForObject(
+                "SELECT id, user_id, title, message_count, messages FROM conversation_archives", (rs, row) -> {
+                    ConversationArchive result = new ConversationArchive();
+                    result.setId(rs.getLong("id"));
+                    result.setUserId(rs.getLong("user_id"));
+                    result.setTitle(rs.getString("title"));
+                    result.setMessageCount(rs.getInt("message_count"));
+                    result.setMessages(rs.getBytes("messages"));
+                    return result;
+                });
+        assertEquals(conversation.getId(), archive.getId());
+        assertEquals(4, archive.getMessageCount());
+        assertEquals(contents, archiver.decompress(archive.getMessages()).stream().map(Message::getContent).toList());
+        assertTrue(conversationRepository.findById(conversation.getId()).isEmpty());
+        assertEquals(0, messageRepository.count());
+    }
+
+    /**
+     * 写缓冲中还没落库的消息也写入归档，排在已落库的消息之后
+     */
+    @Test
+    void archive_shouldIncludeUnwrittenMessages() {
+        Conversation conversation = conversation(1L, 2);
+        Message buffered = new Message();
+        buffered.setId(Long.MAX_VALUE);
+        buffered.setConversationId(conversation.getId());
+        buffered.setUserId(1L);
+        buffered.setContent("buffered");
+        buffered.setSenderType("AI");
+        buffered.setCreatedAt(LocalDateTime.now().plusSeconds(1));
+        when(messageWriteBuffer.unwritten(conversation.getId())).thenReturn(List.of(buffered));
+
+        archiver.archive(null, List.of(conversation.getId()));
+
+        byte[] messages = jdbcTemplate.queryForObject("SELECT messages FROM conversation_archives", byte[].class);
+        assertEquals(List.of("message 0", "message 1", "buffered"),
+                archiver.decompress(messages).stream().map(Message::getContent).toList());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT message_count FROM conversation_archives", Integer.class));
+    }
+
+    /**
+     * 每批对话单独提交，某一批因主键冲突回滚时其他批次仍然归档
+     */
+    @Test
+    void archive_shouldCommitEachChunkInItsOwnTransaction() {
+        Conversation first = conversation(1L, 1);
+        Conversation second = conversation(1L, 1);
+        Conversation conflicting = conversation(1L, 1);
+        jdbcTemplate.update("INSERT INTO conversation_archives (id, user_id, title, message_count, messages, archived_at) "
+                + "VALUES (?, 1, 'title', 0, ?, ?)", conflicting.getId(), new byte[0], LocalDateTime.now());
+
+        List<Conversation> archived = archiver.archive(null, List.of(first.getId(), second.getId(), conflicting.getId()));
+
+        assertEquals(List.of(first.getId(), second.getId()), archived.stream().map(Conversation::getId).toList());
+        assertTrue(conversationRepository.findById(first.getId()).isEmpty());
+        assertTrue(conversationRepository.findById(conflicting.getId()).isPresent());
+        assertEquals(3, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM conversation_archives", Integer.class));
+    }
+
+    /**
+     * 对话本身很久没更新，但最近还有消息的不算冷数据
+     */
+    @Test
+    void findCold_shouldSkipConversationsWithRecentMessages() {
+        Conversation idle = conversation(1L, 1);
+        Conversation active = conversation(1L, 1);
+        LocalDateTime old = LocalDateTime.now().minusDays(200);
+        jdbcTemplate.update("UPDATE conversations SET updated_at = ?", old);
+        jdbcTemplate.update("UPDATE messages SET created_at = ? WHERE conversation_id = ?", old, idle.getId());
+
+        List<Long> cold = archiver.findCold(LocalDateTime.now().minusDays(90), 10);
+
+        assertEquals(List.of(idle.getId()), cold);
+        assertFalse(cold.contains(active.getId()));
+    }
+
+    private Conversation conversation(Long userId, int messages) {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(userId);
+        conversation.setTitle("title");
+        conversation = conversationRepository.save(conversation);
+        for (int i = 0; i < messages; i++) {
+            Message message = new Message();
+            message.setConversationId(conversation.getId());
+            message.setUserId(userId);
+            message.setContent("message " + i);
+            message.setSenderType(i % 2 == 0 ? "USER" : "AI");
+            messageRepository.save(message);
+        }
+        return conversation;
+    }
+
+    static class JacksonConfiguration {
+
+        @Bean
+        ObjectMapper objectMapper() {
+            return new ObjectMapper().registerModule(new JavaTimeModule());
+        }
+    }
+}
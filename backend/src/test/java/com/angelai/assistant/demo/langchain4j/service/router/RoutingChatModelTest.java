@@ -0,0 +1,77 @@
+package com.angelai.assistant.demo.langchain4j.service.router;
+
+import com.angelai.assistant.demo.langchain4j.config.ModelRouterProperties;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RoutingChatModelTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<String> calls = new ArrayList<>();
+
+    /**
+     * 慢后端拿到一次延迟样本后，后续请求都发给快的后端
+     */
+    @Test
+    void chat_shouldPreferLowerLatencyBackend() {
+        RoutingChatModel router = router(backend("slow", 30, null), backend("fast", 0, null));
+
+        for (int i = 0; i < 5; i++) {
+            router.chat("hi");
+        }
+
+        assertEquals(1, calls.stream().filter("slow"::equals).count());
+        assertEquals("fast", calls.get(calls.size() - 1));
+    }
+
+    /**
+     * 失败的后端转移到下一个，全部失败时抛出最后一个错误
+     */
+    @Test
+    void chat_shouldFailOverToNextBackend() {
+        RoutingChatModel router = router(backend("down", 0, new HttpException(503, "down")), backend("up", 0, null));
+
+        assertEquals("up", router.chat("hi"));
+        assertEquals(1.0, meterRegistry.counter("chat.router.attempts",
+                "type", "chat", "backend", "up", "attempt", "failover").count());
+
+        RoutingChatModel allDown = router(backend("a", 0, new HttpException(503, "a")),
+                backend("b", 0, new HttpException(502, "b")));
+        HttpException error = assertThrows(HttpException.class, () -> allDown.chat("hi"));
+        assertEquals(1, error.getSuppressed().length);
+    }
+
+    private RoutingChatModel router(ModelBackend<ChatModel> first, ModelBackend<ChatModel> second) {
+        return new RoutingChatModel(List.of(first, second), new ModelRouterProperties(), meterRegistry);
+    }
+
+    private ModelBackend<ChatModel> backend(String name, long latencyMs, RuntimeException error) {
+        ChatModel model = new ChatModel() {
+            @Override
+            public ChatResponse chat(ChatRequest request) {
+                calls.add(name);
+                if (error != null) {
+                    throw error;
+                }
+                try {
+                    Thread.sleep(latencyMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return ChatResponse.builder().aiMessage(AiMessage.from(name)).build();
+            }
+        };
+        return new ModelBackend<>(name, model, 1);
+    }
+}
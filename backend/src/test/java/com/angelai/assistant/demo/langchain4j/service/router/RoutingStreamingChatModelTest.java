@@ -0,0 +1,230 @@
+package com.angelai.assistant.demo.langchain4j.service.router;
+
+import com.angelai.assistant.demo.langchain4j.config.ModelRouterProperties;
+import com.angelai.assistant.demo.langchain4j.event.ChatModelCall;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.HttpException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingStreamingChatModelTest {
+
+    private static final ChatRequest REQUEST = ChatRequest.builder().messages(UserMessage.from("hi")).build();
+
+    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ModelRouterProperties properties = new ModelRouterProperties();
+    private RoutingStreamingChatModel router;
+
+    @AfterEach
+    void tearDown() {
+        router.shutdown();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 第一个后端在首 token 前出错，请求转移到第二个后端，下游看不到错误
+     */
+    @Test
+    void chat_shouldFailOverBeforeFirstToken() throws Exception {
+        FakeBackend primary = new FakeBackend("primary").failBeforeFirstToken(new HttpException(503, "down"));
+        FakeBackend secondary = new FakeBackend("secondary");
+        router = router(primary, secondary);
+
+        assertEquals("secondary", chat().get(5, TimeUnit.SECONDS));
+        assertEquals(1, primary.calls.get());
+        assertEquals(1, secondary.calls.get());
+    }
+
+    /**
+     * 首 token 超过 hedgeDelay 未到时对冲到第二个后端，先出 token 的胜出，慢的一路在首 token 到达时被取消
+     */
+    @Test
+    void chat_shouldHedgeSlowFirstToken() throws Exception {
+        properties.setHedgeDelay(Duration.ofMillis(50));
+        FakeBackend slow = new FakeBackend("slow").firstTokenDelay(Duration.ofMillis(500));
+        FakeBackend fast = new FakeBackend("fast");
+        router = router(slow, fast);
+
+        assertEquals("fast", chat().get(5, TimeUnit.SECONDS));
+        assertTrue(waitFor(slow.cancelled), "slow backend should be cancelled");
+        assertEquals(1.0, meterRegistry.counter("chat.router.hedges", "outcome", "won").count());
+    }
+
+    /**
+     * 下游在首 token 之前取消：不再发出对冲请求，进行中的尝试在首个输出到达时被取消，下游收不到任何回调
+     */
+    @Test
+    void chat_shouldAbandonAllAttemptsWhenCancelledBeforeFirstToken() throws Exception {
+        properties.setHedgeDelay(Duration.ofMillis(50));
+        FakeBackend slow = new FakeBackend("slow").firstTokenDelay(Duration.ofMillis(150));
+        FakeBackend hedge = new FakeBackend("hedge");
+        router = router(slow, hedge);
+        ChatModelCall call = new ChatModelCall("test");
+
+        CompletableFuture<String> result = call.bind(this::chat);
+        call.cancel();
+
+        assertTrue(waitFor(slow.cancelled), "slow backend should be cancelled");
+        Thread.sleep(100);
+        assertEquals(0, hedge.calls.get());
+        assertFalse(result.isDone());
+    }
+
+    /**
+     * 首 token 已经发给下游后出错不再转移，错误直接交给下游
+     */
+    @Test
+    void chat_shouldNotFailOverAfterFirstToken() {
+        FakeBackend primary = new FakeBackend("primary").failAfterFirstToken(new HttpException(503, "reset"));
+        FakeBackend secondary = new FakeBackend("secondary");
+        router = router(primary, secondary);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> chat().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(HttpException.class, error.getCause());
+        assertEquals(0, secondary.calls.get());
+    }
+
+    /**
+     * 请求本身有问题时换后端也不会成功，直接失败
+     */
+    @Test
+    void chat_shouldNotFailOverOnInvalidRequest() {
+        FakeBackend primary = new FakeBackend("primary").failBeforeFirstToken(new InvalidRequestException("bad"));
+        FakeBackend secondary = new FakeBackend("secondary");
+        router = router(primary, secondary);
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> chat().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(InvalidRequestException.class, error.getCause());
+        assertEquals(0, secondary.calls.get());
+    }
+
+    private RoutingStreamingChatModel router(FakeBackend... backends) {
+        List<ModelBackend<StreamingChatModel>> list = Arrays.stream(backends)
+                .map(backend -> new ModelBackend<StreamingChatModel>(backend.name, backend, 1))
+                .toList();
+        return new RoutingStreamingChatModel(list, properties, meterRegistry);
+    }
+
+    /**
+     * 返回下游收到的完整文本
+     */
+    private CompletableFuture<String> chat() {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        StringBuilder text = new StringBuilder();
+        router.chat(REQUEST, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(PartialResponse partialResponse, PartialResponseContext context) {
+                text.append(partialResponse.text());
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                result.complete(text.toString());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private static boolean waitFor(AtomicBoolean flag) throws InterruptedException {
+        for (int i = 0; i < 100 && !flag.get(); i++) {
+            Thread.sleep(10);
+        }
+        return flag.get();
+    }
+
+    /**
+     * 以后端名作为回答的假模型，首 token 之前或之后可以注入错误
+     */
+    private final class FakeBackend implements StreamingChatModel {
+
+        private final String name;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+        private Duration firstTokenDelay = Duration.ZERO;
+        private RuntimeException errorBeforeFirstToken;
+        private RuntimeException errorAfterFirstToken;
+
+        FakeBackend(String name) {
+            this.name = name;
+        }
+
+        FakeBackend firstTokenDelay(Duration firstTokenDelay) {
+            this.firstTokenDelay = firstTokenDelay;
+            return this;
+        }
+
+        FakeBackend failBeforeFirstToken(RuntimeException error) {
+            this.errorBeforeFirstToken = error;
+            return this;
+        }
+
+        FakeBackend failAfterFirstToken(RuntimeException error) {
+            this.errorAfterFirstToken = error;
+            return this;
+        }
+
+        @Override
+        public void chat(ChatRequest request, StreamingChatResponseHandler handler) {
+            calls.incrementAndGet();
+            StreamingHandle handle = new StreamingHandle() {
+                @Override
+                public void cancel() {
+                    cancelled.set(true);
+                }
+
+                @Override
+                public boolean isCancelled() {
+                    return cancelled.get();
+                }
+            };
+            executor.schedule(() -> {
+                if (errorBeforeFirstToken != null) {
+                    handler.onError(errorBeforeFirstToken);
+                    return;
+                }
+                handler.onPartialResponse(new PartialResponse(name), new PartialResponseContext(handle));
+                if (handle.isCancelled()) {
+                    return;
+                }
+                if (errorAfterFirstToken != null) {
+                    handler.onError(errorAfterFirstToken);
+                    return;
+                }
+                handler.onCompleteResponse(ChatResponse.builder().aiMessage(AiMessage.from(name)).build());
+            }, firstTokenDelay.toNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HnswGraphTest {
+
+    private static final int DIMENSION = 32;
+
+    private final List<float[]> stored = new ArrayList<>();
+    private final HnswGraph.Vectors vectors = new HnswGraph.Vectors() {
+        @Override
+        public float[] get(int node) {
+            return stored.get(node);
+        }
+
+        @Override
+        public float dot(int node, float[] query) {
+            return HnswGraphTest.dot(stored.get(node), query);
+        }
+    };
+
+    /**
+     * 近似结果与暴力搜索的前 10 名基本一致
+     */
+    @Test
+    void search_shouldFindMostOfTheExactNearestNeighbours() {
+        Random random = new Random(42);
+        HnswGraph graph = build(2000, random);
+
+        int found = 0;
+        int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            float[] query = randomUnitVector(random);
+            List<Integer> exact = IntStream.range(0, stored.size()).boxed()
+                    .sorted(Comparator.comparingDouble((Integer node) -> dot(stored.get(node), query)).reversed())
+                    .limit(10)
+                    .toList();
+            for (HnswGraph.Neighbor neighbor : graph.search(query, 10, 64)) {
+                if (exact.contains(neighbor.node())) {
+                    found++;
+                }
+            }
+        }
+        double recall = found / (queries * 10.0);
+        assertTrue(recall >= 0.9, "recall@10 was " + recall);
+    }
+
+    @Test
+    void read_shouldRestoreTheSameGraphFromSnapshot() throws IOException {
+        Random random = new Random(7);
+        HnswGraph graph = build(500, random);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        graph.write(new DataOutputStream(bytes));
+
+        HnswGraph restored = new HnswGraph(vectors, 16, 100, 0);
+        restored.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(graph.size(), restored.size());
+        float[] query = randomUnitVector(random);
+        assertEquals(graph.search(query, 5, 32), restored.search(query, 5, 32));
+    }
+
+    private HnswGraph build(int size, Random random) {
+        HnswGraph graph = new HnswGraph(vectors, 16, 100, 1);
+        for (int i = 0; i < size; i++) {
+            stored.add(randomUnitVector(random));
+            graph.add();
+        }
+        return graph;
+    }
+
+    private static float[] randomUnitVector(Random random) {
+        float[] vector = new float[DIMENSION];
+        double norm = 0;
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] = (float) random.nextGaussian();
+            norm += vector[i] * vector[i];
+        }
+        for (int i = 0; i < DIMENSION; i++) {
+            vector[i] /= (float) Math.sqrt(norm);
+        }
+        return vector;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,154 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageTextSearchProperties;
+import com.angelai.assistant.demo.langchain4j.dto.MessageTextSearchResult;
+import com.angelai.assistant.demo.langchain4j.entity.Conversation;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.repository.ConversationRepository;
+import com.angelai.assistant.demo.langchain4j.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:textsearch;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "app.message-text-search.enabled=true",
+        "app.message-text-search.rebuild-batch-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({MessageTextIndex.class, MessageTextIndexRebuilder.class, MessageTextSearchService.class,
+        SimpleMeterRegistry.class})
+@EnableConfigurationProperties(MessageTextSearchProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MessageTextSearchTest {
+
+    @TempDir
+    static Path directory;
+
+    @DynamicPropertySource
+    static void indexDirectory(DynamicPropertyRegistry registry) {
+        registry.add("app.message-text-search.directory", directory::toString);
+    }
+
+    @Autowired
+    private MessageTextIndex index;
+
+    @Autowired
+    private MessageTextIndexRebuilder rebuilder;
+
+    @Autowired
+    private MessageTextSearchService searchService;
+
+    @Autowired
+    private ConversationRepository conversationRepository;
+
+    @Autowired
+    private MessageRepository messageRepository;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        messageRepository.deleteAll();
+        conversationRepository.deleteAll();
+        index.beginRebuild();
+        index.finishRebuild(true);
+    }
+
+    /**
+     * 中文按相邻二字匹配，字序不同不算命中；只返回该用户的消息，高亮片段转义原文中的 HTML
+     */
+    @Test
+    void search_shouldMatchChineseKeywordsOfTheUserOnly() {
+        Conversation conversation = conversation(1L);
+        Message database = message(conversation, "<b>MySQL</b> 数据库连接池怎么配置");
+        Message weather = message(conversation, "今天天气很好，适合去公园");
+        Message other = message(conversation(2L), "数据库索引优化");
+        index.add(List.of(database, weather, other));
+        index.refresh();
+
+        MessageTextSearchResult result = searchService.search(1L, "数据库", null, null);
+
+        assertEquals(List.of(database.getId()), ids(result));
+        String highlight = result.messages().get(0).highlight();
+        assertTrue(highlight.contains("<em>"), highlight);
+        assertTrue(highlight.contains("&lt;b&gt;"), highlight);
+        assertEquals(List.of(weather.getId()), ids(searchService.search(1L, "天气很好", null, null)));
+        assertTrue(searchService.search(1L, "很好天气", null, null).messages().isEmpty());
+        assertEquals(List.of(weather.getId()), ids(searchService.search(1L, "天气 公园", null, null)));
+        assertEquals(List.of(database.getId()), ids(searchService.search(1L, "mysql", null, null)));
+    }
+
+    /**
+     * 删除对话后从索引移除；索引中残留但数据库已不存在的消息不返回
+     */
+    @Test
+    void search_shouldDropDeletedConversationsAndStaleMessages() {
+        Conversation deleted = conversation(1L);
+        Conversation kept = conversation(1L);
+        Message first = message(deleted, "部署 kubernetes 集群");
+        Message second = message(kept, "kubernetes 滚动升级");
+        Message third = message(kept, "kubernetes 自动扩容");
+        index.add(List.of(first, second, third));
+        index.deleteConversations(List.of(deleted.getId()));
+        messageRepository.deleteById(third.getId());
+        index.refresh();
+
+        MessageTextSearchResult result = searchService.search(1L, "kubernetes", 0, 10);
+
+        assertEquals(List.of(second.getId()), ids(result));
+    }
+
+    @Test
+    void rebuild_shouldStreamAllMessagesFromTheDatabase() throws Exception {
+        Conversation conversation = conversation(1L);
+        message(conversation, "第一条 redis 消息");
+        message(conversation, "第二条 redis 消息");
+        message(conversation, "第三条 redis 消息");
+
+        assertEquals(3, rebuilder.rebuild());
+        index.refresh();
+
+        MessageTextSearchResult page = searchService.search(1L, "redis", 0, 2);
+        assertEquals(2, page.messages().size());
+        assertEquals(3, page.total());
+        assertTrue(page.hasMore());
+        assertEquals(1, searchService.search(1L, "redis", 1, 2).messages().size());
+    }
+
+    private Conversation conversation(Long userId) {
+        Conversation conversation = new Conversation();
+        conversation.setUserId(userId);
+        conversation.setTitle("对话");
+        return conversationRepository.save(conversation);
+    }
+
+    private Message message(Conversation conversation, String content) {
+        Message message = new Message();
+        message.setConversationId(conversation.getId());
+        message.setUserId(conversation.getUserId());
+        message.setContent(content);
+        message.setSenderType("USER");
+        return messageRepository.save(message);
+    }
+
+    private static List<Long> ids(MessageTextSearchResult result) {
+        return result.messages().stream().map(MessageTextSearchResult.Hit::messageId).toList();
+    }
+}
@@ -0,0 +1,95 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.MessageSearchProperties;
+import com.angelai.assistant.demo.langchain4j.entity.Message;
+import com.angelai.assistant.demo.langchain4j.stub.StubEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MessageVectorIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private final MessageSearchProperties properties = new MessageSearchProperties();
+    private MessageVectorIndex index;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (index != null) {
+            index.stop();
+        }
+    }
+
+    @Test
+    void search_shouldRankMessagesOfTheUserBySimilarity() throws Exception {
+        start();
+        index.submit(List.of(
+                message(1, 10, 1, "how do I configure the redis cache ttl"),
+                message(2, 10, 1, "recipe for tomato soup with basil"),
+                message(3, 11, 1, "redis cluster failover and cache eviction"),
+                message(4, 20, 2, "redis cache ttl for another user")));
+        index.drain();
+
+        List<MessageVectorIndex.Hit> hits = index.search(1, "redis cache ttl", 3);
+
+        assertEquals(List.of(1L, 3L, 2L), hits.stream().map(MessageVectorIndex.Hit::messageId).toList());
+        assertEquals(10L, hits.get(0).conversationId());
+        assertTrue(index.search(3, "redis", 3).isEmpty());
+    }
+
+    /**
+     * 重启后从向量文件和快照恢复，不需要重新生成向量
+     */
+    @Test
+    void search_shouldSurviveRestartFromMappedFiles() throws Exception {
+        start();
+        index.submit(List.of(
+                message(1, 10, 1, "kubernetes deployment rollout"),
+                message(2, 10, 1, "sourdough starter feeding schedule")));
+        index.drain();
+        index.stop();
+        assertTrue(Files.exists(directory.resolve("1.vec")));
+        assertTrue(Files.exists(directory.resolve("1.hnsw")));
+
+        start();
+        index.submit(List.of(message(3, 12, 1, "kubernetes pod autoscaling")));
+        index.drain();
+
+        List<MessageVectorIndex.Hit> hits = index.search(1, "kubernetes", 2);
+
+        assertEquals(List.of(1L, 3L), hits.stream().map(MessageVectorIndex.Hit::messageId).sorted().toList());
+    }
+
+    private void start() throws Exception {
+        properties.setDirectory(directory.toString());
+        properties.setIndexInterval(Duration.ofHours(1));
+        properties.setSnapshotInterval(Duration.ofHours(1));
+        index = new MessageVectorIndex();
+        ReflectionTestUtils.setField(index, "properties", properties);
+        ReflectionTestUtils.setField(index, "embeddingModel", new StubEmbeddingModel(64));
+        ReflectionTestUtils.setField(index, "meterRegistry", new SimpleMeterRegistry());
+        index.init();
+    }
+
+    private static Message message(long id, long conversationId, long userId, String content) {
+        Message message = new Message();
+        message.setId(id);
+        message.setConversationId(conversationId);
+        message.setUserId(userId);
+        message.setContent(content);
+        message.setSenderType("USER");
+        return message;
+    }
+}
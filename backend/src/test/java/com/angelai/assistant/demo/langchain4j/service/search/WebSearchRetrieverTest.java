@@ -0,0 +1,116 @@
+package com.angelai.assistant.demo.langchain4j.service.search;
+
+import com.angelai.assistant.demo.langchain4j.config.WebSearchProperties;
+import com.angelai.assistant.demo.langchain4j.stub.StubWebSearchEngine;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebSearchRetrieverTest {
+
+    private final WebSearchProperties properties = new WebSearchProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WebSearchRetriever retriever = new WebSearchRetriever();
+
+    @AfterEach
+    void tearDown() {
+        retriever.stop();
+    }
+
+    /**
+     * 两个引擎并行查询，总耗时接近较慢的一个；两边都返回的页面排在最前，链接大小写和末尾斜杠不同也算同一页
+     */
+    @Test
+    void search_shouldQueryEnginesInParallelAndMergeByUrl() {
+        StubWebSearchEngine first = new StubWebSearchEngine(Duration.ofMillis(300),
+                "https://a.example/1", "https://shared.example/page");
+        StubWebSearchEngine second = new StubWebSearchEngine(Duration.ofMillis(300),
+                "https://WWW.shared.example/page/", "https://b.example/1");
+        start(Map.of("first", first, "second", second));
+
+        long start = System.nanoTime();
+        List<WebSearchOrganicResult> results = retriever.search("spring boot");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 550, "engines should run in parallel, took " + elapsedMillis + " ms");
+        assertEquals(3, results.size());
+        assertEquals("shared.example/page", WebSearchRetriever.normalizeUrl(results.get(0).url()));
+    }
+
+    /**
+     * 超时的引擎不拖慢整体，也不影响其他引擎的结果
+     */
+    @Test
+    void search_shouldDropEnginesThatTimeOut() {
+        properties.setEngineTimeout(Duration.ofMillis(200));
+        StubWebSearchEngine fast = new StubWebSearchEngine(Duration.ZERO, "https://fast.example");
+        StubWebSearchEngine slow = new StubWebSearchEngine(Duration.ofSeconds(2), "https://slow.example");
+        start(Map.of("fast", fast, "slow", slow));
+
+        long start = System.nanoTime();
+        List<WebSearchOrganicResult> results = retriever.search("query");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1000, "slow engine should be abandoned, took " + elapsedMillis + " ms");
+        assertEquals(1, results.size());
+        assertEquals("https://fast.example", results.get(0).url().toString());
+        assertEquals(1, meterRegistry.get("chat.websearch.failures").tag("engine", "slow")
+                .tag("outcome", "timeout").counter().count());
+    }
+
+    /**
+     * 只是大小写和空白不同的查询命中缓存，不再访问搜索引擎；全部失败的查询不缓存
+     */
+    @Test
+    void search_shouldCacheMergedResultsButNotFailures() {
+        StubWebSearchEngine engine = new StubWebSearchEngine(Duration.ZERO, "https://a.example");
+        start(Map.of("stub", engine));
+
+        retriever.search("Spring  Boot");
+        retriever.search(" spring boot ");
+        assertEquals(1, engine.getCalls());
+        assertEquals(0.5, meterRegistry.get("chat.websearch.cache.hit.ratio").gauge().value());
+
+        engine.setFailing(true);
+        assertTrue(retriever.search("other").isEmpty());
+        engine.setFailing(false);
+        assertEquals(1, retriever.search("other").size());
+        assertEquals(3, engine.getCalls());
+    }
+
+    /**
+     * 注入提示词的内容按条数和总字符数裁剪
+     */
+    @Test
+    void retrieve_shouldTrimContext() {
+        properties.setMaxContextResults(2);
+        StubWebSearchEngine engine = new StubWebSearchEngine(Duration.ZERO,
+                "https://a.example", "https://b.example", "https://c.example");
+        start(Map.of("stub", engine));
+
+        List<Content> contents = retriever.retrieve(Query.from("query"));
+
+        assertEquals(2, contents.size());
+        assertTrue(contents.get(0).textSegment().text().startsWith("https://a.example\nhttps://a.example\n"));
+    }
+
+    private void start(Map<String, WebSearchEngine> engines) {
+        ReflectionTestUtils.setField(retriever, "properties", properties);
+        ReflectionTestUtils.setField(retriever, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(retriever, "engines", new LinkedHashMap<>(engines));
+        retriever.init();
+    }
+}
@@ -0,0 +1,104 @@
+package com.angelai.assistant.demo.langchain4j.service.singleflight;
+
+import com.angelai.assistant.demo.langchain4j.config.SingleFlightProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SingleFlight singleFlight = new SingleFlight();
+    private final SingleFlightProperties properties = new SingleFlightProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+    private Sinks.Many<String> upstream;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(singleFlight, "properties", properties);
+        ReflectionTestUtils.setField(singleFlight, "meterRegistry", meterRegistry);
+        singleFlight.init();
+    }
+
+    /**
+     * 后加入的请求先收到已输出的前缀，再和发起者一起收到后续 token，上游只调用一次
+     */
+    @Test
+    void join_shouldShareUpstreamAndReplayPrefix() {
+        List<String> first = new CopyOnWriteArrayList<>();
+        List<String> second = new CopyOnWriteArrayList<>();
+        singleFlight.join("key", this::upstream).subscribe(first::add);
+        upstream.tryEmitNext("Hello");
+
+        singleFlight.join("key", this::upstream).subscribe(second::add);
+        upstream.tryEmitNext(" World");
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of("Hello", " World"), first);
+        assertEquals(List.of("Hello", " World"), second);
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1.0, meterRegistry.counter("chat.single.flight.requests", "role", "follower").count());
+    }
+
+    /**
+     * 只有全部请求都取消后才取消上游
+     */
+    @Test
+    void join_shouldCancelUpstreamWhenLastRequestCancels() {
+        Disposable first = singleFlight.join("key", this::upstream).subscribe();
+        Disposable second = singleFlight.join("key", this::upstream).subscribe();
+
+        first.dispose();
+        assertEquals(false, upstreamCancelled.get());
+        second.dispose();
+        assertTrue(upstreamCancelled.get());
+    }
+
+    /**
+     * 前缀超出回放上限后不再接受加入，之后的相同请求另起一次上游调用
+     */
+    @Test
+    void join_shouldStartNewUpstreamOnceReplayBufferIsFull() {
+        properties.setMaxReplayChars(4);
+        singleFlight.join("key", this::upstream).subscribe();
+        upstream.tryEmitNext("Hello");
+
+        singleFlight.join("key", this::upstream).subscribe();
+
+        assertEquals(2, upstreamCalls.get());
+    }
+
+    /**
+     * 上游出错时所有共享的请求都收到错误
+     */
+    @Test
+    void join_shouldPropagateErrorToAllRequests() {
+        AtomicInteger errors = new AtomicInteger();
+        singleFlight.join("key", this::upstream).subscribe(token -> { }, error -> errors.incrementAndGet());
+        singleFlight.join("key", this::upstream).subscribe(token -> { }, error -> errors.incrementAndGet());
+
+        upstream.tryEmitError(new IllegalStateException("boom"));
+
+        assertEquals(2, errors.get());
+        assertEquals(1, upstreamCalls.get());
+    }
+
+    private Flux<String> upstream() {
+        upstreamCalls.incrementAndGet();
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+        return upstream.asFlux().doOnCancel(() -> upstreamCancelled.set(true));
+    }
+}
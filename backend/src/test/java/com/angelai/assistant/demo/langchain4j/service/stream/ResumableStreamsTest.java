@@ -0,0 +1,175 @@
+package com.angelai.assistant.demo.langchain4j.service.stream;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatStreamProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ResumableStreamsTest {
+
+    private final ResumableStreams streams = new ResumableStreams();
+    private final ChatStreamProperties properties = new ChatStreamProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger upstreamCalls = new AtomicInteger();
+    private final AtomicBoolean upstreamCancelled = new AtomicBoolean();
+    private Sinks.Many<String> upstream;
+
+    @BeforeEach
+    void setUp() {
+        properties.getResume().setRedisEnabled(false);
+        properties.getResume().setBufferSize(4);
+        properties.getResume().setDetachTimeout(Duration.ofMillis(200));
+        ReflectionTestUtils.setField(streams, "streamProperties", properties);
+        ReflectionTestUtils.setField(streams, "meterRegistry", meterRegistry);
+        streams.init();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        streams.stop();
+    }
+
+    /**
+     * 断开期间生成继续，重连后从 Last-Event-ID 之后回放并接着收到后续输出，上游只调用一次
+     */
+    @Test
+    void resume_shouldReplayMissedTokensAndContinue() {
+        List<ServerSentEvent<String>> first = new CopyOnWriteArrayList<>();
+        Disposable connection = streams.start(1L, upstream()).subscribe(first::add);
+        upstream.tryEmitNext("Hello");
+        String streamId = first.get(0).data();
+        assertEquals(ChatEventStream.STREAM_EVENT, first.get(0).event());
+        assertEquals(streamId + ":1", first.get(1).id());
+
+        connection.dispose();
+        upstream.tryEmitNext(" World");
+
+        List<ServerSentEvent<String>> second = new CopyOnWriteArrayList<>();
+        streams.resume(1L, ResumableStreams.Position.parse(first.get(1).id())).orElseThrow().subscribe(second::add);
+        upstream.tryEmitNext("!");
+        upstream.tryEmitComplete();
+
+        assertEquals(List.of(" World", "!", ""), second.stream().map(ServerSentEvent::data).toList());
+        assertEquals(List.of(streamId + ":2", streamId + ":3", streamId + ":4"),
+                second.stream().map(ServerSentEvent::id).toList());
+        assertEquals(ChatEventStream.DONE_EVENT, second.get(2).event());
+        assertEquals(1, upstreamCalls.get());
+        assertFalse(upstreamCancelled.get());
+        assertEquals(1.0, meterRegistry.counter("chat.stream.resumes", "result", "local").count());
+    }
+
+    /**
+     * 超过 detachTimeout 仍没有客户端重连时取消上游，之后的续传收到 error 事件
+     */
+    @Test
+    void start_shouldCancelUpstreamWhenNoClientReconnects() throws InterruptedException {
+        List<ServerSentEvent<String>> events = new CopyOnWriteArrayList<>();
+        streams.start(1L, upstream()).subscribe(events::add).dispose();
+        String streamId = events.get(0).data();
+
+        Thread.sleep(500);
+
+        assertTrue(upstreamCancelled.get());
+        List<ServerSentEvent<String>> resumed = streams.resume(1L, new ResumableStreams.Position(streamId, 0))
+                .orElseThrow().collectList().block(Duration.ofSeconds(1));
+        assertEquals(ChatEventStream.ERROR_EVENT, resumed.get(resumed.size() - 1).event());
+        assertEquals(1.0, meterRegistry.counter("chat.stream.abandoned").count());
+    }
+
+    /**
+     * 续传位置已被环形缓冲覆盖时返回不带 id 的 error 事件；其他用户拿不到这个流
+     */
+    @Test
+    void resume_shouldRejectOverwrittenPositionsAndOtherUsers() {
+        List<ServerSentEvent<String>> events = new CopyOnWriteArrayList<>();
+        streams.start(1L, Flux.just("a", "b", "c", "d", "e", "f")).subscribe(events::add);
+        String streamId = events.get(0).data();
+
+        List<ServerSentEvent<String>> late = streams.resume(1L, new ResumableStreams.Position(streamId, 1))
+                .orElseThrow().collectList().block(Duration.ofSeconds(1));
+        assertEquals(1, late.size());
+        assertEquals(ChatEventStream.ERROR_EVENT, late.get(0).event());
+        assertEquals(null, late.get(0).id());
+
+        List<ServerSentEvent<String>> recent = streams.resume(1L, new ResumableStreams.Position(streamId, 4))
+                .orElseThrow().collectList().block(Duration.ofSeconds(1));
+        assertEquals(List.of("e", "f", ""), recent.stream().map(ServerSentEvent::data).toList());
+
+        assertTrue(streams.resume(2L, new ResumableStreams.Position(streamId, 4)).isEmpty());
+    }
+
+    /**
+     * 开启 Redis 时按批用管道写入，过期时间只设置首尾两次；本节点没有的流订阅后才查 Redis，不在请求线程上阻塞
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void start_shouldMirrorToRedisInPipelinedBatches() throws InterruptedException {
+        streams.stop();
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        RedisOperations<String, String> operations = mock(RedisOperations.class);
+        StreamOperations<String, Object, Object> streamOperations = mock(StreamOperations.class);
+        when(operations.opsForStream()).thenReturn((StreamOperations) streamOperations);
+        AtomicInteger pipelines = new AtomicInteger();
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(invocation -> {
+            pipelines.incrementAndGet();
+            invocation.getArgument(0, SessionCallback.class).execute(operations);
+            return List.of();
+        });
+        properties.getResume().setRedisEnabled(true);
+        properties.getResume().setBufferSize(1024);
+        ReflectionTestUtils.setField(streams, "redisTemplate", redisTemplate);
+        streams.init();
+
+        streams.start(1L, Flux.range(1, 500).map(String::valueOf)).subscribe();
+
+        verify(streamOperations, timeout(2000).times(501))
+                .add(any(MapRecord.class), any(RedisStreamCommands.XAddOptions.class));
+        verify(operations, atMost(2)).expire(anyString(), eq(properties.getResume().getTtl()));
+        assertTrue(pipelines.get() < 501, "pipelines " + pipelines.get());
+
+        Flux<ServerSentEvent<String>> remote = streams.resume(1L, new ResumableStreams.Position("elsewhere", 3))
+                .orElseThrow();
+        verify(redisTemplate, never()).hasKey(anyString());
+        List<ServerSentEvent<String>> events = remote.collectList().block(Duration.ofSeconds(1));
+        verify(redisTemplate, times(1)).hasKey(anyString());
+        assertEquals(ChatEventStream.ERROR_EVENT, events.get(0).event());
+    }
+
+    private Flux<String> upstream() {
+        upstreamCalls.incrementAndGet();
+        upstream = Sinks.many().unicast().onBackpressureBuffer();
+        return upstream.asFlux().doOnCancel(() -> upstreamCancelled.set(true));
+    }
+}
@@ -0,0 +1,69 @@
+package com.angelai.assistant.demo.langchain4j.service.stream;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatStreamProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+class TokenCoalescerTest {
+
+    private final ChatStreamProperties properties = new ChatStreamProperties();
+    private final TokenCoalescer coalescer = new TokenCoalescer();
+
+    @BeforeEach
+    void setUp() {
+        properties.getCoalesce().setWindow(Duration.ofMillis(20));
+        properties.getCoalesce().setMaxBytes(8);
+        ReflectionTestUtils.setField(coalescer, "properties", properties);
+    }
+
+    /**
+     * 第一个 token 立即写出，之后同一窗口内的 token 合并为一块
+     */
+    @Test
+    void coalesce_shouldFlushFirstTokenAndBatchByWindow() {
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(
+                        Flux.just("a", "b", "c", "d", "e").delayElements(Duration.ofMillis(8))))
+                .expectSubscription()
+                .expectNoEvent(Duration.ofMillis(8))
+                .expectNext("a")
+                // b 在 16ms 到达，窗口到 36ms 结束
+                .expectNoEvent(Duration.ofMillis(27))
+                .thenAwait(Duration.ofMillis(1))
+                .expectNext("bcd")
+                .thenAwait(Duration.ofMillis(4))
+                .expectNext("e")
+                .verifyComplete();
+    }
+
+    /**
+     * 累积字节数达到上限时不等窗口直接写出，中文按 UTF-8 字节计算
+     */
+    @Test
+    void coalesce_shouldFlushWhenMaxBytesReached() {
+        StepVerifier.create(coalescer.coalesce(Flux.just("你", "好", "世", "界", "!")))
+                .expectNext("你", "好世界", "!")
+                .verifyComplete();
+    }
+
+    @Test
+    void coalesce_shouldPassThroughWhenDisabled() {
+        properties.getCoalesce().setEnabled(false);
+
+        StepVerifier.create(coalescer.coalesce(Flux.just("a", "b")))
+                .expectNext("a", "b")
+                .verifyComplete();
+    }
+
+    @Test
+    void coalesce_shouldFlushPendingTokensBeforeError() {
+        StepVerifier.create(coalescer.coalesce(Flux.just("a", "b")
+                        .concatWith(Flux.error(new IllegalStateException("boom")))))
+                .expectNext("a", "b")
+                .verifyErrorMessage("boom");
+    }
+}
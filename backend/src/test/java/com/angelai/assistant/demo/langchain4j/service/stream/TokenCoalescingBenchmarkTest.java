@@ -0,0 +1,82 @@
+package com.angelai.assistant.demo.langchain4j.service.stream;
+
+import com.angelai.assistant.demo.langchain4j.config.ChatStreamProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 对比合并前后每个应答的写出次数和字节数：模拟模型以 2~8ms 间隔推送 600 个 token，
+ * 每个输出块对应一次写入和刷新，SSE 字节数包含 event/data 帧开销。
+ *
+ * mvn test -Dbenchmark=true -Dtest=TokenCoalescingBenchmarkTest
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class TokenCoalescingBenchmarkTest {
+
+    private static final int TOKENS = 600;
+    private static final String SSE_FRAME = "event:token\ndata:\n\n";
+
+    @Test
+    void compareWritesPerResponse() {
+        List<String> tokens = syntheticTokens();
+        // 预热
+        run(tokens.subList(0, 50), false);
+        run(tokens.subList(0, 50), true);
+        report("raw", tokens, run(tokens, false));
+        report("coalesced 20ms/256B", tokens, run(tokens, true));
+    }
+
+    private static Result run(List<String> tokens, boolean enabled) {
+        ChatStreamProperties properties = new ChatStreamProperties();
+        properties.getCoalesce().setEnabled(enabled);
+        TokenCoalescer coalescer = new TokenCoalescer();
+        ReflectionTestUtils.setField(coalescer, "properties", properties);
+
+        Random random = new Random(42);
+        Flux<String> upstream = Flux.fromIterable(tokens)
+                .concatMap(token -> Flux.just(token).delayElements(Duration.ofMillis(2 + random.nextInt(7))));
+        long start = System.nanoTime();
+        List<Long> arrivals = new ArrayList<>();
+        List<String> chunks = coalescer.coalesce(upstream)
+                .doOnNext(chunk -> arrivals.add(System.nanoTime() - start))
+                .collectList()
+                .block();
+        return new Result(chunks, arrivals.get(0), System.nanoTime() - start);
+    }
+
+    private static void report(String mode, List<String> tokens, Result result) {
+        long payloadBytes = String.join("", tokens).getBytes(StandardCharsets.UTF_8).length;
+        int writes = result.chunks().size();
+        long sseBytes = payloadBytes + (long) writes * SSE_FRAME.length();
+        System.out.printf("%-20s tokens=%d writes=%d payloadBytes=%d bytesPerWrite=%.1f sseBytes=%d ttft=%.1fms total=%dms%n",
+                mode, tokens.size(), writes, payloadBytes, (double) payloadBytes / writes, sseBytes,
+                result.firstChunkNanos() / 1e6, result.totalNanos() / 1_000_000);
+    }
+
+    private static List<String> syntheticTokens() {
+        String text = "流式输出会把模型生成的每个 token 单独写给客户端。Streaming responses write every token separately. ";
+        Random random = new Random(7);
+        List<String> tokens = new ArrayList<>(TOKENS);
+        int position = 0;
+        while (tokens.size() < TOKENS) {
+            int length = 1 + random.nextInt(4);
+            StringBuilder token = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                token.append(text.charAt(position++ % text.length()));
+            }
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private record Result(List<String> chunks, long firstChunkNanos, long totalNanos) {
+    }
+}
@@ -0,0 +1,104 @@
+package com.angelai.assistant.demo.langchain4j.stub;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.PartialResponse;
+import dev.langchain4j.model.chat.response.PartialResponseContext;
+import dev.langchain4j.model.chat.response.StreamingHandle;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.service.tool.ToolExecution;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 同步依次推送给定 token 的 TokenStream，记录是否被取消
+ */
+public class FakeTokenStream implements TokenStream {
+
+    private final List<String> tokens;
+    private Consumer<String> partialResponseHandler;
+    private BiConsumer<PartialResponse, PartialResponseContext> partialResponseWithContextHandler;
+    private Consumer<ChatResponse> completeResponseHandler;
+    private Consumer<Throwable> errorHandler;
+    private volatile boolean cancelled;
+
+    public FakeTokenStream(String... tokens) {
+        this.tokens = List.of(tokens);
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public TokenStream onPartialResponse(Consumer<String> handler) {
+        this.partialResponseHandler = handler;
+        return this;
+    }
+
+    @Override
+    public TokenStream onPartialResponseWithContext(BiConsumer<PartialResponse, PartialResponseContext> handler) {
+        this.partialResponseWithContextHandler = handler;
+        return this;
+    }
+
+    @Override
+    public TokenStream onRetrieved(Consumer<List<Content>> handler) {
+        return this;
+    }
+
+    @Override
+    public TokenStream onToolExecuted(Consumer<ToolExecution> handler) {
+        return this;
+    }
+
+    @Override
+    public TokenStream onCompleteResponse(Consumer<ChatResponse> handler) {
+        this.completeResponseHandler = handler;
+        return this;
+    }
+
+    @Override
+    public TokenStream onError(Consumer<Throwable> handler) {
+        this.errorHandler = handler;
+        return this;
+    }
+
+    @Override
+    public TokenStream ignoreErrors() {
+        return this;
+    }
+
+    @Override
+    public void start() {
+        StreamingHandle handle = new StreamingHandle() {
+            @Override
+            public void cancel() {
+                cancelled = true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+        };
+        for (String token : tokens) {
+            if (cancelled) {
+                return;
+            }
+            if (partialResponseWithContextHandler != null) {
+                partialResponseWithContextHandler.accept(new PartialResponse(token), new PartialResponseContext(handle));
+            } else if (partialResponseHandler != null) {
+                partialResponseHandler.accept(token);
+            }
+        }
+        if (!cancelled && completeResponseHandler != null) {
+            completeResponseHandler.accept(ChatResponse.builder()
+                    .aiMessage(AiMessage.from(String.join("", tokens)))
+                    .build());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.angelai.assistant.demo.langchain4j.stub;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 离线可用的确定性向量模型：把每个词哈希到固定维度上计数，共享词越多的文本越相似
+ */
+public class StubEmbeddingModel implements EmbeddingModel {
+
+    private final int dimension;
+
+    public StubEmbeddingModel(int dimension) {
+        this.dimension = dimension;
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+        List<Embedding> embeddings = new ArrayList<>(segments.size());
+        for (TextSegment segment : segments) {
+            float[] vector = new float[dimension];
+            for (String word : segment.text().toLowerCase(Locale.ROOT).split("\\W+")) {
+                if (!word.isEmpty()) {
+                    vector[Math.floorMod(word.hashCode(), dimension)] += 1;
+                }
+            }
+            embeddings.add(Embedding.from(vector));
+        }
+        return Response.from(embeddings);
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+}
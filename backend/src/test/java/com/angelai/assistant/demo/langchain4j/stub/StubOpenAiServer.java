@@ -0,0 +1,214 @@
+package com.angelai.assistant.demo.langchain4j.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地的 OpenAI 兼容模型桩服务，只实现 /v1/chat/completions（普通与流式），用于压测和端到端测试。
+ * latency 为首个 token 之前的等待，tokenInterval 为相邻 token 的间隔（非流式请求按总生成时间等待），
+ * errorRate 为按比例直接返回 errorStatus 的请求。三者都可在运行中调整。
+ */
+public class StubOpenAiServer implements AutoCloseable {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final String answer;
+    private volatile Duration latency;
+    private volatile Duration tokenInterval = Duration.ZERO;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    public StubOpenAiServer(Duration latency, String answer) throws IOException {
+        this.latency = latency;
+        this.answer = answer;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.setExecutor(executor);
+        server.createContext("/v1/chat/completions", this::handle);
+    }
+
+    public StubOpenAiServer latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    public StubOpenAiServer tokenInterval(Duration tokenInterval) {
+        this.tokenInterval = tokenInterval;
+        return this;
+    }
+
+    public StubOpenAiServer errorRate(double errorRate) {
+        this.errorRate = errorRate;
+        return this;
+    }
+
+    public StubOpenAiServer errorStatus(int errorStatus) {
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    public StubOpenAiServer start() {
+        server.start();
+        return this;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+    }
+
+    public int peakInFlight() {
+        return peakInFlight.get();
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    public int errors() {
+        return errors.get();
+    }
+
+    public void resetStats() {
+        peakInFlight.set(0);
+        requests.set(0);
+        errors.set(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int current = inFlight.incrementAndGet();
+        peakInFlight.accumulateAndGet(current, Math::max);
+        requests.incrementAndGet();
+        try {
+            JsonNode request = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+            sleep(latency);
+            if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                fail(exchange);
+            } else if (request.path("stream").asBoolean(false)) {
+                stream(exchange);
+            } else {
+                complete(exchange);
+            }
+        } finally {
+            inFlight.decrementAndGet();
+            exchange.close();
+        }
+    }
+
+    private void complete(HttpExchange exchange) throws IOException {
+        sleep(tokenInterval.multipliedBy(tokens().length));
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("id", "chatcmpl-stub");
+        body.put("object", "chat.completion");
+        body.put("created", System.currentTimeMillis() / 1000);
+        body.put("model", "stub");
+        body.put("choices", List.of(Map.of(
+                "index", 0,
+                "message", Map.of("role", "assistant", "content", answer),
+                "finish_reason", "stop")));
+        body.put("usage", usage());
+        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void stream(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            String[] tokens = tokens();
+            for (int i = 0; i < tokens.length; i++) {
+                if (i > 0) {
+                    sleep(tokenInterval);
+                }
+                writeEvent(out, chunk(Map.of("content", tokens[i]), null));
+            }
+            Map<String, Object> last = chunk(Map.of(), "stop");
+            last.put("usage", usage());
+            writeEvent(out, last);
+            out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private void fail(HttpExchange exchange) throws IOException {
+        byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(Map.of("error", Map.of(
+                "message", "Injected failure from stub server",
+                "type", "server_error",
+                "code", errorStatus)));
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(errorStatus, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private String[] tokens() {
+        return answer.split("(?<= )");
+    }
+
+    private Map<String, Object> chunk(Map<String, Object> delta, String finishReason) {
+        Map<String, Object> choice = new LinkedHashMap<>();
+        choice.put("index", 0);
+        choice.put("delta", delta);
+        choice.put("finish_reason", finishReason);
+        Map<String, Object> chunk = new LinkedHashMap<>();
+        chunk.put("id", "chatcmpl-stub");
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", System.currentTimeMillis() / 1000);
+        chunk.put("model", "stub");
+        chunk.put("choices", List.of(choice));
+        return chunk;
+    }
+
+    private Map<String, Object> usage() {
+        int completionTokens = tokens().length;
+        return Map.of("prompt_tokens", 10, "completion_tokens", completionTokens,
+                "total_tokens", 10 + completionTokens);
+    }
+
+    private static void writeEvent(OutputStream out, Object data) throws IOException {
+        out.write(("data: " + OBJECT_MAPPER.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis(), duration.toNanosPart() % 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
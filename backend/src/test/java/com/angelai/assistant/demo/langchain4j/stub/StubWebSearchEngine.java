@@ -0,0 +1,57 @@
+package com.angelai.assistant.demo.langchain4j.stub;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchInformationResult;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 本地搜索引擎桩，按固定延迟返回给定的链接，或者直接失败；记录被调用的次数
+ */
+public class StubWebSearchEngine implements WebSearchEngine {
+
+    private final List<String> urls;
+    private final Duration delay;
+    private final AtomicInteger calls = new AtomicInteger();
+    private volatile boolean failing;
+
+    public StubWebSearchEngine(Duration delay, String... urls) {
+        this.delay = delay;
+        this.urls = List.of(urls);
+    }
+
+    public void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    public int getCalls() {
+        return calls.get();
+    }
+
+    @Override
+    public WebSearchResults search(WebSearchRequest request) {
+        calls.incrementAndGet();
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        if (failing) {
+            throw new IllegalStateException("search engine unavailable");
+        }
+        List<WebSearchOrganicResult> results = new ArrayList<>();
+        for (String url : urls) {
+            results.add(WebSearchOrganicResult.from(url, URI.create(url),
+                    request.searchTerms() + " @ " + url, null));
+        }
+        return WebSearchResults.from(WebSearchInformationResult.from((long) results.size()), results);
+    }
+}
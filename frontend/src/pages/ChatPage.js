@@ -140,14 +140,6 @@ const ChatPage = ({ currentUser, onLogout }) => {
   const handleSendMessage = async (messageText) => {
     if (!activeConversationId) return;
     
-    // 添加用户消息到数据库
-    try {
-      await userService.saveMessage(activeConversationId, currentUser.id, messageText, 'USER');
-    } catch (error) {
-      console.error('保存用户消息失败:', error);
-      message.error('保存消息失败: ' + error.message);
-    }
-    
     // 添加用户消息到前端状态
     const userMessage = { 
       id: Date.now(), 
@@ -181,8 +173,9 @@ const ChatPage = ({ currentUser, onLogout }) => {
     let accumulatedResponse = '';
     
     try {
-      // 调用聊天服务发送消息
-      await chatService.sendStreamingMessage(
+      // 调用对话流式接口，用户消息和AI回复由服务端保存
+      await chatService.sendConversationMessage(
+        activeConversationId,
         messageText,
         (chunk) => {
           // 处理每个数据块
@@ -196,15 +189,7 @@ const ChatPage = ({ currentUser, onLogout }) => {
             )
           }));
         },
-        async () => {
-          // 完成时的处理 - 保存AI回复到数据库
-          try {
-            await userService.saveMessage(activeConversationId, currentUser.id, accumulatedResponse, 'AI');
-          } catch (error) {
-            console.error('保存AI消息失败:', error);
-            message.error('保存AI回复失败: ' + error.message);
-          }
-          
+        () => {
           setMessages(prev => ({
             ...prev,
             [activeConversationId]: prev[activeConversationId].map(msg => 
@@ -215,17 +200,10 @@ const ChatPage = ({ currentUser, onLogout }) => {
           }));
           setIsLoading(false);
         },
-        async (error) => {
+        (error) => {
           // 错误处理
           console.error('Error sending message:', error);
           
-          // 保存错误信息到数据库
-          try {
-            await userService.saveMessage(activeConversationId, currentUser.id, '抱歉，发送消息时出错: ' + error.message, 'AI');
-          } catch (saveError) {
-            console.error('保存错误消息失败:', saveError);
-          }
-          
           setMessages(prev => ({
             ...prev,
             [activeConversationId]: prev[activeConversationId].map(msg => 
@@ -241,13 +219,6 @@ const ChatPage = ({ currentUser, onLogout }) => {
     } catch (error) {
       console.error('Error sending message:', error);
       
-      // 保存错误信息到数据库
-      try {
-        await userService.saveMessage(activeConversationId, currentUser.id, '抱歉，发送消息时出错: ' + error.message, 'AI');
-      } catch (saveError) {
-        console.error('保存错误消息失败:', saveError);
-      }
-      
       setMessages(prev => ({
         ...prev,
         [activeConversationId]: prev[activeConversationId].map(msg => 
@@ -1,3 +1,5 @@
+import userService from './userService';
+
 class ChatService {
   constructor() {
     this.baseUrl = 'http://localhost:8088/api/chat';
@@ -11,11 +13,29 @@ class ChatService {
    * @param {function} onError - 出错时的回调函数
    */
   async sendStreamingMessage(message, onChunkReceived, onComplete, onError) {
+    return this.stream(`${this.baseUrl}/streaming`, message, onChunkReceived, onComplete, onError);
+  }
+
+  /**
+   * 在对话中发送消息并处理流式响应，问题和应答由服务端保存，中途断开时保留已输出的部分
+   * @param {number} conversationId - 对话ID
+   * @param {string} message - 用户输入的消息
+   * @param {function} onChunkReceived - 接收到每个数据块时的回调函数
+   * @param {function} onComplete - 完成时的回调函数
+   * @param {function} onError - 出错时的回调函数
+   */
+  async sendConversationMessage(conversationId, message, onChunkReceived, onComplete, onError) {
+    return this.stream(`${this.baseUrl}/conversations/${conversationId}/streaming`, message,
+      onChunkReceived, onComplete, onError);
+  }
+
+  async stream(url, message, onChunkReceived, onComplete, onError) {
     try {
-      const response = await fetch(`${this.baseUrl}/streaming`, {
+      const response = await fetch(url, {
         method: 'POST',
         headers: {
           'Content-Type': 'text/plain',
+          ...userService.authHeaders(),
         },
         body: message,
       });
@@ -120,7 +120,8 @@ class UserService {
         throw new Error(data.message || '登录失败');
       }
       
-      this.user = data.user;
+      // 令牌随用户信息一起保存，后续请求放在 Authorization 头中
+      this.user = { ...data.user, token: data.token };
       this.saveUserToStorage(this.user); // 保存到localStorage
       return data;
     } catch (error) {
@@ -135,10 +136,22 @@ class UserService {
    * 用户登出
    */
   logout() {
+    if (this.user && this.user.token) {
+      // 通知服务端吊销令牌，失败不影响本地登出
+      fetch(`${this.baseUrl}/logout`, { method: 'POST', headers: this.authHeaders() }).catch(() => {});
+    }
     this.user = null;
     this.clearUserFromStorage(); // 从localStorage清除
   }
 
+  /**
+   * 当前用户令牌的认证请求头
+   * @returns {Object} 未登录时为空对象
+   */
+  authHeaders() {
+    return this.user && this.user.token ? { Authorization: `Bearer ${this.user.token}` } : {};
+  }
+
   /**
    * 获取当前用户
    * @returns {Object|null} 当前用户信息
@@ -162,7 +175,9 @@ class UserService {
    */
   async getUserConversations(userId) {
     try {
-      const response = await fetch(`${this.baseUrl}/${userId}/conversations`);
+      const response = await fetch(`${this.baseUrl}/${userId}/conversations`, {
+        headers: this.authHeaders(),
+      });
       
       // 检查响应是否为空
       const text = await response.text();
@@ -203,6 +218,7 @@ class UserService {
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
+          ...this.authHeaders(),
         },
         body: JSON.stringify({ title }),
       });
@@ -243,6 +259,7 @@ class UserService {
     try {
       const response = await fetch(`${this.baseUrl}/conversations/${conversationId}`, {
         method: 'DELETE',
+        headers: this.authHeaders(),
       });
 
       // 检查响应是否为空
@@ -279,7 +296,9 @@ class UserService {
    */
   async getConversationMessages(conversationId) {
     try {
-      const response = await fetch(`${this.baseUrl}/conversations/${conversationId}/messages`);
+      const response = await fetch(`${this.baseUrl}/conversations/${conversationId}/messages`, {
+        headers: this.authHeaders(),
+      });
       
       // 检查响应是否为空
       const text = await response.text();
@@ -309,7 +328,7 @@ class UserService {
   }
 
   /**
-   * 保存消息
+   * 保存消息（写入服务端缓冲后立即返回，返回的消息已带 ID）
    * @param {number} conversationId - 对话ID
    * @param {number} userId - 用户ID
    * @param {string} content - 消息内容
@@ -318,10 +337,11 @@ class UserService {
    */
   async saveMessage(conversationId, userId, content, senderType) {
     try {
-      const response = await fetch(`${this.baseUrl}/conversations/${conversationId}/messages`, {
+      const response = await fetch(`${this.baseUrl}/conversations/${conversationId}/messages/async`, {
         method: 'POST',
         headers: {
           'Content-Type': 'application/json',
+          ...this.authHeaders(),
         },
         body: JSON.stringify({ userId, content, senderType }),
       });